@@ -0,0 +1,188 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.ShapeFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Route large batches of origin-destination pairs in parallel on a {@link MapGraph}.
+ *
+ * @see MapGraph
+ */
+public class BatchRouter {
+    /**
+     * The OpenStreetMap XML file path.
+     */
+    private static final String OSM_DB_PATH = "seattle.osm.gz";
+    /**
+     * The TSV of OSM way accessibility scores.
+     */
+    private static final String ACCESS_PATH = "access.tsv";
+    /**
+     * Maximum number of routes computed but not yet emitted, per worker thread.
+     */
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    /**
+     * The map graph for routing.
+     */
+    private final MapGraph map;
+    /**
+     * The {@link Executor} for computing routes.
+     */
+    private final Executor executor;
+    /**
+     * Maximum number of routes computed but not yet emitted.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Constructs a batch router for the map graph that computes routes on the given executor.
+     *
+     * @param map         the {@link MapGraph} for routing.
+     * @param executor    the {@link Executor} for computing routes.
+     * @param maxInFlight the maximum number of routes computed but not yet emitted.
+     * @throws IllegalArgumentException if maxInFlight is not positive.
+     */
+    public BatchRouter(MapGraph map, Executor executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.map = map;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Routes every origin-destination pair, emitting each result on the calling thread as soon as it finishes. Results
+     * may be emitted in a different order than the pairs. New pairs are only taken from the iterator while fewer than
+     * maxInFlight routes are waiting to be emitted, so a slow consumer slows down the workers instead of letting
+     * results pile up in memory.
+     *
+     * @param pairs   the origin-destination pairs to route.
+     * @param results the consumer for each pair and its shortest path.
+     * @return the throughput in routes per second.
+     * @throws InterruptedException if interrupted while waiting for a route.
+     * @throws ExecutionException   if computing any route throws an exception.
+     */
+    public double routeAll(Iterator<Map.Entry<Point, Point>> pairs,
+                           BiConsumer<Map.Entry<Point, Point>, List<Point>> results)
+            throws InterruptedException, ExecutionException {
+        CompletionService<Map.Entry<Map.Entry<Point, Point>, List<Point>>> completed =
+                new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        long count = 0;
+        int inFlight = 0;
+        while (pairs.hasNext() || inFlight > 0) {
+            if (pairs.hasNext() && inFlight < maxInFlight) {
+                Map.Entry<Point, Point> pair = pairs.next();
+                completed.submit(() -> Map.entry(pair, map.shortestPath(pair.getKey(), pair.getValue())));
+                inFlight += 1;
+            } else {
+                Map.Entry<Map.Entry<Point, Point>, List<Point>> result = completed.take().get();
+                inFlight -= 1;
+                count += 1;
+                results.accept(result.getKey(), result.getValue());
+            }
+        }
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Routes each origin-destination pair in the given TSV file of start longitude, start latitude, goal longitude,
+     * and goal latitude. Prints each pair followed by its route as semicolon-separated longitude and latitude pairs,
+     * and prints the throughput to standard error. The number of worker threads defaults to the number of
+     * processors but can be set with the {@code THREADS} environment variable, and the street layout can be set with
+     * the {@code GRAPH_STORAGE} environment variable.
+     *
+     * @param args the path to the TSV file of origin-destination pairs.
+     * @throws Exception if the graph or the pairs cannot be read, or if routing fails.
+     */
+    public static void main(String[] args) throws Exception {
+        SpatialContext context = SpatialContext.GEO;
+        ShapeFactory factory = context.getShapeFactory();
+        MapGraph map = new MapGraph(OSM_DB_PATH, ACCESS_PATH, context, storage(), graphPath(storage()));
+        int threads = threads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BufferedReader input = new BufferedReader(new FileReader(args[0]))) {
+            Iterator<String> lines = input.lines().iterator();
+            Iterator<Map.Entry<Point, Point>> pairs = new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return lines.hasNext();
+                }
+
+                @Override
+                public Map.Entry<Point, Point> next() {
+                    String[] fields = lines.next().split("\t");
+                    return Map.entry(
+                            factory.pointLatLon(Double.parseDouble(fields[1]), Double.parseDouble(fields[0])),
+                            factory.pointLatLon(Double.parseDouble(fields[3]), Double.parseDouble(fields[2]))
+                    );
+                }
+            };
+            double throughput = new BatchRouter(map, executor, threads * IN_FLIGHT_PER_THREAD)
+                    .routeAll(pairs, (pair, route) -> {
+                        Point origin = pair.getKey();
+                        Point destination = pair.getValue();
+                        StringBuilder line = new StringBuilder();
+                        line.append(origin.getLon()).append('\t').append(origin.getLat()).append('\t');
+                        line.append(destination.getLon()).append('\t').append(destination.getLat()).append('\t');
+                        for (Point point : route) {
+                            line.append(point.getLon()).append(',').append(point.getLat()).append(';');
+                        }
+                        System.out.println(line);
+                    });
+            System.err.printf("%.1f routes/second on %d threads%n", throughput, threads);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of worker threads for routing.
+     *
+     * @return the number of worker threads for routing.
+     */
+    private static int threads() {
+        String threads = System.getenv("THREADS");
+        if (threads != null) {
+            return Integer.parseInt(threads);
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the street layout, which defaults to {@link MapGraph.Storage#HILBERT_ARRAYS} so that every worker thread
+     * searches by number in its own reusable workspace.
+     *
+     * @return the street layout.
+     */
+    private static MapGraph.Storage storage() {
+        String storage = System.getenv("GRAPH_STORAGE");
+        if (storage != null) {
+            return MapGraph.Storage.valueOf(storage);
+        }
+        return MapGraph.Storage.HILBERT_ARRAYS;
+    }
+
+    /**
+     * Returns the path of the graph file for the file layouts.
+     *
+     * @param layout the street layout.
+     * @return the path of the graph file.
+     */
+    private static Path graphPath(MapGraph.Storage layout) {
+        String graphPath = System.getenv("GRAPH_FILE");
+        if (graphPath != null) {
+            return Path.of(graphPath);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), OSM_DB_PATH + "." + layout.name().toLowerCase());
+    }
+}
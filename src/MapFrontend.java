@@ -0,0 +1,365 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import io.javalin.http.BadGatewayResponse;
+import io.javalin.http.Context;
+import io.javalin.http.GatewayTimeoutResponse;
+import io.javalin.http.HttpResponseException;
+import io.javalin.validation.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Run the Husky Maps front-end for a map split into regions, each served by a separate {@link MapServer} worker
+ * started with its own {@code OSM_FILE}. The front-end loads no map itself: it asks each worker for the bounds of its
+ * streets on startup and then forwards each map image request to the worker for its coordinates. Search requests near
+ * the border between regions are sent to every worker whose region is close by, and their results are merged by
+ * distance from the center. A worker that fails or times out only drops its own results from the merged search.
+ * <p>
+ * A route is computed by a single worker: the first whose region contains both the start and the goal, or else the
+ * first whose region contains the start. Give neighboring workers overlapping regions so that routes crossing the
+ * border between them can be found.
+ *
+ * @see MapServer
+ */
+public class MapFrontend {
+    /**
+     * Default port for serving the application locally.
+     */
+    private static final int PORT = 8080;
+    /**
+     * Maximum number of autocomplete search results.
+     */
+    private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum number of seconds to wait for a worker to respond.
+     */
+    private static final int TIMEOUT_SECONDS = 30;
+    /**
+     * Maximum number of seconds to wait on startup for the workers to load their regions.
+     */
+    private static final int STARTUP_SECONDS = 600;
+    /**
+     * Distance in degrees beyond the bounds of a region within which searches also query the worker for that region.
+     */
+    private static final double BORDER_MARGIN = 0.01;
+    /**
+     * Client for sending requests to the workers.
+     */
+    private static final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+            .build();
+    /**
+     * Parser for the JSON responses of the workers.
+     */
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        List<Region> regions = new ArrayList<>();
+        for (URI worker : workers()) {
+            regions.add(region(worker));
+        }
+        Javalin app = Javalin.create(config -> {
+            config.spaRoot.addFile("/", "index.html");
+        }).start(port());
+        app.get("/ready", ctx -> {
+            List<CompletableFuture<Integer>> statuses = new ArrayList<>(regions.size());
+            for (Region region : regions) {
+                // A worker that cannot be reached is not ready.
+                statuses.add(send(region.worker.resolve("/ready")).handle((response, error) ->
+                        error == null ? response.statusCode() : 503));
+            }
+            ctx.future(() -> CompletableFuture.allOf(statuses.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+                if (statuses.stream().allMatch(status -> status.join() == 200)) {
+                    ctx.result("ready");
+                } else {
+                    ctx.status(503).result("warming");
+                }
+            }));
+        });
+        app.get("/map/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            Region region;
+            try {
+                double startLon = ctx.queryParamAsClass("startLon", Double.class).get();
+                double startLat = ctx.queryParamAsClass("startLat", Double.class).get();
+                double goalLon = ctx.queryParamAsClass("goalLon", Double.class).get();
+                double goalLat = ctx.queryParamAsClass("goalLat", Double.class).get();
+                region = regions.stream()
+                        .filter(r -> r.contains(startLon, startLat, 0) && r.contains(goalLon, goalLat, 0))
+                        .findFirst()
+                        .orElse(nearest(regions, startLon, startLat));
+            } catch (ValidationException e) {
+                region = nearest(regions, lon, lat);
+            }
+            forward(ctx, region);
+        });
+        app.get("/search/{lon},{lat}/{term}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            List<Region> nearby = new ArrayList<>();
+            for (Region region : regions) {
+                if (region.contains(lon, lat, BORDER_MARGIN)) {
+                    nearby.add(region);
+                }
+            }
+            if (nearby.size() <= 1) {
+                forward(ctx, nearby.isEmpty() ? nearest(regions, lon, lat) : nearby.get(0));
+                return;
+            }
+            List<CompletableFuture<List<Map<String, Object>>>> responses = new ArrayList<>(nearby.size());
+            List<CompletableFuture<?>> settled = new ArrayList<>(nearby.size());
+            for (Region region : nearby) {
+                CompletableFuture<List<Map<String, Object>>> response =
+                        send(region.worker.resolve(ctx.req().getRequestURI() + "?distances=true"))
+                                .thenApply(MapFrontend::matches);
+                responses.add(response);
+                settled.add(response.handle((matches, error) -> null));
+            }
+            ctx.future(() -> CompletableFuture.allOf(settled.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> {
+                        // A place near the border may be in several regions, so keep its shortest distance. A worker
+                        // that fails only drops its own results, unless every worker fails.
+                        Map<String, Double> distances = new HashMap<>();
+                        Throwable failed = null;
+                        int succeeded = 0;
+                        for (int i = 0; i < responses.size(); i += 1) {
+                            Throwable error = responses.get(i).handle((matches, e) -> e).join();
+                            if (error != null) {
+                                System.err.println("Dropped search results of " + nearby.get(i).worker + ": "
+                                        + failure(error).getMessage());
+                                failed = error;
+                                continue;
+                            }
+                            succeeded += 1;
+                            for (Map<String, Object> match : responses.get(i).join()) {
+                                double distance = ((Number) match.get("distance")).doubleValue();
+                                distances.merge((String) match.get("name"), distance, Math::min);
+                            }
+                        }
+                        if (succeeded == 0) {
+                            throw failure(failed);
+                        }
+                        List<String> names = new ArrayList<>(distances.keySet());
+                        names.sort(Comparator.comparingDouble(distances::get));
+                        return names.subList(0, Math.min(MAX_MATCHES, names.size()));
+                    })
+                    .exceptionally(error -> {
+                        throw failure(error);
+                    })
+                    .thenAccept(ctx::json));
+        });
+    }
+
+    /**
+     * Forwards the request to the worker for the region and responds with the response of the worker.
+     *
+     * @param ctx    the context of the request.
+     * @param region the region whose worker handles the request.
+     */
+    private static void forward(Context ctx, Region region) {
+        String query = ctx.queryString();
+        URI uri = region.worker.resolve(ctx.req().getRequestURI() + (query == null ? "" : "?" + query));
+        ctx.future(() -> send(uri)
+                .exceptionally(error -> {
+                    throw failure(error);
+                })
+                .thenAccept(response -> {
+                    response.headers().firstValue("Content-Type").ifPresent(ctx::contentType);
+                    ctx.status(response.statusCode()).result(response.body());
+                }));
+    }
+
+    /**
+     * Returns the future response of a worker to a request for the URI.
+     *
+     * @param uri the URI of the request.
+     * @return the future response of the worker.
+     */
+    private static CompletableFuture<HttpResponse<byte[]>> send(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(TIMEOUT_SECONDS)).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Returns the exception to respond with when a request to a worker fails.
+     *
+     * @param error the exception thrown while sending the request.
+     * @return a {@link GatewayTimeoutResponse} if the worker timed out, or else a {@link BadGatewayResponse}.
+     */
+    private static RuntimeException failure(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof HttpResponseException) {
+            return (HttpResponseException) error;
+        }
+        if (error instanceof HttpTimeoutException) {
+            return new GatewayTimeoutResponse("Timed out after " + TIMEOUT_SECONDS + " seconds");
+        }
+        return new BadGatewayResponse("Could not reach worker: " + error);
+    }
+
+    /**
+     * Returns the names and distances in a search response from a worker.
+     *
+     * @param response the response to a search with distances.
+     * @return the list of search results, each with a name and a distance.
+     * @throws BadGatewayResponse   if the worker did not respond successfully.
+     * @throws UncheckedIOException if the response is not valid JSON.
+     */
+    private static List<Map<String, Object>> matches(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new BadGatewayResponse("Search failed on " + response.uri() + ": " + response.statusCode());
+        }
+        try {
+            return mapper.readValue(response.body(), new TypeReference<>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the region closest to the coordinates, which is a region that contains them if there is one.
+     *
+     * @param regions the list of regions.
+     * @param lon     the longitude.
+     * @param lat     the latitude.
+     * @return the region closest to the coordinates.
+     */
+    private static Region nearest(List<Region> regions, double lon, double lat) {
+        return Collections.min(regions, Comparator.comparingDouble(region -> region.distance(lon, lat)));
+    }
+
+    /**
+     * Returns the region served by the worker, waiting for the worker to finish loading its map graph.
+     *
+     * @param worker the base URI of the worker.
+     * @return the region served by the worker.
+     * @throws IOException           if the worker cannot be reached before {@link #STARTUP_SECONDS}.
+     * @throws IllegalStateException if the region of the worker has no streets.
+     * @throws InterruptedException  if interrupted while waiting for the worker.
+     */
+    private static Region region(URI worker) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(worker.resolve("/bounds"))
+                .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                .build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(STARTUP_SECONDS).toNanos();
+        while (true) {
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200) {
+                    double[] bounds = mapper.readValue(response.body(), double[].class);
+                    if (bounds.length != 4) {
+                        throw new IllegalStateException("No streets in the region of " + worker);
+                    }
+                    System.out.println("Region " + Arrays.toString(bounds) + " served by " + worker);
+                    return new Region(worker, bounds);
+                }
+            } catch (ConnectException e) {
+                // The worker is still loading its map graph.
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Worker " + worker + " did not start within " + STARTUP_SECONDS + " seconds");
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Returns the base URIs of the workers, one for each region of the map.
+     *
+     * @return the base URIs of the workers.
+     * @throws IllegalStateException if no workers are given.
+     */
+    private static List<URI> workers() {
+        String workers = System.getenv("WORKERS");
+        if (workers == null || workers.isBlank()) {
+            throw new IllegalStateException("WORKERS must list the comma-separated URLs of the MapServer workers");
+        }
+        List<URI> result = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            result.add(URI.create(worker.trim()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the port for communicating with the front-end.
+     *
+     * @return the port for communicating with the front-end.
+     */
+    private static int port() {
+        String port = System.getenv("PORT");
+        if (port != null) {
+            return Integer.parseInt(port);
+        }
+        return PORT;
+    }
+
+    /**
+     * The bounding box of the streets loaded by a worker.
+     */
+    private static class Region {
+        /**
+         * The base URI of the worker.
+         */
+        final URI worker;
+        /**
+         * The bounds of the streets in degrees.
+         */
+        final double west, south, east, north;
+
+        /**
+         * Constructs a region for the worker with the given bounds.
+         *
+         * @param worker the base URI of the worker.
+         * @param bounds the bounds of the streets as {west, south, east, north}.
+         */
+        Region(URI worker, double[] bounds) {
+            this.worker = worker;
+            this.west = bounds[0];
+            this.south = bounds[1];
+            this.east = bounds[2];
+            this.north = bounds[3];
+        }
+
+        /**
+         * Returns true if the coordinates are within the margin of the bounds of this region.
+         *
+         * @param lon    the longitude.
+         * @param lat    the latitude.
+         * @param margin the distance in degrees to expand the bounds by.
+         * @return true if the coordinates are within the margin of the bounds of this region.
+         */
+        boolean contains(double lon, double lat, double margin) {
+            return west - margin <= lon && lon <= east + margin && south - margin <= lat && lat <= north + margin;
+        }
+
+        /**
+         * Returns the distance in degrees from the coordinates to the bounds of this region, or 0 if they are inside.
+         *
+         * @param lon the longitude.
+         * @param lat the latitude.
+         * @return the distance in degrees from the coordinates to the bounds of this region.
+         */
+        double distance(double lon, double lat) {
+            double dx = Math.max(0, Math.max(west - lon, lon - east));
+            double dy = Math.max(0, Math.max(south - lat, lat - north));
+            return Math.hypot(dx, dy);
+        }
+    }
+}
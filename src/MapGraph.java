@@ -1,21 +1,47 @@
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
 import graphs.AStarGraph;
 import graphs.Edge;
+import graphs.EdgeConsumer;
+import graphs.IntAStarGraph;
 import graphs.shortestpaths.AStarSolver;
+import graphs.shortestpaths.AlternativeRoutesSolver;
+import graphs.shortestpaths.DijkstraSolver;
+import graphs.shortestpaths.IntAStarSolver;
+import graphs.shortestpaths.IntDijkstraSolver;
+import graphs.shortestpaths.ShortestPathSolver;
+import graphs.shortestpaths.TripSolver;
+import graphs.storage.ArrayGraphStorage;
+import graphs.storage.CompactGraphStorage;
+import graphs.storage.GraphStorage;
+import graphs.storage.MappedGraphStorage;
+import graphs.storage.PlaceTable;
+import graphs.storage.TiledGraphStorage;
 import minpq.DoubleMapMinPQ;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.impl.PointImpl;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
+import spatial.DistanceKernel;
+import spatial.EquirectangularKernel;
+import spatial.GridIndex;
+import spatial.HaversineKernel;
+import spatial.HilbertCurve;
+import spatial.Points;
+import spatial.SegmentRTree;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -28,11 +54,43 @@ public class MapGraph implements AStarGraph<Point> {
     private final String osmPath;
     private final String accessPath;
     private final SpatialContext context;
-    private final Map<Point, List<Edge<Point>>> neighbors;
-    private final Map<Long, Point> byId;
-    private final Map<String, List<Point>> byName;
-    private final Autocomplete autocomplete;
-    private final Map<Long, Double> accessScores;
+    private Map<Point, List<Edge<Point>>> neighbors;
+    private Map<Long, Point> byId;
+    private Map<String, List<Point>> byName;
+    private Map<Long, Double> accessScores;
+    private final Point[] vertices;
+    private final GridIndex index;
+    private final int[] segmentFrom;
+    private final int[] segmentTo;
+    private final SegmentRTree segments;
+    private final PlaceTable placeTable;
+    private final GridIndex places;
+    private final DistanceKernel exact;
+    private final DistanceKernel heuristic;
+    private final double[] bounds;
+    private final long version;
+    private final GraphStorage storage;
+    private Streets streets;
+    /**
+     * Initial number of nearest locations by the spatial index to compare by exact distance when snapping.
+     */
+    private static final int CLOSEST_CANDIDATES = 4;
+    /**
+     * Maximum difference in degrees between a target and its snapped point for the target to be on the street.
+     */
+    private static final double ON_STREET_TOLERANCE = 1e-9;
+    /**
+     * Number of locations in each tile for the tiled file layout.
+     */
+    private static final int TILE_SIZE = 4096;
+    /**
+     * Maximum number of tiles in memory for the tiled file layout.
+     */
+    private static final int MAX_CACHED_TILES = 64;
+    /**
+     * Size in bytes of the buffer for checksumming the input files.
+     */
+    private static final int CHECKSUM_BUFFER = 1 << 16;
     private static final Set<String> allowedHighwayTypes = Set.of(
             "motorway",
             "trunk",
@@ -49,6 +107,41 @@ public class MapGraph implements AStarGraph<Point> {
             "tertiary_link"
     );
 
+    /**
+     * In-memory layouts for the streets of a map graph.
+     */
+    public enum Storage {
+        /**
+         * A {@link HashMap} from each location to its list of outgoing edges.
+         */
+        HASH_MAP,
+        /**
+         * Primitive adjacency arrays with locations numbered along a Hilbert curve, so that locations that are close
+         * on the map are also close in memory.
+         */
+        HILBERT_ARRAYS,
+        /**
+         * Hilbert-ordered adjacency arrays with fixed-point integer coordinates and single-precision weights, as in
+         * {@link CompactGraphStorage}. Locations are not stored as objects but created when needed, and looked up by
+         * position in the spatial index, for the smallest memory footprint on large regions.
+         */
+        COMPACT_ARRAYS,
+        /**
+         * The same arrays as {@link #COMPACT_ARRAYS} in a read-only memory-mapped file, as in
+         * {@link MappedGraphStorage}, so the streets and named places are stored off the heap and shared between
+         * processes. The file is written when it does not exist or was written for a different version of the graph;
+         * otherwise the input files are not parsed.
+         */
+        MAPPED_FILE,
+        /**
+         * The same arrays as {@link #COMPACT_ARRAYS} partitioned into tiles of nearby locations in a file, as in
+         * {@link TiledGraphStorage}, so only the recently-used tiles are kept in memory and the named places are
+         * stored off the heap. The file is written when it does not exist or was written for a different version of
+         * the graph; otherwise the input files are not parsed.
+         */
+        TILED_FILE
+    }
+
     /**
      * Constructs a new map graph from the path to an OSM GZ file and a places TSV.
      *
@@ -60,30 +153,296 @@ public class MapGraph implements AStarGraph<Point> {
      */
     public MapGraph(String osmPath, String accessPath, SpatialContext context)
             throws ParserConfigurationException, SAXException, IOException {
+        this(osmPath, accessPath, context, Storage.HASH_MAP);
+    }
+
+    /**
+     * Constructs a new map graph from the path to an OSM GZ file and a places TSV with the given street layout.
+     *
+     * @param osmPath    The path to a gzipped OSM (XML) file.
+     * @param accessPath The path to a TSV file representing access scores for each OSM way.
+     * @param layout     The {@link Storage} layout for the streets.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     * @throws SAXException                 for SAX errors.
+     * @throws IOException                  if a file is not found or if the file is not gzipped.
+     */
+    public MapGraph(String osmPath, String accessPath, SpatialContext context, Storage layout)
+            throws ParserConfigurationException, SAXException, IOException {
+        this(osmPath, accessPath, context, layout, null);
+    }
+
+    /**
+     * Constructs a new map graph from the path to an OSM GZ file and a places TSV with the given street layout, using
+     * the graph file at the given path if the layout is {@link Storage#MAPPED_FILE} or {@link Storage#TILED_FILE}.
+     *
+     * @param osmPath    The path to a gzipped OSM (XML) file.
+     * @param accessPath The path to a TSV file representing access scores for each OSM way.
+     * @param layout     The {@link Storage} layout for the streets.
+     * @param graphPath  The path to the graph file for the file layouts.
+     * @throws ParserConfigurationException if a parser cannot be created.
+     * @throws SAXException                 for SAX errors.
+     * @throws IOException                  if a file is not found, if the file is not gzipped, or if the graph file
+     *                                      cannot be written or read.
+     * @throws IllegalArgumentException     if the layout is a file layout and the graph path is null.
+     */
+    public MapGraph(String osmPath, String accessPath, SpatialContext context, Storage layout, Path graphPath)
+            throws ParserConfigurationException, SAXException, IOException {
+        if ((layout == Storage.MAPPED_FILE || layout == Storage.TILED_FILE) && graphPath == null) {
+            throw new IllegalArgumentException("File layouts require a graph path");
+        }
         this.osmPath = osmPath;
         this.accessPath = accessPath;
         this.context = context;
 
-        // Parse the Project Sidewalk access scores
-        accessScores = new HashMap<>();
-        try (Scanner input = new Scanner(fileStream(accessPath))) {
-            input.nextLine(); // Skip header
-            while (input.hasNextLine()) {
-                Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-                accessScores.put(line.nextLong(), line.nextDouble());
+        // Checksum the input files to identify this version of the graph before deciding whether to parse them.
+        CRC32 checksum = new CRC32();
+        checksum(accessPath, checksum);
+        checksum(osmPath, checksum);
+        // Layouts with fixed-point coordinates and single-precision weights can find slightly different routes.
+        checksum.update(layout.name().getBytes(StandardCharsets.UTF_8));
+        version = checksum.getValue();
+        exact = new HaversineKernel();
+
+        Map<Point, Integer> numbers = new HashMap<>();
+        GraphStorage stored = stored(layout, graphPath);
+        if (stored != null) {
+            // An earlier run or another process already wrote the graph file for this version of the graph, including
+            // the named places, so the input files are not parsed at all.
+            vertices = null;
+            storage = stored;
+            placeTable = places(stored);
+        } else {
+            // Parse the Project Sidewalk access scores
+            accessScores = new HashMap<>();
+            try (Scanner input = new Scanner(fileStream(accessPath))) {
+                input.nextLine(); // Skip header
+                while (input.hasNextLine()) {
+                    Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
+                    accessScores.put(line.nextLong(), line.nextDouble());
+                }
+            }
+
+            // Parse the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
+            neighbors = new HashMap<>();
+            byId = new HashMap<>();
+            byName = new HashMap<>();
+            SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+            saxParser.parse(new GZIPInputStream(fileStream(osmPath)), new Handler());
+            placeTable = table(byName);
+            // Release the lookup tables that are only needed while parsing.
+            byId = null;
+            byName = null;
+            accessScores = null;
+
+            // Index the locations on the street network by position.
+            Point[] locations = neighbors.keySet().toArray(new Point[0]);
+            double[] lats = new double[locations.length];
+            double[] lons = new double[locations.length];
+            for (int i = 0; i < locations.length; i += 1) {
+                lats[i] = locations[i].getLat();
+                lons[i] = locations[i].getLon();
+            }
+            if (layout == Storage.HASH_MAP) {
+                vertices = locations;
+                for (int i = 0; i < locations.length; i += 1) {
+                    numbers.put(locations[i], i);
+                }
+                storage = null;
+            } else {
+                // Renumber the locations along a Hilbert curve and lay out their edges in that order.
+                int[] order = HilbertCurve.order(lats, lons);
+                Point[] sorted = new Point[locations.length];
+                for (int i = 0; i < order.length; i += 1) {
+                    sorted[i] = locations[order[i]];
+                    lats[i] = sorted[i].getLat();
+                    lons[i] = sorted[i].getLon();
+                    numbers.put(sorted[i], i);
+                }
+                int[] offsets = new int[sorted.length + 1];
+                for (int i = 0; i < sorted.length; i += 1) {
+                    offsets[i + 1] = offsets[i] + neighbors.get(sorted[i]).size();
+                }
+                int[] targets = new int[offsets[sorted.length]];
+                double[] weights = new double[targets.length];
+                for (int i = 0; i < sorted.length; i += 1) {
+                    int edge = offsets[i];
+                    for (Edge<Point> e : neighbors.get(sorted[i])) {
+                        targets[edge] = numbers.get(e.to);
+                        weights[edge] = e.weight;
+                        edge += 1;
+                    }
+                }
+                if (layout == Storage.HILBERT_ARRAYS) {
+                    vertices = new Point[sorted.length];
+                    for (int i = 0; i < sorted.length; i += 1) {
+                        vertices[i] = new Location(lats[i], lons[i], i);
+                    }
+                    storage = new ArrayGraphStorage(lats, lons, offsets, targets, weights);
+                } else if (layout == Storage.COMPACT_ARRAYS) {
+                    vertices = null;
+                    storage = new CompactGraphStorage(lats, lons, offsets, targets, weights);
+                } else {
+                    CompactGraphStorage compact = new CompactGraphStorage(lats, lons, offsets, targets, weights);
+                    vertices = null;
+                    if (layout == Storage.MAPPED_FILE) {
+                        MappedGraphStorage.write(compact, placeTable, graphPath, version);
+                    } else {
+                        TiledGraphStorage.write(compact, placeTable, graphPath, version, TILE_SIZE);
+                    }
+                    storage = stored(layout, graphPath);
+                    if (storage == null) {
+                        throw new IOException("Could not read the graph file " + graphPath);
+                    }
+                }
+            }
+            if (storage != null) {
+                neighbors = null;
+            }
+        }
+        // Index the stored coordinates in place, so that lookups by position match the created locations exactly and
+        // layouts that keep their coordinates compact or in a file never copy them onto the heap.
+        Points points = storage != null ? storage : new Points() {
+            @Override
+            public int size() {
+                return vertices.length;
+            }
+
+            @Override
+            public double lat(int point) {
+                return vertices[point].getLat();
+            }
+
+            @Override
+            public double lon(int point) {
+                return vertices[point].getLon();
+            }
+        };
+        index = new GridIndex(points);
+
+        // Estimate distances between locations on the street network with a planar projection over their bounds.
+        bounds = index.bounds();
+        if (bounds.length == 0) {
+            heuristic = exact;
+        } else {
+            heuristic = new EquirectangularKernel(bounds[1], bounds[3], bounds[0], bounds[2]);
+        }
+
+        // Index each street segment once, although it is stored as an edge in both directions.
+        int edges = storage != null ? storage.firstEdge(points.size())
+                : neighbors.values().stream().mapToInt(List::size).sum();
+        int[] froms = new int[edges], tos = new int[edges];
+        int count = 0;
+        for (int i = 0; i < points.size(); i += 1) {
+            if (storage == null) {
+                for (Edge<Point> edge : neighbors.get(vertices[i])) {
+                    int j = numbers.get(edge.to);
+                    if (ascending(points, i, j)) {
+                        froms[count] = i;
+                        tos[count] = j;
+                        count += 1;
+                    }
+                }
+            } else {
+                for (int edge = storage.firstEdge(i); edge < storage.firstEdge(i + 1); edge += 1) {
+                    int j = storage.target(edge);
+                    if (ascending(points, i, j)) {
+                        froms[count] = i;
+                        tos[count] = j;
+                        count += 1;
+                    }
+                }
             }
         }
+        segmentFrom = Arrays.copyOf(froms, count);
+        segmentTo = Arrays.copyOf(tos, count);
+        segments = new SegmentRTree(points, segmentFrom, segmentTo);
+
+        // Index every named location by position, including places that are not on the street network.
+        places = new GridIndex(placeTable);
+    }
+
+    /**
+     * Returns true if the first point comes before the second point in order of latitude and then longitude, so that
+     * each street segment is indexed in only one of its two directions.
+     *
+     * @param points the coordinates of the points.
+     * @param i      the number of the first point.
+     * @param j      the number of the second point.
+     * @return true if the first point comes before the second point.
+     */
+    private static boolean ascending(Points points, int i, int j) {
+        double lat = points.lat(i), otherLat = points.lat(j);
+        return lat < otherLat || lat == otherLat && points.lon(i) < points.lon(j);
+    }
+
+    /**
+     * Returns the storage read from the graph file for this version of the graph, or null if the layout does not use a
+     * graph file or the file cannot be used.
+     *
+     * @param layout    the {@link Storage} layout for the streets.
+     * @param graphPath the path to the graph file.
+     * @return the storage read from the graph file, or null if there is no file or the file is missing or stale.
+     * @throws IOException if an I/O error occurs.
+     */
+    private GraphStorage stored(Storage layout, Path graphPath) throws IOException {
+        if (layout == Storage.MAPPED_FILE) {
+            return MappedGraphStorage.open(graphPath, version);
+        } else if (layout == Storage.TILED_FILE) {
+            return TiledGraphStorage.open(graphPath, version, MAX_CACHED_TILES);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the named places stored in the graph file alongside the streets.
+     *
+     * @param stored the storage read from the graph file.
+     * @return the table of named places in the graph file.
+     */
+    private static PlaceTable places(GraphStorage stored) {
+        if (stored instanceof MappedGraphStorage mapped) {
+            return mapped.places();
+        }
+        return ((TiledGraphStorage) stored).places();
+    }
 
-        // Parse the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
-        neighbors = new HashMap<>();
-        byId = new HashMap<>();
-        byName = new HashMap<>();
-        SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
-        saxParser.parse(new GZIPInputStream(fileStream(osmPath)), new Handler());
+    /**
+     * Returns a table of the named locations, which keeps the locations with each name in the order they were parsed.
+     *
+     * @param byName the locations with each name.
+     * @return a table of the named locations.
+     */
+    private static PlaceTable table(Map<String, List<Point>> byName) {
+        List<String> names = new ArrayList<>();
+        List<Point> named = new ArrayList<>();
+        for (Map.Entry<String, List<Point>> entry : byName.entrySet()) {
+            for (Point location : entry.getValue()) {
+                names.add(entry.getKey());
+                named.add(location);
+            }
+        }
+        double[] lats = new double[named.size()], lons = new double[named.size()];
+        for (int i = 0; i < named.size(); i += 1) {
+            lats[i] = named.get(i).getLat();
+            lons[i] = named.get(i).getLon();
+        }
+        return PlaceTable.of(names.toArray(new String[0]), lats, lons);
+    }
 
-        // Add reachable locations to the Autocomplete engine.
-        autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(byName.keySet());
+    /**
+     * Updates the checksum with the contents of the file at the given path.
+     *
+     * @param path     a file path.
+     * @param checksum the checksum to update.
+     * @throws IOException if the file cannot be read.
+     */
+    private static void checksum(String path, CRC32 checksum) throws IOException {
+        try (InputStream input = fileStream(path)) {
+            byte[] buffer = new byte[CHECKSUM_BUFFER];
+            for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+                checksum.update(buffer, 0, n);
+            }
+        }
     }
 
     /**
@@ -97,17 +456,80 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Returns the location closest to the given target location.
+     * Returns the location closest to the given target location. The spatial index finds the few nearest locations
+     * using a flat projection, which are then compared by their exact distance to the target. The search is widened
+     * until the flat projection guarantees that no other location is closer, which only matters far from the center
+     * of the map where the projection is distorted.
      *
      * @param target the target location.
      * @return the id of the location closest to the target.
+     * @throws NoSuchElementException if this graph has no streets.
+     * @see GridIndex#lowerBound(double, double, double, double)
      */
     public Point closest(Point target) {
-        if (neighbors.containsKey(target)) {
+        if (isVertex(target)) {
             return target;
         }
-        return Collections.min(neighbors.keySet(),
-                Comparator.comparingDouble(p -> estimatedDistance(target, p)));
+        for (int k = CLOSEST_CANDIDATES; ; k *= 2) {
+            List<Point> candidates = nearest(target, k);
+            Point best = Collections.min(candidates, Comparator.comparingDouble(p -> distance(target, p)));
+            if (candidates.size() < k) {
+                return best;
+            }
+            Point farthest = candidates.get(k - 1);
+            double bound = index.lowerBound(target.getLat(), target.getLon(), farthest.getLat(), farthest.getLon());
+            if (distance(target, best) <= bound) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Returns the point on the street network closest to the given target location. Unlike {@link #closest(Point)},
+     * the point may lie partway along a street between two locations, in which case it is a virtual location that
+     * routes can start or end at but that is not itself part of this graph.
+     *
+     * @param target the target location.
+     * @return the point on the street network closest to the target.
+     */
+    public Point closestOnStreet(Point target) {
+        return snap(target).point;
+    }
+
+    /**
+     * Returns up to k locations on the street network nearest to the target location, nearest first.
+     *
+     * @param target the target location.
+     * @param k      the maximum number of locations.
+     * @return a list of up to k locations nearest to the target, nearest first.
+     */
+    public List<Point> nearest(Point target, int k) {
+        return locations(index.kNearest(target.getLat(), target.getLon(), k));
+    }
+
+    /**
+     * Returns the locations on the street network within the radius of the target location, nearest first.
+     *
+     * @param target the target location.
+     * @param radius the radius in degrees of arc.
+     * @return a list of locations within the radius of the target, nearest first.
+     */
+    public List<Point> near(Point target, double radius) {
+        return locations(index.withinRadius(target.getLat(), target.getLon(), radius));
+    }
+
+    /**
+     * Returns the locations with the given spatial index numbers.
+     *
+     * @param found the spatial index numbers.
+     * @return a list of the locations in the same order.
+     */
+    private List<Point> locations(int[] found) {
+        List<Point> result = new ArrayList<>(found.length);
+        for (int i : found) {
+            result.add(vertex(i));
+        }
+        return result;
     }
 
     /**
@@ -117,14 +539,81 @@ public class MapGraph implements AStarGraph<Point> {
      * @return a list of full names of locations matching the prefix.
      */
     public List<CharSequence> getLocationsByPrefix(String prefix, Point center, int maxMatches) {
-        List<CharSequence> matches = autocomplete.allMatches(prefix);
+        List<CharSequence> matches = placeTable.allMatches(prefix);
         Map<CharSequence, Double> elementsAndPriorities = new HashMap<>(matches.size());
         for (CharSequence match : matches) {
-            elementsAndPriorities.put(match, estimatedDistance(center, byName.get(match).get(0)));
+            elementsAndPriorities.put(match, estimatedDistance(center, place(placeTable.places(match)[0])));
         }
         return new DoubleMapMinPQ<>(elementsAndPriorities).removeMin(maxMatches);
     }
 
+    /**
+     * Returns up to the given number of named locations within the radius of the center, nearest first. Each result
+     * pairs the name of a location with its position, so a name with several locations may appear more than once.
+     *
+     * @param center     the center of the search.
+     * @param radius     the radius in degrees of arc.
+     * @param maxMatches the maximum number of locations.
+     * @return a list of up to maxMatches names and locations within the radius of the center, nearest first.
+     */
+    public List<Map.Entry<String, Point>> getLocationsNear(Point center, double radius, int maxMatches) {
+        int[] found = places.kNearest(center.getLat(), center.getLon(), maxMatches, radius);
+        List<Map.Entry<String, Point>> result = new ArrayList<>(found.length);
+        for (int i : found) {
+            result.add(Map.entry(placeTable.name(i), place(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name and position of the named location closest to the target, or null if no location has a name.
+     * The spatial index finds the few nearest named locations using a flat projection, which are then compared by
+     * their exact distance to the target, widening the search as in {@link #closest(Point)}.
+     *
+     * @param target the target location.
+     * @return the name and position of the named location closest to the target, or null if there are none.
+     */
+    public Map.Entry<String, Point> reverseGeocode(Point target) {
+        for (int k = CLOSEST_CANDIDATES; ; k *= 2) {
+            int[] found = places.kNearest(target.getLat(), target.getLon(), k);
+            int best = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int i : found) {
+                double d = exact.distance(target.getLat(), target.getLon(), placeTable.lat(i), placeTable.lon(i));
+                if (best == -1 || d < bestDistance) {
+                    best = i;
+                    bestDistance = d;
+                }
+            }
+            if (best == -1) {
+                return null;
+            }
+            int farthest = found[found.length - 1];
+            if (found.length < k || bestDistance <= places.lowerBound(target.getLat(), target.getLon(),
+                    placeTable.lat(farthest), placeTable.lon(farthest))) {
+                return Map.entry(placeTable.name(best), place(best));
+            }
+        }
+    }
+
+    /**
+     * Returns the name and position of the named location closest to each of the targets.
+     *
+     * @param targets the target locations.
+     * @return a list of the closest named location to each target in the same order, or an empty list if no location
+     * has a name.
+     */
+    public List<Map.Entry<String, Point>> reverseGeocode(List<Point> targets) {
+        if (places.size() == 0) {
+            return List.of();
+        }
+        List<Map.Entry<String, Point>> result = new ArrayList<>(targets.size());
+        for (Point target : targets) {
+            result.add(reverseGeocode(target));
+        }
+        return result;
+    }
+
     /**
      * Return all locations that match a valid location name.
      *
@@ -132,51 +621,978 @@ public class MapGraph implements AStarGraph<Point> {
      * @return a list of locations whose name matches the location name.
      */
     public List<Point> getLocations(String locationName) {
-        return byName.getOrDefault(locationName, List.of());
+        int[] found = placeTable.places(locationName);
+        List<Point> result = new ArrayList<>(found.length);
+        for (int i : found) {
+            result.add(place(i));
+        }
+        return result;
     }
 
     /**
-     * Returns a list of points representing the shortest path from the points closest to the start and goal.
+     * Returns the position of the named location with the given number in the table of named locations.
+     *
+     * @param i the number of the named location.
+     * @return the position of the named location.
+     */
+    private Point place(int i) {
+        return context.getShapeFactory().pointLatLon(placeTable.lat(i), placeTable.lon(i));
+    }
+
+    /**
+     * Returns a list of points representing the shortest path between the points on the street network closest to the
+     * start and goal. The path begins and ends partway along a street if that is where the start and goal are closest.
+     * Layouts with primitive adjacency arrays are searched by number with an {@link IntAStarSolver}.
      *
      * @param start the {@link Point} to start the shortest path.
      * @param goal  the {@link Point} to end the shortest path.
-     * @return a list of points representing the shortest path from the points closest to the start and goal.
+     * @return a list of points representing the shortest path from the points on the street closest to the start and
+     * goal.
+     * @see #closestOnStreet(Point)
      */
     public List<Point> shortestPath(Point start, Point goal) {
-        return new AStarSolver<>(this, closest(start), closest(goal)).solution();
+        Snap from = snap(start);
+        Snap to = snap(goal);
+        if (storage == null) {
+            return new AStarSolver<>(new Overlay(from, to), from.point, to.point).solution();
+        }
+        // Search the numbered streets directly rather than creating an edge for every street.
+        StreetOverlay overlay = new StreetOverlay(from, to);
+        return overlay.locations(new IntAStarSolver(overlay, overlay.id(from), overlay.id(to)).solution());
+    }
+
+    /**
+     * Returns up to k reasonable routes between the points closest to the start and goal, beginning with the shortest
+     * path. Alternatives share the forward and backward search effort of a single query.
+     *
+     * @param start      the {@link Point} to start each route.
+     * @param goal       the {@link Point} to end each route.
+     * @param k          the maximum number of routes, including the shortest path.
+     * @param maxStretch the maximum additional distance of an alternative as a fraction of the shortest path.
+     * @param maxOverlap the maximum shared distance between routes as a fraction of the shortest path.
+     * @param minPlateau the minimum locally-optimal distance of an alternative as a fraction of the shortest path.
+     * @return an {@link AlternativeRoutesSolver} for the routes and their distances.
+     */
+    public AlternativeRoutesSolver<Point> alternatives(Point start, Point goal, int k,
+                                                       double maxStretch, double maxOverlap, double minPlateau) {
+        // Every street is added in both directions with equal weights, so this graph is its own reverse.
+        return new AlternativeRoutesSolver<>(this, this, closest(start), closest(goal), k,
+                maxStretch, maxOverlap, minPlateau);
+    }
+
+    /**
+     * Returns a trip visiting the points closest to each of the stops. If optimize is true, the stops after the first
+     * may be visited in any order that shortens the trip.
+     *
+     * @param stops    the {@link Point} locations to visit, beginning with the start of the trip.
+     * @param optimize whether to reorder the stops after the first stop.
+     * @return a {@link TripSolver} for the order of the stops and the stitched path visiting them.
+     */
+    public TripSolver<Point> trip(List<Point> stops, boolean optimize) {
+        List<Point> vertices = new ArrayList<>(stops.size());
+        for (Point stop : stops) {
+            vertices.add(closest(stop));
+        }
+        return new TripSolver<>(this, vertices, optimize);
+    }
+
+    /**
+     * Returns the shortest path tree from the point on the street network closest to the start to every reachable
+     * location. Once computed, the tree answers shortest path queries from the same start in time proportional to the
+     * length of the path, including queries for goals partway along a street.
+     *
+     * @param start the {@link Point} to start each shortest path.
+     * @return a {@link ShortestPathSolver} holding the shortest path tree from the point on the street closest to the
+     * start.
+     * @see #closestOnStreet(Point)
+     */
+    public ShortestPathSolver<Point> shortestPathTree(Point start) {
+        return new StreetTree(snap(start));
+    }
+
+    /**
+     * Returns the shortest path distances from the point closest to the origin to the points closest to each of the
+     * destinations. Runs a single one-to-many search that stops once every destination has been reached.
+     *
+     * @param origin       the {@link Point} to start each shortest path.
+     * @param destinations the {@link Point} locations to end each shortest path.
+     * @return an array of shortest path distances in the same order as the destinations.
+     */
+    public double[] distances(Point origin, List<Point> destinations) {
+        Streets streets = streets();
+        int[] targets = new int[destinations.size()];
+        for (int i = 0; i < targets.length; i += 1) {
+            targets[i] = streets.id(closest(destinations.get(i)));
+        }
+        IntDijkstraSolver solver = new IntDijkstraSolver(streets, streets.id(closest(origin)), targets,
+                Double.POSITIVE_INFINITY);
+        double[] result = new double[targets.length];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = solver.distTo(targets[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the many-to-many matrix of shortest path distances between the points closest to the origins and
+     * destinations without building any path geometry. Each row is computed in parallel on the executor by a
+     * one-to-many search from its origin, but the rows are returned in order so that callers can stream them as they
+     * are completed.
+     *
+     * @param origins      the {@link Point} locations to start each shortest path.
+     * @param destinations the {@link Point} locations to end each shortest path.
+     * @param executor     the {@link Executor} for computing the rows.
+     * @return a stream of rows, one for each origin, containing the distances to each destination.
+     * @see #distances(Point, List)
+     */
+    public Stream<double[]> distanceMatrix(List<Point> origins, List<Point> destinations, Executor executor) {
+        List<Point> targets = new ArrayList<>(destinations.size());
+        for (Point destination : destinations) {
+            targets.add(closest(destination));
+        }
+        List<CompletableFuture<double[]>> rows = new ArrayList<>(origins.size());
+        for (Point origin : origins) {
+            rows.add(CompletableFuture.supplyAsync(() -> distances(origin, targets), executor));
+        }
+        return rows.stream().map(CompletableFuture::join);
+    }
+
+    /**
+     * Returns the locations reachable from the point closest to the start within the given weighted distance budget.
+     * The search is bounded by the budget rather than exploring the entire graph.
+     *
+     * @param start  the {@link Point} to start each shortest path.
+     * @param budget the maximum weighted distance of any shortest path.
+     * @return the set of locations whose shortest path distance from the start is within the budget.
+     */
+    public Set<Point> reachable(Point start, double budget) {
+        Streets streets = streets();
+        IntDijkstraSolver solver = new IntDijkstraSolver(streets, streets.id(closest(start)), null, budget);
+        int[] reached = solver.reached();
+        Set<Point> result = new HashSet<>(reached.length * 4 / 3 + 1);
+        for (int id : reached) {
+            result.add(streets.location(id));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a view of the street network with locations numbered from 0 up to the number of locations, for solvers
+     * of {@link graphs.IntGraph} that never box vertices. The hash map layout has no numbered edges, so the first call
+     * lays out its edges in primitive adjacency arrays; the other layouts use their storage directly.
+     *
+     * @return a numbered view of the street network.
+     */
+    public synchronized Streets streets() {
+        if (streets == null) {
+            streets = new Streets(storage != null ? storage : numbered());
+        }
+        return streets;
+    }
+
+    /**
+     * Returns primitive adjacency arrays for the hash map layout with locations numbered in the same order as the
+     * spatial index.
+     *
+     * @return the numbered adjacency arrays for the streets.
+     */
+    private GraphStorage numbered() {
+        Map<Point, Integer> numbers = new HashMap<>();
+        double[] lats = new double[vertices.length];
+        double[] lons = new double[vertices.length];
+        int[] offsets = new int[vertices.length + 1];
+        for (int i = 0; i < vertices.length; i += 1) {
+            numbers.put(vertices[i], i);
+            lats[i] = vertices[i].getLat();
+            lons[i] = vertices[i].getLon();
+            offsets[i + 1] = offsets[i] + neighbors.get(vertices[i]).size();
+        }
+        int[] targets = new int[offsets[vertices.length]];
+        double[] weights = new double[targets.length];
+        for (int i = 0; i < vertices.length; i += 1) {
+            int edge = offsets[i];
+            for (Edge<Point> e : neighbors.get(vertices[i])) {
+                targets[edge] = numbers.get(e.to);
+                weights[edge] = e.weight;
+                edge += 1;
+            }
+        }
+        return new ArrayGraphStorage(lats, lons, offsets, targets, weights);
+    }
+
+    /**
+     * Returns the bounding box of the locations on the street network as {west, south, east, north}, the order used by
+     * GeoJSON, or an empty array if there are no streets.
+     *
+     * @return the bounding box of the locations on the street network.
+     */
+    public double[] bounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Returns a checksum of the input files and the street layout identifying this version of the graph. Results
+     * computed on a graph remain valid for any other graph with the same version.
+     *
+     * @return a checksum of the input files and the street layout.
+     */
+    public long version() {
+        return version;
     }
 
     @Override
     public List<Edge<Point>> neighbors(Point point) {
-        return neighbors.computeIfAbsent(point, (p) -> List.of());
+        if (storage == null) {
+            return neighbors.getOrDefault(point, List.of());
+        }
+        int id = id(point);
+        if (id < 0) {
+            return List.of();
+        }
+        int first = storage.firstEdge(id);
+        int last = storage.firstEdge(id + 1);
+        List<Edge<Point>> result = new ArrayList<>(last - first);
+        for (int edge = first; edge < last; edge += 1) {
+            result.add(new Edge<>(point, vertex(storage.target(edge)), storage.weight(edge)));
+        }
+        return result;
     }
 
     @Override
-    public double estimatedDistance(Point start, Point end) {
-        return context.calcDistance(start, end);
+    public void forEachNeighbor(Point point, EdgeConsumer<Point> action) {
+        if (storage == null) {
+            for (Edge<Point> e : neighbors.getOrDefault(point, List.of())) {
+                action.accept(e.to, e.weight);
+            }
+            return;
+        }
+        int id = id(point);
+        if (id < 0) {
+            return;
+        }
+        int last = storage.firstEdge(id + 1);
+        for (int edge = storage.firstEdge(id); edge < last; edge += 1) {
+            action.accept(vertex(storage.target(edge)), storage.weight(edge));
+        }
     }
 
-    @Override
-    public String toString() {
-        return "MapGraph{" +
-                "osmPath='" + osmPath + '\'' +
-                ", accessPath='" + accessPath + '\'' +
-                ", context='" + context + '\'' +
-                '}';
+    /**
+     * Returns true if and only if the point is a location on the street network.
+     *
+     * @param point the point to check.
+     * @return true if and only if the point is a location on the street network.
+     */
+    private boolean isVertex(Point point) {
+        return storage == null ? neighbors.containsKey(point) : id(point) >= 0;
     }
 
     /**
-     * Adds an edge to this graph if it doesn't already exist using distance as the weight.
+     * Returns the number of the location in the storage, or -1 if the point is not a location on the street network.
+     * Locations created by this graph carry their number; for any other point, the location nearest to the point in
+     * the spatial index is checked for the same position instead.
      *
-     * @param from the originating point of the edge.
-     * @param to the terminating point of the edge.
-     * @param accessScore the access score for the edge where 0 is inaccessible and 1 is accessible.
+     * @param point the point to look up.
+     * @return the number of the location in the storage, or -1 if the point is not a location.
      */
-    private void addEdge(Point from, Point to, double accessScore) {
-        if (!neighbors.containsKey(from)) {
-            neighbors.put(from, new ArrayList<>());
+    private int id(Point point) {
+        if (point instanceof Location location && location.graph() == this) {
+            return location.id;
+        }
+        int nearest = index.nearest(point.getLat(), point.getLon());
+        if (nearest < 0) {
+            return -1;
+        }
+        double lat = vertices != null ? vertices[nearest].getLat() : storage.lat(nearest);
+        double lon = vertices != null ? vertices[nearest].getLon() : storage.lon(nearest);
+        return lat == point.getLat() && lon == point.getLon() ? nearest : -1;
+    }
+
+    /**
+     * Returns the location with the given number, creating it from the storage if locations are not stored as objects.
+     *
+     * @param id the number of the location.
+     * @return the location with the given number.
+     */
+    private Point vertex(int id) {
+        if (vertices != null) {
+            return vertices[id];
+        }
+        return new Location(storage.lat(id), storage.lon(id), id);
+    }
+
+    /**
+     * Returns the great-circle distance between the two points in degrees of arc.
+     *
+     * @param start the first point.
+     * @param end   the second point.
+     * @return the distance between the two points in degrees of arc.
+     */
+    public double distance(Point start, Point end) {
+        return exact.distance(start.getLat(), start.getLon(), end.getLat(), end.getLon());
+    }
+
+    /**
+     * {@inheritDoc} The estimate never exceeds the great-circle distance, and it is much faster to compute for points
+     * inside the bounds of the street network.
+     */
+    @Override
+    public double estimatedDistance(Point start, Point end) {
+        return heuristic.distance(start.getLat(), start.getLon(), end.getLat(), end.getLon());
+    }
+
+    @Override
+    public String toString() {
+        return "MapGraph{" +
+                "osmPath='" + osmPath + '\'' +
+                ", accessPath='" + accessPath + '\'' +
+                ", context='" + context + '\'' +
+                '}';
+    }
+
+    /**
+     * Adds an edge to this graph if it doesn't already exist using distance as the weight.
+     *
+     * @param from the originating point of the edge.
+     * @param to the terminating point of the edge.
+     * @param accessScore the access score for the edge where 0 is inaccessible and 1 is accessible.
+     */
+    private void addEdge(Point from, Point to, double accessScore) {
+        if (!neighbors.containsKey(from)) {
+            neighbors.put(from, new ArrayList<>());
+        }
+        neighbors.get(from).add(new Edge<>(from, to, distance(from, to) / accessScore));
+    }
+
+    /**
+     * Returns the point on the nearest street segment closest to the target.
+     *
+     * @param target the target location.
+     * @return the {@link Snap} describing the point and the street segment it lies on.
+     * @throws NoSuchElementException if this graph has no streets.
+     */
+    private Snap snap(Point target) {
+        int id = id(target);
+        if (id >= 0) {
+            return new Snap(target, target, target, id, id, 0, 0, 0);
+        }
+        int segment = segments.nearest(target.getLat(), target.getLon());
+        if (segment < 0) {
+            throw new NoSuchElementException("No streets to snap to");
+        }
+        int fromId = segmentFrom[segment];
+        int toId = segmentTo[segment];
+        Point from = vertex(fromId);
+        Point to = vertex(toId);
+        double fraction = segments.fraction(segment, target.getLat(), target.getLon());
+        Point point;
+        if (fraction == 0) {
+            point = from;
+        } else if (fraction == 1) {
+            point = to;
+        } else {
+            point = context.getShapeFactory().pointLatLon(
+                    from.getLat() + fraction * (to.getLat() - from.getLat()),
+                    from.getLon() + fraction * (to.getLon() - from.getLon())
+            );
+            // Keep targets that are already on the street, such as earlier snaps, so that snapping is idempotent.
+            if (Math.abs(point.getLat() - target.getLat()) < ON_STREET_TOLERANCE
+                    && Math.abs(point.getLon() - target.getLon()) < ON_STREET_TOLERANCE) {
+                point = target;
+            }
+        }
+        if (storage == null) {
+            return new Snap(point, from, to, fromId, toId, fraction, weight(from, to), weight(to, from));
+        }
+        return new Snap(point, from, to, fromId, toId, fraction, weight(fromId, toId), weight(toId, fromId));
+    }
+
+    /**
+     * Returns the least weight of any edge from one location to another.
+     *
+     * @param from the originating location.
+     * @param to   the terminating location.
+     * @return the least weight of any edge between the locations, or infinity if there is none.
+     */
+    private double weight(Point from, Point to) {
+        double result = Double.POSITIVE_INFINITY;
+        for (Edge<Point> edge : neighbors(from)) {
+            if (edge.to.equals(to)) {
+                result = Math.min(result, edge.weight);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the least weight of any edge from one numbered location to another in the storage.
+     *
+     * @param from the number of the originating location.
+     * @param to   the number of the terminating location.
+     * @return the least weight of any edge between the locations, or infinity if there is none.
+     */
+    private double weight(int from, int to) {
+        double result = Double.POSITIVE_INFINITY;
+        int last = storage.firstEdge(from + 1);
+        for (int edge = storage.firstEdge(from); edge < last; edge += 1) {
+            if (storage.target(edge) == to) {
+                result = Math.min(result, storage.weight(edge));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Point on the street network that may lie partway along the street segment between two locations.
+     */
+    private static class Snap {
+        /**
+         * The point, which is a location of this graph if it is at either end of the segment.
+         */
+        final Point point;
+        /**
+         * The locations at either end of the street segment.
+         */
+        final Point from, to;
+        /**
+         * The numbers of the locations at either end of the street segment.
+         */
+        final int fromId, toId;
+        /**
+         * The fraction of the way along the segment from the first location to the second location.
+         */
+        final double fraction;
+        /**
+         * The weights of the edges along the segment in each direction.
+         */
+        final double forward, backward;
+
+        Snap(Point point, Point from, Point to, int fromId, int toId, double fraction, double forward,
+             double backward) {
+            this.point = point;
+            this.from = from;
+            this.to = to;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.fraction = fraction;
+            this.forward = forward;
+            this.backward = backward;
+        }
+
+        /**
+         * Returns true if the point is a location of this graph rather than a virtual location partway along a street.
+         *
+         * @return true if the point is a location of this graph.
+         */
+        boolean isVertex() {
+            return point.equals(from) || point.equals(to);
+        }
+    }
+
+    /**
+     * {@link AStarGraph} of this map graph with additional virtual locations partway along streets. Each virtual
+     * location splits its street segment, with edges to and from the locations at either end weighted by the fraction
+     * of the segment they span. Virtual locations on the same segment are also connected directly to each other.
+     */
+    private class Overlay implements AStarGraph<Point> {
+        /**
+         * The additional edges from each location.
+         */
+        private final Map<Point, List<Edge<Point>>> extra;
+
+        /**
+         * Constructs an overlay with the virtual locations of the given points.
+         *
+         * @param snaps the points to add, ignoring any that are already locations of this graph.
+         */
+        Overlay(Snap... snaps) {
+            extra = new HashMap<>();
+            for (int i = 0; i < snaps.length; i += 1) {
+                Snap s = snaps[i];
+                if (s.isVertex()) {
+                    continue;
+                }
+                add(s.point, s.from, s.fraction * s.backward);
+                add(s.point, s.to, (1 - s.fraction) * s.forward);
+                add(s.from, s.point, s.fraction * s.forward);
+                add(s.to, s.point, (1 - s.fraction) * s.backward);
+                for (int j = 0; j < i; j += 1) {
+                    Snap other = snaps[j];
+                    if (!other.isVertex() && other.from.equals(s.from) && other.to.equals(s.to)
+                            && !other.point.equals(s.point)) {
+                        Snap first = other.fraction < s.fraction ? other : s;
+                        Snap second = first == s ? other : s;
+                        double span = second.fraction - first.fraction;
+                        add(first.point, second.point, span * s.forward);
+                        add(second.point, first.point, span * s.backward);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge to this overlay.
+         *
+         * @param from   the originating location of the edge.
+         * @param to     the terminating location of the edge.
+         * @param weight the weight of the edge.
+         */
+        private void add(Point from, Point to, double weight) {
+            extra.computeIfAbsent(from, k -> new ArrayList<>()).add(new Edge<>(from, to, weight));
+        }
+
+        @Override
+        public List<Edge<Point>> neighbors(Point point) {
+            List<Edge<Point>> added = extra.get(point);
+            if (added == null) {
+                return MapGraph.this.neighbors(point);
+            }
+            List<Edge<Point>> result = new ArrayList<>(MapGraph.this.neighbors(point));
+            result.addAll(added);
+            return result;
+        }
+
+        @Override
+        public void forEachNeighbor(Point point, EdgeConsumer<Point> action) {
+            MapGraph.this.forEachNeighbor(point, action);
+            List<Edge<Point>> added = extra.get(point);
+            if (added != null) {
+                for (Edge<Point> e : added) {
+                    action.accept(e.to, e.weight);
+                }
+            }
+        }
+
+        @Override
+        public double estimatedDistance(Point start, Point end) {
+            return MapGraph.this.estimatedDistance(start, end);
+        }
+    }
+
+    /**
+     * Shortest path tree from a point on the street network that also answers queries for goals partway along a
+     * street. A goal partway along a street is reached from whichever end of its segment gives the shorter path, or
+     * directly from the start if both lie on the same segment.
+     */
+    private class StreetTree implements ShortestPathSolver<Point> {
+        /**
+         * The start of every shortest path.
+         */
+        private final Snap start;
+        /**
+         * The shortest path tree from the start.
+         */
+        private final ShortestPathSolver<Point> tree;
+
+        /**
+         * Constructs the shortest path tree from the start.
+         *
+         * @param start the start of every shortest path.
+         */
+        StreetTree(Snap start) {
+            this.start = start;
+            this.tree = storage == null ? new DijkstraSolver<>(new Overlay(start), start.point) : new IntTree(start);
+        }
+
+        @Override
+        public List<Point> solution(Point goal) {
+            Snap to = snap(goal);
+            Point previous = previous(to);
+            if (previous == null) {
+                return tree.solution(to.point);
+            }
+            List<Point> result = new ArrayList<>(tree.solution(previous));
+            result.add(to.point);
+            return result;
+        }
+
+        @Override
+        public double distTo(Point goal) {
+            Snap to = snap(goal);
+            Point previous = previous(to);
+            if (previous == null) {
+                return tree.distTo(to.point);
+            } else if (previous.equals(start.point)) {
+                return direct(to);
+            } else if (previous.equals(to.from)) {
+                return tree.distTo(to.from) + to.fraction * to.forward;
+            }
+            return tree.distTo(to.to) + (1 - to.fraction) * to.backward;
+        }
+
+        /**
+         * Returns the last point before a virtual goal on the shortest path, or null if the goal is in the tree.
+         *
+         * @param to the goal.
+         * @return the start or either end of the segment of the goal, or null if the goal is in the tree.
+         */
+        private Point previous(Snap to) {
+            if (to.isVertex() || to.point.equals(start.point)) {
+                return null;
+            }
+            double viaFrom = tree.distTo(to.from) + to.fraction * to.forward;
+            double viaTo = tree.distTo(to.to) + (1 - to.fraction) * to.backward;
+            if (direct(to) <= Math.min(viaFrom, viaTo)) {
+                return start.point;
+            }
+            return viaFrom <= viaTo ? to.from : to.to;
+        }
+
+        /**
+         * Returns the weight of going directly from the start to the goal along the same segment.
+         *
+         * @param to the goal.
+         * @return the weight of the direct path, or infinity if the start and goal are on different segments.
+         */
+        private double direct(Snap to) {
+            if (start.isVertex() || !start.from.equals(to.from) || !start.to.equals(to.to)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double span = to.fraction - start.fraction;
+            return span >= 0 ? span * start.forward : -span * start.backward;
+        }
+    }
+
+    /**
+     * {@link IntAStarGraph} of the numbered streets with additional virtual locations partway along streets, as in
+     * {@link Overlay}. Virtual locations are numbered after the locations of the streets, and only the few locations
+     * with additional edges are checked when visiting an edge.
+     */
+    private class StreetOverlay implements IntAStarGraph {
+        /**
+         * The numbered streets.
+         */
+        private final Streets streets;
+        /**
+         * The virtual locations in order of their numbers, starting from the number of locations on the streets.
+         */
+        private final List<Point> added = new ArrayList<>();
+        /**
+         * The number of each snapped point, in the order they were given.
+         */
+        private final Map<Point, Integer> ids = new HashMap<>();
+        /**
+         * The locations with additional edges.
+         */
+        private int[] sources = new int[0];
+        /**
+         * The number of edges of each location in {@link #sources} on the streets, which precede its additional edges.
+         */
+        private int[] degrees = new int[0];
+        /**
+         * The destination of each additional edge from each location in {@link #sources}.
+         */
+        private int[][] targets = new int[0][];
+        /**
+         * The weight of each additional edge from each location in {@link #sources}.
+         */
+        private double[][] weights = new double[0][];
+
+        /**
+         * Constructs an overlay with the virtual locations of the given points.
+         *
+         * @param snaps the points to add, ignoring any that are already locations of this graph.
+         */
+        StreetOverlay(Snap... snaps) {
+            streets = streets();
+            for (int i = 0; i < snaps.length; i += 1) {
+                Snap s = snaps[i];
+                if (s.isVertex()) {
+                    ids.putIfAbsent(s.point, s.point.equals(s.from) ? s.fromId : s.toId);
+                    continue;
+                } else if (ids.containsKey(s.point)) {
+                    continue;
+                }
+                int id = streets.size() + added.size();
+                added.add(s.point);
+                ids.put(s.point, id);
+                add(id, s.fromId, s.fraction * s.backward);
+                add(id, s.toId, (1 - s.fraction) * s.forward);
+                add(s.fromId, id, s.fraction * s.forward);
+                add(s.toId, id, (1 - s.fraction) * s.backward);
+                for (int j = 0; j < i; j += 1) {
+                    Snap other = snaps[j];
+                    if (!other.isVertex() && other.fromId == s.fromId && other.toId == s.toId
+                            && !other.point.equals(s.point)) {
+                        Snap first = other.fraction < s.fraction ? other : s;
+                        Snap second = first == s ? other : s;
+                        double span = second.fraction - first.fraction;
+                        add(ids.get(first.point), ids.get(second.point), span * s.forward);
+                        add(ids.get(second.point), ids.get(first.point), span * s.backward);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge to this overlay.
+         *
+         * @param from   the number of the originating location of the edge.
+         * @param to     the number of the terminating location of the edge.
+         * @param weight the weight of the edge.
+         */
+        private void add(int from, int to, double weight) {
+            int k = source(from);
+            if (k < 0) {
+                k = sources.length;
+                sources = Arrays.copyOf(sources, k + 1);
+                degrees = Arrays.copyOf(degrees, k + 1);
+                targets = Arrays.copyOf(targets, k + 1);
+                weights = Arrays.copyOf(weights, k + 1);
+                sources[k] = from;
+                degrees[k] = from < streets.size() ? streets.degree(from) : 0;
+                targets[k] = new int[0];
+                weights[k] = new double[0];
+            }
+            int n = targets[k].length;
+            targets[k] = Arrays.copyOf(targets[k], n + 1);
+            weights[k] = Arrays.copyOf(weights[k], n + 1);
+            targets[k][n] = to;
+            weights[k][n] = weight;
+        }
+
+        /**
+         * Returns the index of the location in {@link #sources}.
+         *
+         * @param vertex the number of the location.
+         * @return the index of the location, or -1 if the location has no additional edges.
+         */
+        private int source(int vertex) {
+            for (int k = 0; k < sources.length; k += 1) {
+                if (sources[k] == vertex) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the number of the snapped point in this overlay.
+         *
+         * @param snap the snapped point, which must be one of the points given to the constructor.
+         * @return the number of the snapped point.
+         */
+        int id(Snap snap) {
+            return ids.get(snap.point);
+        }
+
+        /**
+         * Returns the number of the point in this overlay.
+         *
+         * @param point the point to look up.
+         * @return the number of the point, or -1 if it is neither a location nor a virtual location.
+         */
+        int id(Point point) {
+            Integer id = ids.get(point);
+            return id != null ? id : MapGraph.this.id(point);
+        }
+
+        /**
+         * Returns the locations with the given numbers.
+         *
+         * @param path the numbers of the locations.
+         * @return a list of the locations in the same order.
+         */
+        List<Point> locations(int[] path) {
+            List<Point> result = new ArrayList<>(path.length);
+            for (int id : path) {
+                result.add(location(id));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the location with the given number.
+         *
+         * @param id the number of the location.
+         * @return the location or virtual location with the given number.
+         */
+        private Point location(int id) {
+            return id < streets.size() ? vertex(id) : added.get(id - streets.size());
+        }
+
+        @Override
+        public int size() {
+            return streets.size() + added.size();
+        }
+
+        @Override
+        public int degree(int vertex) {
+            int k = source(vertex);
+            return k < 0 ? streets.degree(vertex) : degrees[k] + targets[k].length;
+        }
+
+        @Override
+        public int target(int vertex, int edge) {
+            int k = source(vertex);
+            if (k < 0 || edge < degrees[k]) {
+                return streets.target(vertex, edge);
+            }
+            return targets[k][edge - degrees[k]];
+        }
+
+        @Override
+        public double weight(int vertex, int edge) {
+            int k = source(vertex);
+            if (k < 0 || edge < degrees[k]) {
+                return streets.weight(vertex, edge);
+            }
+            return weights[k][edge - degrees[k]];
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            if (start < streets.size() && end < streets.size()) {
+                return streets.estimatedDistance(start, end);
+            }
+            return MapGraph.this.estimatedDistance(location(start), location(end));
+        }
+    }
+
+    /**
+     * Shortest path tree over the numbered streets from a point that may lie partway along a street, answering queries
+     * by point for {@link StreetTree}.
+     */
+    private class IntTree implements ShortestPathSolver<Point> {
+        /**
+         * The numbered streets with the start added.
+         */
+        private final StreetOverlay overlay;
+        /**
+         * The shortest path tree from the start.
+         */
+        private final IntDijkstraSolver tree;
+
+        /**
+         * Constructs the shortest path tree from the start.
+         *
+         * @param start the start of every shortest path.
+         */
+        IntTree(Snap start) {
+            overlay = new StreetOverlay(start);
+            tree = new IntDijkstraSolver(overlay, overlay.id(start));
+        }
+
+        @Override
+        public List<Point> solution(Point goal) {
+            int id = overlay.id(goal);
+            return id < 0 ? List.of(goal) : overlay.locations(tree.solution(id));
+        }
+
+        @Override
+        public double distTo(Point goal) {
+            int id = overlay.id(goal);
+            return id < 0 ? Double.POSITIVE_INFINITY : tree.distTo(id);
+        }
+    }
+
+    /**
+     * A location on the street network that carries its number in the storage, so that looking up its edges takes
+     * constant time instead of a search of the spatial index. Like any point, it is equal to every other point with the
+     * same coordinates.
+     */
+    private class Location extends PointImpl {
+        /**
+         * The number of the location in the storage.
+         */
+        private final int id;
+
+        /**
+         * Constructs the location with the given coordinates and number.
+         *
+         * @param lat the latitude of the location.
+         * @param lon the longitude of the location.
+         * @param id  the number of the location in the storage.
+         */
+        Location(double lat, double lon, int id) {
+            super(lon, lat, context);
+            this.id = id;
+        }
+
+        /**
+         * Returns the map graph that numbered this location.
+         *
+         * @return the map graph that numbered this location.
+         */
+        MapGraph graph() {
+            return MapGraph.this;
+        }
+    }
+
+    /**
+     * Numbered view of the street network for solvers of {@link graphs.IntGraph}s. Each location is numbered by its
+     * position in the storage, and the outgoing edges of each location are numbered in storage order.
+     */
+    public class Streets implements IntAStarGraph {
+        /**
+         * The primitive adjacency arrays for the streets.
+         */
+        private final GraphStorage arrays;
+
+        /**
+         * Constructs a view of the given adjacency arrays.
+         *
+         * @param arrays the primitive adjacency arrays for the streets.
+         */
+        private Streets(GraphStorage arrays) {
+            this.arrays = arrays;
+        }
+
+        /**
+         * Returns the number of the location, or -1 if the point is not a location on the street network.
+         *
+         * @param location the location to look up.
+         * @return the number of the location, or -1 if the point is not a location.
+         */
+        public int id(Point location) {
+            return MapGraph.this.id(location);
+        }
+
+        /**
+         * Returns the location with the given number.
+         *
+         * @param id the number of the location.
+         * @return the location with the given number.
+         */
+        public Point location(int id) {
+            return vertex(id);
+        }
+
+        @Override
+        public int size() {
+            return arrays.size();
+        }
+
+        @Override
+        public int degree(int vertex) {
+            return arrays.firstEdge(vertex + 1) - arrays.firstEdge(vertex);
+        }
+
+        @Override
+        public int target(int vertex, int edge) {
+            return arrays.target(arrays.firstEdge(vertex) + edge);
+        }
+
+        @Override
+        public double weight(int vertex, int edge) {
+            return arrays.weight(arrays.firstEdge(vertex) + edge);
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return heuristic.distance(arrays.lat(start), arrays.lon(start), arrays.lat(end), arrays.lon(end));
+        }
+
+        /**
+         * Returns the great-circle distance between the two locations in degrees of arc, as in
+         * {@link MapGraph#distance(Point, Point)}.
+         *
+         * @param start the number of the first location.
+         * @param end   the number of the second location.
+         * @return the distance between the two locations in degrees of arc.
+         */
+        public double distance(int start, int end) {
+            return exact.distance(arrays.lat(start), arrays.lon(start), arrays.lat(end), arrays.lon(end));
         }
-        neighbors.get(from).add(new Edge<>(from, to, estimatedDistance(from, to) / accessScore));
     }
 
     /**
@@ -0,0 +1,410 @@
+import graphs.IntGraph;
+import graphs.shortestpaths.IntDijkstraSolver;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+import org.locationtech.spatial4j.shape.ShapeFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Match noisy GPS traces onto the streets of a {@link MapGraph} with a hidden Markov model. The hidden states at each
+ * observation are the nearby locations on the street network, emission probabilities favor locations close to the
+ * observation, and transition probabilities favor moves whose street distance is close to the straight-line distance
+ * between consecutive observations. The most likely sequence of locations is found with the Viterbi algorithm.
+ *
+ * @see MapGraph
+ */
+public class MapMatcher {
+    /**
+     * The OpenStreetMap XML file path.
+     */
+    private static final String OSM_DB_PATH = "seattle.osm.gz";
+    /**
+     * The TSV of OSM way accessibility scores.
+     */
+    private static final String ACCESS_PATH = "access.tsv";
+    /**
+     * Maximum distance in degrees of arc from an observation to each of its candidate locations.
+     */
+    private static final double CANDIDATE_RADIUS = 0.0005;
+    /**
+     * Maximum number of candidate locations for each observation.
+     */
+    private static final int MAX_CANDIDATES = 8;
+    /**
+     * Standard deviation in degrees of arc of the GPS measurement noise.
+     */
+    private static final double SIGMA = 0.0001;
+    /**
+     * Scale in degrees of arc of the difference between street distance and straight-line distance.
+     */
+    private static final double BETA = 0.0005;
+    /**
+     * Maximum ratio of street distance to straight-line distance between consecutive observations.
+     */
+    private static final double MAX_DETOUR = 2.0;
+    /**
+     * The map graph for matching.
+     */
+    private final MapGraph map;
+    /**
+     * The numbered streets of the map graph.
+     */
+    private final MapGraph.Streets streets;
+    /**
+     * The numbered streets of the map graph weighted by physical distance rather than accessibility.
+     */
+    private final IntGraph distances;
+
+    /**
+     * Constructs a map matcher for the map graph.
+     *
+     * @param map the {@link MapGraph} for matching.
+     */
+    public MapMatcher(MapGraph map) {
+        this.map = map;
+        this.streets = map.streets();
+        this.distances = new IntGraph() {
+            @Override
+            public int size() {
+                return streets.size();
+            }
+
+            @Override
+            public int degree(int vertex) {
+                return streets.degree(vertex);
+            }
+
+            @Override
+            public int target(int vertex, int edge) {
+                return streets.target(vertex, edge);
+            }
+
+            @Override
+            public double weight(int vertex, int edge) {
+                return streets.distance(vertex, streets.target(vertex, edge));
+            }
+        };
+    }
+
+    /**
+     * Returns a new session for matching one trace incrementally.
+     *
+     * @return a new {@link Session} for matching one trace.
+     */
+    public Session session() {
+        return new Session();
+    }
+
+    /**
+     * Returns the path along the streets that best matches the trace.
+     *
+     * @param trace the GPS observations in order.
+     * @return the matched path as a list of locations on the street network.
+     */
+    public List<Point> match(List<Point> trace) {
+        Session session = session();
+        List<Point> result = new ArrayList<>();
+        for (Point observation : trace) {
+            result.addAll(session.add(observation));
+        }
+        result.addAll(session.finish());
+        return result;
+    }
+
+    /**
+     * Returns the matched paths for each of the traces, matching the traces in parallel across all processors.
+     *
+     * @param traces the traces to match.
+     * @return the matched paths in the same order as the traces.
+     */
+    public List<List<Point>> matchAll(List<List<Point>> traces) {
+        return traces.parallelStream().map(this::match).collect(Collectors.toList());
+    }
+
+    /**
+     * Incremental Viterbi decoding of a single trace. Observations are added one at a time, and the prefix of the
+     * matched path is returned as soon as every surviving hypothesis agrees on it, so long traces are matched in memory
+     * proportional to the unresolved suffix rather than the entire trace.
+     */
+    public class Session {
+        /**
+         * The surviving hypotheses, one for each candidate location of the last observation.
+         */
+        private List<State> states;
+        /**
+         * The last observation, or null if none has been added since the session started or was finished.
+         */
+        private Point last;
+        /**
+         * The most recent hypothesis whose path has already been returned, or null if none has been returned.
+         */
+        private State emitted;
+
+        /**
+         * Constructs an empty session.
+         */
+        private Session() {
+            states = List.of();
+        }
+
+        /**
+         * Adds the next observation of the trace. An observation with no location within {@link #CANDIDATE_RADIUS},
+         * such as one partway along a long street, has the nearest location as its only candidate. If no candidate
+         * location can be reached from the previous observation, the trace is broken: the best path so far is returned
+         * and matching starts over from this observation.
+         *
+         * @param observation the next GPS observation.
+         * @return the locations that have become certain since the last call, possibly none.
+         */
+        public List<Point> add(Point observation) {
+            List<Point> candidates = map.near(observation, CANDIDATE_RADIUS);
+            if (candidates.isEmpty()) {
+                candidates = List.of(map.closest(observation));
+            } else if (candidates.size() > MAX_CANDIDATES) {
+                candidates = candidates.subList(0, MAX_CANDIDATES);
+            }
+            List<Point> result = new ArrayList<>();
+            List<State> next = new ArrayList<>(candidates.size());
+            if (!states.isEmpty()) {
+                next = transition(observation, candidates);
+                if (next.isEmpty()) {
+                    result.addAll(finish());
+                }
+            }
+            if (next.isEmpty()) {
+                for (Point candidate : candidates) {
+                    next.add(new State(streets.id(candidate), emission(observation, candidate), null,
+                            List.of(candidate)));
+                }
+            }
+            states = next;
+            last = observation;
+            result.addAll(converged());
+            return result;
+        }
+
+        /**
+         * Ends the trace, returning the rest of the most likely path. The session may then be reused for a new trace.
+         *
+         * @return the locations of the most likely path that have not yet been returned.
+         */
+        public List<Point> finish() {
+            List<Point> result = List.of();
+            if (!states.isEmpty()) {
+                State best = Collections.max(states, Comparator.comparingDouble(state -> state.score));
+                result = path(best);
+            }
+            states = List.of();
+            last = null;
+            emitted = null;
+            return result;
+        }
+
+        /**
+         * Returns the most likely hypothesis ending at each reachable candidate. Each surviving hypothesis runs one
+         * search of the numbered streets bounded by the longest plausible street distance that stops once every
+         * candidate has been reached, so the searches reuse this thread's workspace rather than boxing locations.
+         *
+         * @param observation the next GPS observation.
+         * @param candidates  the candidate locations for the observation.
+         * @return the hypotheses for the reachable candidates.
+         */
+        private List<State> transition(Point observation, List<Point> candidates) {
+            double straight = map.distance(last, observation);
+            double budget = MAX_DETOUR * straight + 2 * CANDIDATE_RADIUS;
+            int[] targets = new int[candidates.size()];
+            for (int i = 0; i < targets.length; i += 1) {
+                targets[i] = streets.id(candidates.get(i));
+            }
+            State[] best = new State[targets.length];
+            double[] scores = new double[targets.length];
+            IntDijkstraSolver[] solvers = new IntDijkstraSolver[targets.length];
+            Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+            for (State state : states) {
+                IntDijkstraSolver solver = new IntDijkstraSolver(distances, state.vertex, targets, budget);
+                for (int i = 0; i < targets.length; i += 1) {
+                    double distance = solver.distTo(targets[i]);
+                    double score = state.score - Math.abs(distance - straight) / BETA;
+                    if (score > scores[i]) {
+                        best[i] = state;
+                        scores[i] = score;
+                        solvers[i] = solver;
+                    }
+                }
+            }
+            List<State> result = new ArrayList<>(targets.length);
+            for (int i = 0; i < targets.length; i += 1) {
+                if (best[i] != null) {
+                    Point candidate = candidates.get(i);
+                    int[] path = solvers[i].solution(targets[i]);
+                    List<Point> segment = new ArrayList<>(path.length - 1);
+                    for (int j = 1; j < path.length; j += 1) {
+                        segment.add(streets.location(path[j]));
+                    }
+                    result.add(new State(targets[i], scores[i] + emission(observation, candidate), best[i], segment));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the newly certain locations if every surviving hypothesis shares a common ancestor that has not
+         * already been returned. The ancestor is detached from its predecessors so that they can be garbage collected.
+         *
+         * @return the locations up to the common ancestor that have not yet been returned, possibly none.
+         */
+        private List<Point> converged() {
+            Set<State> frontier = Collections.newSetFromMap(new IdentityHashMap<>());
+            frontier.addAll(states);
+            while (frontier.size() > 1) {
+                Set<State> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (State state : frontier) {
+                    if (state.previous == null) {
+                        return List.of();
+                    }
+                    previous.add(state.previous);
+                }
+                frontier = previous;
+            }
+            State ancestor = frontier.iterator().next();
+            if (ancestor == emitted) {
+                return List.of();
+            }
+            List<Point> result = path(ancestor);
+            ancestor.previous = null;
+            emitted = ancestor;
+            return result;
+        }
+
+        /**
+         * Returns the locations of the path ending at the hypothesis that have not yet been returned.
+         *
+         * @param state the last hypothesis of the path.
+         * @return the locations of the path after the last returned hypothesis.
+         */
+        private List<Point> path(State state) {
+            Deque<List<Point>> segments = new ArrayDeque<>();
+            for (; state != null && state != emitted; state = state.previous) {
+                segments.addFirst(state.segment);
+            }
+            List<Point> result = new ArrayList<>();
+            for (List<Point> segment : segments) {
+                result.addAll(segment);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the log probability of the observation given the candidate location, up to a constant.
+     *
+     * @param observation the GPS observation.
+     * @param candidate   the candidate location.
+     * @return the log probability of the observation given the candidate location.
+     */
+    private double emission(Point observation, Point candidate) {
+        double z = map.distance(observation, candidate) / SIGMA;
+        return -0.5 * z * z;
+    }
+
+    /**
+     * Hypothesis that the trace was at a location at one observation.
+     */
+    private static class State {
+        /**
+         * The number of the candidate location in the numbered streets.
+         */
+        final int vertex;
+        /**
+         * The log probability of the most likely path ending at this location.
+         */
+        final double score;
+        /**
+         * The hypothesis at the previous observation on the most likely path, or null if none.
+         */
+        State previous;
+        /**
+         * The locations after the previous hypothesis up to and including this location.
+         */
+        final List<Point> segment;
+
+        State(int vertex, double score, State previous, List<Point> segment) {
+            this.vertex = vertex;
+            this.score = score;
+            this.previous = previous;
+            this.segment = segment;
+        }
+    }
+
+    /**
+     * Matches each trace in the given file, where each line is a trace of semicolon-separated longitude and latitude
+     * pairs. Prints each matched path in the same format, and prints the throughput to standard error. Traces are
+     * matched in parallel across all processors. The street layout can be set with the {@code GRAPH_STORAGE}
+     * environment variable.
+     *
+     * @param args the path to the file of traces.
+     * @throws Exception if the graph or the traces cannot be read.
+     */
+    public static void main(String[] args) throws Exception {
+        SpatialContext context = SpatialContext.GEO;
+        ShapeFactory factory = context.getShapeFactory();
+        MapGraph map = new MapGraph(OSM_DB_PATH, ACCESS_PATH, context, storage(), graphPath(storage()));
+        List<List<Point>> traces = new ArrayList<>();
+        try (BufferedReader input = new BufferedReader(new FileReader(args[0]))) {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                List<Point> trace = new ArrayList<>();
+                for (String pair : line.split(";")) {
+                    if (!pair.isBlank()) {
+                        String[] fields = pair.split(",");
+                        trace.add(factory.pointLatLon(Double.parseDouble(fields[1]), Double.parseDouble(fields[0])));
+                    }
+                }
+                traces.add(trace);
+            }
+        }
+        long start = System.nanoTime();
+        List<List<Point>> matched = new MapMatcher(map).matchAll(traces);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (List<Point> path : matched) {
+            StringBuilder line = new StringBuilder();
+            for (Point point : path) {
+                line.append(point.getLon()).append(',').append(point.getLat()).append(';');
+            }
+            System.out.println(line);
+        }
+        System.err.printf("%.1f traces/second%n", traces.size() / seconds);
+    }
+
+    /**
+     * Returns the street layout, which defaults to {@link MapGraph.Storage#HILBERT_ARRAYS} so that every worker thread
+     * searches by number in its own reusable workspace.
+     *
+     * @return the street layout.
+     */
+    private static MapGraph.Storage storage() {
+        String storage = System.getenv("GRAPH_STORAGE");
+        if (storage != null) {
+            return MapGraph.Storage.valueOf(storage);
+        }
+        return MapGraph.Storage.HILBERT_ARRAYS;
+    }
+
+    /**
+     * Returns the path of the graph file for the file layouts.
+     *
+     * @param layout the street layout.
+     * @return the path of the graph file.
+     */
+    private static Path graphPath(MapGraph.Storage layout) {
+        String graphPath = System.getenv("GRAPH_FILE");
+        if (graphPath != null) {
+            return Path.of(graphPath);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), OSM_DB_PATH + "." + layout.name().toLowerCase());
+    }
+}
@@ -1,15 +1,39 @@
+import caches.DiskRouteCache;
+import caches.ImageCache;
+import caches.LRUCache;
+import caches.RouteLog;
+import caches.SingleFlight;
+import graphs.shortestpaths.AlternativeRoutesSolver;
+import graphs.shortestpaths.ShortestPathSolver;
+import graphs.shortestpaths.TripSolver;
 import io.javalin.Javalin;
+import io.javalin.http.BadGatewayResponse;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.GatewayTimeoutResponse;
+import io.javalin.http.NotFoundResponse;
 import io.javalin.validation.ValidationException;
 import org.apache.commons.codec.binary.Base64InputStream;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.shape.Point;
 import org.locationtech.spatial4j.shape.ShapeFactory;
+import spatial.PolylineSimplifier;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Run the Husky Maps server.
@@ -35,14 +59,259 @@ public class MapServer {
      * Maximum number of autocomplete search results.
      */
     private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum number of seconds to wait for a route, search, or map image.
+     */
+    private static final int TIMEOUT_SECONDS = 30;
+    /**
+     * Maximum number of seconds to wait for a connection to MapBox.
+     */
+    private static final int CONNECT_TIMEOUT_SECONDS = 5;
+    /**
+     * Default maximum number of seconds to wait for MapBox to respond to a map image request.
+     */
+    private static final int IMAGE_TIMEOUT_SECONDS = 10;
+    /**
+     * Number of threads for the blocking work of map image requests: finding the locations to pin and reading and
+     * writing the image cache. This keeps that work off the common pool and the {@link HttpClient} threads.
+     */
+    private static final int IMAGE_THREADS = 4;
+    /**
+     * Number of threads for solving routes, prefix searches, isochrones, and distance matrix rows. This keeps that
+     * work, including the disk route cache reads and writes of each route, off the common pool.
+     */
+    private static final int ROUTE_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Maximum radius in degrees of a nearby places search.
+     */
+    private static final double MAX_NEARBY_RADIUS = 0.05;
+    /**
+     * Maximum number of nearby places search results.
+     */
+    private static final int MAX_NEARBY_MATCHES = 100;
+    /**
+     * Maximum number of points in a batched reverse geocoding request.
+     */
+    private static final int MAX_REVERSE_POINTS = 1000;
+    /**
+     * Maximum number of origins or destinations in a distance matrix request.
+     */
+    private static final int MAX_MATRIX_POINTS = 100;
+    /**
+     * Maximum number of routes in an alternative routes request.
+     */
+    private static final int MAX_ALTERNATIVES = 5;
+    /**
+     * Default maximum additional distance of an alternative route as a fraction of the shortest path.
+     */
+    private static final double DEFAULT_MAX_STRETCH = 0.25;
+    /**
+     * Default maximum shared distance between alternative routes as a fraction of the shortest path.
+     */
+    private static final double DEFAULT_MAX_OVERLAP = 0.8;
+    /**
+     * Default minimum locally-optimal distance of an alternative route as a fraction of the shortest path.
+     */
+    private static final double DEFAULT_MIN_PLATEAU = 0.25;
+    /**
+     * Maximum number of stops in a trip request.
+     */
+    private static final int MAX_TRIP_STOPS = 25;
+    /**
+     * Maximum weighted distance budget for an isochrone request.
+     */
+    private static final double MAX_ISOCHRONE_BUDGET = 0.1;
+    /**
+     * Side length in degrees of the grid cells outlining an isochrone.
+     */
+    private static final double ISOCHRONE_CELL_SIZE = 0.002;
+    /**
+     * Maximum number of cached isochrone outlines.
+     */
+    private static final int MAX_CACHED_ISOCHRONES = 64;
+    /**
+     * Maximum number of cached shortest path trees. Each tree spans the entire graph, so keep this small.
+     */
+    private static final int MAX_CACHED_TREES = 8;
+    /**
+     * Maximum number of shortest path trees waiting to be computed in the background.
+     */
+    private static final int MAX_PENDING_TREES = 2;
+    /**
+     * Maximum number of cached shortest paths.
+     */
+    private static final int MAX_CACHED_ROUTES = 1024;
+    /**
+     * Maximum number of cached closest points on the street network.
+     */
+    private static final int MAX_CACHED_SNAPS = 4096;
+    /**
+     * Default number of the most frequent logged routes to replay on startup.
+     */
+    private static final int PREWARM_ROUTES = 100;
+    /**
+     * Number of threads replaying logged routes on startup, leaving the {@link #routeWork} threads free for requests.
+     */
+    private static final int PREWARM_THREADS = 2;
+    /**
+     * Default maximum size of the route log file in bytes before it is rotated.
+     */
+    private static final long MAX_ROUTE_LOG_BYTES = 16L << 20;
+    /**
+     * Seconds between writes of buffered route queries to the route log.
+     */
+    private static final int ROUTE_LOG_FLUSH_SECONDS = 5;
+    /**
+     * Maximum distance in map image pixels between the route drawn on the map image and the shortest path.
+     */
+    private static final double ROUTE_TOLERANCE_PIXELS = 0.5;
+    /**
+     * Maximum length of a map image URL accepted by the MapBox Static Images API.
+     */
+    private static final int MAX_URL_LENGTH = 8192;
+    /**
+     * Default base URL of the MapBox APIs.
+     */
+    private static final String MAPBOX_URL = "https://api.mapbox.com/";
+    /**
+     * Maximum total bytes of the map images cached in memory.
+     */
+    private static final long MAX_CACHED_IMAGE_BYTES = 64L << 20;
+    /**
+     * Maximum total bytes of the map images cached on disk.
+     */
+    private static final long MAX_STORED_IMAGE_BYTES = 1L << 30;
+    /**
+     * Maximum age of a cached map image.
+     */
+    private static final Duration IMAGE_TTL = Duration.ofDays(1);
+    /**
+     * Name of the routing profile for routes in the disk route cache.
+     */
+    private static final String ROUTE_PROFILE = "access";
+    /**
+     * Cache of isochrone outlines by the location closest to the origin and budget.
+     */
+    private static final LRUCache<List<Object>, CompletableFuture<Map<String, Object>>> isochroneCache =
+            new LRUCache<>(MAX_CACHED_ISOCHRONES);
+    /**
+     * Cache of shortest path trees by snapped start. Evicted trees are cancelled, so trees that are still waiting to be
+     * computed in the background are skipped.
+     */
+    private static final LRUCache<Point, CompletableFuture<ShortestPathSolver<Point>>> treeCache =
+            new LRUCache<>(MAX_CACHED_TREES, (start, tree) -> tree.cancel(false));
+    /**
+     * Cache of shortest paths by snapped start and goal.
+     */
+    private static final LRUCache<List<Point>, List<Point>> routeCache = new LRUCache<>(MAX_CACHED_ROUTES);
+    /**
+     * Cache of the closest point on the street network to each requested point.
+     */
+    private static final LRUCache<Point, Point> snapCache = new LRUCache<>(MAX_CACHED_SNAPS);
+    /**
+     * Single-thread {@link Executor} for speculative work such as computing shortest path trees. At most
+     * {@link #MAX_PENDING_TREES} tasks wait in its queue, and any more are rejected rather than queued.
+     */
+    private static final ExecutorService background = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING_TREES), runnable -> {
+        Thread thread = new Thread(runnable, "background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * {@link Executor} with {@link #IMAGE_THREADS} daemon threads for the blocking work of map image requests.
+     */
+    private static final ExecutorService imageWork = Executors.newFixedThreadPool(IMAGE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "image");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * {@link Executor} with {@link #ROUTE_THREADS} daemon threads for solving routes, prefix searches, isochrones, and
+     * distance matrix rows.
+     */
+    private static final ExecutorService routeWork = Executors.newFixedThreadPool(ROUTE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "route");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * In-flight route computations by requested start and goal.
+     */
+    private static final SingleFlight<List<Point>, List<Point>> routeFlights = new SingleFlight<>(routeWork);
+    /**
+     * In-flight prefix searches by term and center.
+     */
+    private static final SingleFlight<List<Object>, List<CharSequence>> searchFlights = new SingleFlight<>(routeWork);
+    /**
+     * In-flight map image downloads by URL without the access token.
+     */
+    private static final SingleFlight<String, byte[]> imageFlights = new SingleFlight<>(imageWork);
+    /**
+     * Shared {@link HttpClient} for map images, which keeps connections to MapBox open between requests and
+     * multiplexes concurrent requests over HTTP/2 when the server supports it.
+     */
+    private static final HttpClient imageClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    /**
+     * Number of requested routes answered from and missing from the route cache.
+     */
+    private static final AtomicLong routeHits = new AtomicLong(), routeMisses = new AtomicLong();
+    /**
+     * Completes once the caches have been warmed by replaying the route log.
+     */
+    private static final CompletableFuture<Void> warmed = new CompletableFuture<>();
+    /**
+     * The log of snapped route queries, or null if route queries are not recorded.
+     */
+    private static RouteLog routeLog;
+    /**
+     * The disk route cache that survives restarts, or null if routes are only cached in memory.
+     */
+    private static DiskRouteCache routeStore;
+    /**
+     * Cache of map images by URL without the access token, in memory and optionally on disk.
+     */
+    private static ImageCache imageCache;
+    /**
+     * Maximum number of seconds to wait for MapBox to respond to a map image request.
+     */
+    private static int imageTimeoutSeconds = IMAGE_TIMEOUT_SECONDS;
 
     public static void main(String[] args) throws Exception {
         SpatialContext context = SpatialContext.GEO;
         ShapeFactory factory = context.getShapeFactory();
-        MapGraph map = new MapGraph(OSM_DB_PATH, ACCESS_PATH, context);
+        MapGraph map = new MapGraph(osmPath(), accessPath(), context, storage(), graphPath(storage()));
+        List<double[]> popular = List.of();
+        String routeLogPath = System.getenv("ROUTE_LOG");
+        if (routeLogPath != null) {
+            popular = RouteLog.mostFrequent(Path.of(routeLogPath), prewarmRoutes());
+            routeLog = new RouteLog(Path.of(routeLogPath), routeLogBytes());
+            scheduleFlushes(routeLog);
+        }
+        String routeCachePath = System.getenv("ROUTE_CACHE");
+        if (routeCachePath != null) {
+            routeStore = new DiskRouteCache(Path.of(routeCachePath), map.version());
+        }
+        String imageCachePath = System.getenv("IMAGE_CACHE");
+        imageCache = new ImageCache(MAX_CACHED_IMAGE_BYTES, imageCachePath == null ? null : Path.of(imageCachePath),
+                MAX_STORED_IMAGE_BYTES, IMAGE_TTL);
+        imageTimeoutSeconds = imageTimeout();
         Javalin app = Javalin.create(config -> {
             config.spaRoot.addFile("/", "index.html");
         }).start(port());
+        prewarm(map, factory, popular);
+        app.get("/ready", ctx -> {
+            if (warmed.isDone()) {
+                ctx.result("ready");
+            } else {
+                ctx.status(503).result("warming");
+            }
+        });
+        app.get("/bounds", ctx -> ctx.json(map.bounds()));
         app.get("/map/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
             double lat = ctx.pathParamAsClass("lat", Double.class).get();
@@ -52,29 +321,661 @@ public class MapServer {
             String term = ctx.queryParam("term");
 
             Point center = factory.pointLatLon(lat, lon);
-            List<Point> route;
-            try {
-                double startLon = ctx.queryParamAsClass("startLon", Double.class).get();
-                double startLat = ctx.queryParamAsClass("startLat", Double.class).get();
-                double goalLon = ctx.queryParamAsClass("goalLon", Double.class).get();
-                double goalLat = ctx.queryParamAsClass("goalLat", Double.class).get();
-                Point start = factory.pointLatLon(startLat, startLon);
-                Point goal = factory.pointLatLon(goalLat, goalLon);
-                route = map.shortestPath(start, goal);
-            } catch (ValidationException e) {
-                route = List.of();
-            }
-            List<Point> locations = map.getLocations(term);
-            URL staticImageURL = url(center, zoom, width, height, route, locations);
-            ctx.result(new Base64InputStream(staticImageURL.openStream(), true));
+            // The image shows both the route and the locations, so find them concurrently before requesting it.
+            CompletableFuture<List<Point>> route = route(ctx, map, factory);
+            CompletableFuture<List<Point>> locations = CompletableFuture.supplyAsync(() -> map.getLocations(term),
+                    imageWork);
+            ctx.future(() -> route
+                    .thenCombine(locations, (points, pins) -> url(center, zoom, width, height, points, pins))
+                    .thenCompose(MapServer::image)
+                    .orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .exceptionally(error -> {
+                        throw failure(error);
+                    })
+                    .thenAccept(image -> ctx.result(new Base64InputStream(new ByteArrayInputStream(image), true))));
         });
+        app.get("/stats/images", ctx -> ctx.json(Map.of(
+                "memoryHits", imageCache.memoryHits(),
+                "diskHits", imageCache.diskHits(),
+                "misses", imageCache.misses(),
+                "hitRate", imageCache.hitRate(),
+                "memoryBytes", imageCache.memoryBytes(),
+                "diskBytes", imageCache.diskBytes()
+        )));
+        app.get("/stats/routes", ctx -> ctx.json(Map.of(
+                "hits", routeHits.get(),
+                "misses", routeMisses.get(),
+                "cached", routeCache.size()
+        )));
         app.get("/search/{lon},{lat}/{term}", ctx -> {
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
             double lat = ctx.pathParamAsClass("lat", Double.class).get();
             Point center = factory.pointLatLon(lat, lon);
             String term = ctx.pathParam("term");
-            ctx.json(map.getLocationsByPrefix(term, center, MAX_MATCHES));
+            List<CharSequence> names = await(searchFlights.submit(List.of(term, center),
+                    () -> map.getLocationsByPrefix(term, center, MAX_MATCHES)));
+            if (ctx.queryParamAsClass("distances", Boolean.class).getOrDefault(false)) {
+                // Exact distances to the nearest location with each name can be compared with the results of servers
+                // for other regions.
+                List<Map<String, Object>> result = new ArrayList<>(names.size());
+                for (CharSequence name : names) {
+                    double distance = Double.POSITIVE_INFINITY;
+                    for (Point location : map.getLocations(name.toString())) {
+                        distance = Math.min(distance, map.distance(center, location));
+                    }
+                    result.add(Map.of("name", name, "distance", distance));
+                }
+                ctx.json(result);
+            } else {
+                ctx.json(names);
+            }
+        });
+        app.get("/nearby/{lon},{lat}/{radius}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            double radius = ctx.pathParamAsClass("radius", Double.class)
+                    .check(r -> r > 0 && r <= MAX_NEARBY_RADIUS, "Radius must be positive and at most "
+                            + MAX_NEARBY_RADIUS)
+                    .get();
+            int limit = ctx.queryParamAsClass("limit", Integer.class)
+                    .check(n -> 0 < n && n <= MAX_NEARBY_MATCHES, "limit must be between 1 and " + MAX_NEARBY_MATCHES)
+                    .getOrDefault(MAX_MATCHES);
+            Point center = factory.pointLatLon(lat, lon);
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (Map.Entry<String, Point> place : map.getLocationsNear(center, radius, limit)) {
+                result.add(place(map, center, place));
+            }
+            ctx.json(result);
+        });
+        app.get("/reverse/{lon},{lat}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            Point target = factory.pointLatLon(lat, lon);
+            Map.Entry<String, Point> place = map.reverseGeocode(target);
+            if (place == null) {
+                throw new NotFoundResponse("No named places");
+            }
+            ctx.json(place(map, target, place));
+        });
+        app.get("/reverse", ctx -> {
+            List<Point> targets = points(factory, ctx.queryParamAsClass("points", String.class).get());
+            if (targets.size() > MAX_REVERSE_POINTS) {
+                throw new BadRequestResponse("At most " + MAX_REVERSE_POINTS + " points");
+            }
+            List<Map.Entry<String, Point>> places = map.reverseGeocode(targets);
+            if (places.isEmpty()) {
+                throw new NotFoundResponse("No named places");
+            }
+            List<Map<String, Object>> result = new ArrayList<>(targets.size());
+            for (int i = 0; i < targets.size(); i += 1) {
+                result.add(place(map, targets.get(i), places.get(i)));
+            }
+            ctx.json(result);
+        });
+        app.get("/matrix", ctx -> {
+            List<Point> origins = points(factory, ctx.queryParamAsClass("origins", String.class).get());
+            List<Point> destinations = points(factory, ctx.queryParamAsClass("destinations", String.class).get());
+            if (origins.size() > MAX_MATRIX_POINTS || destinations.size() > MAX_MATRIX_POINTS) {
+                throw new BadRequestResponse("At most " + MAX_MATRIX_POINTS + " origins and destinations");
+            }
+            ctx.writeJsonStream(map.distanceMatrix(origins, destinations, routeWork));
+        });
+        app.get("/alternatives", ctx -> {
+            double startLon = ctx.queryParamAsClass("startLon", Double.class).get();
+            double startLat = ctx.queryParamAsClass("startLat", Double.class).get();
+            double goalLon = ctx.queryParamAsClass("goalLon", Double.class).get();
+            double goalLat = ctx.queryParamAsClass("goalLat", Double.class).get();
+            int k = ctx.queryParamAsClass("k", Integer.class)
+                    .check(n -> 0 < n && n <= MAX_ALTERNATIVES, "k must be between 1 and " + MAX_ALTERNATIVES)
+                    .getOrDefault(3);
+            double maxStretch = ctx.queryParamAsClass("maxStretch", Double.class).getOrDefault(DEFAULT_MAX_STRETCH);
+            double maxOverlap = ctx.queryParamAsClass("maxOverlap", Double.class).getOrDefault(DEFAULT_MAX_OVERLAP);
+            double minPlateau = ctx.queryParamAsClass("minPlateau", Double.class).getOrDefault(DEFAULT_MIN_PLATEAU);
+            AlternativeRoutesSolver<Point> alternatives = map.alternatives(
+                    factory.pointLatLon(startLat, startLon), factory.pointLatLon(goalLat, goalLon),
+                    k, maxStretch, maxOverlap, minPlateau);
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (int i = 0; i < alternatives.solutions().size(); i += 1) {
+                result.add(Map.of(
+                        "distance", alternatives.distances().get(i),
+                        "route", coordinates(alternatives.solutions().get(i))
+                ));
+            }
+            ctx.json(result);
+        });
+        app.get("/trip", ctx -> {
+            List<Point> stops = points(factory, ctx.queryParamAsClass("stops", String.class).get());
+            boolean optimize = ctx.queryParamAsClass("optimize", Boolean.class).getOrDefault(false);
+            if (stops.size() > MAX_TRIP_STOPS) {
+                throw new BadRequestResponse("At most " + MAX_TRIP_STOPS + " stops");
+            }
+            TripSolver<Point> trip = map.trip(stops, optimize);
+            ctx.json(Map.of(
+                    "order", trip.order(),
+                    "distance", trip.distance(),
+                    "route", coordinates(trip.solution())
+            ));
+        });
+        app.get("/isochrone/{lon},{lat}/{budget}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            double budget = ctx.pathParamAsClass("budget", Double.class)
+                    .check(b -> b > 0 && b <= MAX_ISOCHRONE_BUDGET, "Budget must be positive and at most "
+                            + MAX_ISOCHRONE_BUDGET)
+                    .get();
+            Point origin = factory.pointLatLon(lat, lon);
+            // The search starts from the location closest to the origin, so nearby origins share its cached outline.
+            ctx.future(() -> CompletableFuture.supplyAsync(() -> map.closest(origin), routeWork)
+                    .thenCompose(start -> cached(isochroneCache, List.of(start, budget),
+                            () -> outline(map.reachable(start, budget), ISOCHRONE_CELL_SIZE)))
+                    .thenAccept(ctx::json));
+        });
+    }
+
+    /**
+     * Waits for the future to complete and returns its value.
+     *
+     * @param future the future to wait for.
+     * @param <V>    the type of value.
+     * @return the value of the future.
+     * @throws GatewayTimeoutResponse if the future does not complete within {@link #TIMEOUT_SECONDS}.
+     * @throws Exception              the exception thrown by the computation, if any.
+     */
+    private static <V> V await(Future<V> future) throws Exception {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new GatewayTimeoutResponse("Timed out after " + TIMEOUT_SECONDS + " seconds");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the exception to respond with when a map image request fails.
+     *
+     * @param error the exception thrown while finding the route or downloading the map image.
+     * @return a {@link GatewayTimeoutResponse} if the request timed out, a {@link BadGatewayResponse} if MapBox could
+     * not be reached, or else the original exception.
+     */
+    private static RuntimeException failure(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof TimeoutException) {
+            return new GatewayTimeoutResponse("Timed out after " + TIMEOUT_SECONDS + " seconds");
+        } else if (error instanceof HttpTimeoutException) {
+            return new GatewayTimeoutResponse("Map image timed out after " + imageTimeoutSeconds + " seconds");
+        } else if (error instanceof IOException) {
+            return new BadGatewayResponse("Could not download map image: " + error);
+        } else if (error instanceof RuntimeException) {
+            return (RuntimeException) error;
+        }
+        return new CompletionException(error);
+    }
+
+    /**
+     * Returns the future shortest path for the start and goal query parameters of the request, or an empty route if
+     * the request does not have both. The requested points are rounded to the precision of the route log before they
+     * are snapped and recorded, so that replaying the log on startup fills the snap and route caches with exactly the
+     * keys of live requests. Records every query, including cache hits, in the memory buffer of the route log, if any.
+     *
+     * @param ctx     the context of the request.
+     * @param map     the {@link MapGraph} to search.
+     * @param factory the {@link ShapeFactory} for creating points.
+     * @return the future list of points on the route, which is empty if the request has no start and goal.
+     */
+    private static CompletableFuture<List<Point>> route(Context ctx, MapGraph map, ShapeFactory factory) {
+        try {
+            double startLon = ctx.queryParamAsClass("startLon", Double.class).get();
+            double startLat = ctx.queryParamAsClass("startLat", Double.class).get();
+            double goalLon = ctx.queryParamAsClass("goalLon", Double.class).get();
+            double goalLat = ctx.queryParamAsClass("goalLat", Double.class).get();
+            Point start = factory.pointLatLon(RouteLog.round(startLat), RouteLog.round(startLon));
+            Point goal = factory.pointLatLon(RouteLog.round(goalLat), RouteLog.round(goalLon));
+            if (routeLog != null) {
+                routeLog.record(start.getLat(), start.getLon(), goal.getLat(), goal.getLon());
+            }
+            return routeFlights.submit(List.of(start, goal), () -> route(map, snap(map, start), snap(map, goal)));
+        } catch (ValidationException e) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+    }
+
+    /**
+     * Returns the future map image for the URI from the image cache, or else downloads and caches it. Concurrent
+     * downloads of the same image share one request. The image cache may read and write files, so it is only used on
+     * the {@link #imageWork} threads.
+     *
+     * @param uri the URI of the map image.
+     * @return the future contents of the map image.
+     */
+    private static CompletableFuture<byte[]> image(URI uri) {
+        return CompletableFuture.supplyAsync(() -> imageCache.get(uri.toString()), imageWork).thenCompose(cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return imageFlights.submitAsync(ImageCache.key(uri.toString()), () -> download(uri)
+                    .thenApplyAsync(image -> {
+                        imageCache.put(uri.toString(), image);
+                        return image;
+                    }, imageWork));
+        });
+    }
+
+    /**
+     * Returns the future contents downloaded from the URI without blocking the calling thread.
+     *
+     * @param uri the URI to download.
+     * @return the future contents downloaded from the URI.
+     * @throws BadGatewayResponse if the server does not respond successfully.
+     */
+    private static CompletableFuture<byte[]> download(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(imageTimeoutSeconds)).build();
+        return imageClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() != 200) {
+                throw new BadGatewayResponse("Map image request failed with status " + response.statusCode());
+            }
+            return response.body();
+        });
+    }
+
+    /**
+     * Returns the number of the most frequent logged routes to replay on startup.
+     *
+     * @return the number of the most frequent logged routes to replay on startup.
+     */
+    private static int prewarmRoutes() {
+        String routes = System.getenv("PREWARM_ROUTES");
+        if (routes != null) {
+            return Integer.parseInt(routes);
+        }
+        return PREWARM_ROUTES;
+    }
+
+    /**
+     * Returns the maximum size of the route log file in bytes before it is rotated.
+     *
+     * @return the maximum size of the route log file in bytes.
+     */
+    private static long routeLogBytes() {
+        String bytes = System.getenv("ROUTE_LOG_BYTES");
+        if (bytes != null) {
+            return Long.parseLong(bytes);
+        }
+        return MAX_ROUTE_LOG_BYTES;
+    }
+
+    /**
+     * Returns the maximum number of seconds to wait for MapBox to respond to a map image request.
+     *
+     * @return the maximum number of seconds to wait for a map image.
+     */
+    private static int imageTimeout() {
+        String seconds = System.getenv("IMAGE_TIMEOUT_SECONDS");
+        if (seconds != null) {
+            return Integer.parseInt(seconds);
+        }
+        return IMAGE_TIMEOUT_SECONDS;
+    }
+
+    /**
+     * Writes the buffered queries of the route log to disk every {@link #ROUTE_LOG_FLUSH_SECONDS} seconds on a daemon
+     * thread, and once more when the server shuts down.
+     *
+     * @param log the route log.
+     */
+    private static void scheduleFlushes(RouteLog log) {
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "route-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                log.flush();
+            } catch (IOException e) {
+                System.err.println("Could not write route log: " + e);
+            }
+        }, ROUTE_LOG_FLUSH_SECONDS, ROUTE_LOG_FLUSH_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Could not close route log: " + e);
+            }
+        }));
+    }
+
+    /**
+     * Warms the snap and route caches in the background by computing each of the given route queries on
+     * {@link #PREWARM_THREADS} threads of its own, and then completes {@link #warmed} to report readiness. The logged
+     * queries are the rounded requested points, so they are snapped exactly as live requests are.
+     *
+     * @param map     the {@link MapGraph} to search.
+     * @param factory the {@link ShapeFactory} for creating points.
+     * @param queries the list of {start latitude, start longitude, goal latitude, goal longitude} route queries.
+     */
+    private static void prewarm(MapGraph map, ShapeFactory factory, List<double[]> queries) {
+        ExecutorService prewarmer = Executors.newFixedThreadPool(PREWARM_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "prewarm");
+            thread.setDaemon(true);
+            return thread;
         });
+        List<CompletableFuture<Void>> futures = new ArrayList<>(queries.size());
+        for (double[] query : queries) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                Point start = snap(map, factory.pointLatLon(query[0], query[1]));
+                Point goal = snap(map, factory.pointLatLon(query[2], query[3]));
+                List<Point> route = stored(start, goal);
+                if (route == null) {
+                    route = map.shortestPath(start, goal);
+                    store(start, goal, route);
+                }
+                routeCache.put(List.of(start, goal), route);
+            }, prewarmer));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((result, error) -> {
+                    prewarmer.shutdown();
+                    warmed.complete(null);
+                });
+    }
+
+    /**
+     * Returns the point on the street network closest to the point, consulting the snap cache first.
+     *
+     * @param map   the {@link MapGraph} to search.
+     * @param point the requested point.
+     * @return the point on the street network closest to the point.
+     */
+    private static Point snap(MapGraph map, Point point) {
+        Point result = snapCache.get(point);
+        if (result == null) {
+            result = map.closestOnStreet(point);
+            snapCache.put(point, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shortest path between two snapped points, consulting the route cache and then the disk route cache
+     * first. If the shortest path tree from the start has already been computed, walks up the tree to the goal.
+     * Otherwise, runs a single-pair search and speculatively computes the tree in the background since the user is
+     * likely to keep the start and try other goals, unless too many trees are already waiting.
+     *
+     * @param map   the {@link MapGraph} to search.
+     * @param start the snapped point to start the shortest path.
+     * @param goal  the snapped point to end the shortest path.
+     * @return a list of points representing the shortest path from the start to the goal.
+     */
+    private static List<Point> route(MapGraph map, Point start, Point goal) {
+        List<Point> key = List.of(start, goal);
+        List<Point> result = routeCache.get(key);
+        if (result != null) {
+            routeHits.incrementAndGet();
+            return result;
+        }
+        routeMisses.incrementAndGet();
+        result = stored(start, goal);
+        if (result == null) {
+            CompletableFuture<ShortestPathSolver<Point>> tree = treeCache.get(start);
+            if (tree != null && tree.isDone() && !tree.isCompletedExceptionally()) {
+                result = tree.join().solution(goal);
+            } else {
+                if (tree == null) {
+                    try {
+                        cached(treeCache, start, () -> map.shortestPathTree(start), background);
+                    } catch (RejectedExecutionException e) {
+                        // The background thread is already busy with other trees, so skip this speculative one.
+                    }
+                }
+                result = map.shortestPath(start, goal);
+            }
+            store(start, goal, result);
+        }
+        routeCache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Returns the shortest path between two snapped points from the disk route cache, or null if there is none.
+     *
+     * @param start the snapped point to start the shortest path.
+     * @param goal  the snapped point to end the shortest path.
+     * @return a list of points representing the shortest path, or null if it is not in the disk route cache.
+     */
+    private static List<Point> stored(Point start, Point goal) {
+        if (routeStore == null) {
+            return null;
+        }
+        double[] coordinates;
+        try {
+            coordinates = routeStore.get(ROUTE_PROFILE, start.getLat(), start.getLon(), goal.getLat(), goal.getLon());
+        } catch (IOException e) {
+            System.err.println("Could not read cached route: " + e);
+            return null;
+        }
+        if (coordinates == null) {
+            return null;
+        }
+        ShapeFactory factory = start.getContext().getShapeFactory();
+        List<Point> result = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            result.add(factory.pointLatLon(coordinates[i], coordinates[i + 1]));
+        }
+        return result;
+    }
+
+    /**
+     * Saves the shortest path between two snapped points to the disk route cache, if any.
+     *
+     * @param start the snapped point to start the shortest path.
+     * @param goal  the snapped point to end the shortest path.
+     * @param route the list of points representing the shortest path.
+     */
+    private static void store(Point start, Point goal, List<Point> route) {
+        if (routeStore == null) {
+            return;
+        }
+        double[] coordinates = new double[2 * route.size()];
+        for (int i = 0; i < route.size(); i += 1) {
+            coordinates[2 * i] = route.get(i).getLat();
+            coordinates[2 * i + 1] = route.get(i).getLon();
+        }
+        try {
+            routeStore.put(ROUTE_PROFILE, start.getLat(), start.getLon(), goal.getLat(), goal.getLon(), coordinates);
+        } catch (IOException e) {
+            System.err.println("Could not save cached route: " + e);
+        }
+    }
+
+    /**
+     * Returns the longitude and latitude pairs for each of the points in a form suitable for JSON.
+     *
+     * @param points the list of points.
+     * @return a list of longitude and latitude pairs in the same order as the points.
+     */
+    private static List<double[]> coordinates(List<Point> points) {
+        List<double[]> result = new ArrayList<>(points.size());
+        for (Point point : points) {
+            result.add(new double[]{point.getLon(), point.getLat()});
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name, location, and distance from the origin of the named place in a form suitable for JSON.
+     *
+     * @param map    the map graph for measuring distances.
+     * @param origin the point to measure the distance from.
+     * @param place  the name and location of the place.
+     * @return a map with the name, longitude and latitude pair, and distance of the place.
+     */
+    private static Map<String, Object> place(MapGraph map, Point origin, Map.Entry<String, Point> place) {
+        return Map.of(
+                "name", place.getKey(),
+                "location", new double[]{place.getValue().getLon(), place.getValue().getLat()},
+                "distance", map.distance(origin, place.getValue())
+        );
+    }
+
+    /**
+     * Returns the cached future value for the key, or starts computing the value asynchronously on the
+     * {@link #routeWork} threads if the key is not cached.
+     *
+     * @param cache    the cache of futures.
+     * @param key      the key to look up.
+     * @param supplier the function for computing the value.
+     * @param <K>      the type of keys.
+     * @param <V>      the type of values.
+     * @return the future value associated with the key.
+     * @see #cached(LRUCache, Object, Supplier, Executor)
+     */
+    private static <K, V> CompletableFuture<V> cached(LRUCache<K, CompletableFuture<V>> cache, K key,
+                                                      Supplier<V> supplier) {
+        return cached(cache, key, supplier, routeWork);
+    }
+
+    /**
+     * Returns the cached future value for the key, or starts computing the value asynchronously if the key is not
+     * cached. Futures that complete exceptionally are removed from the cache so that the computation can be retried.
+     *
+     * @param cache    the cache of futures.
+     * @param key      the key to look up.
+     * @param supplier the function for computing the value.
+     * @param executor the {@link Executor} for computing the value.
+     * @param <K>      the type of keys.
+     * @param <V>      the type of values.
+     * @return the future value associated with the key.
+     */
+    private static <K, V> CompletableFuture<V> cached(LRUCache<K, CompletableFuture<V>> cache, K key,
+                                                      Supplier<V> supplier, Executor executor) {
+        CompletableFuture<V> future = cache.computeIfAbsent(key,
+                k -> CompletableFuture.supplyAsync(supplier, executor));
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                cache.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a GeoJSON MultiPolygon outlining the locations as the union of square grid cells that contain them.
+     *
+     * @param locations the locations to outline.
+     * @param cellSize  the side length of each grid cell in degrees.
+     * @return a GeoJSON MultiPolygon geometry with one square polygon for each occupied grid cell.
+     */
+    private static Map<String, Object> outline(Collection<Point> locations, double cellSize) {
+        SortedSet<Long> cells = new TreeSet<>();
+        for (Point location : locations) {
+            long row = (long) Math.floor(location.getLat() / cellSize);
+            long col = (long) Math.floor(location.getLon() / cellSize);
+            cells.add(row << 32 | (col & 0xffffffffL));
+        }
+        List<List<List<double[]>>> polygons = new ArrayList<>(cells.size());
+        for (long cell : cells) {
+            double south = (cell >> 32) * cellSize;
+            double west = ((int) cell) * cellSize;
+            double north = south + cellSize;
+            double east = west + cellSize;
+            polygons.add(List.of(List.of(
+                    new double[]{west, south},
+                    new double[]{east, south},
+                    new double[]{east, north},
+                    new double[]{west, north},
+                    new double[]{west, south}
+            )));
+        }
+        return Map.of("type", "MultiPolygon", "coordinates", polygons);
+    }
+
+    /**
+     * Returns the points represented by semicolon-separated longitude and latitude pairs such as
+     * {@code -122.31,47.65;-122.33,47.61}.
+     *
+     * @param factory the {@link ShapeFactory} for creating points.
+     * @param pairs   the semicolon-separated longitude and latitude pairs.
+     * @return the list of points in the same order as the pairs.
+     * @throws BadRequestResponse if a pair is not a valid longitude and latitude.
+     */
+    private static List<Point> points(ShapeFactory factory, String pairs) {
+        List<Point> result = new ArrayList<>();
+        for (String pair : pairs.split(";")) {
+            String[] lonLat = pair.split(",");
+            try {
+                if (lonLat.length != 2) {
+                    throw new NumberFormatException();
+                }
+                result.add(factory.pointLatLon(Double.parseDouble(lonLat[1]), Double.parseDouble(lonLat[0])));
+            } catch (NumberFormatException e) {
+                throw new BadRequestResponse("Invalid lon,lat pair: " + pair);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the in-memory layout for the streets of the map graph.
+     *
+     * @return the in-memory layout for the streets of the map graph.
+     */
+    private static MapGraph.Storage storage() {
+        String storage = System.getenv("GRAPH_STORAGE");
+        if (storage != null) {
+            return MapGraph.Storage.valueOf(storage);
+        }
+        return MapGraph.Storage.HASH_MAP;
+    }
+
+    /**
+     * Returns the OpenStreetMap XML file path, so that each server can load the map of a different region.
+     *
+     * @return the OpenStreetMap XML file path.
+     */
+    private static String osmPath() {
+        String osmPath = System.getenv("OSM_FILE");
+        if (osmPath != null) {
+            return osmPath;
+        }
+        return OSM_DB_PATH;
+    }
+
+    /**
+     * Returns the path to the TSV of OSM way accessibility scores.
+     *
+     * @return the path to the TSV of OSM way accessibility scores.
+     */
+    private static String accessPath() {
+        String accessPath = System.getenv("ACCESS_FILE");
+        if (accessPath != null) {
+            return accessPath;
+        }
+        return ACCESS_PATH;
+    }
+
+    /**
+     * Returns the path to the graph file shared by every server on the host for the file layouts.
+     *
+     * @param layout the in-memory layout for the streets of the map graph.
+     * @return the path to the graph file.
+     */
+    private static Path graphPath(MapGraph.Storage layout) {
+        String graphPath = System.getenv("GRAPH_FILE");
+        if (graphPath != null) {
+            return Path.of(graphPath);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), osmPath() + "." + layout.name().toLowerCase());
     }
 
     /**
@@ -91,22 +992,67 @@ public class MapServer {
     }
 
     /**
-     * Return the API URL for retrieving the map image.
+     * Returns the base URL of the MapBox APIs, which can be replaced with a local server for testing.
+     *
+     * @return the base URL of the MapBox APIs, ending with a forward slash.
+     */
+    private static String mapboxURL() {
+        String url = System.getenv("MAPBOX_URL");
+        if (url != null) {
+            return url.endsWith("/") ? url : url + "/";
+        }
+        return MAPBOX_URL;
+    }
+
+    /**
+     * Return the API URL for retrieving the map image. The route is simplified to the points that are visible at the
+     * zoom level, and simplified further if the URL would still be too long.
      *
      * @param center    the center of the map image.
+     * @param zoom      the zoom level of the map image.
      * @param width     the width of the window.
      * @param height    the height of the window.
      * @param route     the list of route points (or null).
      * @param locations the list of locations (or null).
      * @return the URL for retrieving the map image.
-     * @throws MalformedURLException if the URL is invalid.
      */
-    private static URL url(Point center, int zoom, int width, int height, List<Point> route, List<Point> locations)
-            throws MalformedURLException {
+    private static URI url(Point center, int zoom, int width, int height, List<Point> route, List<Point> locations) {
+        int n = route == null ? 0 : route.size();
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lats[i] = route.get(i).getLat();
+            lons[i] = route.get(i).getLon();
+        }
+        // A pixel of a Web Mercator map with 512-pixel tiles spans this many degrees of latitude at the center.
+        double pixel = 360 / (512 * Math.pow(2, zoom)) * Math.cos(Math.toRadians(center.getLat()));
+        double tolerance = ROUTE_TOLERANCE_PIXELS * pixel;
+        while (true) {
+            int[] kept = PolylineSimplifier.simplify(lats, lons, tolerance);
+            URI result = url(center, zoom, width, height, encode(lats, lons, kept), locations);
+            if (result.toString().length() <= MAX_URL_LENGTH || kept.length <= 2) {
+                return result;
+            }
+            tolerance *= 2;
+        }
+    }
+
+    /**
+     * Return the API URL for retrieving the map image.
+     *
+     * @param center    the center of the map image.
+     * @param zoom      the zoom level of the map image.
+     * @param width     the width of the window.
+     * @param height    the height of the window.
+     * @param polyline  the encoded route string, which is empty if there is no route.
+     * @param locations the list of locations (or null).
+     * @return the URL for retrieving the map image.
+     */
+    private static URI url(Point center, int zoom, int width, int height, String polyline, List<Point> locations) {
         StringBuilder overlay = new StringBuilder();
-        if (route != null && !route.isEmpty()) {
+        if (!polyline.isEmpty()) {
             overlay.append("path-4+6cb5e6-1(");
-            overlay.append(URLEncoder.encode(encode(route), StandardCharsets.UTF_8));
+            overlay.append(URLEncoder.encode(polyline, StandardCharsets.UTF_8));
             overlay.append("),");
         }
         if (locations != null && !locations.isEmpty()) {
@@ -122,14 +1068,15 @@ public class MapServer {
             // Replace the trailing comma with a forward slash
             overlay.setCharAt(overlay.length() - 1, '/');
         }
-        return new URL(String.format(
-                "https://api.mapbox.com/"
+        return URI.create(String.format(
+                "%s"
                         // {username}/{style_id} and {overlay} (must include trailing slash)
                         + "styles/v1/%s/%s/static/%s"
                         // {lon},{lat},{zoom}/{width}x{height}{@2x}
                         + "%f,%f,%d/%dx%d%s"
                         // Access token and optional parameters
                         + "?access_token=%s&logo=false&attribution=false",
+                mapboxURL(),
                 "mapbox",
                 "cj7t3i5yj0unt2rmt3y4b5e32",
                 overlay,
@@ -140,37 +1087,42 @@ public class MapServer {
     }
 
     /**
-     * Returns an encoded route string.
+     * Returns an encoded route string for the kept points of the route.
      *
-     * @param route list of points representing the route to encode.
+     * @param lats the latitude of each point of the route.
+     * @param lons the longitude of each point of the route.
+     * @param kept the indices of the points to encode, in order.
      * @return an encoded route string.
      * @see <a href="https://github.com/mapbox/mapbox-java">MapBox PolylineUtils</a>
      */
-    private static String encode(List<Point> route) {
-        StringBuilder result = new StringBuilder();
+    private static String encode(double[] lats, double[] lons, int[] kept) {
+        StringBuilder result = new StringBuilder(kept.length * 8);
         long lastLat = 0;
         long lastLon = 0;
-        for (Point point : route) {
-            long lat = Math.round(point.getLat() * 1e5);
-            long diffLat = lat - lastLat;
-            diffLat = diffLat < 0 ? ~(diffLat << 1) : diffLat << 1;
-            while (diffLat >= 0x20) {
-                result.append(Character.toChars((int) ((0x20 | (diffLat & 0x1f)) + 63)));
-                diffLat >>= 5;
-            }
-            result.append(Character.toChars((int) (diffLat + 63)));
+        for (int i : kept) {
+            long lat = Math.round(lats[i] * 1e5);
+            encode(result, lat - lastLat);
             lastLat = lat;
 
-            long lon = Math.round(point.getLon() * 1e5);
-            long diffLon = lon - lastLon;
-            diffLon = diffLon < 0 ? ~(diffLon << 1) : diffLon << 1;
-            while (diffLon >= 0x20) {
-                result.append(Character.toChars((int) ((0x20 | (diffLon & 0x1f)) + 63)));
-                diffLon >>= 5;
-            }
-            result.append(Character.toChars((int) (diffLon + 63)));
+            long lon = Math.round(lons[i] * 1e5);
+            encode(result, lon - lastLon);
             lastLon = lon;
         }
         return result.toString();
     }
+
+    /**
+     * Appends the encoding of the difference between two consecutive coordinates to the encoded route string.
+     *
+     * @param result the encoded route string.
+     * @param diff   the difference in units of 10<sup>-5</sup> degrees.
+     */
+    private static void encode(StringBuilder result, long diff) {
+        diff = diff < 0 ? ~(diff << 1) : diff << 1;
+        while (diff >= 0x20) {
+            result.append((char) ((0x20 | (diff & 0x1f)) + 63));
+            diff >>= 5;
+        }
+        result.append((char) (diff + 63));
+    }
 }
@@ -0,0 +1,597 @@
+package caches;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persistent route cache that survives restarts. Routes are appended to a segment file as records of the routing
+ * profile, the start and goal coordinates, and the delta-encoded coordinates of each location on the route. A
+ * memory-mapped open-addressing hash index maps each key to the position of its latest record in the segment file.
+ * <p>
+ * Both files are stamped with the version of the graph that computed the routes, so opening the cache with a different
+ * version discards every route. Replacing the route for a key leaves the old record behind as garbage, which is
+ * reclaimed by compacting the segment file. Coordinates are stored in units of 10<sup>-7</sup> degrees, the precision
+ * of OpenStreetMap, so that decoded locations read from OpenStreetMap are identical to the original coordinates. Other
+ * points, such as route endpoints snapped partway along a street, are decoded to within half a unit, and keys whose
+ * coordinates round to the same units share a route.
+ */
+public class DiskRouteCache implements Closeable {
+    /**
+     * Number of units per degree.
+     */
+    private static final double SCALE = 1e7;
+    /**
+     * Magic numbers identifying the segment and index files.
+     */
+    private static final int SEGMENT_MAGIC = 0x52534547, INDEX_MAGIC = 0x52494458;
+    /**
+     * Size in bytes of the segment file header: magic number and version.
+     */
+    private static final int SEGMENT_HEADER = Integer.BYTES + Long.BYTES;
+    /**
+     * Size in bytes of the index file header: magic number, capacity, version, and count.
+     */
+    private static final int INDEX_HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    /**
+     * Size in bytes of each index slot: key hash and record position.
+     */
+    private static final int SLOT = Long.BYTES + Long.BYTES;
+    /**
+     * Initial number of index slots.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Minimum number of garbage bytes before the segment file is compacted automatically.
+     */
+    private static final long MIN_COMPACT_GARBAGE = 1 << 20;
+    /**
+     * The paths to the segment and index files.
+     */
+    private final Path segmentPath, indexPath;
+    /**
+     * The version of the graph that computed the routes.
+     */
+    private final long version;
+    /**
+     * The channel for reading and appending to the segment file.
+     */
+    private FileChannel segment;
+    /**
+     * The memory-mapped index file.
+     */
+    private MappedByteBuffer index;
+    /**
+     * Number of index slots.
+     */
+    private int capacity;
+    /**
+     * Number of keys in the index.
+     */
+    private int count;
+    /**
+     * Number of bytes in the segment file belonging to replaced records.
+     */
+    private long garbage;
+
+    /**
+     * Opens the cache in the given directory, creating it if it does not exist. If the cache was written for a
+     * different version, every route is discarded. If the index is missing or damaged, it is rebuilt from the segment.
+     *
+     * @param directory the directory containing the segment and index files.
+     * @param version   the version of the graph that computes the routes.
+     * @throws IOException if the files cannot be opened.
+     */
+    public DiskRouteCache(Path directory, long version) throws IOException {
+        Files.createDirectories(directory);
+        this.segmentPath = directory.resolve("routes.seg");
+        this.indexPath = directory.resolve("routes.idx");
+        this.version = version;
+        segment = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        if (segment.read(header, 0) != SEGMENT_HEADER
+                || header.getInt(0) != SEGMENT_MAGIC || header.getLong(Integer.BYTES) != version) {
+            segment.truncate(0);
+            header.clear();
+            header.putInt(SEGMENT_MAGIC).putLong(version).flip();
+            segment.write(header, 0);
+            Files.deleteIfExists(indexPath);
+        }
+        if (!openIndex()) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Returns the cached route for the key, or null if there is none.
+     *
+     * @param profile  the name of the routing profile.
+     * @param startLat the latitude of the start.
+     * @param startLon the longitude of the start.
+     * @param goalLat  the latitude of the goal.
+     * @param goalLon  the longitude of the goal.
+     * @return the alternating latitudes and longitudes of each location on the route, or null if there is none.
+     * @throws IOException if the segment file cannot be read.
+     */
+    public synchronized double[] get(String profile, double startLat, double startLon, double goalLat, double goalLon)
+            throws IOException {
+        Key key = new Key(profile, units(startLat), units(startLon), units(goalLat), units(goalLon));
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        DataInputStream input = record(index.getLong(slotPosition(slot) + Long.BYTES));
+        Key.read(input);
+        int n = readVarint(input);
+        double[] result = new double[2 * n];
+        int lat = key.startLat, lon = key.startLon;
+        for (int i = 0; i < n; i += 1) {
+            lat += zigzagDecode(readVarint(input));
+            lon += zigzagDecode(readVarint(input));
+            result[2 * i] = lat / SCALE;
+            result[2 * i + 1] = lon / SCALE;
+        }
+        return result;
+    }
+
+    /**
+     * Appends the route for the key, replacing any previous route for the key.
+     *
+     * @param profile  the name of the routing profile.
+     * @param startLat the latitude of the start.
+     * @param startLon the longitude of the start.
+     * @param goalLat  the latitude of the goal.
+     * @param goalLon  the longitude of the goal.
+     * @param route    the alternating latitudes and longitudes of each location on the route.
+     * @throws IOException if the route cannot be written.
+     */
+    public synchronized void put(String profile, double startLat, double startLon, double goalLat, double goalLon,
+                                 double[] route) throws IOException {
+        Key key = new Key(profile, units(startLat), units(startLon), units(goalLat), units(goalLon));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0); // Placeholder for the record length
+        key.write(output);
+        writeVarint(output, route.length / 2);
+        int lat = key.startLat, lon = key.startLon;
+        for (int i = 0; i + 1 < route.length; i += 2) {
+            int nextLat = units(route[i]), nextLon = units(route[i + 1]);
+            writeVarint(output, zigzagEncode(nextLat - lat));
+            writeVarint(output, zigzagEncode(nextLon - lon));
+            lat = nextLat;
+            lon = nextLon;
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - Integer.BYTES);
+        long position = segment.size();
+        while (record.hasRemaining()) {
+            segment.write(record, position + record.position());
+        }
+        insert(key, position);
+        if (garbage >= MIN_COMPACT_GARBAGE && garbage * 2 >= segment.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the segment file to contain only the latest record for each key, reclaiming the space of replaced
+     * records, and then rebuilds the index.
+     *
+     * @throws IOException if the files cannot be rewritten.
+     */
+    public synchronized void compact() throws IOException {
+        Path compactedPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(compactedPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER).putInt(SEGMENT_MAGIC).putLong(version).flip();
+            compacted.write(header);
+            for (int slot = 0; slot < capacity; slot += 1) {
+                if (index.getLong(slotPosition(slot)) != 0) {
+                    long position = index.getLong(slotPosition(slot) + Long.BYTES);
+                    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + recordLength(position));
+                    readFully(record, position);
+                    record.flip();
+                    compacted.write(record);
+                }
+            }
+            compacted.force(true);
+        }
+        segment.close();
+        Files.move(compactedPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segment = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        rebuildIndex();
+    }
+
+    /**
+     * Returns the number of cached routes.
+     *
+     * @return the number of cached routes.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes in the segment file belonging to replaced records, which compaction reclaims.
+     *
+     * @return the number of garbage bytes in the segment file.
+     */
+    public synchronized long garbage() {
+        return garbage;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        segment.close();
+    }
+
+    /**
+     * Maps the existing index file, if it is valid for this version and segment. The garbage is not stored in either
+     * file, so it is recomputed as the bytes of the segment that do not belong to the latest record for any key.
+     *
+     * @return true if the index was mapped, or false if it must be rebuilt.
+     * @throws IOException if the index file cannot be read.
+     */
+    private boolean openIndex() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < INDEX_HEADER) {
+            return false;
+        }
+        MappedByteBuffer mapped = map(indexPath, Files.size(indexPath));
+        int slots = mapped.getInt(Integer.BYTES);
+        if (mapped.getInt(0) != INDEX_MAGIC || mapped.getLong(2 * Integer.BYTES) != version
+                || slots <= 0 || Files.size(indexPath) != INDEX_HEADER + (long) slots * SLOT) {
+            return false;
+        }
+        long live = 0;
+        try {
+            for (int slot = 0; slot < slots; slot += 1) {
+                if (mapped.getLong(slotPosition(slot)) != 0) {
+                    live += Integer.BYTES + recordLength(mapped.getLong(slotPosition(slot) + Long.BYTES));
+                }
+            }
+        } catch (EOFException e) {
+            // The index points past the end of the segment.
+            return false;
+        }
+        long unused = segment.size() - SEGMENT_HEADER - live;
+        if (unused < 0) {
+            return false;
+        }
+        index = mapped;
+        capacity = slots;
+        count = mapped.getInt(2 * Integer.BYTES + Long.BYTES);
+        garbage = unused;
+        return true;
+    }
+
+    /**
+     * Rebuilds the index by scanning every record in the segment file. A partially-written or damaged record and
+     * everything after it is truncated.
+     *
+     * @throws IOException if the files cannot be read or written.
+     */
+    private void rebuildIndex() throws IOException {
+        createIndex(INITIAL_CAPACITY);
+        long position = SEGMENT_HEADER;
+        long size = segment.size();
+        while (position + Integer.BYTES <= size) {
+            int length = recordLength(position);
+            if (length <= 0 || position + Integer.BYTES + length > size) {
+                break;
+            }
+            Key key;
+            try {
+                key = Key.read(record(position));
+            } catch (EOFException | UTFDataFormatException e) {
+                break;
+            }
+            insert(key, position);
+            position += Integer.BYTES + length;
+        }
+        if (position < size) {
+            segment.truncate(position);
+        }
+    }
+
+    /**
+     * Replaces the index with a new empty index file with the given number of slots.
+     *
+     * @param slots the number of slots.
+     * @throws IOException if the index file cannot be written.
+     */
+    private void createIndex(int slots) throws IOException {
+        Path createdPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Files.deleteIfExists(createdPath);
+        MappedByteBuffer created = map(createdPath, INDEX_HEADER + (long) slots * SLOT);
+        created.putInt(0, INDEX_MAGIC);
+        created.putInt(Integer.BYTES, slots);
+        created.putLong(2 * Integer.BYTES, version);
+        created.putInt(2 * Integer.BYTES + Long.BYTES, 0);
+        Files.move(createdPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = created;
+        capacity = slots;
+        count = 0;
+        garbage = 0;
+    }
+
+    /**
+     * Points the key to the record at the given position, doubling the index when it becomes half full.
+     *
+     * @param key      the key of the record.
+     * @param position the position of the record in the segment file.
+     * @throws IOException if the files cannot be read or written.
+     */
+    private void insert(Key key, long position) throws IOException {
+        int slot = find(key);
+        if (slot >= 0) {
+            garbage += Integer.BYTES + recordLength(index.getLong(slotPosition(slot) + Long.BYTES));
+            index.putLong(slotPosition(slot) + Long.BYTES, position);
+            return;
+        }
+        if (2 * (count + 1) > capacity) {
+            MappedByteBuffer old = index;
+            int oldCapacity = capacity;
+            long oldGarbage = garbage;
+            createIndex(2 * oldCapacity);
+            for (int i = 0; i < oldCapacity; i += 1) {
+                long hash = old.getLong(slotPosition(i));
+                if (hash != 0) {
+                    place(hash, old.getLong(slotPosition(i) + Long.BYTES));
+                }
+            }
+            garbage = oldGarbage;
+        }
+        place(key.hash(), position);
+    }
+
+    /**
+     * Stores the hash and position in the first empty slot for the hash.
+     *
+     * @param hash     the hash of the key.
+     * @param position the position of the record in the segment file.
+     */
+    private void place(long hash, long position) {
+        int slot = (int) Long.remainderUnsigned(hash, capacity);
+        while (index.getLong(slotPosition(slot)) != 0) {
+            slot = (slot + 1) % capacity;
+        }
+        index.putLong(slotPosition(slot), hash);
+        index.putLong(slotPosition(slot) + Long.BYTES, position);
+        count += 1;
+        index.putInt(2 * Integer.BYTES + Long.BYTES, count);
+    }
+
+    /**
+     * Returns the slot for the key, or -1 if the key is not in the index. Slots with an equal hash are confirmed by
+     * comparing the key stored in the segment file.
+     *
+     * @param key the key to find.
+     * @return the slot for the key, or -1 if the key is not in the index.
+     * @throws IOException if the segment file cannot be read.
+     */
+    private int find(Key key) throws IOException {
+        long hash = key.hash();
+        int slot = (int) Long.remainderUnsigned(hash, capacity);
+        for (long stored = index.getLong(slotPosition(slot)); stored != 0; stored = index.getLong(slotPosition(slot))) {
+            if (stored == hash && key.equals(Key.read(record(index.getLong(slotPosition(slot) + Long.BYTES))))) {
+                return slot;
+            }
+            slot = (slot + 1) % capacity;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns an input stream over the body of the record at the given position.
+     *
+     * @param position the position of the record in the segment file.
+     * @return an input stream over the body of the record.
+     * @throws IOException if the segment file cannot be read.
+     */
+    private DataInputStream record(long position) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(recordLength(position));
+        readFully(body, position + Integer.BYTES);
+        return new DataInputStream(new ByteArrayInputStream(body.array()));
+    }
+
+    /**
+     * Returns the length of the body of the record at the given position.
+     *
+     * @param position the position of the record in the segment file.
+     * @return the length in bytes of the body of the record.
+     * @throws IOException if the segment file cannot be read.
+     */
+    private int recordLength(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, position);
+        return length.getInt(0);
+    }
+
+    /**
+     * Fills the buffer from the segment file starting at the given position.
+     *
+     * @param buffer   the buffer to fill.
+     * @param position the position in the segment file.
+     * @throws IOException if the segment file ends before the buffer is filled.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (segment.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Route cache segment ended unexpectedly");
+            }
+        }
+    }
+
+    /**
+     * Returns the position in the index file of the given slot.
+     *
+     * @param slot the slot number.
+     * @return the position in the index file of the slot.
+     */
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT;
+    }
+
+    /**
+     * Returns a read-write memory mapping of the file at the given path with the given size.
+     *
+     * @param path the path to the file.
+     * @param size the size of the file in bytes.
+     * @return a memory mapping of the file.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Returns the coordinate in units of 10<sup>-7</sup> degrees.
+     *
+     * @param degrees the coordinate in degrees.
+     * @return the coordinate in units of 10<sup>-7</sup> degrees.
+     */
+    private static int units(double degrees) {
+        return (int) Math.round(degrees * SCALE);
+    }
+
+    /**
+     * Maps signed integers to unsigned integers so that values near zero have short variable-length encodings.
+     *
+     * @param value the signed integer.
+     * @return the zigzag-encoded integer.
+     */
+    private static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Inverts {@link #zigzagEncode(int)}.
+     *
+     * @param value the zigzag-encoded integer.
+     * @return the signed integer.
+     */
+    private static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes the integer seven bits at a time, setting the high bit of every byte except the last.
+     *
+     * @param output the output to write to.
+     * @param value  the integer, treated as unsigned.
+     * @throws IOException if the integer cannot be written.
+     */
+    private static void writeVarint(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Reads an integer written by {@link #writeVarint(DataOutput, int)}.
+     *
+     * @param input the input to read from.
+     * @return the integer.
+     * @throws IOException if the integer cannot be read.
+     */
+    private static int readVarint(DataInput input) throws IOException {
+        int result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = input.readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Cache key of a routing profile and the start and goal coordinates in units of 10<sup>-7</sup> degrees. The
+     * graph version is not part of each key since it is stamped on the files as a whole.
+     */
+    private static class Key {
+        final String profile;
+        final int startLat, startLon, goalLat, goalLon;
+
+        Key(String profile, int startLat, int startLon, int goalLat, int goalLon) {
+            this.profile = profile;
+            this.startLat = startLat;
+            this.startLon = startLon;
+            this.goalLat = goalLat;
+            this.goalLon = goalLon;
+        }
+
+        /**
+         * Reads a key written by {@link #write(DataOutput)}.
+         *
+         * @param input the input to read from.
+         * @return the key.
+         * @throws IOException if the key cannot be read.
+         */
+        static Key read(DataInput input) throws IOException {
+            return new Key(input.readUTF(), input.readInt(), input.readInt(), input.readInt(), input.readInt());
+        }
+
+        /**
+         * Writes this key to the output.
+         *
+         * @param output the output to write to.
+         * @throws IOException if the key cannot be written.
+         */
+        void write(DataOutput output) throws IOException {
+            output.writeUTF(profile);
+            output.writeInt(startLat);
+            output.writeInt(startLon);
+            output.writeInt(goalLat);
+            output.writeInt(goalLon);
+        }
+
+        /**
+         * Returns a well-mixed nonzero 64-bit hash of this key, since zero marks an empty index slot.
+         *
+         * @return a nonzero 64-bit hash of this key.
+         */
+        long hash() {
+            long h = profile.hashCode();
+            h = h * 31 + startLat;
+            h = h * 31 + startLon;
+            h = h * 31 + goalLat;
+            h = h * 31 + goalLon;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h == 0 ? 1 : h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return profile.equals(other.profile) && startLat == other.startLat && startLon == other.startLon
+                    && goalLat == other.goalLat && goalLon == other.goalLon;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash());
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package caches;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of upstream map images. Images are kept in memory in least-recently used order up to a total number of
+ * bytes, and optionally written to a directory on disk up to a larger number of bytes so that they survive restarts.
+ * An image found only on disk is promoted back into memory. Both tiers forget images older than the time-to-live.
+ * <p>
+ * Images are keyed by their normalized upstream URL: the access token is removed and the remaining query parameters
+ * are sorted, so that the same image requested with a different or rotated token is still a hit. Each image on disk is
+ * stored in a file named by the SHA-256 hash of its key, and its modification time records when it was downloaded.
+ * <p>
+ * Only the memory tier and the index of the disk tier are guarded by the lock; files are read, written, and deleted
+ * outside it, so a slow disk never holds up lookups answered from memory. Each file is written under a unique temporary
+ * name and then moved into place, so a concurrent reader sees either a whole image or none.
+ */
+public class ImageCache {
+    /**
+     * Name of the query parameter holding the upstream access token.
+     */
+    private static final String TOKEN_PARAMETER = "access_token";
+    /**
+     * File name extension of the images on disk.
+     */
+    private static final String EXTENSION = ".img";
+    /**
+     * Maximum total bytes of the images in memory.
+     */
+    private final long maxMemoryBytes;
+    /**
+     * The directory of the images on disk, or null if images are only cached in memory.
+     */
+    private final Path directory;
+    /**
+     * Maximum total bytes of the images on disk.
+     */
+    private final long maxDiskBytes;
+    /**
+     * Maximum age of a cached image in milliseconds.
+     */
+    private final long ttlMillis;
+    /**
+     * The current time in milliseconds.
+     */
+    private final LongSupplier clock;
+    /**
+     * {@link LinkedHashMap} in access order of each key to its image in memory.
+     */
+    private final LinkedHashMap<String, Image> memory;
+    /**
+     * {@link LinkedHashMap} in access order of each file name on disk to the file written under that name.
+     */
+    private final LinkedHashMap<String, Stored> disk;
+    /**
+     * Total bytes of the images in memory and on disk.
+     */
+    private long memoryBytes, diskBytes;
+    /**
+     * Number of lookups answered from memory, answered from disk, and not answered.
+     */
+    private long memoryHits, diskHits, misses;
+
+    /**
+     * Constructs a cache with the given limits, opening the images already in the directory. Images on disk that have
+     * expired are deleted.
+     *
+     * @param maxMemoryBytes the maximum total bytes of the images in memory.
+     * @param directory      the directory of the images on disk, or null to only cache images in memory.
+     * @param maxDiskBytes   the maximum total bytes of the images on disk.
+     * @param ttl            the maximum age of a cached image.
+     * @throws IOException if the directory cannot be read.
+     */
+    public ImageCache(long maxMemoryBytes, Path directory, long maxDiskBytes, Duration ttl) throws IOException {
+        this(maxMemoryBytes, directory, maxDiskBytes, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a cache with the given limits and clock, opening the images already in the directory.
+     *
+     * @param maxMemoryBytes the maximum total bytes of the images in memory.
+     * @param directory      the directory of the images on disk, or null to only cache images in memory.
+     * @param maxDiskBytes   the maximum total bytes of the images on disk.
+     * @param ttl            the maximum age of a cached image.
+     * @param clock          the current time in milliseconds.
+     * @throws IOException              if the directory cannot be read.
+     * @throws IllegalArgumentException if a limit or the time-to-live is negative.
+     */
+    ImageCache(long maxMemoryBytes, Path directory, long maxDiskBytes, Duration ttl, LongSupplier clock)
+            throws IOException {
+        if (maxMemoryBytes < 0 || maxDiskBytes < 0 || ttl.isNegative()) {
+            throw new IllegalArgumentException("Limits and time-to-live must not be negative");
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.disk = new LinkedHashMap<>(16, 0.75f, true);
+        if (directory != null) {
+            Files.createDirectories(directory);
+            open();
+        }
+    }
+
+    /**
+     * Returns the normalized form of an upstream image URL: the scheme and host are lowercased, the access token is
+     * removed, and the remaining query parameters are sorted.
+     *
+     * @param url the upstream image URL.
+     * @return the cache key for the URL.
+     * @throws IllegalArgumentException if the URL is invalid.
+     */
+    public static String key(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid image URL: " + url, e);
+        }
+        StringBuilder result = new StringBuilder();
+        if (uri.getScheme() != null) {
+            result.append(uri.getScheme().toLowerCase(Locale.ROOT)).append("://");
+        }
+        if (uri.getRawAuthority() != null) {
+            result.append(uri.getRawAuthority().toLowerCase(Locale.ROOT));
+        }
+        if (uri.getRawPath() != null) {
+            result.append(uri.getRawPath());
+        }
+        if (uri.getRawQuery() != null) {
+            List<String> parameters = new ArrayList<>();
+            for (String parameter : uri.getRawQuery().split("&")) {
+                if (!parameter.isEmpty() && !parameter.split("=", 2)[0].equals(TOKEN_PARAMETER)) {
+                    parameters.add(parameter);
+                }
+            }
+            Collections.sort(parameters);
+            if (!parameters.isEmpty()) {
+                result.append('?').append(String.join("&", parameters));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the cached image for the URL, or null if it is not cached or has expired.
+     *
+     * @param url the upstream image URL.
+     * @return the cached image, or null if there is none.
+     */
+    public byte[] get(String url) {
+        String key = key(url);
+        String name = fileName(key);
+        long now = clock.getAsLong();
+        Stored stored;
+        synchronized (this) {
+            Image image = memory.get(key);
+            if (image != null) {
+                if (now - image.created <= ttlMillis) {
+                    memoryHits += 1;
+                    return image.bytes;
+                }
+                removeFromMemory(key);
+            }
+            stored = directory == null ? null : disk.get(name);
+            if (stored == null) {
+                misses += 1;
+                return null;
+            }
+        }
+        Path path = directory.resolve(name);
+        Image image = null;
+        try {
+            long created = Files.getLastModifiedTime(path).toMillis();
+            if (now - created <= ttlMillis) {
+                image = new Image(Files.readAllBytes(path), created);
+            }
+        } catch (NoSuchFileException e) {
+            // The file was evicted after it was found in the index, which is an ordinary miss.
+        } catch (IOException e) {
+            System.err.println("Could not read cached image: " + e);
+        }
+        synchronized (this) {
+            if (image != null) {
+                diskHits += 1;
+                // An image put while the file was read is newer, so it stays in memory.
+                if (!memory.containsKey(key)) {
+                    addToMemory(key, image);
+                }
+                return image.bytes;
+            }
+            misses += 1;
+            // The file may have been replaced while it was read, in which case the new file stays.
+            if (disk.get(name) != stored) {
+                return null;
+            }
+            removeFromDisk(name);
+        }
+        delete(List.of(name));
+        return null;
+    }
+
+    /**
+     * Caches the image for the URL in memory and on disk, evicting the least-recently used images beyond the limits.
+     * An image larger than the limit for a tier is not kept in that tier.
+     *
+     * @param url   the upstream image URL.
+     * @param image the image downloaded from the URL.
+     */
+    public void put(String url, byte[] image) {
+        String key = key(url);
+        String name = fileName(key);
+        long now = clock.getAsLong();
+        synchronized (this) {
+            addToMemory(key, new Image(image, now));
+            if (directory == null) {
+                return;
+            }
+            removeFromDisk(name);
+        }
+        Path path = directory.resolve(name);
+        if (image.length > maxDiskBytes) {
+            delete(List.of(name));
+            return;
+        }
+        Path written = null;
+        try {
+            written = Files.createTempFile(directory, name.substring(0, name.length() - EXTENSION.length()),
+                    EXTENSION + ".tmp");
+            Files.write(written, image);
+            Files.setLastModifiedTime(written, FileTime.fromMillis(now));
+            Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write cached image: " + e);
+            if (written != null) {
+                delete(List.of(written.getFileName().toString()));
+            }
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            removeFromDisk(name);
+            disk.put(name, new Stored(image.length));
+            diskBytes += image.length;
+            evicted = evictFromDisk();
+        }
+        delete(evicted);
+    }
+
+    /**
+     * Returns the number of lookups answered from memory.
+     *
+     * @return the number of lookups answered from memory.
+     */
+    public synchronized long memoryHits() {
+        return memoryHits;
+    }
+
+    /**
+     * Returns the number of lookups answered from disk.
+     *
+     * @return the number of lookups answered from disk.
+     */
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Returns the number of lookups that found no cached image.
+     *
+     * @return the number of lookups that found no cached image.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from either tier.
+     *
+     * @return the fraction of lookups answered from either tier, or 0 if there have been no lookups.
+     */
+    public synchronized double hitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0.0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    /**
+     * Returns the total bytes of the images in memory.
+     *
+     * @return the total bytes of the images in memory.
+     */
+    public synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Returns the total bytes of the images on disk.
+     *
+     * @return the total bytes of the images on disk.
+     */
+    public synchronized long diskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Indexes the images already on disk from oldest to newest, deleting expired images and leftover temporary files,
+     * and then evicts the oldest images beyond the limit.
+     *
+     * @throws IOException if the directory cannot be read.
+     */
+    private void open() throws IOException {
+        long now = clock.getAsLong();
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(Files::isRegularFile).toList();
+        }
+        Map<Path, Long> created = new HashMap<>();
+        List<Path> images = new ArrayList<>();
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            if (!name.endsWith(EXTENSION)) {
+                if (name.endsWith(EXTENSION + ".tmp")) {
+                    Files.deleteIfExists(path);
+                }
+                continue;
+            }
+            long time = Files.getLastModifiedTime(path).toMillis();
+            if (now - time > ttlMillis) {
+                Files.deleteIfExists(path);
+            } else {
+                created.put(path, time);
+                images.add(path);
+            }
+        }
+        images.sort(Comparator.comparingLong(created::get));
+        for (Path path : images) {
+            long size = Files.size(path);
+            disk.put(path.getFileName().toString(), new Stored(size));
+            diskBytes += size;
+        }
+        delete(evictFromDisk());
+    }
+
+    /**
+     * Adds the image to memory, evicting the least-recently used images beyond the limit.
+     *
+     * @param key   the cache key.
+     * @param image the image to add.
+     */
+    private void addToMemory(String key, Image image) {
+        removeFromMemory(key);
+        if (image.bytes.length > maxMemoryBytes) {
+            return;
+        }
+        memory.put(key, image);
+        memoryBytes += image.bytes.length;
+        Iterator<Image> eldest = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().bytes.length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes the image for the key from memory, if any.
+     *
+     * @param key the cache key.
+     */
+    private void removeFromMemory(String key) {
+        Image removed = memory.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.bytes.length;
+        }
+    }
+
+    /**
+     * Removes the least-recently used images on disk from the index until the total is within the limit.
+     *
+     * @return the names of the image files to delete.
+     */
+    private List<String> evictFromDisk() {
+        List<String> result = new ArrayList<>();
+        Iterator<Map.Entry<String, Stored>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+            Map.Entry<String, Stored> entry = eldest.next();
+            eldest.remove();
+            diskBytes -= entry.getValue().size;
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Removes the image file from the index of the disk, if any, leaving the file itself in place.
+     *
+     * @param name the name of the image file.
+     */
+    private void removeFromDisk(String name) {
+        Stored removed = disk.remove(name);
+        if (removed != null) {
+            diskBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Deletes the image files, reporting rather than throwing any error. Must be called without holding the lock.
+     *
+     * @param names the names of the image files.
+     */
+    private void delete(List<String> names) {
+        for (String name : names) {
+            try {
+                Files.deleteIfExists(directory.resolve(name));
+            } catch (IOException e) {
+                System.err.println("Could not delete cached image: " + e);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the file on disk for the key.
+     *
+     * @param key the cache key.
+     * @return the hex-encoded SHA-256 hash of the key followed by the image file name extension.
+     */
+    private static String fileName(String key) {
+        return DigestUtils.sha256Hex(key) + EXTENSION;
+    }
+
+    /**
+     * An image file written to disk, compared by identity to tell whether a file was replaced while the lock was not
+     * held.
+     */
+    private static class Stored {
+        final long size;
+
+        Stored(long size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * An image in memory and the time it was downloaded.
+     */
+    private static class Image {
+        final byte[] bytes;
+        final long created;
+
+        Image(byte[] bytes, long created) {
+            this.bytes = bytes;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package caches;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe, fixed-capacity cache that evicts the least-recently used entry when full.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public class LRUCache<K, V> {
+    /**
+     * {@link LinkedHashMap} in access order so that the eldest entry is always the least-recently used.
+     */
+    private final Map<K, V> entries;
+
+    /**
+     * Constructs an empty cache holding at most the given number of entries.
+     *
+     * @param capacity the maximum number of entries.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public LRUCache(int capacity) {
+        this(capacity, (key, value) -> {
+        });
+    }
+
+    /**
+     * Constructs an empty cache holding at most the given number of entries that reports each evicted entry to the
+     * listener. The listener runs while holding the cache lock, so it should be fast (such as cancelling a task).
+     *
+     * @param capacity the maximum number of entries.
+     * @param evicted  the listener for the key and value of each entry evicted to make room for another.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public LRUCache(int capacity, BiConsumer<? super K, ? super V> evicted) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > capacity) {
+                    evicted.accept(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the value associated with the key, or null if the key is not cached.
+     *
+     * @param key the key to look up.
+     * @return the value associated with the key, or null if the key is not cached.
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Associates the value with the key, evicting the least-recently used entry if the cache is full.
+     *
+     * @param key   the key to associate.
+     * @param value the value to associate.
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Returns the value associated with the key, first computing and caching it if the key is not cached. The
+     * computation runs while holding the cache lock, so it should be fast (such as starting an asynchronous task).
+     *
+     * @param key      the key to look up.
+     * @param function the function for computing the value.
+     * @return the value associated with the key.
+     */
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        return entries.computeIfAbsent(key, function);
+    }
+
+    /**
+     * Removes the entry for the key only if it is currently associated with the value.
+     *
+     * @param key   the key to remove.
+     * @param value the value expected to be associated with the key.
+     * @return true if the entry was removed.
+     */
+    public synchronized boolean remove(K key, V value) {
+        return entries.remove(key, value);
+    }
+
+    /**
+     * Returns the number of entries in this cache.
+     *
+     * @return the number of entries in this cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,235 @@
+package caches;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact append-only log of route queries. Each query is recorded as the start and goal coordinates rounded to
+ * microdegrees and packed into four {@code int} values, or 16 bytes per query.
+ * <p>
+ * Recording a query only appends it to a bounded buffer in memory, so it never waits for the disk. The buffer is
+ * written out by {@link #flush()}, which the caller runs periodically, and queries recorded while the buffer is full
+ * are dropped. Once the log file reaches its maximum size, it is renamed with a {@code .1} suffix, replacing the
+ * previous one, and a new log file is started, so the log never takes more than twice its maximum size on disk.
+ */
+public class RouteLog implements Closeable {
+    /**
+     * Number of microdegrees per degree.
+     */
+    private static final double MICRODEGREES = 1e6;
+    /**
+     * Number of bytes in each recorded query.
+     */
+    private static final int QUERY_BYTES = 4 * Integer.BYTES;
+    /**
+     * Maximum number of queries waiting in memory to be written.
+     */
+    private static final int MAX_PENDING_QUERIES = 4096;
+    /**
+     * The path to the log file.
+     */
+    private final Path path;
+    /**
+     * The maximum size of the log file in bytes before it is rotated.
+     */
+    private final long maxBytes;
+    /**
+     * The packed coordinates of the queries waiting to be written.
+     */
+    private final int[] pending = new int[4 * MAX_PENDING_QUERIES];
+    /**
+     * The number of queries waiting to be written.
+     */
+    private int pendingQueries;
+    /**
+     * The number of queries dropped because the buffer was full.
+     */
+    private long dropped;
+    /**
+     * Lock held while writing to the log file, separate from the lock on the buffer so that recording never waits for
+     * the disk.
+     */
+    private final Object fileLock = new Object();
+    /**
+     * The output stream for appending queries to the log file, guarded by {@link #fileLock}.
+     */
+    private DataOutputStream output;
+    /**
+     * The size of the log file in bytes, guarded by {@link #fileLock}.
+     */
+    private long bytes;
+
+    /**
+     * Opens the log at the given path for appending, creating the file if it does not exist. A partially-written
+     * query at the end of the file is removed so that new queries stay aligned.
+     *
+     * @param path     the path to the log file.
+     * @param maxBytes the maximum size of the log file in bytes before it is rotated.
+     * @throws IOException              if the file cannot be opened.
+     * @throws IllegalArgumentException if the maximum size is smaller than one query.
+     */
+    public RouteLog(Path path, long maxBytes) throws IOException {
+        if (maxBytes < QUERY_BYTES) {
+            throw new IllegalArgumentException("Maximum size must fit at least one query");
+        }
+        this.path = path;
+        this.maxBytes = maxBytes;
+        if (Files.exists(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - channel.size() % QUERY_BYTES);
+            }
+        }
+        output = open(path);
+        bytes = Files.size(path);
+    }
+
+    /**
+     * Appends a route query to the buffer, or drops it if the buffer is full.
+     *
+     * @param startLat the latitude of the start.
+     * @param startLon the longitude of the start.
+     * @param goalLat  the latitude of the goal.
+     * @param goalLon  the longitude of the goal.
+     */
+    public synchronized void record(double startLat, double startLon, double goalLat, double goalLon) {
+        if (pendingQueries == MAX_PENDING_QUERIES) {
+            dropped += 1;
+            return;
+        }
+        int i = 4 * pendingQueries;
+        pending[i] = (int) Math.round(startLat * MICRODEGREES);
+        pending[i + 1] = (int) Math.round(startLon * MICRODEGREES);
+        pending[i + 2] = (int) Math.round(goalLat * MICRODEGREES);
+        pending[i + 3] = (int) Math.round(goalLon * MICRODEGREES);
+        pendingQueries += 1;
+    }
+
+    /**
+     * Returns the coordinate rounded to the microdegrees recorded in the log, so that a query rounded before it is
+     * recorded is replayed with exactly the same coordinates.
+     *
+     * @param degrees the coordinate in degrees.
+     * @return the coordinate rounded to microdegrees.
+     */
+    public static double round(double degrees) {
+        return Math.round(degrees * MICRODEGREES) / MICRODEGREES;
+    }
+
+    /**
+     * Returns the number of queries dropped because too many were waiting to be written.
+     *
+     * @return the number of queries dropped.
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Writes every buffered query to the log file, rotating the file whenever it reaches its maximum size. Recording
+     * continues without waiting while the queries are written.
+     *
+     * @throws IOException if the queries cannot be written.
+     */
+    public void flush() throws IOException {
+        int[] batch;
+        synchronized (this) {
+            batch = Arrays.copyOf(pending, 4 * pendingQueries);
+            pendingQueries = 0;
+        }
+        synchronized (fileLock) {
+            for (int i = 0; i < batch.length; i += 4) {
+                if (bytes + QUERY_BYTES > maxBytes) {
+                    output.close();
+                    Files.move(path, rotated(path), StandardCopyOption.REPLACE_EXISTING);
+                    output = open(path);
+                    bytes = 0;
+                }
+                output.writeInt(batch[i]);
+                output.writeInt(batch[i + 1]);
+                output.writeInt(batch[i + 2]);
+                output.writeInt(batch[i + 3]);
+                bytes += QUERY_BYTES;
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * Writes every buffered query and closes the log file.
+     *
+     * @throws IOException if the queries cannot be written or the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        synchronized (fileLock) {
+            output.close();
+        }
+    }
+
+    /**
+     * Returns up to the given number of the most frequent route queries in the log at the given path and its rotated
+     * predecessor, most frequent first. A partially-written query at the end of either file is ignored.
+     *
+     * @param path the path to the log file.
+     * @param n    the maximum number of queries to return.
+     * @return a list of {start latitude, start longitude, goal latitude, goal longitude} arrays.
+     * @throws IOException if the log cannot be read.
+     */
+    public static List<double[]> mostFrequent(Path path, int n) throws IOException {
+        Map<List<Integer>, Integer> counts = new HashMap<>();
+        for (Path file : List.of(rotated(path), path)) {
+            if (Files.exists(file)) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    while (true) {
+                        List<Integer> query = List.of(input.readInt(), input.readInt(), input.readInt(),
+                                input.readInt());
+                        counts.merge(query, 1, Integer::sum);
+                    }
+                } catch (EOFException e) {
+                    // Reached the end of the log
+                }
+            }
+        }
+        List<Map.Entry<List<Integer>, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<List<Integer>, Integer>comparingByValue().reversed());
+        List<double[]> result = new ArrayList<>(Math.min(n, entries.size()));
+        for (Map.Entry<List<Integer>, Integer> entry : entries.subList(0, Math.min(n, entries.size()))) {
+            List<Integer> query = entry.getKey();
+            result.add(new double[]{
+                    query.get(0) / MICRODEGREES,
+                    query.get(1) / MICRODEGREES,
+                    query.get(2) / MICRODEGREES,
+                    query.get(3) / MICRODEGREES
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns the path to which the log file at the given path is renamed when it is rotated.
+     *
+     * @param path the path to the log file.
+     * @return the path to the rotated log file.
+     */
+    private static Path rotated(Path path) {
+        return path.resolveSibling(path.getFileName() + ".1");
+    }
+
+    /**
+     * Opens the log file at the given path for appending, creating it if it does not exist.
+     *
+     * @param path the path to the log file.
+     * @return the output stream for appending to the log file.
+     * @throws IOException if the file cannot be opened.
+     */
+    private static DataOutputStream open(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+}
@@ -0,0 +1,95 @@
+package caches;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent computations for equal keys. While a computation for a key is in flight, every other request
+ * for the same key shares its result instead of starting another computation. Once the computation completes, the key
+ * is forgotten so that the next request starts a fresh computation.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of computed values.
+ */
+public class SingleFlight<K, V> {
+    /**
+     * {@link ConcurrentMap} of each key to its in-flight computation.
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight;
+    /**
+     * The {@link Executor} for running computations.
+     */
+    private final Executor executor;
+
+    /**
+     * Constructs an instance that runs computations on the given executor.
+     *
+     * @param executor the {@link Executor} for running computations.
+     */
+    public SingleFlight(Executor executor) {
+        this.inFlight = new ConcurrentHashMap<>();
+        this.executor = executor;
+    }
+
+    /**
+     * Returns a future for the value of the key, joining the in-flight computation for an equal key if there is one
+     * or else starting the given computation. Each caller receives its own dependent copy of the shared future, so a
+     * caller can time out or cancel its copy without affecting the other callers. If the computation throws an
+     * exception, every caller's copy completes exceptionally with that exception.
+     *
+     * @param key      the key identifying the computation.
+     * @param supplier the computation to run if none is in flight for the key.
+     * @return a future for the value of the key.
+     */
+    public CompletableFuture<V> submit(K key, Supplier<V> supplier) {
+        CompletableFuture<V> shared = inFlight.computeIfAbsent(key,
+                k -> CompletableFuture.supplyAsync(supplier, executor));
+        shared.whenComplete((value, error) -> inFlight.remove(key, shared));
+        return shared.copy();
+    }
+
+    /**
+     * Returns a future for the value of the key, joining the in-flight computation for an equal key if there is one
+     * or else starting the given asynchronous computation on the calling thread. Unlike
+     * {@link #submit(Object, Supplier)}, the supplier should return quickly with a future, such as one for a
+     * non-blocking request, so no executor thread waits for the value. Callers receive copies of the shared future
+     * just as with {@link #submit(Object, Supplier)}.
+     *
+     * @param key      the key identifying the computation.
+     * @param supplier the asynchronous computation to start if none is in flight for the key.
+     * @return a future for the value of the key.
+     */
+    public CompletableFuture<V> submitAsync(K key, Supplier<CompletableFuture<V>> supplier) {
+        CompletableFuture<V> started = new CompletableFuture<>();
+        CompletableFuture<V> shared = inFlight.putIfAbsent(key, started);
+        if (shared == null) {
+            shared = started;
+            try {
+                supplier.get().whenComplete((value, error) -> {
+                    if (error != null) {
+                        started.completeExceptionally(error);
+                    } else {
+                        started.complete(value);
+                    }
+                });
+            } catch (RuntimeException e) {
+                started.completeExceptionally(e);
+            }
+        }
+        CompletableFuture<V> result = shared;
+        result.whenComplete((value, error) -> inFlight.remove(key, result));
+        return result.copy();
+    }
+
+    /**
+     * Returns the number of computations currently in flight.
+     *
+     * @return the number of computations currently in flight.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -11,7 +11,8 @@ import graphs.shortestpaths.AStarSolver;
  */
 public interface AStarGraph<V> extends Graph<V> {
     /**
-     * Returns an estimated distance from start to end.
+     * Returns an estimated distance from start to end. For {@link AStarSolver} to find shortest paths, the estimate
+     * must never exceed the actual shortest path distance.
      *
      * @param start the beginning vertex.
      * @param end   the destination vertex.
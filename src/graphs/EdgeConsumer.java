@@ -0,0 +1,18 @@
+package graphs;
+
+/**
+ * Callback for visiting the outgoing edges of a vertex one at a time without creating an {@link Edge} for each.
+ *
+ * @param <V> the type of vertices.
+ * @see Graph#forEachNeighbor(Object, EdgeConsumer)
+ */
+@FunctionalInterface
+public interface EdgeConsumer<V> {
+    /**
+     * Visits an outgoing edge.
+     *
+     * @param to     the destination vertex.
+     * @param weight the weight of the edge.
+     */
+    void accept(V to, double weight);
+}
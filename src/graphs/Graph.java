@@ -9,6 +9,7 @@ import java.util.List;
  *
  * @param <V> the type of vertices.
  * @see Edge
+ * @see EdgeConsumer
  * @see ShortestPathSolver
  * @see AStarGraph
  */
@@ -22,4 +23,18 @@ public interface Graph<V> {
      * @return a list of the outgoing edges from the given vertex.
      */
     List<Edge<V>> neighbors(V vertex);
+
+    /**
+     * Visits each outgoing edge from the given vertex in the same order as {@link #neighbors(Object)}. The default
+     * implementation walks the list of neighbors; graphs that generate or store their edges compactly should override
+     * this method so that solvers can relax edges without creating a list and an {@link Edge} for each one.
+     *
+     * @param vertex the node of interest.
+     * @param action the callback for each outgoing edge.
+     */
+    default void forEachNeighbor(V vertex, EdgeConsumer<V> action) {
+        for (Edge<V> e : neighbors(vertex)) {
+            action.accept(e.to, e.weight);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package graphs;
+
+import graphs.shortestpaths.IntShortestPathSolver;
+
+/**
+ * Directed, edge-weighted graph whose vertices are numbered from 0 up to its size. The outgoing edges of each vertex
+ * are also numbered from 0 up to its degree, so solvers can visit every edge with primitive values alone rather than
+ * boxing vertices or creating an {@link Edge} for each edge as with {@link Graph}.
+ *
+ * @see IntAStarGraph
+ * @see IntShortestPathSolver
+ */
+public interface IntGraph {
+    /**
+     * Returns the number of vertices in this graph.
+     *
+     * @return the number of vertices in this graph.
+     */
+    int size();
+
+    /**
+     * Returns the number of outgoing edges from the given vertex.
+     *
+     * @param vertex the vertex of interest.
+     * @return the number of outgoing edges from the given vertex.
+     */
+    int degree(int vertex);
+
+    /**
+     * Returns the destination vertex of the given outgoing edge from the vertex.
+     *
+     * @param vertex the originating vertex.
+     * @param edge   the number of the outgoing edge, from 0 up to the degree of the vertex.
+     * @return the destination vertex of the edge.
+     */
+    int target(int vertex, int edge);
+
+    /**
+     * Returns the weight of the given outgoing edge from the vertex.
+     *
+     * @param vertex the originating vertex.
+     * @param edge   the number of the outgoing edge, from 0 up to the degree of the vertex.
+     * @return the weight of the edge.
+     */
+    double weight(int vertex, int edge);
+}
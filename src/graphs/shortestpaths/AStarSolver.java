@@ -1,7 +1,6 @@
 package graphs.shortestpaths;
 
 import graphs.AStarGraph;
-import graphs.Edge;
 import minpq.DoubleMapMinPQ;
 import minpq.MinPQ;
 
@@ -14,7 +13,7 @@ import java.util.*;
  * @see AStarGraph
  */
 public class AStarSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> edgeTo;
     private final Map<V, Double> distTo;
     private final V goal;
 
@@ -35,17 +34,17 @@ public class AStarSolver<V> {
         distTo.put(start, 0.0);
         while (!perimeter.isEmpty()) {
             V from = perimeter.removeMin();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            double fromDist = distTo.get(from);
+            graph.forEachNeighbor(from, (to, weight) -> {
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
+                double newDist = fromDist + weight;
                 if (newDist < oldDist) {
-                    edgeTo.put(to, e);
+                    edgeTo.put(to, from);
                     distTo.put(to, newDist);
                     double priority = newDist + graph.estimatedDistance(to, goal);
                     perimeter.addOrChangePriority(to, priority);
                 }
-            }
+            });
         }
     }
 
@@ -59,7 +58,7 @@ public class AStarSolver<V> {
         V curr = goal;
         path.add(curr);
         while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+            curr = edgeTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
@@ -0,0 +1,202 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+
+import java.util.*;
+
+/**
+ * Plateau method implementation for finding alternatives to the single-pair shortest path. Rather than running one
+ * search per alternative, computes one forward search from the start and one backward search from the goal, both
+ * bounded by the maximum stretch. A <i>plateau</i> is a chain of edges that lie on both the forward and the backward
+ * shortest path trees: joining the forward path to the beginning of the plateau, the plateau itself, and the backward
+ * path from the end of the plateau always gives a route whose subpaths within the plateau are shortest paths.
+ *
+ * @param <V> the type of vertices.
+ * @see DijkstraSolver
+ */
+public class AlternativeRoutesSolver<V> {
+    /**
+     * The selected routes, beginning with the shortest path.
+     */
+    private final List<List<V>> routes;
+    /**
+     * The total weight of each selected route.
+     */
+    private final List<Double> distances;
+
+    /**
+     * Constructs a new instance by finding up to the given number of routes from the start to the goal. Each route
+     * after the shortest path must pass three filters: its total weight is at most (1 + maxStretch) times the shortest
+     * path distance, the weight it shares with any previously-selected route is at most maxOverlap times the shortest
+     * path distance, and its plateau weighs at least minPlateau times the shortest path distance so that the route is
+     * locally optimal rather than a detour.
+     *
+     * @param graph      the input graph.
+     * @param reverse    the input graph with every edge reversed.
+     * @param start      the start vertex.
+     * @param goal       the goal vertex.
+     * @param k          the maximum number of routes, including the shortest path.
+     * @param maxStretch the maximum additional weight of a route as a fraction of the shortest path distance.
+     * @param maxOverlap the maximum shared weight between routes as a fraction of the shortest path distance.
+     * @param minPlateau the minimum plateau weight of a route as a fraction of the shortest path distance.
+     */
+    public AlternativeRoutesSolver(Graph<V> graph, Graph<V> reverse, V start, V goal, int k,
+                                   double maxStretch, double maxOverlap, double minPlateau) {
+        routes = new ArrayList<>(k);
+        distances = new ArrayList<>(k);
+        double optimal = new DijkstraSolver<>(graph, start, List.of(goal)).distTo(goal);
+        if (k <= 0 || Double.isInfinite(optimal)) {
+            return;
+        } else if (start.equals(goal)) {
+            // The empty route has no edges, so it lies on no plateau.
+            routes.add(List.of(start));
+            distances.add(0.0);
+            return;
+        }
+        double maxDistance = (1 + maxStretch) * optimal;
+        DijkstraSolver<V> forward = new DijkstraSolver<>(graph, start, maxDistance);
+        DijkstraSolver<V> backward = new DijkstraSolver<>(reverse, goal, maxDistance);
+
+        // Link each vertex to the next vertex along its plateau, if any. An edge lies on both trees exactly when its
+        // start is the parent of its end in the forward tree and its end is the parent of its start in the backward
+        // tree. Comparing tree links rather than distances avoids rounding differences between the two searches. Each
+        // vertex has at most one parent in each tree, so each vertex is linked to at most one next vertex.
+        Map<V, V> next = new HashMap<>();
+        Set<V> hasPrevious = new HashSet<>();
+        for (V from : forward.reached()) {
+            if (forward.distTo(from) + backward.distTo(from) > maxDistance) {
+                continue;
+            }
+            V to = backward.previous(from);
+            if (to != null && from.equals(forward.previous(to))) {
+                next.put(from, to);
+                hasPrevious.add(to);
+            }
+        }
+
+        // Collect each maximal plateau as a candidate route.
+        List<Candidate<V>> candidates = new ArrayList<>();
+        for (V first : next.keySet()) {
+            if (hasPrevious.contains(first)) {
+                continue;
+            }
+            V last = first;
+            while (next.containsKey(last)) {
+                last = next.get(last);
+            }
+            double distance = forward.distTo(last) + backward.distTo(last);
+            double plateau = forward.distTo(last) - forward.distTo(first);
+            if (distance <= maxDistance) {
+                candidates.add(new Candidate<>(first, last, distance, plateau));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(c -> c.distance));
+
+        List<Set<Edge<V>>> selected = new ArrayList<>(k);
+        for (Candidate<V> candidate : candidates) {
+            if (routes.size() == k) {
+                break;
+            } else if (!routes.isEmpty() && candidate.plateau < minPlateau * optimal) {
+                continue;
+            }
+            List<V> route = new ArrayList<>(forward.solution(candidate.first));
+            V curr = candidate.first;
+            while (!curr.equals(candidate.last)) {
+                curr = next.get(curr);
+                route.add(curr);
+            }
+            List<V> rest = backward.solution(candidate.last);
+            Collections.reverse(rest);
+            route.addAll(rest.subList(1, rest.size()));
+            if (new HashSet<>(route).size() < route.size()) {
+                continue; // Skip routes that loop back on themselves
+            }
+            Set<Edge<V>> edges = edges(graph, route);
+            boolean overlaps = false;
+            for (Set<Edge<V>> other : selected) {
+                double shared = 0.0;
+                for (Edge<V> e : edges) {
+                    if (other.contains(e)) {
+                        shared += e.weight;
+                    }
+                }
+                if (shared > maxOverlap * optimal) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps || routes.isEmpty()) {
+                routes.add(route);
+                distances.add(candidate.distance);
+                selected.add(edges);
+            }
+        }
+    }
+
+    /**
+     * Returns the selected routes from the start to the goal, beginning with the shortest path.
+     *
+     * @return an unmodifiable list of routes, each a list of vertices, or an empty list if the goal is unreachable.
+     */
+    public List<List<V>> solutions() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * Returns the total weight of each selected route in the same order as {@link #solutions()}.
+     *
+     * @return an unmodifiable list of the total weight of each selected route.
+     */
+    public List<Double> distances() {
+        return Collections.unmodifiableList(distances);
+    }
+
+    /**
+     * Returns the set of lightest edges connecting each consecutive pair of vertices in the route.
+     *
+     * @param graph the input graph.
+     * @param route the list of vertices in the route.
+     * @return the set of edges in the route.
+     */
+    private static <V> Set<Edge<V>> edges(Graph<V> graph, List<V> route) {
+        Set<Edge<V>> result = new HashSet<>();
+        for (int i = 1; i < route.size(); i += 1) {
+            Edge<V> lightest = null;
+            for (Edge<V> e : graph.neighbors(route.get(i - 1))) {
+                if (e.to.equals(route.get(i)) && (lightest == null || e.weight < lightest.weight)) {
+                    lightest = e;
+                }
+            }
+            result.add(lightest);
+        }
+        return result;
+    }
+
+    /**
+     * A candidate route through a plateau.
+     *
+     * @param <V> the type of vertices.
+     */
+    private static class Candidate<V> {
+        private final V first;
+        private final V last;
+        private final double distance;
+        private final double plateau;
+
+        /**
+         * Constructs a candidate route through the plateau from first to last.
+         *
+         * @param first    the first vertex of the plateau.
+         * @param last     the last vertex of the plateau.
+         * @param distance the total weight of the route.
+         * @param plateau  the total weight of the plateau.
+         */
+        Candidate(V first, V last, double distance, double plateau) {
+            this.first = first;
+            this.last = last;
+            this.distance = distance;
+            this.plateau = plateau;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 
 import java.util.*;
@@ -12,7 +11,7 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> edgeTo;
     private final Map<V, Double> distTo;
 
     /**
@@ -29,26 +28,31 @@ public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
         List<V> vertices = vertices(graph, start);
         for (int i = 1; i < vertices.size(); i += 1) {
             for (V from : vertices) {
-                for (Edge<V> e : graph.neighbors(from)) {
-                    V to = e.to;
+                double fromDist = distTo.get(from);
+                graph.forEachNeighbor(from, (to, weight) -> {
                     double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                    double newDist = distTo.get(from) + e.weight;
+                    double newDist = fromDist + weight;
                     if (newDist < oldDist) {
-                        edgeTo.put(to, e);
+                        edgeTo.put(to, from);
                         distTo.put(to, newDist);
                     }
-                }
+                });
             }
         }
     }
 
+    @Override
+    public double distTo(V goal) {
+        return distTo.getOrDefault(goal, Double.POSITIVE_INFINITY);
+    }
+
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
         while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+            curr = edgeTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
@@ -64,13 +68,12 @@ public class BellmanFordSolver<V> implements ShortestPathSolver<V> {
         while (!queue.isEmpty()) {
             V from = queue.remove();
             result.add(from);
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            graph.forEachNeighbor(from, (to, weight) -> {
                 if (!visited.contains(to)) {
                     queue.add(to);
                     visited.add(to);
                 }
-            }
+            });
         }
         return result;
     }
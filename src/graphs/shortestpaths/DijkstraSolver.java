@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 import minpq.DoubleMapMinPQ;
 import minpq.MinPQ;
@@ -14,7 +13,7 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class DijkstraSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> edgeTo;
     private final Map<V, Double> distTo;
 
     /**
@@ -24,34 +23,107 @@ public class DijkstraSolver<V> implements ShortestPathSolver<V> {
      * @param start the start vertex.
      */
     public DijkstraSolver(Graph<V> graph, V start) {
+        this(graph, start, null, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start, stopping as soon as
+     * every one of the targets has been removed from the perimeter. Distances and paths are only final for vertices
+     * removed from the perimeter, which always includes every reachable target.
+     *
+     * @param graph   the input graph.
+     * @param start   the start vertex.
+     * @param targets the vertices whose shortest paths are needed, or null to search the entire graph.
+     */
+    public DijkstraSolver(Graph<V> graph, V start, Collection<V> targets) {
+        this(graph, start, targets, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start, ignoring any path whose
+     * total weight exceeds the maximum distance. The search stops once every vertex within the maximum distance has
+     * been removed from the perimeter rather than draining the entire graph.
+     *
+     * @param graph       the input graph.
+     * @param start       the start vertex.
+     * @param maxDistance the maximum total weight of any shortest path.
+     */
+    public DijkstraSolver(Graph<V> graph, V start, double maxDistance) {
+        this(graph, start, null, maxDistance);
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start, ignoring any path whose
+     * total weight exceeds the maximum distance and stopping as soon as every one of the targets has been removed from
+     * the perimeter.
+     *
+     * @param graph       the input graph.
+     * @param start       the start vertex.
+     * @param targets     the vertices whose shortest paths are needed, or null to search the entire graph.
+     * @param maxDistance the maximum total weight of any shortest path.
+     */
+    public DijkstraSolver(Graph<V> graph, V start, Collection<V> targets, double maxDistance) {
         edgeTo = new HashMap<>();
         distTo = new HashMap<>();
+        Set<V> remaining = targets == null ? null : new HashSet<>(targets);
         MinPQ<V> perimeter = new DoubleMapMinPQ<>();
         perimeter.add(start, 0.0);
         edgeTo.put(start, null);
         distTo.put(start, 0.0);
         while (!perimeter.isEmpty()) {
             V from = perimeter.removeMin();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            if (remaining != null) {
+                remaining.remove(from);
+                if (remaining.isEmpty()) {
+                    break;
+                }
+            }
+            double fromDist = distTo.get(from);
+            graph.forEachNeighbor(from, (to, weight) -> {
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
-                if (newDist < oldDist) {
-                    edgeTo.put(to, e);
+                double newDist = fromDist + weight;
+                if (newDist < oldDist && newDist <= maxDistance) {
+                    edgeTo.put(to, from);
                     distTo.put(to, newDist);
                     perimeter.addOrChangePriority(to, newDist);
                 }
-            }
+            });
         }
     }
 
+    /**
+     * Returns the set of vertices reached by the search. When the search was bounded by a maximum distance and not
+     * stopped early by targets, these are exactly the vertices whose shortest paths fall within the maximum distance.
+     *
+     * @return an unmodifiable view of the vertices reached by the search.
+     */
+    public Set<V> reached() {
+        return Collections.unmodifiableSet(distTo.keySet());
+    }
+
+    /**
+     * Returns the vertex just before the goal on its shortest path from the start, which is the parent of the goal in
+     * the shortest path tree.
+     *
+     * @param goal the goal vertex.
+     * @return the vertex before the goal on its shortest path, or null if the goal is the start or was not reached.
+     */
+    public V previous(V goal) {
+        return edgeTo.get(goal);
+    }
+
+    @Override
+    public double distTo(V goal) {
+        return distTo.getOrDefault(goal, Double.POSITIVE_INFINITY);
+    }
+
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
         while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+            curr = edgeTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
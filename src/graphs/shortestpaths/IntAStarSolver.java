@@ -0,0 +1,79 @@
+package graphs.shortestpaths;
+
+import graphs.IntAStarGraph;
+
+/**
+ * A* search implementation for single-pair shortest paths in an {@link IntAStarGraph}.
+ *
+ * @see IntAStarGraph
+ * @see AStarSolver
+ */
+public class IntAStarSolver {
+    /**
+     * The vertices on the shortest path from the start to the goal, or only the goal if it is unreachable.
+     */
+    private final int[] solution;
+    /**
+     * The total weight of the shortest path, or infinity if the goal is unreachable.
+     */
+    private final double distance;
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from the start to the goal, stopping as soon as the
+     * goal is removed from the perimeter. The estimated distances of the graph must be consistent, which holds for
+     * any estimate that never exceeds the shortest path and satisfies the triangle inequality. The search runs in this
+     * thread's {@link IntWorkspace}, so its cost depends on the number of vertices reached rather than the size of the
+     * graph.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @param goal  the goal vertex.
+     */
+    public IntAStarSolver(IntAStarGraph graph, int start, int goal) {
+        IntWorkspace workspace = IntWorkspace.acquire(graph.size());
+        try {
+            double[] distTo = workspace.distTo;
+            IntMinPQ perimeter = workspace.perimeter;
+            workspace.reach(start, -1, 0.0);
+            perimeter.addOrChangePriority(start, 0.0);
+            while (!perimeter.isEmpty()) {
+                int from = perimeter.removeMin();
+                if (from == goal) {
+                    break;
+                }
+                int degree = graph.degree(from);
+                for (int i = 0; i < degree; i += 1) {
+                    int to = graph.target(from, i);
+                    double newDist = distTo[from] + graph.weight(from, i);
+                    if (newDist < distTo[to]) {
+                        workspace.reach(to, from, newDist);
+                        double priority = newDist + graph.estimatedDistance(to, goal);
+                        perimeter.addOrChangePriority(to, priority);
+                    }
+                }
+            }
+            distance = distTo[goal];
+            solution = workspace.path(goal);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Returns the total weight of the shortest path from the stored start to the stored goal.
+     *
+     * @return the total weight of the shortest path, or {@link Double#POSITIVE_INFINITY} if the goal is unreachable.
+     */
+    public double distance() {
+        return distance;
+    }
+
+    /**
+     * Returns the single-pair shortest path from the stored start to the stored goal.
+     *
+     * @return an array of vertices representing the shortest path.
+     */
+    public int[] solution() {
+        return solution.clone();
+    }
+}
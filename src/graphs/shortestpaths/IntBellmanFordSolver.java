@@ -0,0 +1,101 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Bellman-Ford algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see BellmanFordSolver
+ */
+public class IntBellmanFordSolver implements IntShortestPathSolver {
+    /**
+     * The previous vertex on the shortest path to each vertex, or -1 for the start and unreached vertices.
+     */
+    private final int[] edgeTo;
+    /**
+     * The total weight of the shortest path to each vertex, or infinity for unreached vertices.
+     */
+    private final double[] distTo;
+
+    /**
+     * Constructs a new instance by executing Bellman-Ford algorithm on the graph from the start.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     */
+    public IntBellmanFordSolver(IntGraph graph, int start) {
+        int n = graph.size();
+        edgeTo = new int[n];
+        distTo = new double[n];
+        Arrays.fill(edgeTo, -1);
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        distTo[start] = 0.0;
+        int[] vertices = vertices(graph, start);
+        boolean changed = true;
+        // Stop early once a full pass relaxes no edges, since no later pass could either.
+        for (int i = 1; i < vertices.length && changed; i += 1) {
+            changed = false;
+            for (int from : vertices) {
+                for (int e = 0; e < graph.degree(from); e += 1) {
+                    int to = graph.target(from, e);
+                    double newDist = distTo[from] + graph.weight(from, e);
+                    if (newDist < distTo[to]) {
+                        edgeTo[to] = from;
+                        distTo[to] = newDist;
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return distTo[goal];
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        int length = 1;
+        for (int curr = goal; edgeTo[curr] != -1; curr = edgeTo[curr]) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        int curr = goal;
+        for (int i = length - 1; i >= 0; i -= 1) {
+            path[i] = curr;
+            curr = edgeTo[curr];
+        }
+        return path;
+    }
+
+    /**
+     * Returns the vertices reachable from the start in breadth-first order.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     * @return an array of the vertices reachable from the start.
+     */
+    private static int[] vertices(IntGraph graph, int start) {
+        int[] queue = new int[graph.size()];
+        boolean[] visited = new boolean[graph.size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+        while (head < tail) {
+            int from = queue[head++];
+            for (int e = 0; e < graph.degree(from); e += 1) {
+                int to = graph.target(from, e);
+                if (!visited[to]) {
+                    queue[tail++] = to;
+                    visited[to] = true;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+}
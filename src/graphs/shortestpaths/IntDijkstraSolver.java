@@ -0,0 +1,191 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra's algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see DijkstraSolver
+ */
+public class IntDijkstraSolver implements IntShortestPathSolver {
+    /**
+     * Reached vertices are stored sparsely when they number fewer than this fraction of the graph, and densely
+     * otherwise.
+     */
+    private static final int SPARSE_FRACTION = 8;
+    /**
+     * The reached vertices in increasing order, which index {@link #edgeTo} and {@link #distTo}, or null if those
+     * arrays are indexed by vertex.
+     */
+    private final int[] vertices;
+    /**
+     * The previous vertex on the shortest path to each vertex, or -1 for the start and unreached vertices.
+     */
+    private final int[] edgeTo;
+    /**
+     * The total weight of the shortest path to each vertex, or infinity for unreached vertices.
+     */
+    private final double[] distTo;
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     */
+    public IntDijkstraSolver(IntGraph graph, int start) {
+        this(graph, start, null, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructs a new instance by executing Dijkstra's algorithm on the graph from the start, ignoring any path whose
+     * total weight exceeds the maximum distance and stopping as soon as every one of the targets has been removed from
+     * the perimeter. Distances and paths are only final for vertices removed from the perimeter, which always includes
+     * every reachable target. The search runs in this thread's {@link IntWorkspace}, so its cost depends on the number
+     * of vertices reached rather than the size of the graph.
+     *
+     * @param graph       the input graph.
+     * @param start       the start vertex.
+     * @param targets     the vertices whose shortest paths are needed, or null to search the entire graph.
+     * @param maxDistance the maximum total weight of any shortest path.
+     */
+    public IntDijkstraSolver(IntGraph graph, int start, int[] targets, double maxDistance) {
+        int n = graph.size();
+        int[] wanted = null;
+        int remaining = 0;
+        if (targets != null) {
+            wanted = targets.clone();
+            Arrays.sort(wanted);
+            for (int i = 0; i < wanted.length; i += 1) {
+                if (i == 0 || wanted[i] != wanted[i - 1]) {
+                    remaining += 1;
+                }
+            }
+        }
+        IntWorkspace workspace = IntWorkspace.acquire(n);
+        try {
+            double[] dist = workspace.distTo;
+            IntMinPQ perimeter = workspace.perimeter;
+            workspace.reach(start, -1, 0.0);
+            perimeter.addOrChangePriority(start, 0.0);
+            while (!perimeter.isEmpty()) {
+                int from = perimeter.removeMin();
+                if (wanted != null && Arrays.binarySearch(wanted, from) >= 0) {
+                    remaining -= 1;
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+                int degree = graph.degree(from);
+                for (int i = 0; i < degree; i += 1) {
+                    int to = graph.target(from, i);
+                    double newDist = dist[from] + graph.weight(from, i);
+                    if (newDist < dist[to] && newDist <= maxDistance) {
+                        workspace.reach(to, from, newDist);
+                        perimeter.addOrChangePriority(to, newDist);
+                    }
+                }
+            }
+            if (workspace.size() * SPARSE_FRACTION >= n) {
+                vertices = null;
+                edgeTo = Arrays.copyOf(workspace.edgeTo, n);
+                distTo = Arrays.copyOf(workspace.distTo, n);
+            } else {
+                vertices = workspace.sortedReached();
+                edgeTo = new int[vertices.length];
+                distTo = new double[vertices.length];
+                for (int i = 0; i < vertices.length; i += 1) {
+                    edgeTo[i] = workspace.edgeTo[vertices[i]];
+                    distTo[i] = workspace.distTo[vertices[i]];
+                }
+            }
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Returns the index of the vertex in {@link #edgeTo} and {@link #distTo}.
+     *
+     * @param vertex the vertex of interest.
+     * @return the index of the vertex, or a negative number if the vertex was not reached.
+     */
+    private int index(int vertex) {
+        return vertices == null ? vertex : Arrays.binarySearch(vertices, vertex);
+    }
+
+    /**
+     * Returns true if and only if the vertex was reached by the search. When the search was bounded by a maximum
+     * distance and not stopped early by targets, these are exactly the vertices whose shortest paths fall within the
+     * maximum distance.
+     *
+     * @param vertex the vertex to check.
+     * @return true if and only if the vertex was reached by the search.
+     */
+    public boolean reached(int vertex) {
+        return distTo(vertex) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns every vertex reached by the search in increasing order, in time proportional to the number of reached
+     * vertices when that is small relative to the graph.
+     *
+     * @return a new array of the vertices reached by the search.
+     * @see #reached(int)
+     */
+    public int[] reached() {
+        if (vertices != null) {
+            return vertices.clone();
+        }
+        int count = 0;
+        for (double dist : distTo) {
+            if (dist < Double.POSITIVE_INFINITY) {
+                count += 1;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int v = 0; v < distTo.length; v += 1) {
+            if (distTo[v] < Double.POSITIVE_INFINITY) {
+                result[count] = v;
+                count += 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double distTo(int goal) {
+        int i = index(goal);
+        return i < 0 ? Double.POSITIVE_INFINITY : distTo[i];
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        int length = 1;
+        for (int curr = goal; previous(curr) != -1; curr = previous(curr)) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        int curr = goal;
+        for (int i = length - 1; i >= 0; i -= 1) {
+            path[i] = curr;
+            curr = previous(curr);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the previous vertex on the shortest path to the vertex.
+     *
+     * @param vertex the vertex of interest.
+     * @return the previous vertex, or -1 for the start and unreached vertices.
+     */
+    private int previous(int vertex) {
+        int i = index(vertex);
+        return i < 0 ? -1 : edgeTo[i];
+    }
+}
@@ -0,0 +1,163 @@
+package graphs.shortestpaths;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary heap priority queue of vertex numbers with {@code double} priority values, stored in primitive arrays sized
+ * for every vertex of the graph so that adding a vertex or changing its priority never allocates.
+ *
+ * @see IntDijkstraSolver
+ * @see IntAStarSolver
+ * @see IntWorkspace
+ */
+class IntMinPQ {
+    /**
+     * The vertices in heap order.
+     */
+    private final int[] heap;
+    /**
+     * The index of each vertex in the heap, or -1 if the vertex is not in the heap.
+     */
+    private final int[] positions;
+    /**
+     * The priority value of each vertex in the heap.
+     */
+    private final double[] priorities;
+    /**
+     * The number of vertices in the heap.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty priority queue for vertices numbered from 0 up to the given capacity.
+     *
+     * @param capacity the number of vertices.
+     */
+    IntMinPQ(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Returns the number of vertices this priority queue can hold.
+     *
+     * @return the number of vertices this priority queue can hold.
+     */
+    int capacity() {
+        return heap.length;
+    }
+
+    /**
+     * Removes every vertex from this priority queue, in time proportional to the number of vertices in the heap rather
+     * than its capacity.
+     */
+    void clear() {
+        for (int i = 0; i < size; i += 1) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns true if and only if this priority queue is empty.
+     *
+     * @return true if and only if this priority queue is empty.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the vertex with the given priority value if it is not already present. Otherwise, updates the priority value
+     * of the vertex.
+     *
+     * @param vertex   the vertex to add or update.
+     * @param priority the priority value for the vertex.
+     */
+    void addOrChangePriority(int vertex, double priority) {
+        int i = positions[vertex];
+        if (i < 0) {
+            i = size;
+            size += 1;
+            heap[i] = vertex;
+            positions[vertex] = i;
+            priorities[vertex] = priority;
+            swim(i);
+        } else if (priority < priorities[vertex]) {
+            priorities[vertex] = priority;
+            swim(i);
+        } else {
+            priorities[vertex] = priority;
+            sink(i);
+        }
+    }
+
+    /**
+     * Removes and returns the vertex with the minimum priority value.
+     *
+     * @return the vertex with the minimum priority value.
+     * @throws NoSuchElementException if this priority queue is empty.
+     */
+    int removeMin() {
+        if (size == 0) {
+            throw new NoSuchElementException("PQ is empty");
+        }
+        int min = heap[0];
+        size -= 1;
+        positions[min] = -1;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            sink(0);
+        }
+        return min;
+    }
+
+    /**
+     * Moves the vertex at the index up the heap until its parent has a smaller or equal priority value.
+     *
+     * @param i the index of the vertex in the heap.
+     */
+    private void swim(int i) {
+        int vertex = heap[i];
+        double priority = priorities[vertex];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (priorities[heap[parent]] <= priority) {
+                break;
+            }
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = vertex;
+        positions[vertex] = i;
+    }
+
+    /**
+     * Moves the vertex at the index down the heap until its children have greater or equal priority values.
+     *
+     * @param i the index of the vertex in the heap.
+     */
+    private void sink(int i) {
+        int vertex = heap[i];
+        double priority = priorities[vertex];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+                child += 1;
+            }
+            if (priority <= priorities[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = vertex;
+        positions[vertex] = i;
+    }
+}
@@ -0,0 +1,84 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Shortest Path Faster Algorithm implementation of the {@link IntShortestPathSolver} interface.
+ *
+ * @see IntShortestPathSolver
+ * @see SPFASolver
+ */
+public class IntSPFASolver implements IntShortestPathSolver {
+    /**
+     * The previous vertex on the shortest path to each vertex, or -1 for the start and unreached vertices.
+     */
+    private final int[] edgeTo;
+    /**
+     * The total weight of the shortest path to each vertex, or infinity for unreached vertices.
+     */
+    private final double[] distTo;
+
+    /**
+     * Constructs a new instance by executing SPFA on the graph from the start.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     */
+    public IntSPFASolver(IntGraph graph, int start) {
+        int n = graph.size();
+        edgeTo = new int[n];
+        distTo = new double[n];
+        Arrays.fill(edgeTo, -1);
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        // Each vertex is in the queue at most once, so a circular array of one slot per vertex never overflows.
+        int[] perimeter = new int[n];
+        boolean[] queued = new boolean[n];
+        int head = 0;
+        int size = 0;
+        perimeter[0] = start;
+        queued[start] = true;
+        size += 1;
+        distTo[start] = 0.0;
+        while (size > 0) {
+            int from = perimeter[head];
+            head = (head + 1) % n;
+            size -= 1;
+            queued[from] = false;
+            for (int i = 0; i < graph.degree(from); i += 1) {
+                int to = graph.target(from, i);
+                double newDist = distTo[from] + graph.weight(from, i);
+                if (newDist < distTo[to]) {
+                    edgeTo[to] = from;
+                    distTo[to] = newDist;
+                    if (!queued[to]) {
+                        perimeter[(head + size) % n] = to;
+                        queued[to] = true;
+                        size += 1;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return distTo[goal];
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        int length = 1;
+        for (int curr = goal; edgeTo[curr] != -1; curr = edgeTo[curr]) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        int curr = goal;
+        for (int i = length - 1; i >= 0; i -= 1) {
+            path[i] = curr;
+            curr = edgeTo[curr];
+        }
+        return path;
+    }
+}
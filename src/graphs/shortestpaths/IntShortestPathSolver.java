@@ -0,0 +1,48 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+/**
+ * Single-source shortest paths from a start vertex to all reachable vertices in an {@link IntGraph}.
+ *
+ * @see Constructor
+ * @see IntGraph
+ * @see ShortestPathSolver
+ * @see IntDijkstraSolver
+ * @see IntToposortDAGSolver
+ */
+public interface IntShortestPathSolver {
+    /**
+     * Returns the single-pair shortest path from a start vertex to the goal.
+     *
+     * @param goal the goal vertex.
+     * @return an array of vertices representing the shortest path.
+     */
+    int[] solution(int goal);
+
+    /**
+     * Returns the total weight of the shortest path from a start vertex to the goal.
+     *
+     * @param goal the goal vertex.
+     * @return the total weight of the shortest path, or {@link Double#POSITIVE_INFINITY} if the goal is unreachable.
+     */
+    double distTo(int goal);
+
+    /**
+     * Constructor for {@link IntShortestPathSolver}.
+     *
+     * @see IntShortestPathSolver
+     */
+    @FunctionalInterface
+    interface Constructor {
+        /**
+         * Functional interface for running the constructor. Given an implementation of
+         * {@link IntShortestPathSolver}, refer to its constructor as (for example) {@code IntDijkstraSolver::new}.
+         *
+         * @param graph the input graph.
+         * @param start the start vertex.
+         * @return an instance of {@link IntShortestPathSolver}.
+         */
+        IntShortestPathSolver run(IntGraph graph, int start);
+    }
+}
@@ -0,0 +1,116 @@
+package graphs.shortestpaths;
+
+import graphs.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Topological sorting implementation of the {@link IntShortestPathSolver} interface for <b>directed acyclic
+ * graphs</b>.
+ *
+ * @see IntShortestPathSolver
+ * @see ToposortDAGSolver
+ */
+public class IntToposortDAGSolver implements IntShortestPathSolver {
+    /**
+     * The previous vertex on the shortest path to each vertex, or -1 for the start and unreached vertices.
+     */
+    private final int[] edgeTo;
+    /**
+     * The total weight of the shortest path to each vertex, or infinity for unreached vertices.
+     */
+    private final double[] distTo;
+
+    /**
+     * Constructs a new instance by executing the toposort-DAG-shortest-paths algorithm on the graph from the start.
+     *
+     * @param graph the input graph.
+     * @param start the start vertex.
+     */
+    public IntToposortDAGSolver(IntGraph graph, int start) {
+        int n = graph.size();
+        edgeTo = new int[n];
+        distTo = new double[n];
+        Arrays.fill(edgeTo, -1);
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        distTo[start] = 0.0;
+
+        int[] postOrder = new int[n];
+        int count = dfsPostOrder(graph, start, postOrder);
+
+        // Relax the outgoing edges of each vertex in reverse postorder, which is a topological order.
+        for (int j = count - 1; j >= 0; j -= 1) {
+            int from = postOrder[j];
+            for (int i = 0; i < graph.degree(from); i += 1) {
+                int to = graph.target(from, i);
+                double newDist = distTo[from] + graph.weight(from, i);
+                if (newDist < distTo[to]) {
+                    distTo[to] = newDist;
+                    edgeTo[to] = from;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the vertices reachable from the start to the result in DFS postorder. Uses an explicit stack rather than
+     * recursion, so graphs with long paths such as wide pictures do not overflow the call stack.
+     *
+     * @param graph  the input graph.
+     * @param start  the start vertex.
+     * @param result the destination for adding vertices, with room for every vertex in the graph.
+     * @return the number of vertices added to the result.
+     */
+    private static int dfsPostOrder(IntGraph graph, int start, int[] result) {
+        int n = graph.size();
+        boolean[] visited = new boolean[n];
+        // The vertices on the current DFS path and the number of the next outgoing edge to visit from each.
+        int[] stack = new int[n];
+        int[] nextEdge = new int[n];
+        int top = 0;
+        int count = 0;
+        stack[top] = start;
+        nextEdge[top] = 0;
+        top += 1;
+        visited[start] = true;
+        while (top > 0) {
+            int vertex = stack[top - 1];
+            int edge = nextEdge[top - 1];
+            if (edge < graph.degree(vertex)) {
+                nextEdge[top - 1] = edge + 1;
+                int neighbor = graph.target(vertex, edge);
+                if (!visited[neighbor]) {
+                    visited[neighbor] = true;
+                    stack[top] = neighbor;
+                    nextEdge[top] = 0;
+                    top += 1;
+                }
+            } else {
+                result[count] = vertex;
+                count += 1;
+                top -= 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double distTo(int goal) {
+        return distTo[goal];
+    }
+
+    @Override
+    public int[] solution(int goal) {
+        int length = 1;
+        for (int curr = goal; edgeTo[curr] != -1; curr = edgeTo[curr]) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        int curr = goal;
+        for (int i = length - 1; i >= 0; i -= 1) {
+            path[i] = curr;
+            curr = edgeTo[curr];
+        }
+        return path;
+    }
+}
@@ -0,0 +1,148 @@
+package graphs.shortestpaths;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread search arrays for the primitive solvers, so that repeated searches on the same thread reuse their
+ * O(V) arrays and priority queue instead of allocating and filling new ones. A search records each vertex it reaches
+ * and {@link #release()} resets only those entries, so the cost of a short search does not depend on the size of the
+ * graph. A nested search on the same thread, or a search of a larger graph, gets a fresh workspace.
+ *
+ * @see IntDijkstraSolver
+ * @see IntAStarSolver
+ */
+class IntWorkspace {
+    /**
+     * The workspace for the current thread, if any.
+     */
+    private static final ThreadLocal<IntWorkspace> CURRENT = new ThreadLocal<>();
+    /**
+     * The previous vertex on the shortest path to each vertex, or -1 for the start and unreached vertices.
+     */
+    final int[] edgeTo;
+    /**
+     * The total weight of the shortest path to each vertex, or infinity for unreached vertices.
+     */
+    final double[] distTo;
+    /**
+     * The perimeter of the search.
+     */
+    final IntMinPQ perimeter;
+    /**
+     * The vertices reached by the current search in the order they were first reached.
+     */
+    private int[] reached;
+    /**
+     * The number of vertices reached by the current search.
+     */
+    private int size;
+    /**
+     * Whether a search is currently using this workspace.
+     */
+    private boolean inUse;
+
+    /**
+     * Constructs a workspace for graphs of up to the given number of vertices.
+     *
+     * @param capacity the number of vertices.
+     */
+    private IntWorkspace(int capacity) {
+        edgeTo = new int[capacity];
+        distTo = new double[capacity];
+        Arrays.fill(edgeTo, -1);
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        perimeter = new IntMinPQ(capacity);
+        reached = new int[16];
+    }
+
+    /**
+     * Returns a workspace for a search of a graph with the given number of vertices, which must be returned by calling
+     * {@link #release()} once the results of the search have been copied out.
+     *
+     * @param n the number of vertices in the graph.
+     * @return an unused workspace with every vertex unreached.
+     */
+    static IntWorkspace acquire(int n) {
+        IntWorkspace workspace = CURRENT.get();
+        if (workspace == null || workspace.perimeter.capacity() < n) {
+            workspace = new IntWorkspace(n);
+            CURRENT.set(workspace);
+        } else if (workspace.inUse) {
+            workspace = new IntWorkspace(n);
+        }
+        workspace.inUse = true;
+        return workspace;
+    }
+
+    /**
+     * Records the shortest known path to the vertex.
+     *
+     * @param vertex   the reached vertex.
+     * @param from     the previous vertex on the path, or -1 for the start.
+     * @param distance the total weight of the path.
+     */
+    void reach(int vertex, int from, double distance) {
+        if (distTo[vertex] == Double.POSITIVE_INFINITY) {
+            if (size == reached.length) {
+                reached = Arrays.copyOf(reached, 2 * size);
+            }
+            reached[size] = vertex;
+            size += 1;
+        }
+        edgeTo[vertex] = from;
+        distTo[vertex] = distance;
+    }
+
+    /**
+     * Returns the number of vertices reached by the current search.
+     *
+     * @return the number of vertices reached by the current search.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the vertices reached by the current search in increasing order.
+     *
+     * @return a new array of the vertices reached by the current search.
+     */
+    int[] sortedReached() {
+        int[] result = Arrays.copyOf(reached, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the shortest path to the vertex found by the current search.
+     *
+     * @param goal the reached vertex.
+     * @return an array of vertices representing the path from the start to the goal.
+     */
+    int[] path(int goal) {
+        int length = 1;
+        for (int curr = goal; edgeTo[curr] != -1; curr = edgeTo[curr]) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        int curr = goal;
+        for (int i = length - 1; i >= 0; i -= 1) {
+            path[i] = curr;
+            curr = edgeTo[curr];
+        }
+        return path;
+    }
+
+    /**
+     * Resets every vertex reached by the current search to unreached and makes this workspace available again.
+     */
+    void release() {
+        for (int i = 0; i < size; i += 1) {
+            edgeTo[reached[i]] = -1;
+            distTo[reached[i]] = Double.POSITIVE_INFINITY;
+        }
+        size = 0;
+        perimeter.clear();
+        inUse = false;
+    }
+}
@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 
 import java.util.*;
@@ -12,7 +11,7 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class SPFASolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> edgeTo;
     private final Map<V, Double> distTo;
 
     /**
@@ -30,26 +29,34 @@ public class SPFASolver<V> implements ShortestPathSolver<V> {
         distTo.put(start, 0.0);
         while (!perimeter.isEmpty()) {
             V from = perimeter.remove();
-            for (Edge<V> e : graph.neighbors(from)) {
-                V to = e.to;
+            double fromDist = distTo.get(from);
+            graph.forEachNeighbor(from, (to, weight) -> {
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
-                double newDist = distTo.get(from) + e.weight;
+                double newDist = fromDist + weight;
                 if (newDist < oldDist) {
-                    edgeTo.put(to, e);
+                    edgeTo.put(to, from);
                     distTo.put(to, newDist);
-                    perimeter.add(to);
+                    // The queue rejects vertices it already holds, and a queued vertex will see the new distance.
+                    if (!perimeter.contains(to)) {
+                        perimeter.add(to);
+                    }
                 }
-            }
+            });
         }
     }
 
+    @Override
+    public double distTo(V goal) {
+        return distTo.getOrDefault(goal, Double.POSITIVE_INFINITY);
+    }
+
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
         while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+            curr = edgeTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
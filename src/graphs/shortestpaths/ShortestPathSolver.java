@@ -22,6 +22,14 @@ public interface ShortestPathSolver<V> {
      */
     List<V> solution(V goal);
 
+    /**
+     * Returns the total weight of the shortest path from a start vertex to the goal.
+     *
+     * @param goal the goal vertex.
+     * @return the total weight of the shortest path, or {@link Double#POSITIVE_INFINITY} if the goal is unreachable.
+     */
+    double distTo(V goal);
+
     /**
      * Constructor for {@link ShortestPathSolver}.
      *
@@ -1,6 +1,5 @@
 package graphs.shortestpaths;
 
-import graphs.Edge;
 import graphs.Graph;
 import minpq.DoubleMapMinPQ;
 import minpq.MinPQ;
@@ -14,7 +13,7 @@ import java.util.*;
  * @see ShortestPathSolver
  */
 public class ToposortDAGSolver<V> implements ShortestPathSolver<V> {
-    private final Map<V, Edge<V>> edgeTo;
+    private final Map<V, V> edgeTo;
     private final Map<V, Double> distTo;
 
     /**
@@ -36,9 +35,7 @@ public class ToposortDAGSolver<V> implements ShortestPathSolver<V> {
 
         Collections.reverse(postOrder);
         for (V vertex : postOrder) {
-            for (Edge<V> edge : graph.neighbors(vertex)) {
-                relax(edge);
-            }
+            graph.forEachNeighbor(vertex, (to, weight) -> relax(vertex, to, weight));
         }
     }
 
@@ -54,35 +51,35 @@ public class ToposortDAGSolver<V> implements ShortestPathSolver<V> {
         if (visited.contains(start)) return;
         visited.add(start);
 
-        for (Edge<V> edge : graph.neighbors(start)) {
-            V neighbor = edge.to;
+        graph.forEachNeighbor(start, (neighbor, weight) -> {
             if (!visited.contains(neighbor)) {
                 dfsPostOrder(graph, neighbor, visited, result);
             }
-        }
+        });
 
         result.add(start);
 
     }
 
-    private void relax(Edge<V> edge) {
-        V from = edge.from;
-        V to = edge.to;
-        double weight = edge.weight;
-
+    private void relax(V from, V to, double weight) {
         if (!distTo.containsKey(to) || distTo.get(from) + weight < distTo.get(to)) {
             distTo.put(to, distTo.get(from) + weight);
-            edgeTo.put(to, edge);
+            edgeTo.put(to, from);
         }
     }
 
+    @Override
+    public double distTo(V goal) {
+        return distTo.getOrDefault(goal, Double.POSITIVE_INFINITY);
+    }
+
     @Override
     public List<V> solution(V goal) {
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
         while (edgeTo.get(curr) != null) {
-            curr = edgeTo.get(curr).from;
+            curr = edgeTo.get(curr);
             path.add(curr);
         }
         Collections.reverse(path);
@@ -0,0 +1,274 @@
+package graphs.shortestpaths;
+
+import graphs.Graph;
+
+import java.util.*;
+
+/**
+ * Multi-stop trip planner that stitches together shortest paths between a list of stops. Rather than searching
+ * separately for each pair of stops, builds a distance table with one one-to-many {@link DijkstraSolver} search per
+ * stop and reuses each search tree to unpack the legs of the final trip.
+ *
+ * @param <V> the type of vertices.
+ * @see DijkstraSolver
+ */
+public class TripSolver<V> {
+    /**
+     * Maximum number of stops to order exactly. The exact order takes time and memory exponential in the number of
+     * stops, so longer trips are ordered approximately instead.
+     */
+    private static final int MAX_EXACT_STOPS = 12;
+    /**
+     * The search tree from each stop, in the same order as the given stops.
+     */
+    private final List<ShortestPathSolver<V>> solvers;
+    /**
+     * The stops in the same order as given.
+     */
+    private final List<V> stops;
+    /**
+     * The indices of the stops in visiting order.
+     */
+    private final List<Integer> order;
+
+    /**
+     * Constructs a new instance by computing the shortest paths between the stops. If optimize is true, reorders all
+     * but the first stop to minimize the total distance of the trip: exactly for up to {@link #MAX_EXACT_STOPS} stops,
+     * and approximately using the 2-opt and Or-opt heuristics for longer trips. Otherwise, visits the stops in the
+     * given order.
+     *
+     * @param graph    the input graph.
+     * @param stops    the stops to visit, beginning with the start vertex.
+     * @param optimize whether to reorder the stops after the first stop.
+     * @throws IllegalArgumentException if there are no stops.
+     */
+    public TripSolver(Graph<V> graph, List<V> stops, boolean optimize) {
+        if (stops.isEmpty()) {
+            throw new IllegalArgumentException("Trip must have at least one stop");
+        }
+        this.stops = List.copyOf(stops);
+        int k = stops.size();
+        solvers = new ArrayList<>(k);
+        for (int i = 0; i < k; i += 1) {
+            // Only the next stop matters unless the order is up for optimization.
+            Collection<V> targets = optimize ? stops : List.of(stops.get(Math.min(i + 1, k - 1)));
+            solvers.add(new DijkstraSolver<>(graph, stops.get(i), targets));
+        }
+        order = new ArrayList<>(k);
+        for (int i = 0; i < k; i += 1) {
+            order.add(i);
+        }
+        if (optimize) {
+            double[][] dist = new double[k][k];
+            for (int i = 0; i < k; i += 1) {
+                for (int j = 0; j < k; j += 1) {
+                    dist[i][j] = solvers.get(i).distTo(stops.get(j));
+                }
+            }
+            if (k <= MAX_EXACT_STOPS) {
+                exact(dist);
+            } else {
+                nearestNeighbor(dist);
+                boolean improved = true;
+                while (improved) {
+                    improved = twoOpt(dist) | orOpt(dist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the given stops in visiting order.
+     *
+     * @return an unmodifiable list of the indices of the given stops in visiting order.
+     */
+    public List<Integer> order() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * Returns the total weight of the trip visiting each stop in order.
+     *
+     * @return the total weight of the trip, or {@link Double#POSITIVE_INFINITY} if a stop is unreachable.
+     */
+    public double distance() {
+        double result = 0.0;
+        for (int i = 1; i < order.size(); i += 1) {
+            result += solvers.get(order.get(i - 1)).distTo(stops.get(order.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the trip visiting each stop in order by stitching together the shortest path for each leg.
+     *
+     * @return a list of vertices representing the trip, or an empty list if a stop is unreachable.
+     */
+    public List<V> solution() {
+        List<V> path = new ArrayList<>();
+        path.add(stops.get(order.get(0)));
+        for (int i = 1; i < order.size(); i += 1) {
+            if (solvers.get(order.get(i - 1)).distTo(stops.get(order.get(i))) == Double.POSITIVE_INFINITY) {
+                return List.of();
+            }
+            List<V> leg = solvers.get(order.get(i - 1)).solution(stops.get(order.get(i)));
+            path.addAll(leg.subList(1, leg.size())); // Skip the stop shared with the previous leg
+        }
+        return path;
+    }
+
+    /**
+     * Reorders all but the first stop to exactly minimize the total distance using the Held-Karp dynamic program,
+     * which finds the shortest trip from the first stop through each subset of the other stops ending at each stop in
+     * the subset. Keeps the given order if some stop is unreachable.
+     *
+     * @param dist the distance table between each pair of stops.
+     */
+    private void exact(double[][] dist) {
+        // The other stops are numbered from 0 so that each subset of them is a bit mask.
+        int n = order.size() - 1;
+        if (n <= 1) {
+            return;
+        }
+        int all = (1 << n) - 1;
+        double[][] best = new double[all + 1][n];
+        int[][] previous = new int[all + 1][n];
+        for (double[] row : best) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+        for (int last = 0; last < n; last += 1) {
+            best[1 << last][last] = dist[0][last + 1];
+        }
+        for (int subset = 1; subset < all; subset += 1) {
+            for (int last = 0; last < n; last += 1) {
+                if ((subset & 1 << last) == 0 || best[subset][last] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int next = 0; next < n; next += 1) {
+                    double through = best[subset][last] + dist[last + 1][next + 1];
+                    if ((subset & 1 << next) == 0 && through < best[subset | 1 << next][next]) {
+                        best[subset | 1 << next][next] = through;
+                        previous[subset | 1 << next][next] = last;
+                    }
+                }
+            }
+        }
+        int last = 0;
+        for (int i = 1; i < n; i += 1) {
+            if (best[all][i] < best[all][last]) {
+                last = i;
+            }
+        }
+        if (best[all][last] == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        int subset = all;
+        for (int i = n; i >= 1; i -= 1) {
+            order.set(i, last + 1);
+            int before = previous[subset][last];
+            subset &= ~(1 << last);
+            last = before;
+        }
+    }
+
+    /**
+     * Reorders all but the first stop by repeatedly visiting the closest unvisited stop.
+     *
+     * @param dist the distance table between each pair of stops.
+     */
+    private void nearestNeighbor(double[][] dist) {
+        for (int i = 1; i < order.size(); i += 1) {
+            int from = order.get(i - 1);
+            int best = i;
+            for (int j = i + 1; j < order.size(); j += 1) {
+                if (dist[from][order.get(j)] < dist[from][order.get(best)]) {
+                    best = j;
+                }
+            }
+            Collections.swap(order, i, best);
+        }
+    }
+
+    /**
+     * Improves the order of all but the first stop by reversing segments of the trip until no reversal reduces the
+     * total distance. The trip is not required to return to the first stop.
+     *
+     * @param dist the distance table between each pair of stops.
+     * @return true if the order was improved.
+     */
+    private boolean twoOpt(double[][] dist) {
+        boolean result = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < order.size() - 1; i += 1) {
+                for (int j = i + 1; j < order.size(); j += 1) {
+                    double before = cost(dist, i - 1, j + 2);
+                    Collections.reverse(order.subList(i, j + 1));
+                    if (cost(dist, i - 1, j + 2) < before) {
+                        improved = true;
+                        result = true;
+                    } else {
+                        Collections.reverse(order.subList(i, j + 1));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Improves the order of all but the first stop by moving runs of up to three consecutive stops to other positions
+     * in the trip until no move reduces the total distance.
+     *
+     * @param dist the distance table between each pair of stops.
+     * @return true if the order was improved.
+     */
+    private boolean orOpt(double[][] dist) {
+        boolean result = false;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int length = 1; length <= 3; length += 1) {
+                for (int i = 1; i + length <= order.size(); i += 1) {
+                    double before = cost(dist, 0, order.size());
+                    List<Integer> run = new ArrayList<>(order.subList(i, i + length));
+                    order.subList(i, i + length).clear();
+                    int bestPosition = i;
+                    for (int j = 1; j <= order.size(); j += 1) {
+                        order.addAll(j, run);
+                        double after = cost(dist, 0, order.size());
+                        order.subList(j, j + length).clear();
+                        if (after < before) {
+                            before = after;
+                            bestPosition = j;
+                        }
+                    }
+                    order.addAll(bestPosition, run);
+                    if (bestPosition != i) {
+                        improved = true;
+                        result = true;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total distance of the part of the trip between the given positions in the visiting order. Distances
+     * may be asymmetric, so the entire part is summed rather than only the edges at each end.
+     *
+     * @param dist the distance table between each pair of stops.
+     * @param lo   the inclusive starting position in the visiting order.
+     * @param hi   the exclusive ending position in the visiting order.
+     * @return the total distance of the part of the trip between the given positions.
+     */
+    private double cost(double[][] dist, int lo, int hi) {
+        double result = 0.0;
+        for (int i = lo + 1; i < Math.min(hi, order.size()); i += 1) {
+            result += dist[order.get(i - 1)][order.get(i)];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package graphs.storage;
+
+/**
+ * Compressed sparse row implementation of the {@link GraphStorage} interface. The edges of every vertex are stored
+ * contiguously in primitive arrays in vertex order, so numbering nearby vertices consecutively keeps the edges explored
+ * by a local search close together in memory.
+ *
+ * @see GraphStorage
+ */
+public class ArrayGraphStorage implements GraphStorage {
+    /**
+     * The latitude and longitude of each vertex.
+     */
+    private final double[] lats, lons;
+    /**
+     * The number of the first outgoing edge of each vertex, plus one final entry for the number of edges.
+     */
+    private final int[] offsets;
+    /**
+     * The destination vertex of each edge.
+     */
+    private final int[] targets;
+    /**
+     * The weight of each edge.
+     */
+    private final double[] weights;
+
+    /**
+     * Constructs a new instance from the given arrays, which are used directly without copying.
+     *
+     * @param lats    the latitude of each vertex.
+     * @param lons    the longitude of each vertex.
+     * @param offsets the number of the first outgoing edge of each vertex, plus the number of edges.
+     * @param targets the destination vertex of each edge.
+     * @param weights the weight of each edge.
+     * @throws IllegalArgumentException if the array lengths are inconsistent.
+     */
+    public ArrayGraphStorage(double[] lats, double[] lons, int[] offsets, int[] targets, double[] weights) {
+        if (lats.length != lons.length || offsets.length != lats.length + 1
+                || targets.length != weights.length || offsets[lats.length] != targets.length) {
+            throw new IllegalArgumentException("Array lengths are inconsistent");
+        }
+        this.lats = lats;
+        this.lons = lons;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int size() {
+        return lats.length;
+    }
+
+    @Override
+    public double lat(int vertex) {
+        return lats[vertex];
+    }
+
+    @Override
+    public double lon(int vertex) {
+        return lons[vertex];
+    }
+
+    @Override
+    public int firstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights[edge];
+    }
+}
@@ -0,0 +1,145 @@
+package graphs.storage;
+
+/**
+ * Compressed sparse row implementation of the {@link GraphStorage} interface that uses half the memory of
+ * {@link ArrayGraphStorage} for coordinates and weights. Coordinates are stored as fixed-point integers in units of
+ * 10<sup>-7</sup> degrees, the precision of OpenStreetMap coordinates, so coordinates given with at most 7 decimal
+ * places are returned exactly and any other coordinate is within 5 &times; 10<sup>-8</sup> degrees. Weights are stored
+ * as single-precision floats rounded up, so each stored weight is at least the given weight and within a relative
+ * error of 2<sup>-23</sup>. Rounding up means a heuristic that never overestimates the given weights also never
+ * overestimates the stored weights, so A* search over the stored weights still finds exact shortest paths.
+ *
+ * @see GraphStorage
+ */
+public class CompactGraphStorage implements GraphStorage {
+    /**
+     * Number of fixed-point coordinate units per degree.
+     */
+    private static final double COORDINATE_SCALE = 1e7;
+    /**
+     * The fixed-point latitude and longitude of each vertex.
+     */
+    private final int[] lats, lons;
+    /**
+     * The number of the first outgoing edge of each vertex, plus one final entry for the number of edges.
+     */
+    private final int[] offsets;
+    /**
+     * The destination vertex of each edge.
+     */
+    private final int[] targets;
+    /**
+     * The weight of each edge, rounded up.
+     */
+    private final float[] weights;
+
+    /**
+     * Constructs a new instance by encoding the coordinates and weights from the given arrays. The offsets and targets
+     * arrays are used directly without copying.
+     *
+     * @param lats    the latitude of each vertex.
+     * @param lons    the longitude of each vertex.
+     * @param offsets the number of the first outgoing edge of each vertex, plus the number of edges.
+     * @param targets the destination vertex of each edge.
+     * @param weights the weight of each edge.
+     * @throws IllegalArgumentException if the array lengths are inconsistent or a coordinate is out of range.
+     */
+    public CompactGraphStorage(double[] lats, double[] lons, int[] offsets, int[] targets, double[] weights) {
+        if (lats.length != lons.length || offsets.length != lats.length + 1
+                || targets.length != weights.length || offsets[lats.length] != targets.length) {
+            throw new IllegalArgumentException("Array lengths are inconsistent");
+        }
+        this.lats = new int[lats.length];
+        this.lons = new int[lons.length];
+        for (int i = 0; i < lats.length; i += 1) {
+            this.lats[i] = encodeLat(lats[i]);
+            this.lons[i] = encodeLon(lons[i]);
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = new float[weights.length];
+        for (int i = 0; i < weights.length; i += 1) {
+            this.weights[i] = encodeWeight(weights[i]);
+        }
+    }
+
+    /**
+     * Returns the fixed-point encoding of the latitude.
+     *
+     * @param lat the latitude in degrees.
+     * @return the latitude in units of 10<sup>-7</sup> degrees.
+     * @throws IllegalArgumentException if the latitude is out of range.
+     */
+    static int encodeLat(double lat) {
+        if (!(Math.abs(lat) <= 90)) {
+            throw new IllegalArgumentException("Latitude out of range: " + lat);
+        }
+        return (int) Math.round(lat * COORDINATE_SCALE);
+    }
+
+    /**
+     * Returns the fixed-point encoding of the longitude.
+     *
+     * @param lon the longitude in degrees.
+     * @return the longitude in units of 10<sup>-7</sup> degrees.
+     * @throws IllegalArgumentException if the longitude is out of range.
+     */
+    static int encodeLon(double lon) {
+        if (!(Math.abs(lon) <= 180)) {
+            throw new IllegalArgumentException("Longitude out of range: " + lon);
+        }
+        return (int) Math.round(lon * COORDINATE_SCALE);
+    }
+
+    /**
+     * Returns the coordinate in degrees of the fixed-point encoding.
+     *
+     * @param units the coordinate in units of 10<sup>-7</sup> degrees.
+     * @return the coordinate in degrees.
+     */
+    static double decodeCoordinate(int units) {
+        // Dividing rather than multiplying by the reciprocal gives the closest double to the decimal coordinate.
+        return units / COORDINATE_SCALE;
+    }
+
+    /**
+     * Returns the weight rounded up to the nearest float.
+     *
+     * @param weight the weight.
+     * @return the least float greater than or equal to the weight.
+     */
+    static float encodeWeight(double weight) {
+        float result = (float) weight;
+        return result < weight ? Math.nextUp(result) : result;
+    }
+
+    @Override
+    public int size() {
+        return lats.length;
+    }
+
+    @Override
+    public double lat(int vertex) {
+        return decodeCoordinate(lats[vertex]);
+    }
+
+    @Override
+    public double lon(int vertex) {
+        return decodeCoordinate(lons[vertex]);
+    }
+
+    @Override
+    public int firstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights[edge];
+    }
+}
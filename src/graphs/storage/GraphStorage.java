@@ -0,0 +1,61 @@
+package graphs.storage;
+
+import spatial.Points;
+
+/**
+ * Read-only storage for a directed, edge-weighted graph of geographic locations whose vertices are numbered from 0 to
+ * {@link #size()} - 1. The outgoing edges of each vertex are numbered consecutively, so the edges of vertex v are
+ * numbered from {@code firstEdge(v)} up to but not including {@code firstEdge(v + 1)}.
+ */
+public interface GraphStorage extends Points {
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices.
+     */
+    @Override
+    int size();
+
+    /**
+     * Returns the latitude of the vertex.
+     *
+     * @param vertex the vertex number.
+     * @return the latitude of the vertex.
+     */
+    @Override
+    double lat(int vertex);
+
+    /**
+     * Returns the longitude of the vertex.
+     *
+     * @param vertex the vertex number.
+     * @return the longitude of the vertex.
+     */
+    @Override
+    double lon(int vertex);
+
+    /**
+     * Returns the number of the first outgoing edge of the vertex. Passing {@link #size()} returns the number of edges.
+     *
+     * @param vertex the vertex number, or {@link #size()}.
+     * @return the number of the first outgoing edge of the vertex.
+     */
+    int firstEdge(int vertex);
+
+    /**
+     * Returns the destination vertex of the edge.
+     *
+     * @param edge the edge number.
+     * @return the destination vertex of the edge.
+     */
+    int target(int edge);
+
+    /**
+     * Returns the weight of the edge.
+     *
+     * @param edge the edge number.
+     * @return the weight of the edge.
+     */
+    double weight(int edge);
+}
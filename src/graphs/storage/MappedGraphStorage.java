@@ -0,0 +1,273 @@
+package graphs.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only implementation of the {@link GraphStorage} interface backed by a memory-mapped file. The arrays are stored
+ * off the heap, so the garbage collector never scans them, and every process that maps the same file shares a single
+ * copy in the operating system page cache.
+ * <p>
+ * The file begins with a header holding a magic number, the file format, the version of the graph, and the numbers of
+ * vertices and edges, and the size of the place table. The header is followed by the same arrays as
+ * {@link CompactGraphStorage}: the fixed-point latitudes, longitudes, edge offsets, edge targets, and rounded-up float
+ * weights, each in native byte order, and then by the {@link PlaceTable} of named places. A file written on a machine
+ * with a different byte order fails the magic number check and is rewritten. Each array is mapped separately, so each
+ * may be up to 2 GB.
+ *
+ * @see CompactGraphStorage
+ * @see PlaceTable
+ */
+public class MappedGraphStorage implements GraphStorage {
+    /**
+     * Magic number identifying graph files.
+     */
+    private static final int MAGIC = 0x4d475246;
+    /**
+     * File format, which changes whenever the layout of the file changes.
+     */
+    private static final int FORMAT = 2;
+    /**
+     * Size in bytes of the header: magic number, format, version, number of vertices, number of edges, and size of the
+     * place table.
+     */
+    private static final int HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+    /**
+     * Size in bytes of the buffer for writing the file.
+     */
+    private static final int WRITE_BUFFER = 1 << 16;
+    /**
+     * The fixed-point latitude and longitude of each vertex.
+     */
+    private final IntBuffer lats, lons;
+    /**
+     * The number of the first outgoing edge of each vertex, plus one final entry for the number of edges.
+     */
+    private final IntBuffer offsets;
+    /**
+     * The destination vertex of each edge.
+     */
+    private final IntBuffer targets;
+    /**
+     * The weight of each edge, rounded up.
+     */
+    private final FloatBuffer weights;
+    /**
+     * The named places.
+     */
+    private final PlaceTable places;
+    /**
+     * The number of vertices.
+     */
+    private final int size;
+
+    /**
+     * Maps each of the arrays in the file into memory.
+     *
+     * @param channel the channel for the file.
+     * @param size    the number of vertices.
+     * @param edges   the number of edges.
+     * @param places  the mapped place table.
+     * @throws IOException if an I/O error occurs.
+     */
+    private MappedGraphStorage(FileChannel channel, int size, int edges, PlaceTable places) throws IOException {
+        this.size = size;
+        long position = HEADER;
+        lats = map(channel, position, size).asIntBuffer();
+        position += (long) Integer.BYTES * size;
+        lons = map(channel, position, size).asIntBuffer();
+        position += (long) Integer.BYTES * size;
+        offsets = map(channel, position, size + 1).asIntBuffer();
+        position += (long) Integer.BYTES * (size + 1);
+        targets = map(channel, position, edges).asIntBuffer();
+        position += (long) Integer.BYTES * edges;
+        weights = map(channel, position, edges).asFloatBuffer();
+        this.places = places;
+    }
+
+    /**
+     * Returns the storage mapped from the file at the path, or null if the file does not exist, is damaged, or was
+     * written for a different version of the graph.
+     *
+     * @param path    the path to the file.
+     * @param version the version of the graph.
+     * @return the storage mapped from the file, or null if the file cannot be used.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static MappedGraphStorage open(Path path, long version) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.nativeOrder());
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT || header.getLong() != version) {
+                return null;
+            }
+            int size = header.getInt();
+            int edges = header.getInt();
+            int placeBytes = header.getInt();
+            long arrays = HEADER + (long) Integer.BYTES * (3L * size + 1)
+                    + (long) (Integer.BYTES + Float.BYTES) * edges;
+            if (size < 0 || edges < 0 || placeBytes < 0 || channel.size() != arrays + placeBytes) {
+                return null;
+            }
+            PlaceTable places = PlaceTable.read(
+                    channel.map(FileChannel.MapMode.READ_ONLY, arrays, placeBytes).order(ByteOrder.nativeOrder()));
+            if (places == null) {
+                return null;
+            }
+            // The mappings remain valid after the channel is closed.
+            return new MappedGraphStorage(channel, size, edges, places);
+        }
+    }
+
+    /**
+     * Writes the storage to the file at the path with no named places, replacing any existing file.
+     *
+     * @param source  the storage to write.
+     * @param path    the path to the file.
+     * @param version the version of the graph.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if a coordinate is out of range.
+     */
+    public static void write(GraphStorage source, Path path, long version) throws IOException {
+        write(source, PlaceTable.of(new String[0], new double[0], new double[0]), path, version);
+    }
+
+    /**
+     * Writes the storage and the named places to the file at the path, replacing any existing file. The file is
+     * written to a temporary file in the same directory and then moved into place, so processes opening the file never
+     * see it partially written.
+     *
+     * @param source  the storage to write.
+     * @param places  the named places to write.
+     * @param path    the path to the file.
+     * @param version the version of the graph.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if a coordinate is out of range.
+     */
+    public static void write(GraphStorage source, PlaceTable places, Path path, long version) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            int size = source.size();
+            int edges = source.firstEdge(size);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.nativeOrder());
+            ByteBuffer table = places.buffer();
+            buffer.putInt(MAGIC).putInt(FORMAT).putLong(version).putInt(size).putInt(edges).putInt(table.remaining());
+            for (int i = 0; i < size; i += 1) {
+                buffer = flushIfFull(channel, buffer).putInt(CompactGraphStorage.encodeLat(source.lat(i)));
+            }
+            for (int i = 0; i < size; i += 1) {
+                buffer = flushIfFull(channel, buffer).putInt(CompactGraphStorage.encodeLon(source.lon(i)));
+            }
+            for (int i = 0; i <= size; i += 1) {
+                buffer = flushIfFull(channel, buffer).putInt(source.firstEdge(i));
+            }
+            for (int edge = 0; edge < edges; edge += 1) {
+                buffer = flushIfFull(channel, buffer).putInt(source.target(edge));
+            }
+            for (int edge = 0; edge < edges; edge += 1) {
+                buffer = flushIfFull(channel, buffer).putFloat(CompactGraphStorage.encodeWeight(source.weight(edge)));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the buffer to the channel if it does not have room for another value.
+     *
+     * @param channel the channel to write to.
+     * @param buffer  the buffer of pending values.
+     * @return the buffer, cleared if it was written.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static ByteBuffer flushIfFull(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    /**
+     * Maps the array of 4-byte values at the position in the file.
+     *
+     * @param channel  the channel for the file.
+     * @param position the position of the array in bytes.
+     * @param length   the number of values in the array.
+     * @return the read-only buffer for the array in native byte order.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, (long) Integer.BYTES * length)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns the named places stored in the file.
+     *
+     * @return the mapped table of named places.
+     */
+    public PlaceTable places() {
+        return places;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double lat(int vertex) {
+        return CompactGraphStorage.decodeCoordinate(lats.get(vertex));
+    }
+
+    @Override
+    public double lon(int vertex) {
+        return CompactGraphStorage.decodeCoordinate(lons.get(vertex));
+    }
+
+    @Override
+    public int firstEdge(int vertex) {
+        return offsets.get(vertex);
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights.get(edge);
+    }
+}
@@ -0,0 +1,298 @@
+package graphs.storage;
+
+import spatial.Points;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only table of named places, sorted by name so that places can be found by exact name or by prefix with a binary
+ * search. The table is a single buffer that can be written to a graph file and mapped back off the heap, so a graph
+ * opened from a file never needs to hold the names of its places as objects.
+ * <p>
+ * The buffer begins with the number of distinct names, the number of places, and the number of bytes of names. It is
+ * followed by the byte offset of each name, the number of the first place with each name, the latitudes and longitudes
+ * of the places, and the UTF-8 bytes of the sorted names. Each offset array has one final entry for the total. Places
+ * with the same name keep the order in which they were added.
+ *
+ * @see MappedGraphStorage
+ */
+public class PlaceTable implements Points {
+    /**
+     * Size in bytes of the header: number of names, number of places, and number of bytes of names.
+     */
+    private static final int HEADER = 3 * Integer.BYTES;
+    /**
+     * The buffer holding the table in native byte order.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The number of distinct names.
+     */
+    private final int names;
+    /**
+     * The number of places.
+     */
+    private final int size;
+    /**
+     * The positions in the buffer of the name offsets, first places, latitudes, longitudes, and name bytes.
+     */
+    private final int nameOffsets, firstPlaces, lats, lons, bytes;
+
+    /**
+     * Constructs a table reading from the buffer.
+     *
+     * @param buffer the buffer holding the table in native byte order.
+     */
+    private PlaceTable(ByteBuffer buffer) {
+        this.buffer = buffer;
+        names = buffer.getInt(0);
+        size = buffer.getInt(Integer.BYTES);
+        nameOffsets = HEADER;
+        firstPlaces = nameOffsets + Integer.BYTES * (names + 1);
+        lats = firstPlaces + Integer.BYTES * (names + 1);
+        lons = lats + Double.BYTES * size;
+        bytes = lons + Double.BYTES * size;
+    }
+
+    /**
+     * Returns a table of the places, held in a buffer on the heap.
+     *
+     * @param placeNames the name of each place.
+     * @param placeLats  the latitude of each place.
+     * @param placeLons  the longitude of each place.
+     * @return a table of the places.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public static PlaceTable of(String[] placeNames, double[] placeLats, double[] placeLons) {
+        int size = placeNames.length;
+        if (placeLats.length != size || placeLons.length != size) {
+            throw new IllegalArgumentException("Names and coordinates must have the same length");
+        }
+        // Sorting is stable, so places with the same name stay in the order they were added.
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> placeNames[i]));
+        List<byte[]> encoded = new ArrayList<>();
+        int[] firsts = new int[size + 1];
+        int totalBytes = 0;
+        for (int i = 0; i < size; i += 1) {
+            if (i == 0 || !placeNames[order[i]].equals(placeNames[order[i - 1]])) {
+                firsts[encoded.size()] = i;
+                byte[] name = placeNames[order[i]].getBytes(StandardCharsets.UTF_8);
+                encoded.add(name);
+                totalBytes += name.length;
+            }
+        }
+        int names = encoded.size();
+        firsts[names] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(bytes(names, size, totalBytes)).order(ByteOrder.nativeOrder());
+        buffer.putInt(names).putInt(size).putInt(totalBytes);
+        int offset = 0;
+        for (byte[] name : encoded) {
+            buffer.putInt(offset);
+            offset += name.length;
+        }
+        buffer.putInt(offset);
+        for (int n = 0; n <= names; n += 1) {
+            buffer.putInt(firsts[n]);
+        }
+        for (int i = 0; i < size; i += 1) {
+            buffer.putDouble(placeLats[order[i]]);
+        }
+        for (int i = 0; i < size; i += 1) {
+            buffer.putDouble(placeLons[order[i]]);
+        }
+        for (byte[] name : encoded) {
+            buffer.put(name);
+        }
+        return new PlaceTable(buffer.flip());
+    }
+
+    /**
+     * Returns the table held in the buffer, or null if the buffer is too short or its counts are inconsistent.
+     *
+     * @param buffer the buffer holding a table in native byte order, such as a mapping of part of a file.
+     * @return the table held in the buffer, or null if the buffer does not hold a table.
+     */
+    public static PlaceTable read(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER) {
+            return null;
+        }
+        int names = buffer.getInt(0);
+        int size = buffer.getInt(Integer.BYTES);
+        int totalBytes = buffer.getInt(2 * Integer.BYTES);
+        if (names < 0 || size < names || totalBytes < 0 || buffer.capacity() != bytes(names, size, totalBytes)) {
+            return null;
+        }
+        return new PlaceTable(buffer);
+    }
+
+    /**
+     * Returns the size in bytes of a table with the given counts.
+     *
+     * @param names      the number of distinct names.
+     * @param size       the number of places.
+     * @param totalBytes the number of bytes of names.
+     * @return the size in bytes of the table.
+     */
+    private static int bytes(int names, int size, int totalBytes) {
+        long result = HEADER + 2L * Integer.BYTES * (names + 1) + 2L * Double.BYTES * size + totalBytes;
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a read-only view of the whole table, positioned at its start, for writing it to a file.
+     *
+     * @return a read-only view of the buffer holding the table.
+     */
+    public ByteBuffer buffer() {
+        return buffer.asReadOnlyBuffer().position(0);
+    }
+
+    /**
+     * Returns the number of places.
+     *
+     * @return the number of places.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitude of the place.
+     *
+     * @param place the place number.
+     * @return the latitude of the place.
+     */
+    @Override
+    public double lat(int place) {
+        return buffer.getDouble(lats + Double.BYTES * place);
+    }
+
+    /**
+     * Returns the longitude of the place.
+     *
+     * @param place the place number.
+     * @return the longitude of the place.
+     */
+    @Override
+    public double lon(int place) {
+        return buffer.getDouble(lons + Double.BYTES * place);
+    }
+
+    /**
+     * Returns the name of the place.
+     *
+     * @param place the place number.
+     * @return the name of the place.
+     */
+    public String name(int place) {
+        // Find the last name whose first place is at or before the place.
+        int low = 0;
+        int high = names - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (first(middle) <= place) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return nameAt(low);
+    }
+
+    /**
+     * Returns the numbers of the places with exactly the given name, in the order they were added.
+     *
+     * @param name the name to look up, or null.
+     * @return an array of the numbers of the places with the name, which is empty if no place has the name.
+     */
+    public int[] places(CharSequence name) {
+        if (name == null) {
+            return new int[0];
+        }
+        int n = search(name);
+        if (n == names || CharSequence.compare(nameAt(n), name) != 0) {
+            return new int[0];
+        }
+        int[] result = new int[first(n + 1) - first(n)];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = first(n) + i;
+        }
+        return result;
+    }
+
+    /**
+     * Returns every distinct name that begins with the prefix in sorted order, or an empty list if the prefix is empty.
+     *
+     * @param prefix the prefix to match.
+     * @return a list of the names beginning with the prefix.
+     */
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        for (int n = search(prefix); n < names; n += 1) {
+            String name = nameAt(n);
+            if (!name.startsWith(prefix.toString())) {
+                break;
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of the first name that is not less than the key, or the number of names if there is none.
+     *
+     * @param key the key to search for.
+     * @return the number of the first name not less than the key.
+     */
+    private int search(CharSequence key) {
+        int low = 0;
+        int high = names;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (CharSequence.compare(nameAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of the first place with the given name number.
+     *
+     * @param n the name number, or the number of names for the total number of places.
+     * @return the number of the first place with the name.
+     */
+    private int first(int n) {
+        return buffer.getInt(firstPlaces + Integer.BYTES * n);
+    }
+
+    /**
+     * Returns the name with the given name number.
+     *
+     * @param n the name number.
+     * @return the decoded name.
+     */
+    private String nameAt(int n) {
+        int start = buffer.getInt(nameOffsets + Integer.BYTES * n);
+        int end = buffer.getInt(nameOffsets + Integer.BYTES * (n + 1));
+        byte[] name = new byte[end - start];
+        buffer.get(bytes + start, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,476 @@
+package graphs.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only implementation of the {@link GraphStorage} interface that keeps only recently-used tiles of the graph in
+ * memory. Vertices are partitioned into tiles of consecutive vertex numbers, so when vertices are numbered along a
+ * Hilbert curve, each tile covers a compact geographic area. Tiles are stored on disk and loaded on demand into a
+ * bounded table that evicts tiles with the CLOCK approximation of least-recently used. Finding a tile in memory takes
+ * no lock, so concurrent searches only contend when a tile is loaded. Edges hold global vertex numbers, so an edge
+ * leading into another tile loads that tile when its target is accessed, and a search only keeps the tiles around its
+ * frontier.
+ * <p>
+ * The file begins with a header holding a magic number, the file format, the version of the graph, the numbers of
+ * vertices, edges, vertices per tile, and tiles, and the size of the place table. A directory follows with the
+ * position of each tile in the file and the number of the first edge of each tile. Each tile holds the same arrays as
+ * {@link CompactGraphStorage} for its vertices and their outgoing edges. The {@link PlaceTable} of named places follows
+ * the last tile and is mapped off the heap.
+ *
+ * @see CompactGraphStorage
+ * @see PlaceTable
+ */
+public class TiledGraphStorage implements GraphStorage {
+    /**
+     * Magic number identifying tiled graph files.
+     */
+    private static final int MAGIC = 0x54475246;
+    /**
+     * File format, which changes whenever the layout of the file changes.
+     */
+    private static final int FORMAT = 2;
+    /**
+     * Size in bytes of the header: magic number, format, version, the numbers of vertices, edges, vertices per tile,
+     * and tiles, and the size of the place table.
+     */
+    private static final int HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES + 5 * Integer.BYTES;
+    /**
+     * The channel for reading tiles from the file.
+     */
+    private final FileChannel channel;
+    /**
+     * The numbers of vertices, edges, and vertices per tile.
+     */
+    private final int size, edges, tileSize;
+    /**
+     * The position of each tile in the file, plus one final entry for the position of the place table.
+     */
+    private final long[] positions;
+    /**
+     * The number of the first edge of each tile, plus one final entry for the number of edges.
+     */
+    private final int[] tileEdges;
+    /**
+     * The tiles in memory by tile number, or null for tiles that are not in memory.
+     */
+    private final AtomicReferenceArray<Tile> tiles;
+    /**
+     * The number of each tile in memory in the order the clock hand visits them, or -1 for unused entries. Guarded by
+     * itself, which is only locked to admit a newly-loaded tile.
+     */
+    private final int[] clock;
+    /**
+     * The index in the clock of the next tile to consider for eviction.
+     */
+    private int hand;
+    /**
+     * The named places.
+     */
+    private final PlaceTable places;
+    /**
+     * The number of times a tile has been read from the file.
+     */
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * Constructs a new instance reading tiles from the channel.
+     *
+     * @param channel   the channel for reading tiles from the file.
+     * @param size      the number of vertices.
+     * @param edges     the number of edges.
+     * @param tileSize  the number of vertices per tile.
+     * @param positions the position of each tile in the file, plus the position of the place table.
+     * @param tileEdges the number of the first edge of each tile, plus the number of edges.
+     * @param capacity  the maximum number of tiles to keep in memory.
+     * @param places    the mapped place table.
+     */
+    private TiledGraphStorage(FileChannel channel, int size, int edges, int tileSize, long[] positions,
+                              int[] tileEdges, int capacity, PlaceTable places) {
+        this.channel = channel;
+        this.size = size;
+        this.edges = edges;
+        this.tileSize = tileSize;
+        this.positions = positions;
+        this.tileEdges = tileEdges;
+        this.tiles = new AtomicReferenceArray<>(positions.length - 1);
+        this.clock = new int[Math.min(capacity, Math.max(positions.length - 1, 1))];
+        Arrays.fill(clock, -1);
+        this.places = places;
+    }
+
+    /**
+     * Returns the storage reading tiles from the file at the path, or null if the file does not exist, is damaged, or
+     * was written for a different version of the graph.
+     *
+     * @param path     the path to the file.
+     * @param version  the version of the graph.
+     * @param capacity the maximum number of tiles to keep in memory.
+     * @return the storage reading tiles from the file, or null if the file cannot be used.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public static TiledGraphStorage open(Path path, long version, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (!Files.exists(path)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(channel, 0, HEADER);
+            if (header == null || header.getInt() != MAGIC || header.getInt() != FORMAT
+                    || header.getLong() != version) {
+                channel.close();
+                return null;
+            }
+            int size = header.getInt();
+            int edges = header.getInt();
+            int tileSize = header.getInt();
+            int tileCount = header.getInt();
+            int placeBytes = header.getInt();
+            if (size < 0 || edges < 0 || tileSize <= 0 || tileCount != (size + tileSize - 1) / tileSize
+                    || placeBytes < 0 || HEADER + (tileCount + 1L) * (Long.BYTES + Integer.BYTES) > channel.size()) {
+                channel.close();
+                return null;
+            }
+            ByteBuffer directory = read(channel, HEADER, (tileCount + 1) * (Long.BYTES + Integer.BYTES));
+            long[] positions = new long[tileCount + 1];
+            int[] tileEdges = new int[tileCount + 1];
+            for (int t = 0; t <= tileCount; t += 1) {
+                positions[t] = directory.getLong();
+            }
+            for (int t = 0; t <= tileCount; t += 1) {
+                tileEdges[t] = directory.getInt();
+            }
+            if (positions[tileCount] + placeBytes != channel.size() || tileEdges[tileCount] != edges) {
+                channel.close();
+                return null;
+            }
+            PlaceTable places = PlaceTable.read(channel.map(FileChannel.MapMode.READ_ONLY, positions[tileCount],
+                    placeBytes).order(ByteOrder.nativeOrder()));
+            if (places == null) {
+                channel.close();
+                return null;
+            }
+            return new TiledGraphStorage(channel, size, edges, tileSize, positions, tileEdges, capacity, places);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the storage to the file at the path in tiles of the given number of vertices with no named places,
+     * replacing any existing file.
+     *
+     * @param source   the storage to write.
+     * @param path     the path to the file.
+     * @param version  the version of the graph.
+     * @param tileSize the number of vertices per tile.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if tileSize is not positive or a coordinate is out of range.
+     */
+    public static void write(GraphStorage source, Path path, long version, int tileSize) throws IOException {
+        write(source, PlaceTable.of(new String[0], new double[0], new double[0]), path, version, tileSize);
+    }
+
+    /**
+     * Writes the storage in tiles of the given number of vertices and the named places to the file at the path,
+     * replacing any existing file. The file is written to a temporary file in the same directory and then moved into
+     * place, so processes opening the file never see it partially written.
+     *
+     * @param source   the storage to write.
+     * @param places   the named places to write.
+     * @param path     the path to the file.
+     * @param version  the version of the graph.
+     * @param tileSize the number of vertices per tile.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if tileSize is not positive or a coordinate is out of range.
+     */
+    public static void write(GraphStorage source, PlaceTable places, Path path, long version, int tileSize)
+            throws IOException {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+            int size = source.size();
+            int edges = source.firstEdge(size);
+            int tileCount = (size + tileSize - 1) / tileSize;
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            output.writeLong(version);
+            output.writeInt(size);
+            output.writeInt(edges);
+            output.writeInt(tileSize);
+            output.writeInt(tileCount);
+            ByteBuffer table = places.buffer();
+            output.writeInt(table.remaining());
+            // Each tile takes 3 ints per vertex and an int and a float per edge.
+            long position = HEADER + (long) (tileCount + 1) * (Long.BYTES + Integer.BYTES);
+            for (int t = 0; t <= tileCount; t += 1) {
+                output.writeLong(position);
+                if (t < tileCount) {
+                    int first = t * tileSize, last = Math.min(first + tileSize, size);
+                    position += 3L * Integer.BYTES * (last - first)
+                            + (long) (Integer.BYTES + Float.BYTES) * (source.firstEdge(last) - source.firstEdge(first));
+                }
+            }
+            for (int t = 0; t <= tileCount; t += 1) {
+                output.writeInt(source.firstEdge(Math.min(t * tileSize, size)));
+            }
+            for (int t = 0; t < tileCount; t += 1) {
+                int first = t * tileSize, last = Math.min(first + tileSize, size);
+                for (int v = first; v < last; v += 1) {
+                    output.writeInt(CompactGraphStorage.encodeLat(source.lat(v)));
+                }
+                for (int v = first; v < last; v += 1) {
+                    output.writeInt(CompactGraphStorage.encodeLon(source.lon(v)));
+                }
+                for (int v = first; v < last; v += 1) {
+                    output.writeInt(source.firstEdge(v));
+                }
+                for (int edge = source.firstEdge(first); edge < source.firstEdge(last); edge += 1) {
+                    output.writeInt(source.target(edge));
+                }
+                for (int edge = source.firstEdge(first); edge < source.firstEdge(last); edge += 1) {
+                    output.writeFloat(CompactGraphStorage.encodeWeight(source.weight(edge)));
+                }
+            }
+            // The place table is written as raw bytes because it is mapped in native byte order.
+            byte[] bytes = new byte[table.remaining()];
+            table.get(bytes);
+            output.write(bytes);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the named places stored in the file.
+     *
+     * @return the mapped table of named places.
+     */
+    public PlaceTable places() {
+        return places;
+    }
+
+    /**
+     * Returns the number of times a tile has been read from the file.
+     *
+     * @return the number of times a tile has been read from the file.
+     */
+    public long loads() {
+        return loads.get();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double lat(int vertex) {
+        return CompactGraphStorage.decodeCoordinate(tile(vertex / tileSize).lats[vertex % tileSize]);
+    }
+
+    @Override
+    public double lon(int vertex) {
+        return CompactGraphStorage.decodeCoordinate(tile(vertex / tileSize).lons[vertex % tileSize]);
+    }
+
+    @Override
+    public int firstEdge(int vertex) {
+        if (vertex % tileSize == 0 || vertex == size) {
+            // The first edge of each tile is in the directory, so the next tile need not be loaded.
+            return tileEdges[(vertex + tileSize - 1) / tileSize];
+        }
+        return tile(vertex / tileSize).offsets[vertex % tileSize];
+    }
+
+    @Override
+    public int target(int edge) {
+        int t = tileOf(edge);
+        return tile(t).targets[edge - tileEdges[t]];
+    }
+
+    @Override
+    public double weight(int edge) {
+        int t = tileOf(edge);
+        return tile(t).weights[edge - tileEdges[t]];
+    }
+
+    /**
+     * Returns the number of the tile containing the edge, which is the last tile whose first edge is at most the edge.
+     *
+     * @param edge the edge number.
+     * @return the number of the tile containing the edge.
+     * @throws IndexOutOfBoundsException if the edge number is out of range.
+     */
+    private int tileOf(int edge) {
+        if (edge < 0 || edge >= edges) {
+            throw new IndexOutOfBoundsException("Edge " + edge + " out of range");
+        }
+        int lo = 0, hi = tileEdges.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (tileEdges[mid] <= edge) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the tile, reading it from the file if it is not in memory.
+     *
+     * @param t the tile number.
+     * @return the tile.
+     * @throws IndexOutOfBoundsException if the tile number is out of range.
+     * @throws UncheckedIOException if the tile cannot be read.
+     */
+    private Tile tile(int t) {
+        if (t < 0 || t >= positions.length - 1) {
+            throw new IndexOutOfBoundsException("Tile " + t + " out of range");
+        }
+        Tile result = tiles.get(t);
+        if (result == null) {
+            // Concurrent readers may both load a missing tile, but the loads are independent and identical.
+            result = admit(t, load(t));
+        }
+        result.referenced = true;
+        return result;
+    }
+
+    /**
+     * Adds the newly-loaded tile to the tiles in memory, evicting a tile that has not been used since the clock hand
+     * last passed it if the table is full. Tiles passed over by the hand are marked as unused.
+     *
+     * @param t    the tile number.
+     * @param tile the newly-loaded tile.
+     * @return the tile in memory, which is an identical tile if another reader admitted the tile first.
+     */
+    private Tile admit(int t, Tile tile) {
+        synchronized (clock) {
+            Tile current = tiles.get(t);
+            if (current != null) {
+                return current;
+            }
+            // After a full turn every tile has been marked as unused, so the tile at the hand is evicted regardless.
+            for (int step = 0; step < clock.length && clock[hand] >= 0; step += 1) {
+                Tile candidate = tiles.get(clock[hand]);
+                if (!candidate.referenced) {
+                    break;
+                }
+                candidate.referenced = false;
+                hand = (hand + 1) % clock.length;
+            }
+            if (clock[hand] >= 0) {
+                tiles.set(clock[hand], null);
+            }
+            clock[hand] = t;
+            hand = (hand + 1) % clock.length;
+            tiles.set(t, tile);
+            return tile;
+        }
+    }
+
+    /**
+     * Reads the tile from the file.
+     *
+     * @param t the tile number.
+     * @return the tile.
+     * @throws UncheckedIOException if the tile cannot be read.
+     */
+    private Tile load(int t) {
+        int count = Math.min(tileSize, size - t * tileSize);
+        int tileEdgeCount = tileEdges[t + 1] - tileEdges[t];
+        ByteBuffer buffer;
+        try {
+            buffer = read(channel, positions[t], (int) (positions[t + 1] - positions[t]));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buffer == null) {
+            throw new UncheckedIOException(new IOException("Tile " + t + " is truncated"));
+        }
+        loads.incrementAndGet();
+        Tile tile = new Tile(count, tileEdgeCount);
+        buffer.asIntBuffer().get(tile.lats).get(tile.lons).get(tile.offsets).get(tile.targets);
+        buffer.position(Integer.BYTES * (3 * count + tileEdgeCount));
+        buffer.asFloatBuffer().get(tile.weights);
+        return tile;
+    }
+
+    /**
+     * Reads the bytes at the position in the file.
+     *
+     * @param channel  the channel for the file.
+     * @param position the position in bytes.
+     * @param length   the number of bytes.
+     * @return a buffer of the bytes ready for reading, or null if the file ends before all the bytes are read.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Vertices and outgoing edges of one tile in the same encoding as {@link CompactGraphStorage}.
+     */
+    private static class Tile {
+        /**
+         * The fixed-point latitude, longitude, and number of the first outgoing edge of each vertex in the tile.
+         */
+        final int[] lats, lons, offsets;
+        /**
+         * The destination vertex of each edge in the tile.
+         */
+        final int[] targets;
+        /**
+         * The weight of each edge in the tile, rounded up.
+         */
+        final float[] weights;
+        /**
+         * Whether the tile has been used since the clock hand last passed it. Readers set it without synchronization,
+         * since a lost update only changes which tile is evicted.
+         */
+        boolean referenced;
+
+        Tile(int count, int edges) {
+            lats = new int[count];
+            lons = new int[count];
+            offsets = new int[count];
+            targets = new int[edges];
+            weights = new float[edges];
+        }
+    }
+}
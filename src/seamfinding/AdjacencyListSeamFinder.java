@@ -1,7 +1,9 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeConsumer;
 import graphs.Graph;
+import graphs.shortestpaths.IntShortestPathSolver;
 import graphs.shortestpaths.ShortestPathSolver;
 import seamfinding.energy.EnergyFunction;
 
@@ -21,6 +23,10 @@ public class AdjacencyListSeamFinder implements SeamFinder {
      * The constructor for the {@link ShortestPathSolver} implementation.
      */
     private final ShortestPathSolver.Constructor<Node> sps;
+    /**
+     * The constructor for the {@link IntShortestPathSolver} implementation, or null if using {@link #sps}.
+     */
+    private final IntShortestPathSolver.Constructor intSps;
 
     /**
      * Constructs an instance with the given {@link ShortestPathSolver} implementation.
@@ -28,11 +34,47 @@ public class AdjacencyListSeamFinder implements SeamFinder {
      * @param sps the {@link ShortestPathSolver} implementation.
      */
     public AdjacencyListSeamFinder(ShortestPathSolver.Constructor<Node> sps) {
+        this(sps, null);
+    }
+
+    /**
+     * Constructs an instance with exactly one of the given solver implementations.
+     *
+     * @param sps    the {@link ShortestPathSolver} implementation, or null.
+     * @param intSps the {@link IntShortestPathSolver} implementation, or null.
+     */
+    private AdjacencyListSeamFinder(ShortestPathSolver.Constructor<Node> sps,
+                                    IntShortestPathSolver.Constructor intSps) {
         this.sps = sps;
+        this.intSps = intSps;
+    }
+
+    /**
+     * Returns an instance with the given {@link IntShortestPathSolver} implementation, which searches a graph of
+     * numbered pixels without creating objects for pixels or edges. This is a factory method rather than a
+     * constructor so that references such as {@code DijkstraSolver::new} still resolve to a single constructor.
+     *
+     * @param sps the {@link IntShortestPathSolver} implementation.
+     * @return an instance using the given {@link IntShortestPathSolver} implementation.
+     */
+    public static AdjacencyListSeamFinder withIntSolver(IntShortestPathSolver.Constructor sps) {
+        return new AdjacencyListSeamFinder(null, sps);
     }
 
     @Override
     public List<Integer> findHorizontal(Picture picture, EnergyFunction f) {
+        if (intSps != null) {
+            // Materialize the energy of every pixel so that each is computed only once.
+            int width = picture.width();
+            int height = picture.height();
+            double[] energies = new double[width * height];
+            for (int x = 0; x < width; x += 1) {
+                for (int y = 0; y < height; y += 1) {
+                    energies[x * height + y] = f.apply(picture, x, y);
+                }
+            }
+            return new IntPixelGraph(width, height, (x, y) -> energies[x * height + y]).findHorizontal(intSps);
+        }
         PixelGraph graph = new PixelGraph(picture, f);
         List<Node> seam = sps.run(graph, graph.source).solution(graph.sink);
         seam = seam.subList(1, seam.size() - 1); // Skip the source and sink nodes
@@ -77,6 +119,13 @@ public class AdjacencyListSeamFinder implements SeamFinder {
                 }
                 return result;
             }
+
+            @Override
+            public void forEachNeighbor(Picture picture, EnergyFunction f, EdgeConsumer<Node> action) {
+                for (int j = 0; j < picture.height(); j += 1) {
+                    action.accept(pixels[0][j], f.apply(picture, 0, j));
+                }
+            }
         };
         /**
          * Sink {@link Node} for the adjacency list graph.
@@ -127,6 +176,11 @@ public class AdjacencyListSeamFinder implements SeamFinder {
             return node.neighbors(picture, f);
         }
 
+        @Override
+        public void forEachNeighbor(Node node, EdgeConsumer<Node> action) {
+            node.forEachNeighbor(picture, f, action);
+        }
+
         /**
          * A pixel in the {@link PixelGraph} representation of the {@link Picture} with {@link EnergyFunction}-weighted
          * edges to neighbors.
@@ -1,7 +1,9 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeConsumer;
 import graphs.Graph;
+import graphs.shortestpaths.IntShortestPathSolver;
 import graphs.shortestpaths.ShortestPathSolver;
 import seamfinding.energy.EnergyFunction;
 
@@ -22,6 +24,10 @@ public class GenerativeSeamFinder implements SeamFinder {
      * The constructor for the {@link ShortestPathSolver} implementation.
      */
     private final ShortestPathSolver.Constructor<Node> sps;
+    /**
+     * The constructor for the {@link IntShortestPathSolver} implementation, or null if using {@link #sps}.
+     */
+    private final IntShortestPathSolver.Constructor intSps;
 
     /**
      * Constructs an instance with the given {@link ShortestPathSolver} implementation.
@@ -29,11 +35,39 @@ public class GenerativeSeamFinder implements SeamFinder {
      * @param sps the {@link ShortestPathSolver} implementation.
      */
     public GenerativeSeamFinder(ShortestPathSolver.Constructor<Node> sps) {
+        this(sps, null);
+    }
+
+    /**
+     * Constructs an instance with exactly one of the given solver implementations.
+     *
+     * @param sps    the {@link ShortestPathSolver} implementation, or null.
+     * @param intSps the {@link IntShortestPathSolver} implementation, or null.
+     */
+    private GenerativeSeamFinder(ShortestPathSolver.Constructor<Node> sps, IntShortestPathSolver.Constructor intSps) {
         this.sps = sps;
+        this.intSps = intSps;
+    }
+
+    /**
+     * Returns an instance with the given {@link IntShortestPathSolver} implementation, which searches a graph of
+     * numbered pixels without creating objects for pixels or edges. This is a factory method rather than a
+     * constructor so that references such as {@code DijkstraSolver::new} still resolve to a single constructor.
+     *
+     * @param sps the {@link IntShortestPathSolver} implementation.
+     * @return an instance using the given {@link IntShortestPathSolver} implementation.
+     */
+    public static GenerativeSeamFinder withIntSolver(IntShortestPathSolver.Constructor sps) {
+        return new GenerativeSeamFinder(null, sps);
     }
 
     @Override
     public List<Integer> findHorizontal(Picture picture, EnergyFunction f) {
+        if (intSps != null) {
+            // Compute the energy of each pixel as needed.
+            return new IntPixelGraph(picture.width(), picture.height(), (x, y) -> f.apply(picture, x, y))
+                    .findHorizontal(intSps);
+        }
         PixelGraph graph = new PixelGraph(picture, f);
         List<Node> seam = sps.run(graph, graph.source).solution(graph.sink);
         seam = seam.subList(1, seam.size() - 1); // Skip the source and sink nodes
@@ -77,6 +111,13 @@ public class GenerativeSeamFinder implements SeamFinder {
 
                 return result;
             }
+
+            @Override
+            public void forEachNeighbor(Picture picture, EnergyFunction f, EdgeConsumer<Node> action) {
+                for (int j = 0; j < picture.height(); j++) {
+                    action.accept(new Pixel(0, j), f.apply(picture, 0, j));
+                }
+            }
         };
         /**
          * Sink {@link Node} for the adjacency list graph.
@@ -105,6 +146,11 @@ public class GenerativeSeamFinder implements SeamFinder {
             return node.neighbors(picture, f);
         }
 
+        @Override
+        public void forEachNeighbor(Node node, EdgeConsumer<Node> action) {
+            node.forEachNeighbor(picture, f, action);
+        }
+
         /**
          * A pixel in the {@link PixelGraph} representation of the {@link Picture} with {@link EnergyFunction}-weighted
          * edges to neighbors.
@@ -146,6 +192,20 @@ public class GenerativeSeamFinder implements SeamFinder {
                 return result;
             }
 
+            @Override
+            public void forEachNeighbor(Picture picture, EnergyFunction f, EdgeConsumer<Node> action) {
+                if (this.x == picture.width() - 1) {
+                    action.accept(sink, 0);
+                    return;
+                }
+
+                for (int newY = y - 1; newY <= y + 1; newY++) {
+                    if (newY >= 0 && newY < picture.height()) {
+                        action.accept(new Pixel(x + 1, newY), f.apply(picture, x + 1, newY));
+                    }
+                }
+            }
+
             @Override
             public String toString() {
                 return "(" + x + ", " + y + ")";
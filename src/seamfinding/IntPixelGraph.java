@@ -0,0 +1,142 @@
+package seamfinding;
+
+import graphs.IntGraph;
+import graphs.shortestpaths.IntShortestPathSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Graph of numbered pixel vertices and energy-weighted edges shared by the seam finders. Vertex 0 is the source, the
+ * pixel (<i>x</i>, <i>y</i>) is vertex 1 + <i>x</i> * height + <i>y</i>, and the sink follows the last pixel. Edges are
+ * implied by the numbering, and each seam finder decides how the energy of a pixel is looked up.
+ *
+ * @see AdjacencyListSeamFinder
+ * @see GenerativeSeamFinder
+ */
+class IntPixelGraph implements IntGraph {
+    /**
+     * The source vertex.
+     */
+    private static final int SOURCE = 0;
+    /**
+     * The width of the picture.
+     */
+    private final int width;
+    /**
+     * The height of the picture.
+     */
+    private final int height;
+    /**
+     * The lookup for the energy of each pixel.
+     */
+    private final Energy energy;
+
+    /**
+     * Constructs a graph of the pixels in a picture of the given size.
+     *
+     * @param width  the width of the picture.
+     * @param height the height of the picture.
+     * @param energy the lookup for the energy of each pixel.
+     */
+    IntPixelGraph(int width, int height, Energy energy) {
+        this.width = width;
+        this.height = height;
+        this.energy = energy;
+    }
+
+    /**
+     * Returns the vertical indices of the pixels of the least-energy horizontal seam found by the solver.
+     *
+     * @param sps the {@link IntShortestPathSolver} implementation.
+     * @return the vertical index of the seam pixel in each column of the picture.
+     */
+    List<Integer> findHorizontal(IntShortestPathSolver.Constructor sps) {
+        int[] seam = sps.run(this, SOURCE).solution(sink());
+        List<Integer> result = new ArrayList<>(seam.length - 2);
+        // Skip the source and sink vertices
+        for (int i = 1; i < seam.length - 1; i += 1) {
+            result.add(y(seam[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sink vertex.
+     *
+     * @return the sink vertex.
+     */
+    private int sink() {
+        return 1 + width * height;
+    }
+
+    /**
+     * Returns the vertical index of the pixel vertex.
+     *
+     * @param vertex the pixel vertex.
+     * @return the vertical index of the pixel in the picture.
+     */
+    private int y(int vertex) {
+        return (vertex - 1) % height;
+    }
+
+    @Override
+    public int size() {
+        return 2 + width * height;
+    }
+
+    @Override
+    public int degree(int vertex) {
+        if (vertex == SOURCE) {
+            return height;
+        } else if (vertex == sink()) {
+            return 0; // Sink has no neighbors
+        }
+        int x = (vertex - 1) / height;
+        int y = y(vertex);
+        if (x == width - 1) {
+            return 1; // Rightmost pixels have only a single edge to the sink
+        }
+        return Math.min(y + 1, height - 1) - Math.max(y - 1, 0) + 1;
+    }
+
+    @Override
+    public int target(int vertex, int edge) {
+        if (vertex == SOURCE) {
+            return 1 + edge;
+        }
+        int x = (vertex - 1) / height;
+        if (x == width - 1) {
+            return sink();
+        }
+        // The right-up, right-middle, and right-down neighbors that are in the bounds of the picture.
+        return 1 + (x + 1) * height + Math.max(y(vertex) - 1, 0) + edge;
+    }
+
+    @Override
+    public double weight(int vertex, int edge) {
+        if (vertex == SOURCE) {
+            return energy.apply(0, edge);
+        }
+        int x = (vertex - 1) / height;
+        if (x == width - 1) {
+            return 0;
+        }
+        return energy.apply(x + 1, Math.max(y(vertex) - 1, 0) + edge);
+    }
+
+    /**
+     * Lookup for the energy of a pixel, either precomputed or computed as needed.
+     */
+    @FunctionalInterface
+    interface Energy {
+        /**
+         * Returns the energy of the pixel.
+         *
+         * @param x horizontal index into the picture.
+         * @param y vertical index into the picture.
+         * @return the energy of the pixel.
+         */
+        double apply(int x, int y);
+    }
+}
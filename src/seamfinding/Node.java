@@ -1,6 +1,7 @@
 package seamfinding;
 
 import graphs.Edge;
+import graphs.EdgeConsumer;
 import seamfinding.energy.EnergyFunction;
 
 import java.util.List;
@@ -21,4 +22,18 @@ public interface Node {
      * @return the {@link List} of right-up, right-middle, and right-down neighbors (if they exist) for this node.
      */
     List<Edge<Node>> neighbors(Picture picture, EnergyFunction f);
+
+    /**
+     * Visits the right-up, right-middle, and right-down neighbors (if they exist) for this node in the same order as
+     * {@link #neighbors(Picture, EnergyFunction)}, without creating a {@link List} or any {@link Edge}s if overridden.
+     *
+     * @param picture the input picture.
+     * @param f       the input energy function.
+     * @param action  the callback for each outgoing edge.
+     */
+    default void forEachNeighbor(Picture picture, EnergyFunction f, EdgeConsumer<Node> action) {
+        for (Edge<Node> e : neighbors(picture, f)) {
+            action.accept(e.to, e.weight);
+        }
+    }
 }
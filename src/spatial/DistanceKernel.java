@@ -0,0 +1,21 @@
+package spatial;
+
+/**
+ * Function for measuring the great-circle distance between two latitude and longitude points in degrees of arc, the
+ * same unit as {@link org.locationtech.spatial4j.context.SpatialContext#calcDistance}.
+ *
+ * @see HaversineKernel
+ * @see EquirectangularKernel
+ */
+public interface DistanceKernel {
+    /**
+     * Returns the distance between the two points in degrees of arc.
+     *
+     * @param lat1 the latitude of the first point.
+     * @param lon1 the longitude of the first point.
+     * @param lat2 the latitude of the second point.
+     * @param lon2 the longitude of the second point.
+     * @return the distance between the two points in degrees of arc.
+     */
+    double distance(double lat1, double lon1, double lat2, double lon2);
+}
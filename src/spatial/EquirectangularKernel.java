@@ -0,0 +1,82 @@
+package spatial;
+
+/**
+ * Fast {@link DistanceKernel} for a city-scale region that never overestimates the great-circle distance, so it is an
+ * admissible heuristic for A* search. Points inside the region are projected onto a plane by scaling longitudes by a
+ * precomputed cosine, so each distance is a single square root with no trigonometry. Distances involving a point
+ * outside the region fall back to an exact {@link HaversineKernel}.
+ * <p>
+ * The haversine formula gives sin<sup>2</sup>(d/2) = sin<sup>2</sup>(&Delta;&phi;/2) + cos &phi;<sub>1</sub> cos
+ * &phi;<sub>2</sub> sin<sup>2</sup>(&Delta;&lambda;/2). Inside the region, both cosines are at least c, the smallest
+ * cosine of any latitude in the region. Every half-difference is at most X, half the larger side of the region in
+ * radians, and sin t &ge; k t on [0, X] for k = sin(X) / X because sine is concave there. Since d/2 &ge; sin(d/2), it
+ * follows that d &ge; k &radic;(&Delta;&phi;<sup>2</sup> + c<sup>2</sup> &Delta;&lambda;<sup>2</sup>), which is the
+ * distance this kernel returns, less a small margin for rounding error.
+ *
+ * @see DistanceKernel
+ */
+public class EquirectangularKernel implements DistanceKernel {
+    /**
+     * Relative margin subtracted from each distance so that rounding error cannot cause an overestimate. The haversine
+     * formula loses precision when subtracting nearby coordinates, up to about 1e-7 relative error for points 1e-7
+     * degrees apart, which is the precision of OpenStreetMap coordinates.
+     */
+    private static final double ROUNDING_MARGIN = 1e-6;
+    /**
+     * Bounds of the region in degrees.
+     */
+    private final double minLat, maxLat, minLon, maxLon;
+    /**
+     * Cosine of the latitude in the region farthest from the equator, for scaling longitudes.
+     */
+    private final double cosLat;
+    /**
+     * Factor for the curvature of the sphere across the region, including the rounding margin.
+     */
+    private final double scale;
+    /**
+     * Exact kernel for points outside the region.
+     */
+    private final DistanceKernel fallback = new HaversineKernel();
+
+    /**
+     * Constructs a kernel for the region between the given bounds, which must span less than 180 degrees of longitude.
+     *
+     * @param minLat the minimum latitude of the region.
+     * @param maxLat the maximum latitude of the region.
+     * @param minLon the minimum longitude of the region.
+     * @param maxLon the maximum longitude of the region.
+     * @throws IllegalArgumentException if the bounds are empty or outside of the valid ranges.
+     */
+    public EquirectangularKernel(double minLat, double maxLat, double minLon, double maxLon) {
+        if (!(-90 <= minLat && minLat <= maxLat && maxLat <= 90 && minLon <= maxLon && maxLon - minLon < 180)) {
+            throw new IllegalArgumentException("Invalid region bounds");
+        }
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+        cosLat = Math.min(Math.cos(Math.toRadians(minLat)), Math.cos(Math.toRadians(maxLat)));
+        double x = Math.toRadians(Math.max(maxLat - minLat, maxLon - minLon)) / 2;
+        scale = (x == 0 ? 1 : Math.sin(x) / x) * (1 - ROUNDING_MARGIN);
+    }
+
+    @Override
+    public double distance(double lat1, double lon1, double lat2, double lon2) {
+        if (contains(lat1, lon1) && contains(lat2, lon2)) {
+            return scale * Math.sqrt((lat2 - lat1) * (lat2 - lat1) + (lon2 - lon1) * (lon2 - lon1) * cosLat * cosLat);
+        }
+        return fallback.distance(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Returns true if and only if the point is inside the region.
+     *
+     * @param lat the latitude of the point.
+     * @param lon the longitude of the point.
+     * @return true if and only if the point is inside the region.
+     */
+    private boolean contains(double lat, double lon) {
+        return minLat <= lat && lat <= maxLat && minLon <= lon && lon <= maxLon;
+    }
+}
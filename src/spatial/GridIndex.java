@@ -0,0 +1,370 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * Static uniform grid spatial index over latitude and longitude points. Points are projected onto a plane by scaling
+ * longitudes by the cosine of the central latitude, which is accurate for city-scale regions. Each point is assigned
+ * to one square grid cell, and the numbers of the points are stored in a primitive array sorted by cell so that all the
+ * points in a cell are contiguous. The coordinates themselves are read in place from the {@link Points}. Radius,
+ * nearest, and k-nearest queries only search the cells around the target, so they take constant expected time for
+ * evenly-spread points.
+ */
+public class GridIndex {
+    /**
+     * Average number of points per grid cell.
+     */
+    private static final int POINTS_PER_CELL = 2;
+    /**
+     * Relative margin subtracted from lower bounds so that rounding error cannot cause an overestimate.
+     */
+    private static final double ROUNDING_MARGIN = 1e-6;
+    /**
+     * Cosine of the central latitude for scaling longitudes.
+     */
+    private final double cosLat;
+    /**
+     * Side length of each grid cell in projected degrees.
+     */
+    private final double cellSize;
+    /**
+     * Projected coordinates of the lower-left corner of the grid.
+     */
+    private final double minX, minY;
+    /**
+     * Number of columns and rows in the grid.
+     */
+    private final int cols, rows;
+    /**
+     * Index into {@link #ids} of the first point in each cell, plus one final entry for the total number of points.
+     */
+    private final int[] cellStart;
+    /**
+     * Original index of each point, sorted by cell.
+     */
+    private final int[] ids;
+    /**
+     * The coordinates of the points.
+     */
+    private final Points points;
+    /**
+     * Bounds of the points in degrees.
+     */
+    private final double minLat, maxLat, minLon, maxLon;
+
+    /**
+     * Constructs a grid index over the given points, identified by their index in the arrays.
+     *
+     * @param lats the latitude of each point.
+     * @param lons the longitude of each point.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public GridIndex(double[] lats, double[] lons) {
+        this(Points.of(lats, lons));
+    }
+
+    /**
+     * Constructs a grid index over the given points, identified by their number. The coordinates are read in place
+     * whenever the index is searched, so they must not change.
+     *
+     * @param points the coordinates of the points.
+     */
+    public GridIndex(Points points) {
+        this.points = points;
+        int n = points.size();
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i += 1) {
+            minLat = Math.min(minLat, points.lat(i));
+            maxLat = Math.max(maxLat, points.lat(i));
+        }
+        cosLat = n == 0 ? 1.0 : Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i += 1) {
+            double lon = points.lon(i);
+            minX = Math.min(minX, lon * cosLat);
+            maxX = Math.max(maxX, lon * cosLat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+        this.minX = n == 0 ? 0.0 : minX;
+        this.minY = n == 0 ? 0.0 : minLat;
+        double width = n == 0 ? 0.0 : maxX - minX;
+        double height = n == 0 ? 0.0 : maxLat - minLat;
+        // Choose the cell size so that each cell holds a few points on average.
+        double size = Math.sqrt(width * height * POINTS_PER_CELL / Math.max(n, 1));
+        if (!(size > 0)) {
+            size = Math.max(Math.max(width, height), 1e-6);
+        }
+        cellSize = size;
+        cols = (int) (width / cellSize) + 1;
+        rows = (int) (height / cellSize) + 1;
+
+        int[] cellOf = new int[n];
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < n; i += 1) {
+            cellOf[i] = cell(col(points.lon(i) * cosLat), row(points.lat(i)));
+            cellStart[cellOf[i] + 1] += 1;
+        }
+        for (int c = 0; c < cols * rows; c += 1) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cols * rows);
+        ids = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            ids[next[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Returns the indices of all points within the radius of the target, nearest first.
+     *
+     * @param lat    the latitude of the target.
+     * @param lon    the longitude of the target.
+     * @param radius the radius in degrees of arc.
+     * @return the indices of all points within the radius of the target, nearest first.
+     */
+    public int[] withinRadius(double lat, double lon, double radius) {
+        double x = lon * cosLat;
+        int minCol = Math.max(col(x - radius), 0), maxCol = Math.min(col(x + radius), cols - 1);
+        int minRow = Math.max(row(lat - radius), 0), maxRow = Math.min(row(lat + radius), rows - 1);
+        int count = 0;
+        int[] found = new int[16];
+        double[] dists = new double[16];
+        for (int r = minRow; r <= maxRow; r += 1) {
+            for (int c = minCol; c <= maxCol; c += 1) {
+                int cell = cell(c, r);
+                for (int j = cellStart[cell]; j < cellStart[cell + 1]; j += 1) {
+                    double dist = distance(j, x, lat);
+                    if (dist <= radius) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                            dists = Arrays.copyOf(dists, count * 2);
+                        }
+                        found[count] = j;
+                        dists[count] = dist;
+                        count += 1;
+                    }
+                }
+            }
+        }
+        return sortedIds(found, dists, count);
+    }
+
+    /**
+     * Returns the index of the point nearest to the target, or -1 if this index is empty.
+     *
+     * @param lat the latitude of the target.
+     * @param lon the longitude of the target.
+     * @return the index of the point nearest to the target, or -1 if this index is empty.
+     */
+    public int nearest(double lat, double lon) {
+        int[] result = kNearest(lat, lon, 1);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /**
+     * Returns the indices of the k points nearest to the target, nearest first. Cells are searched in rings of
+     * increasing size around the cell of the target until no unsearched cell can contain a nearer point.
+     *
+     * @param lat the latitude of the target.
+     * @param lon the longitude of the target.
+     * @param k   the maximum number of points to return.
+     * @return the indices of the k points nearest to the target, or every point if there are fewer than k.
+     */
+    public int[] kNearest(double lat, double lon, int k) {
+        return kNearest(lat, lon, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns the indices of up to k points within the radius of the target, nearest first. Unlike
+     * {@link #withinRadius(double, double, double)}, only the rings of cells needed to find the k nearest points are
+     * searched, so dense regions with many points inside the radius take time proportional to k rather than to the
+     * number of points inside the radius.
+     *
+     * @param lat    the latitude of the target.
+     * @param lon    the longitude of the target.
+     * @param k      the maximum number of points to return.
+     * @param radius the radius in degrees of arc.
+     * @return the indices of up to k points within the radius of the target, nearest first.
+     */
+    public int[] kNearest(double lat, double lon, int k, double radius) {
+        k = Math.min(k, ids.length);
+        if (k <= 0) {
+            return new int[0];
+        }
+        double x = lon * cosLat;
+        int c0 = Math.min(Math.max(col(x), 0), cols - 1);
+        int r0 = Math.min(Math.max(row(lat), 0), rows - 1);
+        int count = 0;
+        int[] found = new int[k];
+        double[] dists = new double[k];
+        for (int ring = 0; ; ring += 1) {
+            for (int r = r0 - ring; r <= r0 + ring; r += 1) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Rows on the edge of the ring span every column, while the other rows only have two cells.
+                int step = r == r0 - ring || r == r0 + ring ? 1 : Math.max(2 * ring, 1);
+                for (int c = c0 - ring; c <= c0 + ring; c += step) {
+                    if (c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int cell = cell(c, r);
+                    for (int j = cellStart[cell]; j < cellStart[cell + 1]; j += 1) {
+                        double dist = distance(j, x, lat);
+                        if (dist > radius) {
+                            continue;
+                        } else if (count < k) {
+                            count += 1;
+                        } else if (dist >= dists[k - 1]) {
+                            continue;
+                        }
+                        // Insertion sort the point into the k nearest so far.
+                        int i = count - 1;
+                        for (; i > 0 && dists[i - 1] > dist; i -= 1) {
+                            found[i] = found[i - 1];
+                            dists[i] = dists[i - 1];
+                        }
+                        found[i] = j;
+                        dists[i] = dist;
+                    }
+                }
+            }
+            boolean covered = c0 - ring <= 0 && c0 + ring >= cols - 1 && r0 - ring <= 0 && r0 + ring >= rows - 1;
+            double clearance = clearance(x, lat, c0, r0, ring);
+            if (covered || count == k && dists[k - 1] <= clearance || radius < clearance) {
+                break;
+            }
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i += 1) {
+            result[i] = ids[found[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lower bound on the great-circle distance in degrees of arc from the target to every point in this index
+     * that is at least as far from the target as the given point in the flat projection of this index. Once the exact
+     * distance to the nearest of the k points returned by {@link #kNearest(double, double, int)} is at most this bound
+     * for the k-th point, no other point can be nearer by exact distance.
+     * <p>
+     * The bound follows the argument of {@link EquirectangularKernel} over the region spanning both the target and the
+     * points of this index: with c the smallest cosine of any latitude in the region and s = sin(X) / X for X half the
+     * larger side of the region, the great-circle distance is at least s &radic;(&Delta;&phi;<sup>2</sup> +
+     * c<sup>2</sup> &Delta;&lambda;<sup>2</sup>). That is at least s c / cos &phi;<sub>0</sub> times the projected
+     * distance for the central latitude &phi;<sub>0</sub> of this index.
+     *
+     * @param lat      the latitude of the target.
+     * @param lon      the longitude of the target.
+     * @param pointLat the latitude of the given point.
+     * @param pointLon the longitude of the given point.
+     * @return a lower bound on the great-circle distance to every point at least as far as the given point, which is
+     * zero if the region is too large for the bound to hold.
+     */
+    public double lowerBound(double lat, double lon, double pointLat, double pointLon) {
+        if (ids.length == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double south = Math.min(minLat, lat), north = Math.max(maxLat, lat);
+        double west = Math.min(minLon, lon), east = Math.max(maxLon, lon);
+        double c = Math.min(Math.cos(Math.toRadians(south)), Math.cos(Math.toRadians(north)));
+        double x = Math.toRadians(Math.max(north - south, east - west)) / 2;
+        if (!(c > 0) || x >= Math.PI / 2) {
+            return 0.0;
+        }
+        double scale = (x == 0 ? 1 : Math.sin(x) / x) * Math.min(1, c / cosLat) * (1 - ROUNDING_MARGIN);
+        return scale * Math.hypot((pointLon - lon) * cosLat, pointLat - lat);
+    }
+
+    /**
+     * Returns the bounds of the points in this index.
+     *
+     * @return the minimum longitude, minimum latitude, maximum longitude, and maximum latitude of the points, or an
+     * empty array if this index is empty.
+     */
+    public double[] bounds() {
+        if (ids.length == 0) {
+            return new double[0];
+        }
+        return new double[]{minLon, minLat, maxLon, maxLat};
+    }
+
+    /**
+     * Returns the number of points in this index.
+     *
+     * @return the number of points in this index.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the original indices of the given sorted-order positions, nearest first.
+     *
+     * @param found the sorted-order positions of the points found.
+     * @param dists the distance to each point found.
+     * @param count the number of points found.
+     * @return the original indices of the points found, nearest first.
+     */
+    private int[] sortedIds(int[] found, double[] dists, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(dists[a], dists[b]));
+        int[] result = new int[count];
+        for (int i = 0; i < count; i += 1) {
+            result[i] = ids[found[order[i]]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the projected distance from the target to the point at the given sorted-order position.
+     *
+     * @param j the sorted-order position of the point.
+     * @param x the projected longitude of the target.
+     * @param y the latitude of the target.
+     * @return the projected distance from the target to the point.
+     */
+    private double distance(int j, double x, double y) {
+        int i = ids[j];
+        return Math.hypot(points.lon(i) * cosLat - x, points.lat(i) - y);
+    }
+
+    /**
+     * Returns a lower bound on the distance from the target to any point outside the given ring of cells.
+     *
+     * @param x    the projected longitude of the target.
+     * @param y    the latitude of the target.
+     * @param c0   the column at the center of the ring.
+     * @param r0   the row at the center of the ring.
+     * @param ring the number of cells from the center to the edge of the ring.
+     * @return the distance from the target to the outside of the ring, or 0 if the target is outside of the ring.
+     */
+    private double clearance(double x, double y, int c0, int r0, int ring) {
+        double left = x - (minX + (c0 - ring) * cellSize);
+        double right = minX + (c0 + ring + 1) * cellSize - x;
+        double bottom = y - (minY + (r0 - ring) * cellSize);
+        double top = minY + (r0 + ring + 1) * cellSize - y;
+        return Math.max(Math.min(Math.min(left, right), Math.min(bottom, top)), 0);
+    }
+
+    private int col(double x) {
+        return (int) Math.floor((x - minX) / cellSize);
+    }
+
+    private int row(double y) {
+        return (int) Math.floor((y - minY) / cellSize);
+    }
+
+    private int cell(int col, int row) {
+        return row * cols + col;
+    }
+}
@@ -0,0 +1,23 @@
+package spatial;
+
+/**
+ * Exact {@link DistanceKernel} using the haversine formula on a sphere. This is the same computation as the default
+ * geographic {@link org.locationtech.spatial4j.context.SpatialContext}, step for step so that the results are
+ * identical, but without creating a point for each call.
+ *
+ * @see DistanceKernel
+ */
+public class HaversineKernel implements DistanceKernel {
+    @Override
+    public double distance(double lat1, double lon1, double lat2, double lon2) {
+        if (lat1 == lat2 && lon1 == lon2) {
+            return 0.0;
+        }
+        double phi1 = Math.toRadians(lat1), lambda1 = Math.toRadians(lon1);
+        double phi2 = Math.toRadians(lat2), lambda2 = Math.toRadians(lon2);
+        double sinLon = Math.sin((lambda1 - lambda2) * 0.5);
+        double sinLat = Math.sin((phi1 - phi2) * 0.5);
+        double h = Math.min(sinLat * sinLat + Math.cos(phi1) * Math.cos(phi2) * sinLon * sinLon, 1);
+        return Math.toDegrees(2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h)));
+    }
+}
@@ -0,0 +1,81 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * Hilbert space-filling curve over latitude and longitude. Points that are close along the curve are close in space,
+ * so ordering points along the curve keeps nearby points near each other in memory.
+ */
+public class HilbertCurve {
+    /**
+     * Number of bits per coordinate, so the curve passes through a 2<sup>16</sup> by 2<sup>16</sup> grid.
+     */
+    private static final int BITS = 16;
+
+    /**
+     * Returns the distance along the curve of the given grid cell.
+     *
+     * @param x the column of the cell, between 0 and 2<sup>16</sup> - 1.
+     * @param y the row of the cell, between 0 and 2<sup>16</sup> - 1.
+     * @return the distance along the curve of the cell.
+     */
+    public static long index(int x, int y) {
+        int n = 1 << BITS;
+        long d = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant so that the curve within it has the standard orientation.
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Returns the indices of the given points in order along the curve through their bounding box.
+     *
+     * @param lats the latitude of each point.
+     * @param lons the longitude of each point.
+     * @return an array whose i-th element is the index of the i-th point along the curve.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public static int[] order(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+        int n = lats.length;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i += 1) {
+            minLat = Math.min(minLat, lats[i]);
+            maxLat = Math.max(maxLat, lats[i]);
+            minLon = Math.min(minLon, lons[i]);
+            maxLon = Math.max(maxLon, lons[i]);
+        }
+        double cells = (1 << BITS) - 1;
+        double latScale = maxLat > minLat ? cells / (maxLat - minLat) : 0;
+        double lonScale = maxLon > minLon ? cells / (maxLon - minLon) : 0;
+        // Pack each curve distance with its point index so that a primitive sort orders the points.
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i += 1) {
+            int x = (int) ((lons[i] - minLon) * lonScale);
+            int y = (int) ((lats[i] - minLat) * latScale);
+            keys[i] = index(x, y) << 31 | i;
+        }
+        Arrays.sort(keys);
+        int[] result = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package spatial;
+
+/**
+ * Read-only latitudes and longitudes of points numbered from 0 to {@link #size()} - 1. Spatial indexes read the
+ * coordinates of their points in place rather than copying them, so points held in compact or file-backed storage are
+ * never duplicated on the heap.
+ *
+ * @see GridIndex
+ * @see SegmentRTree
+ */
+public interface Points {
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points.
+     */
+    int size();
+
+    /**
+     * Returns the latitude of the point.
+     *
+     * @param point the point number.
+     * @return the latitude of the point.
+     */
+    double lat(int point);
+
+    /**
+     * Returns the longitude of the point.
+     *
+     * @param point the point number.
+     * @return the longitude of the point.
+     */
+    double lon(int point);
+
+    /**
+     * Returns the points with the given coordinates, numbered by their index in the arrays.
+     *
+     * @param lats the latitude of each point.
+     * @param lons the longitude of each point.
+     * @return the points backed by the arrays.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    static Points of(double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+        return new Points() {
+            @Override
+            public int size() {
+                return lats.length;
+            }
+
+            @Override
+            public double lat(int point) {
+                return lats[point];
+            }
+
+            @Override
+            public double lon(int point) {
+                return lons[point];
+            }
+        };
+    }
+}
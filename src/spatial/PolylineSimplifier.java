@@ -0,0 +1,109 @@
+package spatial;
+
+/**
+ * Simplifies polylines of latitude and longitude points by removing points that lie within a tolerance of the
+ * simplified line, such as route points that would fall on the same pixel of a map image. Points are projected onto a
+ * plane in the same way as {@link GridIndex}, so the tolerance is a distance in degrees of latitude.
+ * <p>
+ * Simplification takes a single linear pass with the sleeve-fitting algorithm of Zhao and Saalfeld (1997). Starting
+ * from the last kept point, the pass maintains the cone of directions whose rays pass within the tolerance of every
+ * point since. The next point can end the current line only if its direction lies within the cone and it is at least
+ * as far from the start as every point since; otherwise, the previous point is kept and becomes the new start. Unlike
+ * the Douglas&ndash;Peucker algorithm, which revisits points once for every level of recursion, each point is visited
+ * once with no trigonometry, so simplifying costs less than encoding the points that it removes.
+ */
+public class PolylineSimplifier {
+    /**
+     * Returns the indices of the points kept in the simplified polyline, in order. The first and last points are
+     * always kept, and every removed point is within the tolerance of the line between the kept points around it.
+     *
+     * @param lats      the latitude of each point of the polyline.
+     * @param lons      the longitude of each point of the polyline.
+     * @param tolerance the maximum distance in degrees of latitude from a removed point to the simplified line.
+     * @return the indices of the kept points, in increasing order.
+     * @throws IllegalArgumentException if the arrays have different lengths or the tolerance is negative.
+     */
+    public static int[] simplify(double[] lats, double[] lons, double tolerance) {
+        int n = lats.length;
+        if (lons.length != n) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance must be non-negative");
+        }
+        if (n <= 2) {
+            int[] result = new int[n];
+            for (int i = 0; i < n; i += 1) {
+                result[i] = i;
+            }
+            return result;
+        }
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (double lat : lats) {
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+        }
+        double cosLat = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        double squared = tolerance * tolerance;
+
+        int[] kept = new int[n];
+        int size = 0;
+        kept[size++] = 0;
+        int start = 0;
+        // The cone of directions from the start lies counterclockwise of (rightX, rightY) and clockwise of
+        // (leftX, leftY), unless it is open because every point since the start is within the tolerance of it.
+        boolean open = true;
+        double leftX = 0, leftY = 0, rightX = 0, rightY = 0;
+        // The greatest squared distance from the start of any point since the start.
+        double farthest = 0;
+        for (int i = 1; i < n; i += 1) {
+            double dx = (lons[i] - lons[start]) * cosLat;
+            double dy = lats[i] - lats[start];
+            double d2 = dx * dx + dy * dy;
+            boolean inCone = open || (cross(rightX, rightY, dx, dy) >= 0 && cross(dx, dy, leftX, leftY) >= 0);
+            if (!inCone || d2 < farthest) {
+                start = i - 1;
+                kept[size++] = start;
+                open = true;
+                farthest = 0;
+                dx = (lons[i] - lons[start]) * cosLat;
+                dy = lats[i] - lats[start];
+                d2 = dx * dx + dy * dy;
+            }
+            if (d2 > squared) {
+                // Rotate the direction to the point by the angle whose sine is the tolerance over the distance, scaling
+                // by the distance so that the only square root is for the cosine.
+                double k = Math.sqrt(d2 - squared);
+                double pointLeftX = k * dx - tolerance * dy, pointLeftY = tolerance * dx + k * dy;
+                double pointRightX = k * dx + tolerance * dy, pointRightY = k * dy - tolerance * dx;
+                if (open || cross(leftX, leftY, pointLeftX, pointLeftY) < 0) {
+                    leftX = pointLeftX;
+                    leftY = pointLeftY;
+                }
+                if (open || cross(rightX, rightY, pointRightX, pointRightY) > 0) {
+                    rightX = pointRightX;
+                    rightY = pointRightY;
+                }
+                open = false;
+                farthest = Math.max(farthest, d2);
+            }
+        }
+        kept[size++] = n - 1;
+        int[] result = new int[size];
+        System.arraycopy(kept, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Returns the cross product of two vectors, which is positive if b is counterclockwise of a.
+     *
+     * @param ax the x component of a.
+     * @param ay the y component of a.
+     * @param bx the x component of b.
+     * @param by the y component of b.
+     * @return the cross product of a and b.
+     */
+    private static double cross(double ax, double ay, double bx, double by) {
+        return ax * by - ay * bx;
+    }
+}
@@ -0,0 +1,304 @@
+package spatial;
+
+import java.util.Arrays;
+
+/**
+ * Static packed R-tree over line segments between latitude and longitude points. Segments are projected onto a plane
+ * in the same way as {@link GridIndex}. The tree is bulk loaded by sorting segments along a {@link HilbertCurve}
+ * through their midpoints and packing consecutive runs into nodes, level by level, so the whole tree is stored in a few
+ * primitive arrays with no per-node objects. Each segment is stored as the numbers of its endpoints, whose coordinates
+ * are read in place from the {@link Points}.
+ *
+ * @see HilbertCurve
+ */
+public class SegmentRTree {
+    /**
+     * Maximum number of children of each node.
+     */
+    private static final int NODE_CAPACITY = 16;
+    /**
+     * Cosine of the central latitude for scaling longitudes.
+     */
+    private final double cosLat;
+    /**
+     * Original index of each segment, in Hilbert order.
+     */
+    private final int[] ids;
+    /**
+     * The coordinates of the endpoints.
+     */
+    private final Points points;
+    /**
+     * Numbers of the first and second endpoints of each original segment.
+     */
+    private final int[] from, to;
+    /**
+     * Bounding box of each node as consecutive minimum x, minimum y, maximum x, and maximum y values. Leaf nodes come
+     * first, followed by each higher level, ending with the root.
+     */
+    private final double[] boxes;
+    /**
+     * Index of the first node of each level, plus one final entry for the total number of nodes.
+     */
+    private final int[] levelStart;
+
+    /**
+     * Constructs an R-tree over the segments between the given endpoints, identified by their index in the arrays.
+     *
+     * @param lats1 the latitude of the first endpoint of each segment.
+     * @param lons1 the longitude of the first endpoint of each segment.
+     * @param lats2 the latitude of the second endpoint of each segment.
+     * @param lons2 the longitude of the second endpoint of each segment.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public SegmentRTree(double[] lats1, double[] lons1, double[] lats2, double[] lons2) {
+        this(endpoints(lats1, lons1, lats2, lons2), sequence(0, lats1.length), sequence(lats1.length, lats1.length));
+    }
+
+    /**
+     * Constructs an R-tree over the segments between the numbered points, identified by their index in the arrays of
+     * endpoint numbers. The coordinates are read in place whenever the tree is searched, so they must not change.
+     *
+     * @param points the coordinates of the endpoints.
+     * @param from   the number of the first endpoint of each segment.
+     * @param to     the number of the second endpoint of each segment.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public SegmentRTree(Points points, int[] from, int[] to) {
+        int n = from.length;
+        if (to.length != n) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+        this.points = points;
+        this.from = from;
+        this.to = to;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double[] midLats = new double[n];
+        double[] midLons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            double lat1 = points.lat(from[i]), lat2 = points.lat(to[i]);
+            minLat = Math.min(minLat, Math.min(lat1, lat2));
+            maxLat = Math.max(maxLat, Math.max(lat1, lat2));
+            midLats[i] = (lat1 + lat2) / 2;
+            midLons[i] = (points.lon(from[i]) + points.lon(to[i])) / 2;
+        }
+        cosLat = n == 0 ? 1.0 : Math.cos(Math.toRadians((minLat + maxLat) / 2));
+
+        ids = HilbertCurve.order(midLats, midLons);
+
+        // Count the nodes on each level until a level has a single root node.
+        int levels = 1;
+        int total = 0;
+        for (int count = Math.max(ceilDiv(n, NODE_CAPACITY), 1); ; count = ceilDiv(count, NODE_CAPACITY)) {
+            total += count;
+            if (count == 1) {
+                break;
+            }
+            levels += 1;
+        }
+        levelStart = new int[levels + 1];
+        boxes = new double[4 * total];
+        int leaves = Math.max(ceilDiv(n, NODE_CAPACITY), 1);
+        levelStart[1] = leaves;
+        for (int node = 0; node < leaves; node += 1) {
+            clearBox(node);
+            for (int j = node * NODE_CAPACITY; j < Math.min((node + 1) * NODE_CAPACITY, n); j += 1) {
+                int i = ids[j];
+                double ax = points.lon(from[i]) * cosLat, ay = points.lat(from[i]);
+                double bx = points.lon(to[i]) * cosLat, by = points.lat(to[i]);
+                expandBox(node, Math.min(ax, bx), Math.min(ay, by), Math.max(ax, bx), Math.max(ay, by));
+            }
+        }
+        for (int level = 1; level < levels; level += 1) {
+            int children = levelStart[level] - levelStart[level - 1];
+            int count = ceilDiv(children, NODE_CAPACITY);
+            levelStart[level + 1] = levelStart[level] + count;
+            for (int k = 0; k < count; k += 1) {
+                int node = levelStart[level] + k;
+                clearBox(node);
+                for (int c = k * NODE_CAPACITY; c < Math.min((k + 1) * NODE_CAPACITY, children); c += 1) {
+                    int child = levelStart[level - 1] + c;
+                    expandBox(node, boxes[4 * child], boxes[4 * child + 1],
+                            boxes[4 * child + 2], boxes[4 * child + 3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the segment nearest to the target, or -1 if this tree is empty. Subtrees are visited nearest
+     * first and skipped once their bounding box is farther than the nearest segment found so far.
+     *
+     * @param lat the latitude of the target.
+     * @param lon the longitude of the target.
+     * @return the index of the segment nearest to the target, or -1 if this tree is empty.
+     */
+    public int nearest(double lat, double lon) {
+        if (ids.length == 0) {
+            return -1;
+        }
+        double[] best = {Double.POSITIVE_INFINITY};
+        int[] bestId = {-1};
+        int root = levelStart.length - 2;
+        search(root, 0, lon * cosLat, lat, best, bestId);
+        return ids[bestId[0]];
+    }
+
+    /**
+     * Returns the fraction of the way from the first endpoint to the second endpoint of the segment at the point on the
+     * segment closest to the target.
+     *
+     * @param segment the index of the segment.
+     * @param lat     the latitude of the target.
+     * @param lon     the longitude of the target.
+     * @return the fraction between 0 and 1 of the way along the segment closest to the target.
+     */
+    public double fraction(int segment, double lat, double lon) {
+        double ax = points.lon(from[segment]) * cosLat, ay = points.lat(from[segment]);
+        double bx = points.lon(to[segment]) * cosLat, by = points.lat(to[segment]);
+        return project(ax, ay, bx, by, lon * cosLat, lat);
+    }
+
+    /**
+     * Returns the number of segments in this tree.
+     *
+     * @return the number of segments in this tree.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Searches the subtree rooted at the node for segments nearer than the best found so far.
+     *
+     * @param level  the level of the node, where 0 is the leaf level.
+     * @param k      the position of the node within its level.
+     * @param x      the projected longitude of the target.
+     * @param y      the latitude of the target.
+     * @param best   a single-element array holding the distance to the nearest segment found so far.
+     * @param bestId a single-element array holding the Hilbert-order position of the nearest segment found so far.
+     */
+    private void search(int level, int k, double x, double y, double[] best, int[] bestId) {
+        if (level == 0) {
+            for (int j = k * NODE_CAPACITY; j < Math.min((k + 1) * NODE_CAPACITY, ids.length); j += 1) {
+                int i = ids[j];
+                double ax = points.lon(from[i]) * cosLat, ay = points.lat(from[i]);
+                double bx = points.lon(to[i]) * cosLat, by = points.lat(to[i]);
+                double t = project(ax, ay, bx, by, x, y);
+                double dist = Math.hypot(ax + t * (bx - ax) - x, ay + t * (by - ay) - y);
+                if (dist < best[0]) {
+                    best[0] = dist;
+                    bestId[0] = j;
+                }
+            }
+            return;
+        }
+        int first = k * NODE_CAPACITY;
+        int count = Math.min(NODE_CAPACITY, levelStart[level] - levelStart[level - 1] - first);
+        int[] order = new int[count];
+        double[] dists = new double[count];
+        // Insertion sort the children by the distance to their bounding boxes.
+        for (int c = 0; c < count; c += 1) {
+            double dist = boxDistance(levelStart[level - 1] + first + c, x, y);
+            int i = c;
+            for (; i > 0 && dists[i - 1] > dist; i -= 1) {
+                order[i] = order[i - 1];
+                dists[i] = dists[i - 1];
+            }
+            order[i] = first + c;
+            dists[i] = dist;
+        }
+        for (int c = 0; c < count && dists[c] < best[0]; c += 1) {
+            search(level - 1, order[c], x, y, best, bestId);
+        }
+    }
+
+    /**
+     * Returns the fraction of the way along the projected segment closest to the target.
+     *
+     * @param ax the projected longitude of the first endpoint.
+     * @param ay the latitude of the first endpoint.
+     * @param bx the projected longitude of the second endpoint.
+     * @param by the latitude of the second endpoint.
+     * @param x  the projected longitude of the target.
+     * @param y  the latitude of the target.
+     * @return the fraction between 0 and 1 of the way along the segment closest to the target.
+     */
+    private static double project(double ax, double ay, double bx, double by, double x, double y) {
+        double dx = bx - ax, dy = by - ay;
+        double length2 = dx * dx + dy * dy;
+        if (length2 == 0) {
+            return 0;
+        }
+        return Math.min(Math.max(((x - ax) * dx + (y - ay) * dy) / length2, 0), 1);
+    }
+
+    /**
+     * Returns the distance from the target to the bounding box of the node, or 0 if the target is inside the box.
+     *
+     * @param node the index of the node.
+     * @param x    the projected longitude of the target.
+     * @param y    the latitude of the target.
+     * @return the distance from the target to the bounding box of the node.
+     */
+    private double boxDistance(int node, double x, double y) {
+        double dx = Math.max(Math.max(boxes[4 * node] - x, x - boxes[4 * node + 2]), 0);
+        double dy = Math.max(Math.max(boxes[4 * node + 1] - y, y - boxes[4 * node + 3]), 0);
+        return Math.hypot(dx, dy);
+    }
+
+    private void clearBox(int node) {
+        boxes[4 * node] = Double.POSITIVE_INFINITY;
+        boxes[4 * node + 1] = Double.POSITIVE_INFINITY;
+        boxes[4 * node + 2] = Double.NEGATIVE_INFINITY;
+        boxes[4 * node + 3] = Double.NEGATIVE_INFINITY;
+    }
+
+    private void expandBox(int node, double minX, double minY, double maxX, double maxY) {
+        boxes[4 * node] = Math.min(boxes[4 * node], minX);
+        boxes[4 * node + 1] = Math.min(boxes[4 * node + 1], minY);
+        boxes[4 * node + 2] = Math.max(boxes[4 * node + 2], maxX);
+        boxes[4 * node + 3] = Math.max(boxes[4 * node + 3], maxY);
+    }
+
+    /**
+     * Returns the endpoints of the segments given by their coordinates, with the first endpoints numbered before the
+     * second endpoints.
+     *
+     * @param lats1 the latitude of the first endpoint of each segment.
+     * @param lons1 the longitude of the first endpoint of each segment.
+     * @param lats2 the latitude of the second endpoint of each segment.
+     * @param lons2 the longitude of the second endpoint of each segment.
+     * @return the points at the endpoints of the segments.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    private static Points endpoints(double[] lats1, double[] lons1, double[] lats2, double[] lons2) {
+        int n = lats1.length;
+        if (lons1.length != n || lats2.length != n || lons2.length != n) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+        double[] lats = Arrays.copyOf(lats1, 2 * n), lons = Arrays.copyOf(lons1, 2 * n);
+        System.arraycopy(lats2, 0, lats, n, n);
+        System.arraycopy(lons2, 0, lons, n, n);
+        return Points.of(lats, lons);
+    }
+
+    /**
+     * Returns the consecutive numbers starting from the first.
+     *
+     * @param first the first number.
+     * @param count the number of numbers.
+     * @return the numbers from first up to but not including first + count.
+     */
+    private static int[] sequence(int first, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i += 1) {
+            result[i] = first + i;
+        }
+        return result;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link BatchRouter} class on a synthetic street grid.
+ *
+ * @see BatchRouter
+ */
+public class BatchRouterTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int SIZE = 20;
+    /**
+     * Number of origin-destination pairs in each batch.
+     */
+    private static final int PAIRS = 200;
+    /**
+     * Number of worker threads.
+     */
+    private static final int THREADS = 4;
+    /**
+     * Maximum number of routes computed but not yet emitted.
+     */
+    private static final int MAX_IN_FLIGHT = 3;
+    @TempDir
+    static Path directory;
+    /**
+     * The map graph of the street grid.
+     */
+    private static MapGraph map;
+    /**
+     * The worker threads.
+     */
+    private static ExecutorService workers;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        MapFixture.write(directory, SIZE, 31);
+        map = MapFixture.load(directory, MapGraph.Storage.HILBERT_ARRAYS);
+        workers = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterAll
+    static void teardown() {
+        workers.shutdown();
+    }
+
+    @Test
+    void everyPairIsEmittedOnceWithItsShortestPath() throws Exception {
+        List<Map.Entry<Point, Point>> pairs = pairs(new Random(31));
+        Map<Map.Entry<Point, Point>, List<Point>> routes = new HashMap<>();
+        AtomicInteger emitted = new AtomicInteger();
+        double throughput = new BatchRouter(map, workers, MAX_IN_FLIGHT).routeAll(pairs.iterator(), (pair, route) -> {
+            emitted.incrementAndGet();
+            assertNull(routes.put(pair, route), pair.toString());
+        });
+        assertEquals(PAIRS, emitted.get());
+        assertTrue(throughput > 0);
+        for (Map.Entry<Point, Point> pair : pairs) {
+            assertEquals(map.shortestPath(pair.getKey(), pair.getValue()), routes.get(pair), pair.toString());
+        }
+    }
+
+    @Test
+    void slowConsumerBoundsTheRoutesInFlight() throws Exception {
+        AtomicInteger submitted = new AtomicInteger();
+        Executor counting = task -> {
+            submitted.incrementAndGet();
+            workers.execute(task);
+        };
+        Iterator<Map.Entry<Point, Point>> pairs = pairs(new Random(32)).iterator();
+        AtomicInteger emitted = new AtomicInteger();
+        new BatchRouter(map, counting, MAX_IN_FLIGHT).routeAll(pairs, (pair, route) -> {
+            // Every other route has been submitted but not yet emitted.
+            assertTrue(submitted.get() - emitted.get() <= MAX_IN_FLIGHT);
+            emitted.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertEquals(PAIRS, submitted.get());
+        assertEquals(PAIRS, emitted.get());
+    }
+
+    @Test
+    void failingRouteThrowsExecutionException() {
+        List<Map.Entry<Point, Point>> pairs = new ArrayList<>(pairs(new Random(33)));
+        Point nowhere = SpatialContext.GEO.getShapeFactory().pointLatLon(Double.NaN, Double.NaN);
+        pairs.set(PAIRS / 2, Map.entry(nowhere, nowhere));
+        BatchRouter router = new BatchRouter(map, workers, MAX_IN_FLIGHT);
+        assertThrows(ExecutionException.class, () -> router.routeAll(pairs.iterator(), (pair, route) -> {
+        }));
+    }
+
+    @Test
+    void nonPositiveMaxInFlightThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchRouter(map, workers, 0));
+    }
+
+    /**
+     * Returns {@link #PAIRS} random origin-destination pairs within the street grid.
+     *
+     * @param random the source of randomness.
+     * @return the list of origin-destination pairs.
+     */
+    private static List<Map.Entry<Point, Point>> pairs(Random random) {
+        List<Map.Entry<Point, Point>> result = new ArrayList<>(PAIRS);
+        for (int i = 0; i < PAIRS; i += 1) {
+            result.add(Map.entry(randomPoint(random), randomPoint(random)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a random point within the street grid.
+     *
+     * @param random the source of randomness.
+     * @return a random point within the street grid.
+     */
+    private static Point randomPoint(Random random) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(
+                MapFixture.SOUTH + MapFixture.SPACING * random.nextDouble() * (SIZE - 1),
+                MapFixture.WEST + MapFixture.SPACING * random.nextDouble() * (SIZE - 1)
+        );
+    }
+}
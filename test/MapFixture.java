@@ -0,0 +1,167 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Synthetic map data for tests of {@link MapGraph} and {@link MapServer}: a square grid of jittered intersections in
+ * Seattle joined by residential streets, some of them missing or with reduced access scores, and a scattering of named
+ * places both on and off the streets.
+ */
+final class MapFixture {
+    /**
+     * Name of the gzipped OSM file written by {@link #write(Path, int, long)}.
+     */
+    static final String OSM_FILE = "map.osm.gz";
+    /**
+     * Name of the access scores TSV written by {@link #write(Path, int, long)}.
+     */
+    static final String ACCESS_FILE = "access.tsv";
+    /**
+     * Southwest corner of the grid in degrees.
+     */
+    static final double SOUTH = 47.6, WEST = -122.35;
+    /**
+     * Distance between neighboring rows and columns of the grid in degrees.
+     */
+    static final double SPACING = 0.001;
+    /**
+     * Name shared by several places so that one name has more than one location.
+     */
+    static final String SHARED_NAME = "Coffee";
+
+    private MapFixture() {
+    }
+
+    /**
+     * Writes a street grid with the given number of rows and columns to the directory.
+     *
+     * @param directory the directory for the OSM file and access scores.
+     * @param size      the number of rows and columns of intersections.
+     * @param seed      the seed for the random jitter, missing streets, access scores, and places.
+     * @throws IOException if the files cannot be written.
+     */
+    static void write(Path directory, int size, long seed) throws IOException {
+        write(directory, size, seed, SOUTH, WEST);
+    }
+
+    /**
+     * Writes a street grid with the given number of rows and columns and the given southwest corner to the directory,
+     * so that several grids can cover neighboring regions.
+     *
+     * @param directory the directory for the OSM file and access scores.
+     * @param size      the number of rows and columns of intersections.
+     * @param seed      the seed for the random jitter, missing streets, access scores, and places.
+     * @param south     the latitude of the southwest corner in degrees.
+     * @param west      the longitude of the southwest corner in degrees.
+     * @throws IOException if the files cannot be written.
+     */
+    static void write(Path directory, int size, long seed, double south, double west) throws IOException {
+        Random random = new Random(seed);
+        Files.createDirectories(directory);
+        try (PrintWriter osm = new PrintWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(directory.resolve(OSM_FILE))), StandardCharsets.UTF_8));
+             PrintWriter access = new PrintWriter(Files.newBufferedWriter(directory.resolve(ACCESS_FILE)))) {
+            osm.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            osm.println("<osm version=\"0.6\">");
+            access.println("way_id\taccess_score");
+            for (int r = 0; r < size; r += 1) {
+                for (int c = 0; c < size; c += 1) {
+                    double lat = south + SPACING * (r + 0.3 * random.nextDouble());
+                    double lon = west + SPACING * (c + 0.3 * random.nextDouble());
+                    osm.printf(Locale.ROOT, "<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\">",
+                            node(size, r, c), lat, lon);
+                    if (random.nextInt(20) == 0) {
+                        String name = random.nextBoolean() ? SHARED_NAME : "Place " + r + "-" + c;
+                        osm.printf(Locale.ROOT, "<tag k=\"name\" v=\"%s\"/>", name);
+                    }
+                    osm.println("</node>");
+                }
+            }
+            // Named places off the streets, between the intersections.
+            for (int i = 0; i < size; i += 1) {
+                double lat = south + SPACING * (random.nextInt(size) + 0.5);
+                double lon = west + SPACING * (random.nextInt(size) + 0.5);
+                osm.printf(Locale.ROOT, "<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\">", size * size + 1 + i, lat, lon);
+                osm.printf(Locale.ROOT, "<tag k=\"name\" v=\"Park %d\"/></node>%n", i);
+            }
+            long way = 1;
+            for (int r = 0; r < size; r += 1) {
+                for (int c = 0; c < size; c += 1) {
+                    if (c + 1 < size && random.nextInt(10) != 0) {
+                        street(osm, access, random, way, node(size, r, c), node(size, r, c + 1));
+                        way += 1;
+                    }
+                    if (r + 1 < size && random.nextInt(10) != 0) {
+                        street(osm, access, random, way, node(size, r, c), node(size, r + 1, c));
+                        way += 1;
+                    }
+                }
+            }
+            osm.println("</osm>");
+        }
+    }
+
+    /**
+     * Returns a map graph of the files in the directory with the given layout, storing any graph file in the same
+     * directory.
+     *
+     * @param directory the directory written by {@link #write(Path, int, long)}.
+     * @param layout    the street layout.
+     * @return the map graph.
+     */
+    static MapGraph load(Path directory, MapGraph.Storage layout) {
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, previous)) {
+            Thread.currentThread().setContextClassLoader(loader);
+            return new MapGraph(OSM_FILE, ACCESS_FILE, SpatialContext.GEO, layout,
+                    directory.resolve(layout.name().toLowerCase() + ".graph"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * Returns the OSM id of the intersection in the given row and column.
+     *
+     * @param size the number of rows and columns.
+     * @param r    the row.
+     * @param c    the column.
+     * @return the OSM id of the intersection.
+     */
+    private static long node(int size, int r, int c) {
+        return (long) r * size + c + 1;
+    }
+
+    /**
+     * Writes a residential street between two intersections, with a reduced access score one time in five.
+     *
+     * @param osm    the OSM output.
+     * @param access the access scores output.
+     * @param random the source of randomness.
+     * @param way    the OSM id of the street.
+     * @param from   the OSM id of the first intersection.
+     * @param to     the OSM id of the second intersection.
+     */
+    private static void street(PrintWriter osm, PrintWriter access, Random random, long way, long from, long to) {
+        osm.printf(Locale.ROOT, "<way id=\"%d\"><nd ref=\"%d\"/><nd ref=\"%d\"/>", way, from, to);
+        osm.println("<tag k=\"highway\" v=\"residential\"/></way>");
+        if (random.nextInt(5) == 0) {
+            access.printf(Locale.ROOT, "%d\t%.2f%n", way, 0.2 + 0.7 * random.nextDouble());
+        }
+    }
+}
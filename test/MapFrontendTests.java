@@ -0,0 +1,231 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests for the {@link MapFrontend} class with two {@link MapServer} workers for neighboring regions, each
+ * started as a separate process on a small street grid. A stub server stands in for MapBox and for a third worker that
+ * fails every search.
+ *
+ * @see MapFrontend
+ * @see MapServer
+ */
+public class MapFrontendTests {
+    /**
+     * Number of rows and columns of intersections in the street grid of each region.
+     */
+    private static final int SIZE = 12;
+    /**
+     * Maximum number of search results, as in the front-end and the workers.
+     */
+    private static final int MAX_MATCHES = 10;
+    /**
+     * Bounds of the region of the failing worker as {west, south, east, north}, just north of the western region.
+     */
+    private static final double[] FAILING_BOUNDS = {
+            MapFixture.WEST - 0.01, MapFixture.SOUTH + 0.02, MapFixture.WEST, MapFixture.SOUTH + 0.03
+    };
+    /**
+     * Bytes of the map image returned by the stub MapBox server.
+     */
+    private static final byte[] IMAGE = "stub map image".getBytes(StandardCharsets.UTF_8);
+    @TempDir
+    static Path directory;
+    /**
+     * Parser for the JSON responses of the front-end.
+     */
+    private static final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * The processes of the workers and the front-end.
+     */
+    private static ServerFixture servers;
+    /**
+     * The map graphs of the western and eastern regions for computing the expected responses.
+     */
+    private static MapGraph west, east;
+    /**
+     * The stub server for MapBox and the failing worker.
+     */
+    private static HttpServer stub;
+    /**
+     * The base URI of the front-end.
+     */
+    private static URI frontend;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        Path westDirectory = directory.resolve("west");
+        Path eastDirectory = directory.resolve("east");
+        MapFixture.write(westDirectory, SIZE, 1, MapFixture.SOUTH, MapFixture.WEST);
+        MapFixture.write(eastDirectory, SIZE, 2, MapFixture.SOUTH, MapFixture.WEST + SIZE * MapFixture.SPACING);
+        west = MapFixture.load(westDirectory, MapGraph.Storage.HASH_MAP);
+        east = MapFixture.load(eastDirectory, MapGraph.Storage.HASH_MAP);
+
+        servers = new ServerFixture(directory);
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/mapbox/", exchange -> ServerFixture.respond(exchange, 200, IMAGE));
+        stub.createContext("/bounds", exchange -> ServerFixture.respond(exchange, 200,
+                mapper.writeValueAsBytes(FAILING_BOUNDS)));
+        stub.createContext("/search/", exchange -> ServerFixture.respond(exchange, 500, new byte[0]));
+        stub.createContext("/ready", exchange -> ServerFixture.respond(exchange, 200, new byte[0]));
+        stub.start();
+        String stubURL = "http://localhost:" + stub.getAddress().getPort();
+
+        List<String> workers = new ArrayList<>();
+        for (Path region : List.of(westDirectory, eastDirectory)) {
+            int port = ServerFixture.freePort();
+            servers.start("worker-" + port, region, MapServer.class, Map.of(
+                    "PORT", Integer.toString(port),
+                    "OSM_FILE", MapFixture.OSM_FILE,
+                    "ACCESS_FILE", MapFixture.ACCESS_FILE,
+                    "MAPBOX_URL", stubURL + "/mapbox/"
+            ));
+            workers.add("http://localhost:" + port);
+        }
+        workers.add(stubURL);
+        int port = ServerFixture.freePort();
+        servers.start("frontend", directory, MapFrontend.class, Map.of(
+                "PORT", Integer.toString(port),
+                "WORKERS", String.join(",", workers)
+        ));
+        frontend = URI.create("http://localhost:" + port);
+        servers.awaitReady(frontend);
+    }
+
+    @AfterAll
+    static void teardown() {
+        if (servers != null) {
+            servers.close();
+        }
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    @Test
+    void borderSearchMergesNearestDistancesOfBothRegions() throws Exception {
+        // Both regions have places named Coffee, Park 0, Park 1, and so on.
+        Point center = point(MapFixture.SOUTH + SIZE / 2.0 * MapFixture.SPACING,
+                MapFixture.WEST + SIZE * MapFixture.SPACING);
+        for (String term : List.of("P", "Park", "C", "Place 3")) {
+            assertEquals(expected(center, term, west, east), search(center, term), term);
+        }
+    }
+
+    @Test
+    void searchAwayFromTheBorderIsForwarded() throws Exception {
+        Point center = point(MapFixture.SOUTH + SIZE / 2.0 * MapFixture.SPACING,
+                MapFixture.WEST + 2 * MapFixture.SPACING);
+        List<String> expected = new ArrayList<>();
+        for (CharSequence name : west.getLocationsByPrefix("P", center, MAX_MATCHES)) {
+            expected.add(name.toString());
+        }
+        assertEquals(expected, search(center, "P"));
+    }
+
+    @Test
+    void borderSearchDropsTheResultsOfAFailingWorker() throws Exception {
+        // Near the failing worker's region but too far from the eastern region to search it.
+        Point center = point(MapFixture.SOUTH + SIZE * MapFixture.SPACING, MapFixture.WEST);
+        for (String term : List.of("P", "C")) {
+            assertEquals(expected(center, term, west), search(center, term), term);
+        }
+    }
+
+    @Test
+    void mapImagesAreForwardedToAWorker() throws Exception {
+        Point center = point(MapFixture.SOUTH + SIZE / 2.0 * MapFixture.SPACING,
+                MapFixture.WEST + 1.5 * SIZE * MapFixture.SPACING);
+        HttpResponse<String> response = get(String.format("/map/%f,%f,15/400x300?term=Coffee",
+                center.getLon(), center.getLat()));
+        assertEquals(200, response.statusCode(), response.body());
+        assertArrayEquals(IMAGE, Base64.getMimeDecoder().decode(response.body()));
+    }
+
+    @Test
+    void readyOnceEveryWorkerIsReady() throws Exception {
+        assertEquals(200, get("/ready").statusCode());
+    }
+
+    /**
+     * Returns the names the front-end should respond with for a search near the border of the regions: the best
+     * matches of each region, merged by the distance from the center to the nearest location with each name.
+     *
+     * @param center  the center of the search.
+     * @param term    the search term.
+     * @param regions the map graphs of the regions near the center whose workers respond.
+     * @return the expected names, nearest first.
+     */
+    private static List<String> expected(Point center, String term, MapGraph... regions) {
+        Map<String, Double> distances = new HashMap<>();
+        for (MapGraph region : regions) {
+            for (CharSequence name : region.getLocationsByPrefix(term, center, MAX_MATCHES)) {
+                for (Point location : region.getLocations(name.toString())) {
+                    distances.merge(name.toString(), region.distance(center, location), Math::min);
+                }
+            }
+        }
+        List<String> names = new ArrayList<>(distances.keySet());
+        names.sort(Comparator.comparingDouble(distances::get));
+        return names.subList(0, Math.min(MAX_MATCHES, names.size()));
+    }
+
+    /**
+     * Returns the names in the response of the front-end to a search.
+     *
+     * @param center the center of the search.
+     * @param term   the search term.
+     * @return the names in the response.
+     * @throws Exception if the request fails or the response is not a successful list of names.
+     */
+    private static List<String> search(Point center, String term) throws Exception {
+        HttpResponse<String> response = get(String.format("/search/%f,%f/%s", center.getLon(), center.getLat(),
+                URLEncoder.encode(term, StandardCharsets.UTF_8).replace("+", "%20")));
+        assertEquals(200, response.statusCode(), response.body());
+        return mapper.readValue(response.body(), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Returns the response of the front-end to a request for the path.
+     *
+     * @param path the path and query of the request.
+     * @return the response of the front-end.
+     * @throws Exception if the request fails.
+     */
+    private static HttpResponse<String> get(String path) throws Exception {
+        return ServerFixture.get(frontend.resolve(path));
+    }
+
+    /**
+     * Returns the point at the coordinates.
+     *
+     * @param lat the latitude.
+     * @param lon the longitude.
+     * @return the point at the coordinates.
+     */
+    private static Point point(double lat, double lon) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(lat, lon);
+    }
+}
@@ -0,0 +1,425 @@
+import graphs.Edge;
+import graphs.shortestpaths.ShortestPathSolver;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MapGraph} class on a synthetic street grid, checking every street layout against the hash map
+ * layout.
+ *
+ * @see MapGraph
+ * @see MapFixture
+ */
+public class MapGraphTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int SIZE = 30;
+    /**
+     * Number of random queries to check.
+     */
+    private static final int TRIALS = 40;
+    /**
+     * Relative error tolerance for distances, which allows for the single-precision weights of compact layouts.
+     */
+    private static final double RELATIVE_EPSILON = 1e-6;
+    @TempDir
+    static Path directory;
+    /**
+     * The map graph of the street grid in each layout.
+     */
+    private static Map<MapGraph.Storage, MapGraph> maps;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        MapFixture.write(directory, SIZE, 373);
+        maps = new EnumMap<>(MapGraph.Storage.class);
+        for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+            maps.put(layout, MapFixture.load(directory, layout));
+        }
+    }
+
+    @Test
+    void shortestPathsMatchTrees() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Point start = randomPoint(random);
+            Point goal = randomPoint(random);
+            for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+                MapGraph map = maps.get(layout);
+                List<Point> path = map.shortestPath(start, goal);
+                ShortestPathSolver<Point> tree = map.shortestPathTree(start);
+                assertEquals(map.closestOnStreet(start), path.get(0), layout.name());
+                assertEquals(map.closestOnStreet(goal), path.get(path.size() - 1), layout.name());
+                if (tree.distTo(map.closestOnStreet(goal)) < Double.POSITIVE_INFINITY) {
+                    assertEquals(tree.solution(goal), path, layout.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    void distancesMatchHashMapLayout() {
+        MapGraph expected = maps.get(MapGraph.Storage.HASH_MAP);
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Point start = randomPoint(random);
+            Point goal = randomPoint(random);
+            double distance = expected.shortestPathTree(start).distTo(goal);
+            for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+                double actual = maps.get(layout).shortestPathTree(start).distTo(goal);
+                assertEquals(distance, actual, distance * RELATIVE_EPSILON, layout.name());
+            }
+        }
+    }
+
+    @Test
+    void hilbertArraysFindTheSamePaths() {
+        // Hilbert arrays keep the exact coordinates and weights, so they find exactly the same paths.
+        MapGraph expected = maps.get(MapGraph.Storage.HASH_MAP);
+        MapGraph hilbert = maps.get(MapGraph.Storage.HILBERT_ARRAYS);
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Point start = randomPoint(random);
+            Point goal = randomPoint(random);
+            assertEquals(expected.shortestPath(start, goal), hilbert.shortestPath(start, goal));
+        }
+    }
+
+    @Test
+    void pathsBetweenPointsOnTheSameStreet() {
+        for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+            MapGraph map = maps.get(layout);
+            Point corner = map.closest(point(5, 5));
+            List<Point> street = map.nearest(corner, 2);
+            Point a = between(street.get(0), street.get(1), 0.25);
+            Point b = between(street.get(0), street.get(1), 0.75);
+            List<Point> path = map.shortestPath(a, b);
+            assertEquals(List.of(map.closestOnStreet(a), map.closestOnStreet(b)), path, layout.name());
+            assertEquals(List.of(map.closestOnStreet(a)), map.shortestPath(a, a), layout.name());
+            assertEquals(0.0, map.shortestPathTree(a).distTo(a), layout.name());
+        }
+    }
+
+    @Test
+    void neighborsOfLocationsMatchEqualPoints() {
+        Random random = new Random(373);
+        for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+            MapGraph map = maps.get(layout);
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                Point location = map.closest(randomPoint(random));
+                assertEquals(map.neighbors(location), map.neighbors(copy(location)), layout.name());
+                for (Edge<Point> edge : map.neighbors(location)) {
+                    assertEquals(map.neighbors(edge.to), map.neighbors(copy(edge.to)), layout.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    void reopenedGraphFilesKeepNamedPlaces() {
+        MapGraph expected = maps.get(MapGraph.Storage.HASH_MAP);
+        for (MapGraph.Storage layout : List.of(MapGraph.Storage.MAPPED_FILE, MapGraph.Storage.TILED_FILE)) {
+            // The graph file already exists, so the second map graph reads its places from the file without parsing.
+            MapGraph reopened = MapFixture.load(directory, layout);
+            assertEquals(maps.get(layout).version(), reopened.version());
+            assertEquals(expected.getLocations(MapFixture.SHARED_NAME), reopened.getLocations(MapFixture.SHARED_NAME));
+            assertTrue(reopened.getLocations(MapFixture.SHARED_NAME).size() > 1);
+            assertEquals(List.of(), reopened.getLocations("Nowhere"));
+            Random random = new Random(373);
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                Point target = randomPoint(random);
+                assertEquals(expected.getLocationsByPrefix("P", target, 5),
+                        reopened.getLocationsByPrefix("P", target, 5), layout.name());
+                assertEquals(expected.getLocationsNear(target, 0.01, 5), reopened.getLocationsNear(target, 0.01, 5),
+                        layout.name());
+                assertEquals(expected.reverseGeocode(target), reopened.reverseGeocode(target), layout.name());
+                Point goal = randomPoint(random);
+                assertEquals(maps.get(layout).shortestPath(target, goal), reopened.shortestPath(target, goal),
+                        layout.name());
+            }
+        }
+    }
+
+    @Test
+    void closestMatchesLinearScan() {
+        Random random = new Random(373);
+        for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+            MapGraph map = maps.get(layout);
+            List<Point> locations = map.nearest(point(0, 0), Integer.MAX_VALUE);
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                Point target = farPoint(random);
+                Point expected = Collections.min(locations, Comparator.comparingDouble(p -> map.distance(target, p)));
+                assertEquals(map.distance(target, expected), map.distance(target, map.closest(target)),
+                        layout.name() + " " + target);
+            }
+        }
+    }
+
+    @Test
+    void reachableMatchesDistances() {
+        Random random = new Random(373);
+        for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+            MapGraph map = maps.get(layout);
+            List<Point> locations = map.nearest(point(0, 0), Integer.MAX_VALUE);
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                Point start = map.closest(randomPoint(random));
+                double[] distances = map.distances(start, locations);
+                double budget = distances[random.nextInt(distances.length)];
+                Set<Point> reachable = map.reachable(start, budget);
+                for (int i = 0; i < distances.length; i += 1) {
+                    // Skip locations on the boundary of the budget, whose distances may differ in the last bits.
+                    if (Math.abs(distances[i] - budget) > budget * RELATIVE_EPSILON) {
+                        assertEquals(distances[i] < budget, reachable.contains(locations.get(i)), layout.name());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void distanceMatrixRowsRunOnTheExecutor() {
+        Random random = new Random(373);
+        MapGraph map = maps.get(MapGraph.Storage.HILBERT_ARRAYS);
+        List<Point> origins = new ArrayList<>(), destinations = new ArrayList<>();
+        for (int i = 0; i < 5; i += 1) {
+            origins.add(randomPoint(random));
+            destinations.add(randomPoint(random));
+        }
+        AtomicInteger rows = new AtomicInteger();
+        List<double[]> matrix = map.distanceMatrix(origins, destinations, task -> {
+            rows.incrementAndGet();
+            task.run();
+        }).toList();
+        assertEquals(origins.size(), rows.get());
+        for (int i = 0; i < origins.size(); i += 1) {
+            assertArrayEquals(map.distances(origins.get(i), destinations), matrix.get(i));
+        }
+    }
+
+    @Test
+    void reverseGeocodeMatchesLinearScan() {
+        MapGraph map = maps.get(MapGraph.Storage.HASH_MAP);
+        List<Map.Entry<String, Point>> places = map.getLocationsNear(point(0, 0), 180, Integer.MAX_VALUE);
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Point target = farPoint(random);
+            Map.Entry<String, Point> expected = Collections.min(places,
+                    Comparator.comparingDouble(place -> map.distance(target, place.getValue())));
+            assertEquals(map.distance(target, expected.getValue()),
+                    map.distance(target, map.reverseGeocode(target).getValue()), target.toString());
+        }
+    }
+
+    /**
+     * Returns a random point either within the street grid or far outside of it, where the flat projection of the
+     * spatial index is distorted.
+     *
+     * @param random the source of randomness.
+     * @return a random point.
+     */
+    private static Point farPoint(Random random) {
+        if (random.nextBoolean()) {
+            return randomPoint(random);
+        }
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(
+                MapFixture.SOUTH + (random.nextDouble() - 0.5) * 40,
+                MapFixture.WEST + (random.nextDouble() - 0.5) * 40
+        );
+    }
+
+    /**
+     * Returns a point with the same coordinates as the given point that was not created by any map graph.
+     *
+     * @param point the point to copy.
+     * @return a copy of the point.
+     */
+    private static Point copy(Point point) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(point.getLat(), point.getLon());
+    }
+
+    /**
+     * Returns a random point within the street grid.
+     *
+     * @param random the source of randomness.
+     * @return a random point within the street grid.
+     */
+    private static Point randomPoint(Random random) {
+        return point(random.nextDouble() * (SIZE - 1), random.nextDouble() * (SIZE - 1));
+    }
+
+    /**
+     * Returns the point at the given fractional row and column of the street grid.
+     *
+     * @param row    the fractional row.
+     * @param column the fractional column.
+     * @return the point at the row and column.
+     */
+    private static Point point(double row, double column) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(
+                MapFixture.SOUTH + MapFixture.SPACING * row,
+                MapFixture.WEST + MapFixture.SPACING * column
+        );
+    }
+
+    /**
+     * Returns the point the given fraction of the way from one point to another.
+     *
+     * @param from     the first point.
+     * @param to       the second point.
+     * @param fraction the fraction of the way from the first point to the second point.
+     * @return the point between the two points.
+     */
+    private static Point between(Point from, Point to, double fraction) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(
+                from.getLat() + fraction * (to.getLat() - from.getLat()),
+                from.getLon() + fraction * (to.getLon() - from.getLon())
+        );
+    }
+
+    @Nested
+    @Disabled
+    class RuntimeExperiments {
+        /**
+         * Number of rows and columns of intersections in the street grid. Making this smaller means experiments run
+         * faster.
+         */
+        private static final int GRID_SIZE = 300;
+        /**
+         * Number of trials per layout. Making this smaller means experiments run faster.
+         */
+        private static final int NUM_TRIALS = 50;
+        /**
+         * Number of steps in each random walk.
+         */
+        private static final int WALK_STEPS = 100_000;
+        @TempDir
+        Path experimentDirectory;
+
+        /**
+         * Prints the average runtime in microseconds of a shortest path query between random points for each street
+         * layout, after a round of warmup queries.
+         *
+         * @throws IOException if the street grid cannot be written.
+         */
+        @Test
+        void shortestPathLatencyByLayout() throws IOException {
+            printLatencyByLayout(MapGraph::shortestPath);
+        }
+
+        /**
+         * Prints the average runtime in microseconds of a query for three alternative routes between random points for
+         * each street layout, after a round of warmup queries. Unlike shortest paths, alternative routes search the
+         * map graph as a graph of points rather than by number.
+         *
+         * @throws IOException if the street grid cannot be written.
+         */
+        @Test
+        void alternativesLatencyByLayout() throws IOException {
+            printLatencyByLayout((map, start, goal) -> map.alternatives(start, goal, 3, 0.25, 0.8, 0.25).solutions());
+        }
+
+        /**
+         * Prints the time in milliseconds to construct a map graph for each street layout, first from the input files
+         * and then again when the graph file of the file layouts already exists.
+         *
+         * @throws IOException if the street grid cannot be written.
+         */
+        @Test
+        void loadTimeByLayout() throws IOException {
+            MapFixture.write(experimentDirectory, GRID_SIZE, 373);
+            for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+                long begin = System.nanoTime();
+                MapFixture.load(experimentDirectory, layout);
+                long first = System.nanoTime() - begin;
+                begin = System.nanoTime();
+                MapFixture.load(experimentDirectory, layout);
+                long second = System.nanoTime() - begin;
+                System.out.println(layout + "," + first / 1_000_000 + "," + second / 1_000_000);
+            }
+        }
+
+        /**
+         * Prints the average runtime in microseconds of a random walk of many steps along the streets from the location
+         * closest to a random point for each street layout, after a round of warmup walks. Each step looks up the edges
+         * of the location reached by the previous step, which isolates the cost of expanding a location.
+         *
+         * @throws IOException if the street grid cannot be written.
+         */
+        @Test
+        void randomWalkLatencyByLayout() throws IOException {
+            printLatencyByLayout((map, start, goal) -> {
+                Random random = new Random(373);
+                Point location = map.closest(start);
+                for (int step = 0; step < WALK_STEPS; step += 1) {
+                    List<Edge<Point>> edges = map.neighbors(location);
+                    if (!edges.isEmpty()) {
+                        location = edges.get(random.nextInt(edges.size())).to;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Prints the average runtime in microseconds of the query between random points for each street layout, after
+         * a round of warmup queries.
+         *
+         * @param query the query to time.
+         * @throws IOException if the street grid cannot be written.
+         */
+        private void printLatencyByLayout(Query query) throws IOException {
+            MapFixture.write(experimentDirectory, GRID_SIZE, 373);
+            for (MapGraph.Storage layout : MapGraph.Storage.values()) {
+                MapGraph map = MapFixture.load(experimentDirectory, layout);
+                for (int round = 0; round < 2; round += 1) {
+                    Random random = new Random(373);
+                    long total = 0;
+                    for (int i = 0; i < NUM_TRIALS; i += 1) {
+                        Point start = point(random.nextDouble() * GRID_SIZE, random.nextDouble() * GRID_SIZE);
+                        Point goal = point(random.nextDouble() * GRID_SIZE, random.nextDouble() * GRID_SIZE);
+                        long begin = System.nanoTime();
+                        query.run(map, start, goal);
+                        total += System.nanoTime() - begin;
+                    }
+                    if (round == 1) {
+                        System.out.println(layout + "," + total / 1000.0 / NUM_TRIALS);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A query between two points on a map graph.
+     */
+    @FunctionalInterface
+    private interface Query {
+        /**
+         * Runs the query between the two points.
+         *
+         * @param map   the map graph.
+         * @param start the start of the query.
+         * @param goal  the goal of the query.
+         */
+        void run(MapGraph map, Point start, Point goal);
+    }
+}
@@ -0,0 +1,226 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MapMatcher} class on a synthetic street grid, matching traces observed along random walks.
+ *
+ * @see MapMatcher
+ * @see MapFixture
+ */
+public class MapMatcherTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int SIZE = 20;
+    /**
+     * Maximum number of streets driven along each random walk.
+     */
+    private static final int STEPS = 30;
+    /**
+     * Number of traces matched together.
+     */
+    private static final int TRACES = 8;
+    /**
+     * Largest GPS noise in degrees of arc along each axis, well within the matcher's measurement noise.
+     */
+    private static final double NOISE = 0.00001;
+    /**
+     * Fewest streets between two nearby intersections that no plausible move between consecutive observations covers,
+     * since every street is at least 0.7 of the grid spacing long.
+     */
+    private static final int DETOUR_STEPS = 5;
+    @TempDir
+    static Path directory;
+    /**
+     * The map graph of the street grid.
+     */
+    private static MapGraph map;
+    /**
+     * The numbered streets of the map graph.
+     */
+    private static MapGraph.Streets streets;
+    /**
+     * The map matcher for the street grid.
+     */
+    private static MapMatcher matcher;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        MapFixture.write(directory, SIZE, 34);
+        map = MapFixture.load(directory, MapGraph.Storage.HILBERT_ARRAYS);
+        streets = map.streets();
+        matcher = new MapMatcher(map);
+    }
+
+    @Test
+    void cleanTraceMatchesTheDrivenPath() {
+        Random random = new Random(34);
+        for (int i = 0; i < TRACES; i += 1) {
+            List<Point> driven = walk(random.nextInt(streets.size()), random);
+            assertEquals(driven, matcher.match(trace(driven, random)));
+        }
+    }
+
+    @Test
+    void prefixIsEmittedOnConvergence() {
+        Random random = new Random(35);
+        List<Point> driven = walk(random.nextInt(streets.size()), random);
+        List<Point> trace = trace(driven, random);
+        MapMatcher.Session session = matcher.session();
+        List<Point> result = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i += 1) {
+            result.addAll(session.add(trace.get(i)));
+            // Each intersection has no other candidate nearby, so every hypothesis agrees as soon as it is observed.
+            if (i % 2 == 0) {
+                assertEquals(driven.subList(0, i / 2 + 1), result);
+            }
+        }
+        result.addAll(session.finish());
+        assertEquals(driven, result);
+    }
+
+    @Test
+    void breakRestartsTheSession() {
+        Random random = new Random(36);
+        int[] pair = detour();
+        List<Point> before = walk(pair[0], random);
+        Collections.reverse(before);
+        List<Point> after = walk(pair[1], random);
+        List<Point> trace = new ArrayList<>(trace(before, random));
+        trace.addAll(trace(after, random));
+        MapMatcher.Session session = matcher.session();
+        List<Point> result = new ArrayList<>();
+        for (Point observation : trace.subList(0, 2 * before.size() - 1)) {
+            result.addAll(session.add(observation));
+        }
+        assertEquals(before, result);
+        // No street leads from the last location to the next one within a plausible distance, so matching starts over.
+        assertEquals(List.of(after.get(0)), session.add(trace.get(2 * before.size() - 1)));
+        List<Point> expected = new ArrayList<>(before);
+        expected.addAll(after);
+        assertEquals(expected, matcher.match(trace));
+    }
+
+    @Test
+    void matchAllMatchesEachTraceInTurn() {
+        Random random = new Random(37);
+        List<List<Point>> traces = new ArrayList<>();
+        for (int i = 0; i < TRACES; i += 1) {
+            traces.add(trace(walk(random.nextInt(streets.size()), random), random));
+        }
+        List<List<Point>> expected = new ArrayList<>();
+        for (List<Point> trace : traces) {
+            expected.add(matcher.match(trace));
+        }
+        assertEquals(expected, matcher.matchAll(traces));
+    }
+
+    /**
+     * Returns the locations along a random walk from the start that never revisits a location, ending after
+     * {@link #STEPS} streets or at a dead end.
+     *
+     * @param start  the number of the first location.
+     * @param random the source of randomness.
+     * @return the locations along the walk in order.
+     */
+    private static List<Point> walk(int start, Random random) {
+        Set<Integer> visited = new HashSet<>();
+        List<Point> result = new ArrayList<>();
+        for (int vertex = start; vertex >= 0 && result.size() <= STEPS; ) {
+            visited.add(vertex);
+            result.add(streets.location(vertex));
+            List<Integer> unvisited = new ArrayList<>();
+            for (int edge = 0; edge < streets.degree(vertex); edge += 1) {
+                if (!visited.contains(streets.target(vertex, edge))) {
+                    unvisited.add(streets.target(vertex, edge));
+                }
+            }
+            vertex = unvisited.isEmpty() ? -1 : unvisited.get(random.nextInt(unvisited.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns noisy GPS observations of a drive along the locations, one at each location and one partway along each
+     * street between them, where the nearest location may be beyond the matcher's candidate radius.
+     *
+     * @param driven the locations along the drive.
+     * @param random the source of randomness.
+     * @return the observations in order.
+     */
+    private static List<Point> trace(List<Point> driven, Random random) {
+        List<Point> result = new ArrayList<>();
+        for (int i = 0; i < driven.size(); i += 1) {
+            Point location = driven.get(i);
+            if (i > 0) {
+                Point previous = driven.get(i - 1);
+                result.add(observe((previous.getLat() + location.getLat()) / 2,
+                        (previous.getLon() + location.getLon()) / 2, random));
+            }
+            result.add(observe(location.getLat(), location.getLon(), random));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a GPS observation of the position with up to {@link #NOISE} added along each axis.
+     *
+     * @param lat    the latitude of the position.
+     * @param lon    the longitude of the position.
+     * @param random the source of randomness.
+     * @return the observation.
+     */
+    private static Point observe(double lat, double lon, Random random) {
+        return SpatialContext.GEO.getShapeFactory().pointLatLon(lat + NOISE * (2 * random.nextDouble() - 1),
+                lon + NOISE * (2 * random.nextDouble() - 1));
+    }
+
+    /**
+     * Returns two neighboring intersections of the grid with at least {@link #DETOUR_STEPS} streets between them, or
+     * none at all.
+     *
+     * @return the numbers of the two locations.
+     */
+    private static int[] detour() {
+        for (int from = 0; from < streets.size(); from += 1) {
+            int[] steps = new int[streets.size()];
+            Arrays.fill(steps, Integer.MAX_VALUE);
+            steps[from] = 0;
+            Queue<Integer> queue = new ArrayDeque<>(List.of(from));
+            while (!queue.isEmpty()) {
+                int vertex = queue.remove();
+                for (int edge = 0; edge < streets.degree(vertex); edge += 1) {
+                    int to = streets.target(vertex, edge);
+                    if (steps[to] == Integer.MAX_VALUE) {
+                        steps[to] = steps[vertex] + 1;
+                        queue.add(to);
+                    }
+                }
+            }
+            for (int to = 0; to < streets.size(); to += 1) {
+                if (steps[to] >= DETOUR_STEPS
+                        && map.distance(streets.location(from), streets.location(to)) < MapFixture.SPACING) {
+                    return new int[]{from, to};
+                }
+            }
+        }
+        return fail("No neighboring intersections far apart along the streets");
+    }
+}
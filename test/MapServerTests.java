@@ -0,0 +1,301 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests for the map images of the {@link MapServer} class, started as a separate process on a small street
+ * grid and downloading its images from a local stub server in place of MapBox.
+ *
+ * @see MapServer
+ */
+public class MapServerTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int SIZE = 12;
+    /**
+     * Maximum number of seconds the server waits for a map image, shortened so that timeouts are quick to test.
+     */
+    private static final int IMAGE_TIMEOUT_SECONDS = 1;
+    /**
+     * Number of milliseconds the stub server waits before responding to a slow request, well past the image timeout.
+     */
+    private static final int SLOW_MILLIS = 3000;
+    /**
+     * Number of milliseconds the stub server waits before responding to each of the concurrent requests.
+     */
+    private static final int DELAY_MILLIS = 500;
+    /**
+     * Number of concurrent requests for the same map image.
+     */
+    private static final int CONCURRENT_REQUESTS = 6;
+    /**
+     * Bytes of the map image returned by the stub server.
+     */
+    private static final byte[] IMAGE = "stub map image".getBytes(StandardCharsets.UTF_8);
+    @TempDir
+    static Path directory;
+    /**
+     * Parser for the JSON responses of the servers.
+     */
+    private static final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * The directory of the map files.
+     */
+    private static Path mapDirectory;
+    /**
+     * The base URL of the stub server in place of MapBox.
+     */
+    private static String stubURL;
+    /**
+     * The processes of the servers.
+     */
+    private static ServerFixture servers;
+    /**
+     * The stub server in place of MapBox, which handles each request with {@link #upstream}.
+     */
+    private static HttpServer stub;
+    /**
+     * The handler for requests to the stub server in the current test.
+     */
+    private static volatile HttpHandler upstream;
+    /**
+     * Number of requests received by the stub server in the current test.
+     */
+    private static final AtomicInteger requests = new AtomicInteger();
+    /**
+     * The base URI of the server downloading from the stub server.
+     */
+    private static URI server;
+    /**
+     * The base URI of the server whose MapBox URL has nothing listening on it.
+     */
+    private static URI unreachable;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        mapDirectory = directory.resolve("map");
+        MapFixture.write(mapDirectory, SIZE, 1);
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/mapbox/", exchange -> {
+            requests.incrementAndGet();
+            upstream.handle(exchange);
+        });
+        // Concurrent requests are handled concurrently, as by MapBox.
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.start();
+        stubURL = "http://localhost:" + stub.getAddress().getPort() + "/mapbox/";
+
+        servers = new ServerFixture(directory);
+        server = start("server", stubURL);
+        unreachable = start("unreachable", "http://localhost:" + ServerFixture.freePort() + "/");
+        servers.awaitReady(server);
+        servers.awaitReady(unreachable);
+    }
+
+    @AfterAll
+    static void teardown() {
+        if (servers != null) {
+            servers.close();
+        }
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    @BeforeEach
+    void reset() {
+        requests.set(0);
+        upstream = exchange -> ServerFixture.respond(exchange, 200, IMAGE);
+    }
+
+    @Test
+    void imagesAreDownloadedOnceAndCached() throws Exception {
+        for (int i = 0; i < 3; i += 1) {
+            HttpResponse<String> response = ServerFixture.get(map(server, 0));
+            assertEquals(200, response.statusCode(), response.body());
+            assertArrayEquals(IMAGE, Base64.getMimeDecoder().decode(response.body()));
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void imagesWithoutATermAreDownloaded() throws Exception {
+        HttpResponse<String> response = ServerFixture.get(server.resolve(map(5)));
+        assertEquals(200, response.statusCode(), response.body());
+        assertArrayEquals(IMAGE, Base64.getMimeDecoder().decode(response.body()));
+    }
+
+    @Test
+    void concurrentRequestsShareOneDownload() throws Exception {
+        upstream = exchange -> {
+            sleep(DELAY_MILLIS);
+            ServerFixture.respond(exchange, 200, IMAGE);
+        };
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i += 1) {
+                responses.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return ServerFixture.get(map(server, 1));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, clients));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get().statusCode(), response.get().body());
+                assertArrayEquals(IMAGE, Base64.getMimeDecoder().decode(response.get().body()));
+            }
+        } finally {
+            clients.shutdown();
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void slowImageIsGatewayTimeout() throws Exception {
+        upstream = exchange -> {
+            sleep(SLOW_MILLIS);
+            ServerFixture.respond(exchange, 200, IMAGE);
+        };
+        assertEquals(504, ServerFixture.get(map(server, 2)).statusCode());
+    }
+
+    @Test
+    void failedImageIsBadGateway() throws Exception {
+        upstream = exchange -> ServerFixture.respond(exchange, 500, new byte[0]);
+        assertEquals(502, ServerFixture.get(map(server, 3)).statusCode());
+        // Failures are not cached, so the image is downloaded again once MapBox recovers.
+        upstream = exchange -> ServerFixture.respond(exchange, 200, IMAGE);
+        assertEquals(200, ServerFixture.get(map(server, 3)).statusCode());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void unreachableImageIsBadGateway() throws Exception {
+        assertEquals(502, ServerFixture.get(map(unreachable, 4)).statusCode());
+    }
+
+    @Test
+    void replayedRoutesHitTheRouteCache() throws Exception {
+        // Requested points have more digits than the route log keeps.
+        String route = String.format("&startLon=%.9f&startLat=%.9f&goalLon=%.9f&goalLat=%.9f",
+                MapFixture.WEST + 1.2345678 * MapFixture.SPACING, MapFixture.SOUTH + 2.3456789 * MapFixture.SPACING,
+                MapFixture.WEST + 8.7654321 * MapFixture.SPACING, MapFixture.SOUTH + 9.8765432 * MapFixture.SPACING);
+        String query = "?term=" + MapFixture.SHARED_NAME + route;
+        Path log = directory.resolve("routes.log");
+        Map<String, String> env = Map.of("ROUTE_LOG", log.toString());
+        int port = ServerFixture.freePort();
+        Process logging = servers.start("logging", mapDirectory, MapServer.class, env(port, stubURL, env));
+        URI first = URI.create("http://localhost:" + port);
+        servers.awaitReady(first);
+        assertEquals(200, ServerFixture.get(first.resolve(map(6) + query)).statusCode());
+        // Stopping the server flushes its route log.
+        servers.stop(logging);
+
+        port = ServerFixture.freePort();
+        servers.start("restarted", mapDirectory, MapServer.class, env(port, stubURL, env));
+        URI restarted = URI.create("http://localhost:" + port);
+        servers.awaitReady(restarted);
+        assertEquals(200, ServerFixture.get(restarted.resolve(map(7) + query)).statusCode());
+        Map<String, Object> stats = mapper.readValue(ServerFixture.get(restarted.resolve("/stats/routes")).body(),
+                new TypeReference<>() {
+                });
+        assertEquals(1, ((Number) stats.get("hits")).intValue(), stats.toString());
+        assertEquals(0, ((Number) stats.get("misses")).intValue(), stats.toString());
+    }
+
+    /**
+     * Starts a server on the street grid that downloads map images from the given MapBox URL.
+     *
+     * @param name      the name of the process.
+     * @param mapboxURL the base URL of MapBox.
+     * @return the base URI of the server.
+     * @throws Exception if the server cannot be started.
+     */
+    private static URI start(String name, String mapboxURL) throws Exception {
+        int port = ServerFixture.freePort();
+        servers.start(name, mapDirectory, MapServer.class, env(port, mapboxURL, Map.of()));
+        return URI.create("http://localhost:" + port);
+    }
+
+    /**
+     * Returns the environment of a server on the street grid.
+     *
+     * @param port      the port of the server.
+     * @param mapboxURL the base URL of MapBox.
+     * @param extra     any other environment variables.
+     * @return the environment variables of the server.
+     */
+    private static Map<String, String> env(int port, String mapboxURL, Map<String, String> extra) {
+        Map<String, String> result = new HashMap<>(extra);
+        result.put("PORT", Integer.toString(port));
+        result.put("OSM_FILE", MapFixture.OSM_FILE);
+        result.put("ACCESS_FILE", MapFixture.ACCESS_FILE);
+        result.put("MAPBOX_URL", mapboxURL);
+        result.put("IMAGE_TIMEOUT_SECONDS", Integer.toString(IMAGE_TIMEOUT_SECONDS));
+        return result;
+    }
+
+    /**
+     * Returns the URI of a map image with pins for the shared place name, centered on the numbered column of the
+     * street grid so that each test requests a different image.
+     *
+     * @param base   the base URI of the server.
+     * @param column the column of the center of the map image.
+     * @return the URI of the map image.
+     */
+    private static URI map(URI base, int column) {
+        return base.resolve(map(column) + "?term=" + MapFixture.SHARED_NAME);
+    }
+
+    /**
+     * Returns the path of a map image without pins, centered on the numbered column of the street grid.
+     *
+     * @param column the column of the center of the map image.
+     * @return the path of the map image.
+     */
+    private static String map(int column) {
+        double lat = MapFixture.SOUTH + SIZE / 2.0 * MapFixture.SPACING;
+        double lon = MapFixture.WEST + column * MapFixture.SPACING;
+        return String.format("/map/%f,%f,15/400x300", lon, lat);
+    }
+
+    /**
+     * Waits for the given number of milliseconds in a handler of the stub server.
+     *
+     * @param millis the number of milliseconds to wait.
+     */
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Server processes for end-to-end tests of {@link MapServer} and {@link MapFrontend}: each server runs its main method
+ * in a separate process that logs to a file in a directory, and is destroyed when the fixture is closed.
+ */
+final class ServerFixture implements AutoCloseable {
+    /**
+     * Maximum number of seconds to wait for a server to start.
+     */
+    private static final int STARTUP_SECONDS = 120;
+    /**
+     * Maximum number of seconds to wait for a response from a server.
+     */
+    private static final int RESPONSE_SECONDS = 60;
+    /**
+     * Client for sending requests to the servers.
+     */
+    private static final HttpClient client = HttpClient.newHttpClient();
+    /**
+     * The directory of the logs.
+     */
+    private final Path directory;
+    /**
+     * The server processes.
+     */
+    private final List<Process> processes = new ArrayList<>();
+
+    /**
+     * Constructs a fixture that logs to the directory.
+     *
+     * @param directory the directory of the logs.
+     */
+    ServerFixture(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts the main class in a new process with the directory first on its classpath, logging to a file named after
+     * the process.
+     *
+     * @param name      the name of the process.
+     * @param classpath the directory to put first on the classpath, such as the directory of the map files.
+     * @param main      the class whose main method to run.
+     * @param env       the environment variables to set.
+     * @return the new process.
+     * @throws IOException if the process cannot be started.
+     */
+    Process start(String name, Path classpath, Class<?> main, Map<String, String> env) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+                classpath + File.pathSeparator + System.getProperty("java.class.path"), main.getName());
+        builder.environment().putAll(env);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(directory.resolve(name + ".log").toFile());
+        Process process = builder.start();
+        processes.add(process);
+        return process;
+    }
+
+    /**
+     * Stops the process as on a normal shutdown, so that its shutdown hooks run, and waits for it to exit.
+     *
+     * @param process the process to stop.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void stop(Process process) throws InterruptedException {
+        processes.remove(process);
+        process.destroy();
+        if (!process.waitFor(STARTUP_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Waits until the server at the base URI responds that it is ready.
+     *
+     * @param base the base URI of the server.
+     * @throws Exception if a process exits or the server is not ready before {@link #STARTUP_SECONDS}.
+     */
+    void awaitReady(URI base) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(STARTUP_SECONDS).toNanos();
+        while (true) {
+            for (Process process : processes) {
+                if (!process.isAlive()) {
+                    fail("A process exited with " + process.exitValue() + logs());
+                }
+            }
+            try {
+                if (get(base.resolve("/ready")).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // The server is still starting.
+            }
+            if (System.nanoTime() > deadline) {
+                fail("Not ready within " + STARTUP_SECONDS + " seconds" + logs());
+            }
+            Thread.sleep(250);
+        }
+    }
+
+    /**
+     * Returns the output of every process so far.
+     *
+     * @return the contents of the log of each process, each following its name.
+     * @throws IOException if a log cannot be read.
+     */
+    String logs() throws IOException {
+        StringBuilder result = new StringBuilder();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path log : files.filter(path -> path.toString().endsWith(".log")).toList()) {
+                result.append(System.lineSeparator()).append(log.getFileName()).append(':')
+                        .append(System.lineSeparator()).append(Files.readString(log));
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Returns the response of a server to a request for the URI.
+     *
+     * @param uri the URI of the request.
+     * @return the response of the server.
+     * @throws Exception if the request fails.
+     */
+    static HttpResponse<String> get(URI uri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(RESPONSE_SECONDS)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Responds to the exchange of a stub server.
+     *
+     * @param exchange the exchange to respond to.
+     * @param status   the status code.
+     * @param body     the body of the response.
+     * @throws IOException if the response cannot be written.
+     */
+    static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Returns a port that was free when checked.
+     *
+     * @return a free port.
+     * @throws IOException if no port is free.
+     */
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
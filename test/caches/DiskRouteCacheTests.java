@@ -0,0 +1,162 @@
+package caches;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link DiskRouteCache} class.
+ *
+ * @see DiskRouteCache
+ */
+public class DiskRouteCacheTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void routesSurviveReopening() throws IOException {
+        double[][] routes = randomRoutes(3000);
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            for (double[] route : routes) {
+                put(cache, route);
+            }
+            assertEquals(routes.length, cache.size());
+        }
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            assertEquals(routes.length, cache.size());
+            for (double[] route : routes) {
+                assertArrayEquals(route, get(cache, route));
+            }
+            assertNull(cache.get("access", 47.6, -122.3, 47.7, -122.4));
+            assertNull(cache.get("walk", routes[0][0], routes[0][1], last(routes[0], 0), last(routes[0], 1)));
+        }
+    }
+
+    @Test
+    void differentVersionDiscardsRoutes() throws IOException {
+        double[] route = randomRoutes(1)[0];
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            put(cache, route);
+        }
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 2)) {
+            assertEquals(0, cache.size());
+            assertNull(get(cache, route));
+        }
+    }
+
+    @Test
+    void compactionKeepsLatestRoutes() throws IOException {
+        double[][] routes = randomRoutes(100);
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            for (int i = 0; i < 5; i += 1) {
+                for (double[] route : routes) {
+                    put(cache, route);
+                }
+            }
+            double[] replaced = routes[0].clone();
+            replaced[2] += 0.001;
+            cache.put("access", routes[0][0], routes[0][1], last(routes[0], 0), last(routes[0], 1), replaced);
+            long before = Files.size(directory.resolve("routes.seg"));
+            cache.compact();
+            assertTrue(Files.size(directory.resolve("routes.seg")) < before / 4);
+            assertEquals(routes.length, cache.size());
+            assertArrayEquals(replaced, get(cache, routes[0]));
+            for (int i = 1; i < routes.length; i += 1) {
+                assertArrayEquals(routes[i], get(cache, routes[i]));
+            }
+        }
+    }
+
+    @Test
+    void garbageIsRecomputedOnReopening() throws IOException {
+        double[][] routes = randomRoutes(100);
+        long garbage;
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            for (double[] route : routes) {
+                put(cache, route);
+            }
+            assertEquals(0, cache.garbage());
+            for (int i = 0; i < routes.length / 2; i += 1) {
+                put(cache, routes[i]);
+            }
+            garbage = cache.garbage();
+            assertTrue(garbage > 0);
+        }
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            assertEquals(garbage, cache.garbage());
+            cache.compact();
+            assertEquals(0, cache.garbage());
+        }
+        Files.delete(directory.resolve("routes.idx"));
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            assertEquals(0, cache.garbage());
+            assertEquals(routes.length, cache.size());
+        }
+    }
+
+    @Test
+    void missingIndexAndTornRecordAreRecovered() throws IOException {
+        double[][] routes = randomRoutes(50);
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            for (double[] route : routes) {
+                put(cache, route);
+            }
+        }
+        Files.delete(directory.resolve("routes.idx"));
+        try (FileChannel segment = FileChannel.open(directory.resolve("routes.seg"), StandardOpenOption.WRITE)) {
+            segment.truncate(segment.size() - 3);
+        }
+        try (DiskRouteCache cache = new DiskRouteCache(directory, 1)) {
+            assertEquals(routes.length - 1, cache.size());
+            for (int i = 0; i < routes.length - 1; i += 1) {
+                assertArrayEquals(routes[i], get(cache, routes[i]));
+            }
+            assertNull(get(cache, routes[routes.length - 1]));
+            put(cache, routes[routes.length - 1]);
+            assertArrayEquals(routes[routes.length - 1], get(cache, routes[routes.length - 1]));
+        }
+    }
+
+    /**
+     * Returns random routes near Seattle with coordinates at OpenStreetMap precision.
+     *
+     * @param n the number of routes.
+     * @return the alternating latitudes and longitudes of each route.
+     */
+    private static double[][] randomRoutes(int n) {
+        Random random = new Random(373);
+        double[][] routes = new double[n][];
+        for (int i = 0; i < n; i += 1) {
+            double[] route = new double[2 * (1 + random.nextInt(40))];
+            long lat = 476000000L + random.nextInt(1000000), lon = -1223500000L + random.nextInt(1000000);
+            for (int j = 0; j < route.length; j += 2) {
+                lat += random.nextInt(2001) - 1000;
+                lon += random.nextInt(2001) - 1000;
+                route[j] = lat / 1e7;
+                route[j + 1] = lon / 1e7;
+            }
+            routes[i] = route;
+        }
+        return routes;
+    }
+
+    private static void put(DiskRouteCache cache, double[] route) throws IOException {
+        cache.put("access", route[0], route[1], last(route, 0), last(route, 1), route);
+    }
+
+    private static double[] get(DiskRouteCache cache, double[] route) throws IOException {
+        return cache.get("access", route[0], route[1], last(route, 0), last(route, 1));
+    }
+
+    private static double last(double[] route, int offset) {
+        return route[route.length - 2 + offset];
+    }
+}
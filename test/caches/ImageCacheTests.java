@@ -0,0 +1,255 @@
+package caches;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ImageCache} class, downloading images from a local stub server in place of MapBox.
+ *
+ * @see ImageCache
+ */
+public class ImageCacheTests {
+    /**
+     * Size in bytes of each image served by the stub server.
+     */
+    private static final int IMAGE_BYTES = 1000;
+    /**
+     * Time-to-live of cached images.
+     */
+    private static final Duration TTL = Duration.ofHours(1);
+    /**
+     * Number of threads sharing a cache in the concurrency test.
+     */
+    private static final int THREADS = 8;
+    /**
+     * Number of lookups by each thread in the concurrency test.
+     */
+    private static final int OPERATIONS = 500;
+    /**
+     * Number of distinct image paths in the concurrency test.
+     */
+    private static final int PATHS = 10;
+    @TempDir
+    Path directory;
+    /**
+     * The stub server, which serves an image derived from the request path.
+     */
+    private HttpServer server;
+    /**
+     * Number of requests received by the stub server.
+     */
+    private AtomicInteger requests;
+    /**
+     * The current time in milliseconds for the caches under test.
+     */
+    private AtomicLong now;
+
+    @BeforeEach
+    void setup() throws IOException {
+        requests = new AtomicInteger();
+        now = new AtomicLong(1_000_000);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            byte[] image = image(exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(200, image.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(image);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    void keyIgnoresTokenAndParameterOrder() {
+        assertEquals(ImageCache.key("https://api.mapbox.com/styles/a?logo=false&attribution=false"),
+                ImageCache.key("HTTPS://API.MAPBOX.COM/styles/a?access_token=secret&attribution=false&logo=false"));
+        assertNotEquals(ImageCache.key("https://api.mapbox.com/styles/a?logo=false"),
+                ImageCache.key("https://api.mapbox.com/styles/b?logo=false"));
+        assertFalse(ImageCache.key("https://api.mapbox.com/styles/a?access_token=secret").contains("secret"));
+    }
+
+    @Test
+    void repeatedImagesAreServedFromMemory() throws IOException {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, null, 0, TTL, now::get);
+        assertArrayEquals(image("/a"), fetch(cache, url("/a", "one")));
+        assertArrayEquals(image("/a"), fetch(cache, url("/a", "two")));
+        assertArrayEquals(image("/a"), fetch(cache, url("/a", "one")));
+        assertEquals(1, requests.get());
+        assertEquals(2, cache.memoryHits());
+        assertEquals(1, cache.misses());
+        assertEquals(2.0 / 3, cache.hitRate(), 1e-12);
+        assertEquals(IMAGE_BYTES, cache.memoryBytes());
+    }
+
+    @Test
+    void memoryEvictsLeastRecentlyUsedBytes() throws IOException {
+        ImageCache cache = new ImageCache(2 * IMAGE_BYTES, null, 0, TTL, now::get);
+        fetch(cache, url("/a", "t"));
+        fetch(cache, url("/b", "t"));
+        fetch(cache, url("/a", "t"));
+        fetch(cache, url("/c", "t"));
+        assertEquals(3, requests.get());
+        assertEquals(2 * IMAGE_BYTES, cache.memoryBytes());
+        fetch(cache, url("/a", "t"));
+        assertEquals(3, requests.get());
+        fetch(cache, url("/b", "t"));
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void diskTierSurvivesRestart() throws IOException {
+        ImageCache first = new ImageCache(10 * IMAGE_BYTES, directory, 10 * IMAGE_BYTES, TTL, now::get);
+        fetch(first, url("/a", "one"));
+        fetch(first, url("/b", "one"));
+        ImageCache second = new ImageCache(10 * IMAGE_BYTES, directory, 10 * IMAGE_BYTES, TTL, now::get);
+        assertEquals(2 * IMAGE_BYTES, second.diskBytes());
+        assertArrayEquals(image("/a"), fetch(second, url("/a", "two")));
+        assertArrayEquals(image("/a"), fetch(second, url("/a", "two")));
+        assertEquals(2, requests.get());
+        assertEquals(1, second.diskHits());
+        assertEquals(1, second.memoryHits());
+        assertEquals(0, second.misses());
+    }
+
+    @Test
+    void diskEvictsOldestBeyondLimit() throws IOException {
+        ImageCache cache = new ImageCache(0, directory, 2 * IMAGE_BYTES, TTL, now::get);
+        fetch(cache, url("/a", "t"));
+        fetch(cache, url("/b", "t"));
+        fetch(cache, url("/c", "t"));
+        assertEquals(2 * IMAGE_BYTES, cache.diskBytes());
+        assertEquals(0, cache.memoryBytes());
+        fetch(cache, url("/c", "t"));
+        fetch(cache, url("/b", "t"));
+        assertEquals(3, requests.get());
+        fetch(cache, url("/a", "t"));
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    void expiredImagesAreDownloadedAgain() throws IOException {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, directory, 10 * IMAGE_BYTES, TTL, now::get);
+        fetch(cache, url("/a", "t"));
+        now.addAndGet(TTL.toMillis() / 2);
+        fetch(cache, url("/a", "t"));
+        assertEquals(1, requests.get());
+        now.addAndGet(TTL.toMillis());
+        fetch(cache, url("/a", "t"));
+        assertEquals(2, requests.get());
+        now.addAndGet(2 * TTL.toMillis());
+        ImageCache reopened = new ImageCache(10 * IMAGE_BYTES, directory, 10 * IMAGE_BYTES, TTL, now::get);
+        assertEquals(0, reopened.diskBytes());
+        assertNull(reopened.get(url("/a", "t")));
+    }
+
+    @Test
+    void concurrentLookupsSeeWholeImages() throws Exception {
+        ImageCache cache = new ImageCache(2 * IMAGE_BYTES, directory, 5 * IMAGE_BYTES, TTL, now::get);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < THREADS; t += 1) {
+                Random random = new Random(t);
+                done.add(threads.submit(() -> {
+                    for (int i = 0; i < OPERATIONS; i += 1) {
+                        String path = "/" + random.nextInt(PATHS);
+                        byte[] cached = cache.get(url(path, "t"));
+                        if (cached == null) {
+                            cache.put(url(path, "t"), image(path));
+                        } else {
+                            assertArrayEquals(image(path), cached, path);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertTrue(cache.diskBytes() <= 5 * IMAGE_BYTES);
+        ImageCache reopened = new ImageCache(2 * IMAGE_BYTES, directory, 5 * IMAGE_BYTES, TTL, now::get);
+        for (int i = 0; i < PATHS; i += 1) {
+            byte[] cached = reopened.get(url("/" + i, "t"));
+            if (cached != null) {
+                assertArrayEquals(image("/" + i), cached);
+            }
+        }
+    }
+
+    /**
+     * Returns the image for the URL from the cache, first downloading and caching it if it is not cached.
+     *
+     * @param cache the cache under test.
+     * @param url   the image URL.
+     * @return the image for the URL.
+     */
+    private static byte[] fetch(ImageCache cache, String url) {
+        byte[] image = cache.get(url);
+        if (image == null) {
+            try (InputStream input = new URL(url).openStream()) {
+                image = input.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cache.put(url, image);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the URL of the stub server for the path and access token.
+     *
+     * @param path  the image path.
+     * @param token the access token.
+     * @return the URL for the image.
+     */
+    private String url(String path, String token) {
+        return "http://localhost:" + server.getAddress().getPort() + path + "?access_token=" + token + "&logo=false";
+    }
+
+    /**
+     * Returns the image served for the path, which repeats the path to fill {@link #IMAGE_BYTES} bytes.
+     *
+     * @param path the image path.
+     * @return the image served for the path.
+     */
+    private static byte[] image(String path) {
+        byte[] pattern = path.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[IMAGE_BYTES];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = pattern[i % pattern.length];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package caches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link LRUCache} class.
+ *
+ * @see LRUCache
+ */
+public class LRUCacheTests {
+
+    @Test
+    void evictsLeastRecentlyInserted() {
+        LRUCache<String, Integer> cache = new LRUCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void getMakesEntryMostRecentlyUsed() {
+        LRUCache<String, Integer> cache = new LRUCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 3);
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void putReplacesValueAndMakesEntryMostRecentlyUsed() {
+        LRUCache<String, Integer> cache = new LRUCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 10);
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void computeIfAbsentOnlyComputesMissingKeys() {
+        LRUCache<String, Integer> cache = new LRUCache<>(2);
+        assertEquals(1, cache.computeIfAbsent("a", k -> 1));
+        assertEquals(1, cache.computeIfAbsent("a", k -> fail("computed a cached key")));
+        cache.put("b", 2);
+        cache.computeIfAbsent("a", k -> 1);
+        cache.computeIfAbsent("c", k -> 3);
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+    }
+
+    @Test
+    void removeOnlyRemovesMatchingValue() {
+        LRUCache<String, Integer> cache = new LRUCache<>(2);
+        cache.put("a", 1);
+        assertFalse(cache.remove("a", 2));
+        assertEquals(1, cache.get("a"));
+        assertTrue(cache.remove("a", 1));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictedEntriesAreReported() {
+        List<String> evicted = new ArrayList<>();
+        LRUCache<String, Integer> cache = new LRUCache<>(2, (key, value) -> evicted.add(key + "=" + value));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+        assertEquals(List.of("b=2"), evicted);
+        cache.remove("a", 1);
+        cache.put("d", 4);
+        assertEquals(List.of("b=2"), evicted);
+        cache.put("e", 5);
+        assertEquals(List.of("b=2", "c=3"), evicted);
+    }
+
+    @Test
+    void nonPositiveCapacityThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new LRUCache<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new LRUCache<>(-1));
+    }
+}
@@ -0,0 +1,157 @@
+package caches;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link RouteLog} class.
+ *
+ * @see RouteLog
+ */
+public class RouteLogTests {
+    /**
+     * Number of bytes in each recorded query.
+     */
+    private static final int QUERY_BYTES = 16;
+    /**
+     * Maximum size of the log files under test, which is large enough not to rotate.
+     */
+    private static final long MAX_BYTES = 1L << 20;
+    /**
+     * Error tolerance for coordinates, which are rounded to microdegrees.
+     */
+    private static final double EPSILON = 1e-6;
+    @TempDir
+    Path directory;
+
+    @Test
+    void mostFrequentQueriesComeFirst() throws IOException {
+        Path path = directory.resolve("routes.log");
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 1, 3);
+            record(log, 2, 1);
+            record(log, 3, 2);
+        }
+        List<double[]> popular = RouteLog.mostFrequent(path, 2);
+        assertEquals(2, popular.size());
+        assertArrayEquals(query(1), popular.get(0), EPSILON);
+        assertArrayEquals(query(3), popular.get(1), EPSILON);
+        assertEquals(3, RouteLog.mostFrequent(path, 10).size());
+    }
+
+    @Test
+    void queriesAreOnlyWrittenWhenFlushed() throws IOException {
+        Path path = directory.resolve("routes.log");
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 1, 5);
+            assertEquals(0, Files.size(path));
+            log.flush();
+            assertEquals(5 * QUERY_BYTES, Files.size(path));
+            record(log, 2, 1);
+            assertEquals(5 * QUERY_BYTES, Files.size(path));
+        }
+        assertEquals(6 * QUERY_BYTES, Files.size(path));
+    }
+
+    @Test
+    void reopenedLogAppends() throws IOException {
+        Path path = directory.resolve("routes.log");
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 1, 1);
+        }
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 2, 2);
+        }
+        List<double[]> popular = RouteLog.mostFrequent(path, 10);
+        assertEquals(2, popular.size());
+        assertArrayEquals(query(2), popular.get(0), EPSILON);
+        assertArrayEquals(query(1), popular.get(1), EPSILON);
+    }
+
+    @Test
+    void partialQueryIsRemovedOnOpen() throws IOException {
+        Path path = directory.resolve("routes.log");
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 1, 1);
+        }
+        Files.write(path, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 2, 1);
+        }
+        assertEquals(2 * QUERY_BYTES, Files.size(path));
+        assertEquals(2, RouteLog.mostFrequent(path, 10).size());
+    }
+
+    @Test
+    void fullLogIsRotated() throws IOException {
+        Path path = directory.resolve("routes.log");
+        Path rotated = directory.resolve("routes.log.1");
+        try (RouteLog log = new RouteLog(path, 4 * QUERY_BYTES)) {
+            record(log, 1, 4);
+            record(log, 2, 4);
+            record(log, 3, 2);
+        }
+        // The first four queries were dropped by the second rotation.
+        assertEquals(4 * QUERY_BYTES, Files.size(rotated));
+        assertEquals(2 * QUERY_BYTES, Files.size(path));
+        List<double[]> popular = RouteLog.mostFrequent(path, 10);
+        assertEquals(2, popular.size());
+        assertArrayEquals(query(2), popular.get(0), EPSILON);
+        assertArrayEquals(query(3), popular.get(1), EPSILON);
+    }
+
+    @Test
+    void queriesBeyondTheBufferAreDropped() throws IOException {
+        Path path = directory.resolve("routes.log");
+        try (RouteLog log = new RouteLog(path, MAX_BYTES)) {
+            record(log, 1, 5000);
+            assertEquals(5000 - 4096, log.dropped());
+            log.flush();
+            record(log, 1, 1);
+            assertEquals(5000 - 4096, log.dropped());
+        }
+        assertEquals(4097 * QUERY_BYTES, Files.size(path));
+    }
+
+    @Test
+    void missingLogHasNoQueries() throws IOException {
+        assertEquals(List.of(), RouteLog.mostFrequent(directory.resolve("missing.log"), 10));
+    }
+
+    @Test
+    void tinyMaximumSizeThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new RouteLog(directory.resolve("routes.log"), 8));
+    }
+
+    /**
+     * Records the numbered query the given number of times.
+     *
+     * @param log   the route log under test.
+     * @param i     the number of the query.
+     * @param times the number of times to record the query.
+     */
+    private static void record(RouteLog log, int i, int times) {
+        double[] query = query(i);
+        for (int t = 0; t < times; t += 1) {
+            log.record(query[0], query[1], query[2], query[3]);
+        }
+    }
+
+    /**
+     * Returns the numbered query, a distinct route between two points in Seattle.
+     *
+     * @param i the number of the query.
+     * @return the {start latitude, start longitude, goal latitude, goal longitude} array.
+     */
+    private static double[] query(int i) {
+        return new double[]{47.6 + i * 0.001, -122.3 - i * 0.001, 47.65 - i * 0.002, -122.35 + i * 0.002};
+    }
+}
@@ -0,0 +1,154 @@
+package caches;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SingleFlight} class.
+ *
+ * @see SingleFlight
+ */
+public class SingleFlightTests {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalKeysShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(executor);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i += 1) {
+            futures.add(flight.submit("key", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return 42;
+            }));
+        }
+        release.countDown();
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(42, future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void differentKeysRunSeparately() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(executor);
+        CompletableFuture<String> a = flight.submit("a", () -> "A");
+        CompletableFuture<String> b = flight.submit("b", () -> "B");
+        assertEquals("A", a.get(5, TimeUnit.SECONDS));
+        assertEquals("B", b.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void completedKeysStartFreshComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(executor);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals(1, flight.submit("key", calls::incrementAndGet).get(5, TimeUnit.SECONDS));
+        waitUntilEmpty(flight);
+        assertEquals(2, flight.submit("key", calls::incrementAndGet).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void errorsPropagateToEveryWaiter() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(executor);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i += 1) {
+            futures.add(flight.submit("key", () -> {
+                await(release);
+                throw new IllegalStateException("failed");
+            }));
+        }
+        release.countDown();
+        for (CompletableFuture<Integer> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        waitUntilEmpty(flight);
+    }
+
+    @Test
+    void waiterTimeoutDoesNotAffectOtherWaiters() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(executor);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> impatient = flight.submit("key", () -> {
+            await(release);
+            return 7;
+        });
+        CompletableFuture<Integer> patient = flight.submit("key", () -> -1);
+        assertThrows(TimeoutException.class, () -> impatient.get(10, TimeUnit.MILLISECONDS));
+        impatient.cancel(true);
+        release.countDown();
+        assertEquals(7, patient.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncComputationsAreSharedWithoutExecutorThreads() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(executor);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i += 1) {
+            futures.add(flight.submitAsync("key", () -> {
+                calls.incrementAndGet();
+                return pending;
+            }));
+        }
+        assertEquals(1, calls.get());
+        pending.complete(42);
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(42, future.get(5, TimeUnit.SECONDS));
+        }
+        waitUntilEmpty(flight);
+        CompletableFuture<Integer> failed = flight.submitAsync("key",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("failed")));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        waitUntilEmpty(flight);
+    }
+
+    /**
+     * Waits for the latch without throwing checked exceptions.
+     *
+     * @param latch the latch to wait for.
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Waits until no computations are in flight, since keys are forgotten just after their futures complete.
+     *
+     * @param flight the {@link SingleFlight} instance.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private static void waitUntilEmpty(SingleFlight<?, ?> flight) throws InterruptedException {
+        for (int i = 0; i < 500 && flight.size() > 0; i += 1) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, flight.size());
+    }
+}
@@ -0,0 +1,164 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AlternativeRoutesSolver} class on small undirected graphs with known alternative routes.
+ *
+ * @see AlternativeRoutesSolver
+ */
+public class AlternativeRoutesSolverTests {
+    /**
+     * Error tolerance for distances.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void findsDisjointCorridorsInOrder() {
+        // Three corridors whose weights are not exactly representable, so distances are rounded differently when
+        // summed forward from the start and backward from the goal.
+        Streets streets = new Streets();
+        streets.corridor("s", "t", "a", 0.1, 2.3, 4.7, 2.9);
+        streets.corridor("s", "t", "b", 2.2, 3.3, 4.4, 1.1);
+        streets.corridor("s", "t", "c", 0.7, 5.3, 3.1, 2.9);
+        AlternativeRoutesSolver<String> solver = streets.solve("s", "t", 3, 0.25, 0.8, 0.25);
+        assertEquals(List.of(
+                List.of("s", "a1", "a2", "a3", "t"),
+                List.of("s", "b1", "b2", "b3", "t"),
+                List.of("s", "c1", "c2", "c3", "t")
+        ), solver.solutions());
+        assertEquals(10.0, solver.distances().get(0), EPSILON);
+        assertEquals(11.0, solver.distances().get(1), EPSILON);
+        assertEquals(12.0, solver.distances().get(2), EPSILON);
+    }
+
+    @Test
+    void kLimitsTheNumberOfRoutes() {
+        Streets streets = new Streets();
+        streets.corridor("s", "t", "a", 0.1, 2.3, 4.7, 2.9);
+        streets.corridor("s", "t", "b", 2.2, 3.3, 4.4, 1.1);
+        streets.corridor("s", "t", "c", 0.7, 5.3, 3.1, 2.9);
+        assertEquals(List.of(List.of("s", "a1", "a2", "a3", "t")),
+                streets.solve("s", "t", 1, 0.25, 0.8, 0.25).solutions());
+        assertEquals(2, streets.solve("s", "t", 2, 0.25, 0.8, 0.25).solutions().size());
+        assertEquals(List.of(), streets.solve("s", "t", 0, 0.25, 0.8, 0.25).solutions());
+    }
+
+    @Test
+    void stretchExcludesLongRoutes() {
+        Streets streets = new Streets();
+        streets.corridor("s", "t", "a", 0.1, 2.3, 4.7, 2.9);
+        streets.corridor("s", "t", "b", 2.2, 3.3, 4.4, 1.1);
+        streets.corridor("s", "t", "c", 0.7, 5.3, 3.1, 2.9);
+        AlternativeRoutesSolver<String> solver = streets.solve("s", "t", 3, 0.15, 0.8, 0.25);
+        assertEquals(List.of(
+                List.of("s", "a1", "a2", "a3", "t"),
+                List.of("s", "b1", "b2", "b3", "t")
+        ), solver.solutions());
+    }
+
+    @Test
+    void overlapAndPlateauExcludeDetours() {
+        // Both routes share the street from s to x, and the alternative only leaves the shortest path briefly.
+        Streets streets = new Streets();
+        streets.corridor("s", "x", "m", 3.1, 2.9);
+        streets.corridor("x", "t", "p", 1.3, 2.7);
+        streets.corridor("x", "t", "q", 1.6, 1.4, 1.5);
+        List<String> shortest = List.of("s", "m1", "x", "p1", "t");
+        List<String> detour = List.of("s", "m1", "x", "q1", "q2", "t");
+        AlternativeRoutesSolver<String> both = streets.solve("s", "t", 3, 0.25, 0.8, 0.1);
+        assertEquals(List.of(shortest, detour), both.solutions());
+        assertEquals(10.5, both.distances().get(1), EPSILON);
+        assertEquals(List.of(shortest), streets.solve("s", "t", 3, 0.25, 0.5, 0.1).solutions());
+        assertEquals(List.of(shortest), streets.solve("s", "t", 3, 0.25, 0.8, 0.25).solutions());
+    }
+
+    @Test
+    void unreachableGoalHasNoRoutes() {
+        Streets streets = new Streets();
+        streets.corridor("s", "t", "a", 1.0, 2.0);
+        streets.corridor("u", "v", "b", 1.0, 2.0);
+        AlternativeRoutesSolver<String> solver = streets.solve("s", "v", 3, 0.25, 0.8, 0.25);
+        assertEquals(List.of(), solver.solutions());
+        assertEquals(List.of(), solver.distances());
+    }
+
+    @Test
+    void startAtGoalIsTheOnlyRoute() {
+        Streets streets = new Streets();
+        streets.corridor("s", "t", "a", 1.0, 2.0);
+        AlternativeRoutesSolver<String> solver = streets.solve("s", "s", 3, 0.25, 0.8, 0.25);
+        assertEquals(List.of(List.of("s")), solver.solutions());
+        assertEquals(List.of(0.0), solver.distances());
+    }
+
+    /**
+     * Undirected graph of named vertices, which is its own reverse.
+     */
+    private static class Streets implements Graph<String> {
+        /**
+         * The outgoing edges from each vertex.
+         */
+        private final Map<String, List<Edge<String>>> edges = new HashMap<>();
+
+        /**
+         * Adds a chain of streets from one vertex to another through new vertices named by the prefix and their
+         * position along the chain.
+         *
+         * @param from    the first vertex of the chain.
+         * @param to      the last vertex of the chain.
+         * @param prefix  the prefix for the names of the vertices between the first and last vertex.
+         * @param weights the weight of each street along the chain.
+         */
+        void corridor(String from, String to, String prefix, double... weights) {
+            String previous = from;
+            for (int i = 0; i < weights.length; i += 1) {
+                String next = i + 1 < weights.length ? prefix + (i + 1) : to;
+                add(previous, next, weights[i]);
+                add(next, previous, weights[i]);
+                previous = next;
+            }
+        }
+
+        /**
+         * Adds a directed edge.
+         *
+         * @param from   the originating vertex of the edge.
+         * @param to     the terminating vertex of the edge.
+         * @param weight the weight of the edge.
+         */
+        private void add(String from, String to, double weight) {
+            edges.computeIfAbsent(from, k -> new ArrayList<>()).add(new Edge<>(from, to, weight));
+        }
+
+        /**
+         * Returns the alternative routes from the start to the goal.
+         *
+         * @param start      the start vertex.
+         * @param goal       the goal vertex.
+         * @param k          the maximum number of routes.
+         * @param maxStretch the maximum additional weight of a route as a fraction of the shortest path distance.
+         * @param maxOverlap the maximum shared weight between routes as a fraction of the shortest path distance.
+         * @param minPlateau the minimum plateau weight of a route as a fraction of the shortest path distance.
+         * @return the solver for the alternative routes.
+         */
+        AlternativeRoutesSolver<String> solve(String start, String goal, int k,
+                                              double maxStretch, double maxOverlap, double minPlateau) {
+            return new AlternativeRoutesSolver<>(this, this, start, goal, k, maxStretch, maxOverlap, minPlateau);
+        }
+
+        @Override
+        public List<Edge<String>> neighbors(String vertex) {
+            return edges.getOrDefault(vertex, List.of());
+        }
+    }
+}
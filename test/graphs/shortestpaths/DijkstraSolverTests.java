@@ -0,0 +1,126 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the targeted and bounded searches of the {@link DijkstraSolver} class, checked against a full search of
+ * the same random graphs.
+ *
+ * @see DijkstraSolver
+ */
+public class DijkstraSolverTests {
+    /**
+     * Number of vertices in each random graph.
+     */
+    private static final int SIZE = 200;
+    /**
+     * Number of random graphs to check.
+     */
+    private static final int TRIALS = 20;
+    /**
+     * Error tolerance for distances.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void targetedSearchMatchesFullSearch() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, false, 5, 1);
+            int start = random.nextInt(SIZE);
+            List<Integer> targets = List.of(random.nextInt(SIZE), random.nextInt(SIZE), random.nextInt(SIZE));
+            DijkstraSolver<Integer> full = new DijkstraSolver<>(graph, start);
+            DijkstraSolver<Integer> targeted = new DijkstraSolver<>(graph, start, targets);
+            for (int target : targets) {
+                assertEquals(full.distTo(target), targeted.distTo(target), EPSILON, "target " + target);
+                if (targeted.distTo(target) < Double.POSITIVE_INFINITY) {
+                    List<Integer> path = targeted.solution(target);
+                    assertEquals(start, path.get(0));
+                    assertEquals(target, path.get(path.size() - 1));
+                    assertEquals(targeted.distTo(target), weight(graph, path), EPSILON, "target " + target);
+                }
+            }
+        }
+    }
+
+    @Test
+    void targetedSearchStopsEarly() {
+        List<List<Edge<Integer>>> edges = new ArrayList<>();
+        for (int v = 0; v < SIZE; v += 1) {
+            edges.add(v + 1 < SIZE ? List.of(new Edge<>(v, v + 1, 1.0)) : List.of());
+        }
+        Graph<Integer> path = v -> edges.get(v);
+        DijkstraSolver<Integer> targeted = new DijkstraSolver<>(path, 0, List.of(3));
+        assertEquals(3.0, targeted.distTo(3), EPSILON);
+        assertEquals(Set.of(0, 1, 2, 3), targeted.reached());
+        assertEquals(Double.POSITIVE_INFINITY, targeted.distTo(SIZE - 1));
+    }
+
+    @Test
+    void boundedSearchMatchesFullSearch() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, false, 5, 1);
+            int start = random.nextInt(SIZE);
+            double maxDistance = random.nextDouble() * 3;
+            DijkstraSolver<Integer> full = new DijkstraSolver<>(graph, start);
+            DijkstraSolver<Integer> bounded = new DijkstraSolver<>(graph, start, maxDistance);
+            Set<Integer> expected = new HashSet<>();
+            for (int v = 0; v < SIZE; v += 1) {
+                if (full.distTo(v) <= maxDistance) {
+                    expected.add(v);
+                }
+            }
+            assertEquals(expected, bounded.reached());
+            for (int v : bounded.reached()) {
+                assertEquals(full.distTo(v), bounded.distTo(v), EPSILON, "vertex " + v);
+            }
+        }
+    }
+
+    @Test
+    void boundedTargetedSearchMatchesFullSearch() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, false, 5, 1);
+            int start = random.nextInt(SIZE);
+            int target = random.nextInt(SIZE);
+            double maxDistance = random.nextDouble() * 3;
+            DijkstraSolver<Integer> full = new DijkstraSolver<>(graph, start);
+            DijkstraSolver<Integer> solver = new DijkstraSolver<>(graph, start, List.of(target), maxDistance);
+            double expected = full.distTo(target) <= maxDistance ? full.distTo(target) : Double.POSITIVE_INFINITY;
+            assertEquals(expected, solver.distTo(target), EPSILON);
+        }
+    }
+
+    /**
+     * Returns the total weight of the cheapest edges along the path.
+     *
+     * @param graph the input graph.
+     * @param path  the vertices on the path.
+     * @return the total weight of the path.
+     */
+    private static double weight(Graph<Integer> graph, List<Integer> path) {
+        double total = 0.0;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            double cheapest = Double.POSITIVE_INFINITY;
+            for (Edge<Integer> edge : graph.neighbors(path.get(i))) {
+                if (edge.to.equals(path.get(i + 1))) {
+                    cheapest = Math.min(cheapest, edge.weight);
+                }
+            }
+            total += cheapest;
+        }
+        return total;
+    }
+}
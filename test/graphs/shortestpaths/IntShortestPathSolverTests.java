@@ -0,0 +1,252 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+import graphs.IntAStarGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link IntShortestPathSolver} implementations, checked against their {@link ShortestPathSolver}
+ * counterparts on the same random graphs.
+ *
+ * @see IntShortestPathSolver
+ */
+public class IntShortestPathSolverTests {
+    /**
+     * Number of vertices in each random graph.
+     */
+    private static final int SIZE = 200;
+    /**
+     * Number of random graphs to check.
+     */
+    private static final int TRIALS = 20;
+    /**
+     * Error tolerance for distances.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void matchesBoxedSolvers() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            RandomGraph graph = new RandomGraph(random, false);
+            int start = random.nextInt(SIZE);
+            check(graph, new DijkstraSolver<>(graph, start), new IntDijkstraSolver(graph, start));
+            check(graph, new BellmanFordSolver<>(graph, start), new IntBellmanFordSolver(graph, start));
+            check(graph, new SPFASolver<>(graph, start), new IntSPFASolver(graph, start));
+        }
+    }
+
+    @Test
+    void matchesBoxedToposortDAGSolver() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            RandomGraph graph = new RandomGraph(random, true);
+            int start = random.nextInt(SIZE);
+            check(graph, new ToposortDAGSolver<>(graph, start), new IntToposortDAGSolver(graph, start));
+        }
+    }
+
+    @Test
+    void aStarMatchesDijkstra() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            RandomGraph graph = new RandomGraph(random, false);
+            int start = random.nextInt(SIZE);
+            int goal = random.nextInt(SIZE);
+            IntDijkstraSolver expected = new IntDijkstraSolver(graph, start);
+            IntAStarSolver actual = new IntAStarSolver(graph, start, goal);
+            assertEquals(expected.distTo(goal), actual.distance(), EPSILON);
+            if (actual.distance() < Double.POSITIVE_INFINITY) {
+                assertEquals(actual.distance(), weight(graph, actual.solution()), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void dijkstraStopsAtTargetsAndMaxDistance() {
+        Random random = new Random(373);
+        RandomGraph graph = new RandomGraph(random, false);
+        IntDijkstraSolver all = new IntDijkstraSolver(graph, 0);
+        int[] targets = {5, 17, 42};
+        IntDijkstraSolver targeted = new IntDijkstraSolver(graph, 0, targets, Double.POSITIVE_INFINITY);
+        for (int target : targets) {
+            assertEquals(all.distTo(target), targeted.distTo(target), EPSILON);
+        }
+        double maxDistance = 2.0;
+        IntDijkstraSolver bounded = new IntDijkstraSolver(graph, 0, null, maxDistance);
+        for (int v = 0; v < SIZE; v += 1) {
+            assertEquals(all.distTo(v) <= maxDistance, bounded.reached(v), "vertex " + v);
+        }
+    }
+
+    @Test
+    void consecutiveSearchesKeepTheirResults() {
+        // Every search on this thread reuses the same workspace, so earlier results must not change.
+        Random random = new Random(373);
+        RandomGraph graph = new RandomGraph(random, false);
+        List<IntDijkstraSolver> solvers = new ArrayList<>();
+        List<IntDijkstraSolver> bounded = new ArrayList<>();
+        List<IntAStarSolver> aStars = new ArrayList<>();
+        for (int start = 0; start < 10; start += 1) {
+            solvers.add(new IntDijkstraSolver(graph, start));
+            bounded.add(new IntDijkstraSolver(graph, start, null, 0.5));
+            aStars.add(new IntAStarSolver(graph, start, SIZE - 1 - start));
+        }
+        for (int start = 0; start < 10; start += 1) {
+            DijkstraSolver<Integer> expected = new DijkstraSolver<>(graph, start);
+            check(graph, expected, solvers.get(start));
+            for (int v = 0; v < SIZE; v += 1) {
+                assertEquals(expected.distTo(v) <= 0.5, bounded.get(start).reached(v), "vertex " + v);
+            }
+            assertEquals(expected.distTo(SIZE - 1 - start), aStars.get(start).distance(), EPSILON);
+        }
+    }
+
+    @Test
+    void reachedListsEveryReachedVertex() {
+        Random random = new Random(373);
+        RandomGraph graph = new RandomGraph(random, false);
+        for (double maxDistance : new double[]{0.0, 0.3, 1.0, Double.POSITIVE_INFINITY}) {
+            IntDijkstraSolver solver = new IntDijkstraSolver(graph, 0, null, maxDistance);
+            List<Integer> expected = new ArrayList<>();
+            for (int v = 0; v < SIZE; v += 1) {
+                if (solver.reached(v)) {
+                    expected.add(v);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), solver.reached());
+        }
+    }
+
+    @Test
+    void nestedSearchesUseSeparateWorkspaces() {
+        Random random = new Random(373);
+        RandomGraph graph = new RandomGraph(random, false);
+        IntDijkstraSolver expected = new IntDijkstraSolver(graph, 0);
+        // Runs another search from inside every degree lookup of the outer search.
+        RandomGraph nesting = new RandomGraph(new Random(373), false) {
+            @Override
+            public int degree(int vertex) {
+                assertEquals(expected.distTo(vertex), new IntDijkstraSolver(graph, 0).distTo(vertex), EPSILON);
+                return super.degree(vertex);
+            }
+        };
+        check(graph, new DijkstraSolver<>(graph, 0), new IntDijkstraSolver(nesting, 0));
+    }
+
+    /**
+     * Asserts that both solvers agree on the distance to every vertex and that every path found by the primitive
+     * solver has the reported weight.
+     *
+     * @param graph    the input graph.
+     * @param expected the boxed solver.
+     * @param actual   the primitive solver.
+     */
+    private static void check(RandomGraph graph, ShortestPathSolver<Integer> expected, IntShortestPathSolver actual) {
+        for (int v = 0; v < SIZE; v += 1) {
+            assertEquals(expected.distTo(v), actual.distTo(v), EPSILON, "vertex " + v);
+            if (actual.distTo(v) < Double.POSITIVE_INFINITY) {
+                int[] path = actual.solution(v);
+                assertEquals(v, path[path.length - 1]);
+                assertEquals(actual.distTo(v), weight(graph, path), EPSILON, "vertex " + v);
+            }
+        }
+    }
+
+    /**
+     * Returns the total weight of the cheapest edges along the path.
+     *
+     * @param graph the input graph.
+     * @param path  the vertices on the path.
+     * @return the total weight of the path.
+     */
+    private static double weight(RandomGraph graph, int[] path) {
+        double total = 0.0;
+        for (int i = 0; i + 1 < path.length; i += 1) {
+            double cheapest = Double.POSITIVE_INFINITY;
+            for (int e = 0; e < graph.degree(path[i]); e += 1) {
+                if (graph.target(path[i], e) == path[i + 1]) {
+                    cheapest = Math.min(cheapest, graph.weight(path[i], e));
+                }
+            }
+            total += cheapest;
+        }
+        return total;
+    }
+
+    /**
+     * Random sparse graph that is both an {@link IntAStarGraph} and a boxed {@link Graph} over the same edges, with a
+     * zero estimate so that A* search must agree with Dijkstra's algorithm.
+     */
+    private static class RandomGraph implements IntAStarGraph, Graph<Integer> {
+        /**
+         * The destination vertex of each outgoing edge from each vertex.
+         */
+        private final int[][] targets;
+        /**
+         * The weight of each outgoing edge from each vertex.
+         */
+        private final double[][] weights;
+
+        /**
+         * Constructs a random graph with non-negative weights.
+         *
+         * @param random  the source of randomness.
+         * @param acyclic true if edges should only go from lower to higher vertices.
+         */
+        RandomGraph(Random random, boolean acyclic) {
+            targets = new int[SIZE][];
+            weights = new double[SIZE][];
+            for (int v = 0; v < SIZE; v += 1) {
+                int degree = acyclic && v == SIZE - 1 ? 0 : random.nextInt(5);
+                targets[v] = new int[degree];
+                weights[v] = new double[degree];
+                for (int e = 0; e < degree; e += 1) {
+                    targets[v][e] = acyclic ? v + 1 + random.nextInt(SIZE - v - 1) : random.nextInt(SIZE);
+                    weights[v][e] = random.nextDouble();
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return SIZE;
+        }
+
+        @Override
+        public int degree(int vertex) {
+            return targets[vertex].length;
+        }
+
+        @Override
+        public int target(int vertex, int edge) {
+            return targets[vertex][edge];
+        }
+
+        @Override
+        public double weight(int vertex, int edge) {
+            return weights[vertex][edge];
+        }
+
+        @Override
+        public double estimatedDistance(int start, int end) {
+            return 0.0;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            List<Edge<Integer>> result = new ArrayList<>(degree(vertex));
+            for (int e = 0; e < degree(vertex); e += 1) {
+                result.add(new Edge<>(vertex, targets[vertex][e], weights[vertex][e]));
+            }
+            return result;
+        }
+    }
+}
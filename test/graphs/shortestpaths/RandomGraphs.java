@@ -0,0 +1,45 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random boxed graphs with non-negative weights shared by the tests of the {@link ShortestPathSolver} implementations
+ * and the solvers built on them.
+ */
+final class RandomGraphs {
+    private RandomGraphs() {
+    }
+
+    /**
+     * Returns a random sparse graph with non-negative weights. Each vertex has fewer than the given number of edges to
+     * random vertices, after an edge to the next vertex around a directed cycle through every vertex if requested,
+     * which makes the graph strongly connected.
+     *
+     * @param random    the source of randomness.
+     * @param size      the number of vertices.
+     * @param cycle     true if each vertex should have an edge to the next vertex around a cycle.
+     * @param degrees   the exclusive upper bound on the number of random edges from each vertex.
+     * @param maxWeight the exclusive upper bound on the weight of each random edge.
+     * @return a random graph on the vertices from 0 up to size.
+     */
+    static Graph<Integer> randomGraph(Random random, int size, boolean cycle, int degrees, double maxWeight) {
+        List<List<Edge<Integer>>> edges = new ArrayList<>(size);
+        for (int v = 0; v < size; v += 1) {
+            List<Edge<Integer>> neighbors = new ArrayList<>();
+            if (cycle) {
+                neighbors.add(new Edge<>(v, (v + 1) % size, random.nextDouble()));
+            }
+            int degree = random.nextInt(degrees);
+            for (int e = 0; e < degree; e += 1) {
+                neighbors.add(new Edge<>(v, random.nextInt(size), random.nextDouble() * maxWeight));
+            }
+            edges.add(neighbors);
+        }
+        return v -> edges.get(v);
+    }
+}
@@ -0,0 +1,232 @@
+package graphs.shortestpaths;
+
+import graphs.Edge;
+import graphs.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TripSolver} class, checking optimized trips against the best order found by brute force.
+ *
+ * @see TripSolver
+ */
+public class TripSolverTests {
+    /**
+     * Number of vertices in each random graph.
+     */
+    private static final int SIZE = 60;
+    /**
+     * Number of random trips to check for each number of stops.
+     */
+    private static final int TRIALS = 30;
+    /**
+     * Maximum number of stops in a random trip, which keeps brute force fast.
+     */
+    private static final int MAX_STOPS = 7;
+    /**
+     * Number of stops in a trip too long to be ordered exactly.
+     */
+    private static final int LONG_TRIP = 20;
+    /**
+     * Error tolerance for distances.
+     */
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void optimizedTripsMatchBruteForce() {
+        Random random = new Random(373);
+        for (int k = 2; k <= MAX_STOPS; k += 1) {
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, true, 4, 5);
+                List<Integer> stops = randomStops(random, k);
+                TripSolver<Integer> trip = new TripSolver<>(graph, stops, true);
+                assertEquals(bruteForce(graph, stops), trip.distance(), EPSILON, "stops " + stops);
+                checkTrip(graph, stops, trip);
+            }
+        }
+    }
+
+    @Test
+    void longOptimizedTripsVisitEveryStop() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, true, 4, 5);
+            List<Integer> stops = randomStops(random, LONG_TRIP);
+            TripSolver<Integer> trip = new TripSolver<>(graph, stops, true);
+            checkTrip(graph, stops, trip);
+        }
+    }
+
+    @Test
+    void unoptimizedTripsKeepTheGivenOrder() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            Graph<Integer> graph = RandomGraphs.randomGraph(random, SIZE, true, 4, 5);
+            List<Integer> stops = randomStops(random, MAX_STOPS);
+            TripSolver<Integer> trip = new TripSolver<>(graph, stops, false);
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), trip.order());
+            double expected = 0.0;
+            for (int i = 1; i < stops.size(); i += 1) {
+                expected += new DijkstraSolver<>(graph, stops.get(i - 1)).distTo(stops.get(i));
+            }
+            assertEquals(expected, trip.distance(), EPSILON);
+            checkTrip(graph, stops, trip);
+        }
+    }
+
+    @Test
+    void noStopsThrows() {
+        Graph<Integer> graph = RandomGraphs.randomGraph(new Random(373), SIZE, true, 4, 5);
+        assertThrows(IllegalArgumentException.class, () -> new TripSolver<>(graph, List.of(), true));
+        assertThrows(IllegalArgumentException.class, () -> new TripSolver<>(graph, List.of(), false));
+    }
+
+    @Test
+    void oneStopIsAnEmptyTrip() {
+        Graph<Integer> graph = RandomGraphs.randomGraph(new Random(373), SIZE, true, 4, 5);
+        for (boolean optimize : new boolean[]{false, true}) {
+            TripSolver<Integer> trip = new TripSolver<>(graph, List.of(5), optimize);
+            assertEquals(List.of(0), trip.order());
+            assertEquals(0.0, trip.distance());
+            assertEquals(List.of(5), trip.solution());
+        }
+    }
+
+    @Test
+    void twoStopsIsTheShortestPath() {
+        Graph<Integer> graph = RandomGraphs.randomGraph(new Random(373), SIZE, true, 4, 5);
+        DijkstraSolver<Integer> expected = new DijkstraSolver<>(graph, 5);
+        for (boolean optimize : new boolean[]{false, true}) {
+            TripSolver<Integer> trip = new TripSolver<>(graph, List.of(5, 17), optimize);
+            assertEquals(List.of(0, 1), trip.order());
+            assertEquals(expected.distTo(17), trip.distance(), EPSILON);
+            assertEquals(expected.solution(17), trip.solution());
+        }
+    }
+
+    @Test
+    void unreachableStopHasNoTrip() {
+        // Vertex 3 has no incoming edges.
+        List<List<Edge<Integer>>> edges = List.of(
+                List.of(new Edge<>(0, 1, 1.0), new Edge<>(0, 2, 4.0)),
+                List.of(new Edge<>(1, 2, 1.0), new Edge<>(1, 0, 1.0)),
+                List.of(new Edge<>(2, 0, 1.0)),
+                List.of(new Edge<>(3, 0, 1.0))
+        );
+        Graph<Integer> graph = v -> edges.get(v);
+        for (boolean optimize : new boolean[]{false, true}) {
+            TripSolver<Integer> trip = new TripSolver<>(graph, List.of(0, 3, 2), optimize);
+            assertEquals(0, trip.order().get(0));
+            assertEquals(3, trip.order().size());
+            assertEquals(Double.POSITIVE_INFINITY, trip.distance());
+            assertEquals(List.of(), trip.solution());
+        }
+        TripSolver<Integer> reachable = new TripSolver<>(graph, List.of(3, 2, 1), true);
+        assertEquals(List.of(0, 2, 1), reachable.order());
+        assertEquals(3.0, reachable.distance(), EPSILON);
+        assertEquals(List.of(3, 0, 1, 2), reachable.solution());
+    }
+
+    /**
+     * Asserts that the trip begins at the first stop, visits every stop in its order, and has the reported weight.
+     *
+     * @param graph the input graph.
+     * @param stops the stops of the trip.
+     * @param trip  the trip to check.
+     */
+    private static void checkTrip(Graph<Integer> graph, List<Integer> stops, TripSolver<Integer> trip) {
+        List<Integer> order = trip.order();
+        assertEquals(0, order.get(0));
+        assertEquals(stops.size(), order.stream().distinct().count());
+        List<Integer> path = trip.solution();
+        assertEquals(stops.get(0), path.get(0));
+        assertEquals(stops.get(order.get(order.size() - 1)), path.get(path.size() - 1));
+        int next = 1;
+        for (int vertex : path) {
+            if (next < order.size() && vertex == stops.get(order.get(next))) {
+                next += 1;
+            }
+        }
+        assertEquals(order.size(), next, "trip " + path + " does not visit the stops in order " + order);
+        double total = 0.0;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            double cheapest = Double.POSITIVE_INFINITY;
+            for (Edge<Integer> edge : graph.neighbors(path.get(i))) {
+                if (edge.to.equals(path.get(i + 1))) {
+                    cheapest = Math.min(cheapest, edge.weight);
+                }
+            }
+            total += cheapest;
+        }
+        assertEquals(trip.distance(), total, EPSILON);
+    }
+
+    /**
+     * Returns the least total distance of any trip that begins at the first stop and visits the others in any order,
+     * by trying every order.
+     *
+     * @param graph the input graph.
+     * @param stops the stops of the trip.
+     * @return the least total distance of any trip visiting the stops.
+     */
+    private static double bruteForce(Graph<Integer> graph, List<Integer> stops) {
+        int k = stops.size();
+        double[][] dist = new double[k][k];
+        for (int i = 0; i < k; i += 1) {
+            DijkstraSolver<Integer> solver = new DijkstraSolver<>(graph, stops.get(i));
+            for (int j = 0; j < k; j += 1) {
+                dist[i][j] = solver.distTo(stops.get(j));
+            }
+        }
+        boolean[] visited = new boolean[k];
+        visited[0] = true;
+        return bruteForce(dist, visited, 0, k - 1);
+    }
+
+    /**
+     * Returns the least total distance of visiting every unvisited stop in any order from the current stop.
+     *
+     * @param dist      the distance table between each pair of stops.
+     * @param visited   whether each stop has already been visited.
+     * @param current   the current stop.
+     * @param remaining the number of unvisited stops.
+     * @return the least total distance of visiting the unvisited stops.
+     */
+    private static double bruteForce(double[][] dist, boolean[] visited, int current, int remaining) {
+        if (remaining == 0) {
+            return 0.0;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int next = 0; next < visited.length; next += 1) {
+            if (!visited[next]) {
+                visited[next] = true;
+                best = Math.min(best, dist[current][next] + bruteForce(dist, visited, next, remaining - 1));
+                visited[next] = false;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the given number of distinct random stops.
+     *
+     * @param random the source of randomness.
+     * @param k      the number of stops.
+     * @return a list of k distinct vertices.
+     */
+    private static List<Integer> randomStops(Random random, int k) {
+        List<Integer> result = new ArrayList<>(k);
+        while (result.size() < k) {
+            int stop = random.nextInt(SIZE);
+            if (!result.contains(stop)) {
+                result.add(stop);
+            }
+        }
+        return result;
+    }
+}
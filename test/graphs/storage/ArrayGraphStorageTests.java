@@ -0,0 +1,232 @@
+package graphs.storage;
+
+import graphs.AStarGraph;
+import graphs.Edge;
+import graphs.shortestpaths.AStarSolver;
+import graphs.shortestpaths.DijkstraSolver;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import spatial.HilbertCurve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ArrayGraphStorage} class.
+ *
+ * @see ArrayGraphStorage
+ */
+public class ArrayGraphStorageTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int GRID_SIZE = 100;
+
+    @Test
+    void hilbertNumberingPreservesDistances() {
+        StreetGrid grid = new StreetGrid(GRID_SIZE, 373);
+        int[] shuffled = grid.shuffledOrder(373);
+        int[] hilbert = HilbertCurve.order(grid.lats, grid.lons);
+        StorageGraph a = new StorageGraph(grid.storage(shuffled));
+        StorageGraph b = new StorageGraph(grid.storage(hilbert));
+        int[] aIds = inverse(shuffled);
+        int[] bIds = inverse(hilbert);
+        Random random = new Random(373);
+        for (int trial = 0; trial < 10; trial += 1) {
+            int source = random.nextInt(grid.lats.length);
+            DijkstraSolver<Integer> aSolver = new DijkstraSolver<>(a, aIds[source]);
+            DijkstraSolver<Integer> bSolver = new DijkstraSolver<>(b, bIds[source]);
+            for (int v = 0; v < grid.lats.length; v += 1) {
+                assertEquals(aSolver.distTo(aIds[v]), bSolver.distTo(bIds[v]), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void inconsistentArraysThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new ArrayGraphStorage(
+                new double[2], new double[2], new int[]{0, 1}, new int[1], new double[1]));
+        assertThrows(IllegalArgumentException.class, () -> new ArrayGraphStorage(
+                new double[1], new double[1], new int[]{0, 2}, new int[1], new double[1]));
+    }
+
+    /**
+     * Returns the inverse of the permutation.
+     *
+     * @param order an array whose i-th element is the original index of the i-th vertex.
+     * @return an array whose i-th element is the new number of the original i-th vertex.
+     */
+    private static int[] inverse(int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i += 1) {
+            result[order[i]] = i;
+        }
+        return result;
+    }
+
+    @Nested
+    @Disabled
+    class RuntimeExperiments {
+        /**
+         * Maximum number of rows and columns in the street grid. Making this smaller means experiments run faster.
+         */
+        private static final int MAX_SIZE = 500;
+        /**
+         * Step size increment. Making this smaller means experiments run slower.
+         */
+        private static final int STEP = 50;
+        /**
+         * Number of trials per implementation run. Making this smaller means experiments run faster.
+         */
+        private static final int NUM_TRIALS = 25;
+
+        /**
+         * Compares the average query runtime of Dijkstra's algorithm and A* search on a street grid with randomly
+         * shuffled vertex numbers against the same grid numbered along a Hilbert curve. Each row prints the grid size,
+         * then the shuffled and Hilbert Dijkstra runtimes, then the shuffled and Hilbert A* runtimes. To count cache
+         * misses as well, run this experiment under {@code perf stat -e cache-misses,cache-references} once with each
+         * numbering.
+         */
+        @Test
+        void shuffledVersusHilbertNumbering() {
+            for (int size = STEP; size <= MAX_SIZE; size += STEP) {
+                StreetGrid grid = new StreetGrid(size, 373);
+                int[] shuffled = grid.shuffledOrder(373);
+                int[] hilbert = HilbertCurve.order(grid.lats, grid.lons);
+                StorageGraph a = new StorageGraph(grid.storage(shuffled));
+                StorageGraph b = new StorageGraph(grid.storage(hilbert));
+                int[] aIds = inverse(shuffled);
+                int[] bIds = inverse(hilbert);
+                Random random = new Random(373);
+                long[] totals = new long[4];
+                for (int i = 0; i < NUM_TRIALS; i += 1) {
+                    int start = random.nextInt(grid.lats.length);
+                    int goal = random.nextInt(grid.lats.length);
+                    totals[0] += time(() -> new DijkstraSolver<>(a, aIds[start], List.of(aIds[goal])));
+                    totals[1] += time(() -> new DijkstraSolver<>(b, bIds[start], List.of(bIds[goal])));
+                    totals[2] += time(() -> new AStarSolver<>(a, aIds[start], aIds[goal]));
+                    totals[3] += time(() -> new AStarSolver<>(b, bIds[start], bIds[goal]));
+                }
+                System.out.print(size);
+                for (long total : totals) {
+                    System.out.print(',');
+                    System.out.print(total / (double) NUM_TRIALS);
+                }
+                System.out.println();
+            }
+        }
+
+        /**
+         * Returns the runtime in nanoseconds of the task.
+         *
+         * @param task the task to run.
+         * @return the runtime in nanoseconds of the task.
+         */
+        private long time(Runnable task) {
+            long start = System.nanoTime();
+            task.run();
+            return System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Square grid of streets with slightly jittered intersections, in the original row-major numbering.
+     */
+    private static class StreetGrid {
+        final double[] lats, lons;
+        final int size;
+
+        StreetGrid(int size, long seed) {
+            Random random = new Random(seed);
+            this.size = size;
+            lats = new double[size * size];
+            lons = new double[size * size];
+            for (int r = 0; r < size; r += 1) {
+                for (int c = 0; c < size; c += 1) {
+                    lats[r * size + c] = 47.5 + 0.001 * (r + 0.3 * random.nextDouble());
+                    lons[r * size + c] = -122.4 + 0.001 * (c + 0.3 * random.nextDouble());
+                }
+            }
+        }
+
+        /**
+         * Returns a random numbering of the intersections, simulating {@link java.util.HashMap} iteration order.
+         *
+         * @param seed the random seed.
+         * @return an array whose i-th element is the original index of the i-th vertex.
+         */
+        int[] shuffledOrder(long seed) {
+            Random random = new Random(seed);
+            int[] order = new int[lats.length];
+            for (int i = 0; i < order.length; i += 1) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            return order;
+        }
+
+        /**
+         * Returns the storage for this grid with the intersections numbered in the given order.
+         *
+         * @param order an array whose i-th element is the original index of the i-th vertex.
+         * @return the storage for this grid.
+         */
+        GraphStorage storage(int[] order) {
+            int[] ids = inverse(order);
+            int n = order.length;
+            double[] vertexLats = new double[n], vertexLons = new double[n];
+            int[] offsets = new int[n + 1];
+            List<Integer> targets = new ArrayList<>();
+            List<Double> weights = new ArrayList<>();
+            for (int i = 0; i < n; i += 1) {
+                int v = order[i];
+                vertexLats[i] = lats[v];
+                vertexLons[i] = lons[v];
+                int r = v / size, c = v % size;
+                int[][] moves = {{r - 1, c}, {r + 1, c}, {r, c - 1}, {r, c + 1}};
+                for (int[] move : moves) {
+                    if (move[0] >= 0 && move[0] < size && move[1] >= 0 && move[1] < size) {
+                        int w = move[0] * size + move[1];
+                        targets.add(ids[w]);
+                        weights.add(Math.hypot(lats[v] - lats[w], lons[v] - lons[w]));
+                    }
+                }
+                offsets[i + 1] = targets.size();
+            }
+            return new ArrayGraphStorage(vertexLats, vertexLons, offsets,
+                    targets.stream().mapToInt(Integer::intValue).toArray(),
+                    weights.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+    }
+
+    /**
+     * {@link AStarGraph} view of a {@link GraphStorage} with vertex numbers as vertices.
+     */
+    private static class StorageGraph implements AStarGraph<Integer> {
+        final GraphStorage storage;
+
+        StorageGraph(GraphStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            int first = storage.firstEdge(vertex), last = storage.firstEdge(vertex + 1);
+            List<Edge<Integer>> result = new ArrayList<>(last - first);
+            for (int edge = first; edge < last; edge += 1) {
+                result.add(new Edge<>(vertex, storage.target(edge), storage.weight(edge)));
+            }
+            return result;
+        }
+
+        @Override
+        public double estimatedDistance(Integer start, Integer end) {
+            return Math.hypot(storage.lat(start) - storage.lat(end), storage.lon(start) - storage.lon(end));
+        }
+    }
+}
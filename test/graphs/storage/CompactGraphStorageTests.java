@@ -0,0 +1,78 @@
+package graphs.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link CompactGraphStorage} class.
+ *
+ * @see CompactGraphStorage
+ */
+public class CompactGraphStorageTests {
+    @Test
+    void sevenDecimalCoordinatesAreExact() {
+        Random random = new Random(373);
+        int n = 10000;
+        double[] lats = new double[n], lons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            // Parse coordinates from text with 7 decimal places, as in an OpenStreetMap file.
+            lats[i] = Double.parseDouble(String.format("%.7f", random.nextDouble() * 180 - 90));
+            lons[i] = Double.parseDouble(String.format("%.7f", random.nextDouble() * 360 - 180));
+        }
+        GraphStorage storage = new CompactGraphStorage(lats, lons, new int[n + 1], new int[0], new double[0]);
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(lats[i], storage.lat(i));
+            assertEquals(lons[i], storage.lon(i));
+        }
+    }
+
+    @Test
+    void otherCoordinatesAreWithinHalfAUnit() {
+        Random random = new Random(373);
+        int n = 10000;
+        double[] lats = new double[n], lons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+        GraphStorage storage = new CompactGraphStorage(lats, lons, new int[n + 1], new int[0], new double[0]);
+        for (int i = 0; i < n; i += 1) {
+            assertEquals(lats[i], storage.lat(i), 5e-8 + 1e-12);
+            assertEquals(lons[i], storage.lon(i), 5e-8 + 1e-12);
+        }
+    }
+
+    @Test
+    void weightsAreRoundedUp() {
+        Random random = new Random(373);
+        int m = 10000;
+        double[] weights = new double[m];
+        int[] targets = new int[m];
+        for (int i = 0; i < m; i += 1) {
+            weights[i] = Math.pow(10, random.nextDouble() * 20 - 10);
+        }
+        weights[0] = 0;
+        weights[1] = Double.POSITIVE_INFINITY;
+        GraphStorage storage = new CompactGraphStorage(new double[1], new double[1], new int[]{0, m}, targets, weights);
+        assertEquals(m, storage.firstEdge(1));
+        for (int i = 2; i < m; i += 1) {
+            assertTrue(storage.weight(i) >= weights[i]);
+            assertTrue(storage.weight(i) - weights[i] <= weights[i] * Math.pow(2, -23));
+        }
+        assertEquals(0.0, storage.weight(0));
+        assertEquals(Double.POSITIVE_INFINITY, storage.weight(1));
+    }
+
+    @Test
+    void invalidArraysThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new CompactGraphStorage(
+                new double[2], new double[2], new int[]{0, 1}, new int[1], new double[1]));
+        assertThrows(IllegalArgumentException.class, () -> new CompactGraphStorage(
+                new double[]{91}, new double[1], new int[]{0, 0}, new int[0], new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new CompactGraphStorage(
+                new double[1], new double[]{Double.NaN}, new int[]{0, 0}, new int[0], new double[0]));
+    }
+}
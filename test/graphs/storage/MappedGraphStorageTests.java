@@ -0,0 +1,115 @@
+package graphs.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MappedGraphStorage} class.
+ *
+ * @see MappedGraphStorage
+ */
+public class MappedGraphStorageTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void mappedStorageMatchesCompactStorage() throws IOException {
+        GraphStorage expected = randomStorage(1000, 373);
+        Path path = directory.resolve("graph");
+        MappedGraphStorage.write(expected, path, 1);
+        GraphStorage actual = MappedGraphStorage.open(path, 1);
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i += 1) {
+            assertEquals(expected.lat(i), actual.lat(i));
+            assertEquals(expected.lon(i), actual.lon(i));
+            assertEquals(expected.firstEdge(i), actual.firstEdge(i));
+        }
+        assertEquals(expected.firstEdge(expected.size()), actual.firstEdge(actual.size()));
+        for (int edge = 0; edge < expected.firstEdge(expected.size()); edge += 1) {
+            assertEquals(expected.target(edge), actual.target(edge));
+            assertEquals(expected.weight(edge), actual.weight(edge));
+        }
+    }
+
+    @Test
+    void placesAreStoredInTheFile() throws IOException {
+        PlaceTable expected = PlaceTable.of(new String[]{"Zoo", "Coffee", "Coffee"},
+                new double[]{47.6, 47.61, 47.62}, new double[]{-122.3, -122.31, -122.32});
+        Path path = directory.resolve("graph");
+        MappedGraphStorage.write(randomStorage(100, 373), expected, path, 1);
+        PlaceTable actual = MappedGraphStorage.open(path, 1).places();
+        assertEquals(3, actual.size());
+        for (int i = 0; i < expected.size(); i += 1) {
+            assertEquals(expected.name(i), actual.name(i));
+            assertEquals(expected.lat(i), actual.lat(i));
+            assertEquals(expected.lon(i), actual.lon(i));
+        }
+        MappedGraphStorage.write(randomStorage(100, 373), path, 1);
+        assertEquals(0, MappedGraphStorage.open(path, 1).places().size());
+    }
+
+    @Test
+    void rewritingReplacesFile() throws IOException {
+        Path path = directory.resolve("graph");
+        MappedGraphStorage.write(randomStorage(100, 1), path, 1);
+        GraphStorage first = MappedGraphStorage.open(path, 1);
+        MappedGraphStorage.write(randomStorage(200, 2), path, 2);
+        assertNull(MappedGraphStorage.open(path, 1));
+        assertEquals(200, MappedGraphStorage.open(path, 2).size());
+        // Storage mapped from the replaced file remains readable.
+        assertEquals(100, first.size());
+        assertEquals(randomStorage(100, 1).lat(99), first.lat(99));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void unusableFilesAreIgnored() throws IOException {
+        Path path = directory.resolve("graph");
+        assertNull(MappedGraphStorage.open(path, 1));
+        MappedGraphStorage.write(randomStorage(100, 373), path, 1);
+        assertNull(MappedGraphStorage.open(path, 2));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertNull(MappedGraphStorage.open(path, 1));
+        Files.write(path, new byte[]{1, 2, 3});
+        assertNull(MappedGraphStorage.open(path, 1));
+    }
+
+    /**
+     * Returns a random compact storage with the given number of vertices, each with up to four outgoing edges.
+     *
+     * @param size the number of vertices.
+     * @param seed the random seed.
+     * @return a random compact storage.
+     */
+    private static GraphStorage randomStorage(int size, long seed) {
+        Random random = new Random(seed);
+        double[] lats = new double[size], lons = new double[size];
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i += 1) {
+            lats[i] = 47.5 + random.nextDouble() * 0.2;
+            lons[i] = -122.4 + random.nextDouble() * 0.2;
+            offsets[i + 1] = offsets[i] + random.nextInt(5);
+        }
+        int[] targets = new int[offsets[size]];
+        double[] weights = new double[targets.length];
+        for (int edge = 0; edge < targets.length; edge += 1) {
+            targets[edge] = random.nextInt(size);
+            weights[edge] = random.nextDouble() * 0.01;
+        }
+        return new CompactGraphStorage(lats, lons, offsets, targets, weights);
+    }
+}
@@ -0,0 +1,144 @@
+package graphs.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PlaceTable} class.
+ *
+ * @see PlaceTable
+ */
+public class PlaceTableTests {
+    /**
+     * Names with shared prefixes and characters outside of ASCII.
+     */
+    private static final String[] NAMES = {
+            "Café Allegro", "Cafe Ladro", "Cafe", "Coffee", "Coffee", "Zoo", "Ünion Bay", "Coffee", "Cafe Ladro", "C"
+    };
+
+    @Test
+    void placesAreFoundByExactName() {
+        PlaceTable table = table(NAMES);
+        assertEquals(NAMES.length, table.size());
+        int[] coffee = table.places("Coffee");
+        assertEquals(3, coffee.length);
+        // Places with the same name keep the order in which they were added.
+        assertEquals(3.0, table.lat(coffee[0]));
+        assertEquals(4.0, table.lat(coffee[1]));
+        assertEquals(7.0, table.lat(coffee[2]));
+        for (int i = 0; i < NAMES.length; i += 1) {
+            boolean found = false;
+            for (int place : table.places(NAMES[i])) {
+                assertEquals(NAMES[i], table.name(place));
+                found |= table.lat(place) == i && table.lon(place) == -i;
+            }
+            assertTrue(found, NAMES[i]);
+        }
+        assertEquals(0, table.places("Coffe").length);
+        assertEquals(0, table.places("Zoo Station").length);
+        assertEquals(0, table.places("").length);
+        assertEquals(0, table.places(null).length);
+    }
+
+    @Test
+    void prefixMatchesAreSortedDistinctNames() {
+        PlaceTable table = table(NAMES);
+        assertEquals(List.of("Cafe", "Cafe Ladro", "Café Allegro"), table.allMatches("Caf"));
+        assertEquals(List.of("C", "Cafe", "Cafe Ladro", "Café Allegro", "Coffee"), table.allMatches("C"));
+        assertEquals(List.of("Ünion Bay"), table.allMatches("Ü"));
+        assertEquals(List.of(), table.allMatches("Coffee Shop"));
+        assertEquals(List.of(), table.allMatches(""));
+    }
+
+    @Test
+    void randomPrefixesMatchSortedSet() {
+        Random random = new Random(373);
+        String[] names = new String[2000];
+        for (int i = 0; i < names.length; i += 1) {
+            names[i] = word(random, 1 + random.nextInt(6));
+        }
+        PlaceTable table = table(names);
+        TreeSet<String> expected = new TreeSet<>(List.of(names));
+        for (int trial = 0; trial < 500; trial += 1) {
+            String prefix = word(random, 1 + random.nextInt(3));
+            List<CharSequence> matches = new ArrayList<>();
+            for (String name : expected.tailSet(prefix)) {
+                if (!name.startsWith(prefix)) {
+                    break;
+                }
+                matches.add(name);
+            }
+            assertEquals(matches, table.allMatches(prefix), prefix);
+        }
+    }
+
+    @Test
+    void tableIsReadBackFromItsBuffer() {
+        PlaceTable written = table(NAMES);
+        ByteBuffer copy = ByteBuffer.allocateDirect(written.buffer().remaining()).order(ByteOrder.nativeOrder());
+        copy.put(written.buffer()).flip();
+        PlaceTable read = PlaceTable.read(copy);
+        assertNotNull(read);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i += 1) {
+            assertEquals(written.name(i), read.name(i));
+            assertEquals(written.lat(i), read.lat(i));
+            assertEquals(written.lon(i), read.lon(i));
+        }
+        assertNull(PlaceTable.read(ByteBuffer.allocate(copy.capacity() - 1).order(ByteOrder.nativeOrder())));
+        assertNull(PlaceTable.read(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    void emptyTableHasNoPlaces() {
+        PlaceTable table = table(new String[0]);
+        assertEquals(0, table.size());
+        assertEquals(0, table.places("Coffee").length);
+        assertEquals(List.of(), table.allMatches("C"));
+        assertNotNull(PlaceTable.read(table.buffer()));
+    }
+
+    @Test
+    void mismatchedArraysThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PlaceTable.of(new String[]{"Zoo"}, new double[1], new double[0]));
+    }
+
+    /**
+     * Returns a table of the names, where the place with each name is at latitude i and longitude -i.
+     *
+     * @param names the name of each place.
+     * @return a table of the places.
+     */
+    private static PlaceTable table(String[] names) {
+        double[] lats = new double[names.length], lons = new double[names.length];
+        for (int i = 0; i < names.length; i += 1) {
+            lats[i] = i;
+            lons[i] = -i;
+        }
+        return PlaceTable.of(names, lats, lons);
+    }
+
+    /**
+     * Returns a random word of the given length over a small alphabet, so that many words share prefixes.
+     *
+     * @param random the source of randomness.
+     * @param length the length of the word.
+     * @return a random word.
+     */
+    private static String word(Random random, int length) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i += 1) {
+            result.append("abcé".charAt(random.nextInt(4)));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package graphs.storage;
+
+import graphs.Edge;
+import graphs.Graph;
+import graphs.shortestpaths.DijkstraSolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TiledGraphStorage} class.
+ *
+ * @see TiledGraphStorage
+ */
+public class TiledGraphStorageTests {
+    /**
+     * Number of rows and columns of intersections in the street grid.
+     */
+    private static final int GRID_SIZE = 40;
+    @TempDir
+    Path directory;
+
+    @Test
+    void tiledStorageMatchesCompactStorage() throws IOException {
+        GraphStorage expected = streetGrid(GRID_SIZE);
+        Path path = directory.resolve("graph");
+        // Tile sizes that do and do not divide the number of vertices, including tiles with no edges.
+        for (int tileSize : new int[]{1, 7, 64, GRID_SIZE * GRID_SIZE, 10000}) {
+            TiledGraphStorage.write(expected, path, 1, tileSize);
+            GraphStorage actual = TiledGraphStorage.open(path, 1, 2);
+            assertNotNull(actual);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i <= expected.size(); i += 1) {
+                assertEquals(expected.firstEdge(i), actual.firstEdge(i));
+                if (i < expected.size()) {
+                    assertEquals(expected.lat(i), actual.lat(i));
+                    assertEquals(expected.lon(i), actual.lon(i));
+                }
+            }
+            for (int edge = 0; edge < expected.firstEdge(expected.size()); edge += 1) {
+                assertEquals(expected.target(edge), actual.target(edge));
+                assertEquals(expected.weight(edge), actual.weight(edge));
+            }
+        }
+    }
+
+    @Test
+    void searchesCrossTilesWithBoundedCache() throws IOException {
+        GraphStorage expected = streetGrid(GRID_SIZE);
+        Path path = directory.resolve("graph");
+        TiledGraphStorage.write(expected, path, 1, 50);
+        TiledGraphStorage actual = TiledGraphStorage.open(path, 1, 4);
+        assertEquals(0, actual.loads());
+        Random random = new Random(373);
+        for (int trial = 0; trial < 5; trial += 1) {
+            int source = random.nextInt(expected.size());
+            DijkstraSolver<Integer> expectedSolver = new DijkstraSolver<>(new StorageGraph(expected), source);
+            DijkstraSolver<Integer> actualSolver = new DijkstraSolver<>(new StorageGraph(actual), source);
+            for (int v = 0; v < expected.size(); v += 1) {
+                assertEquals(expectedSolver.distTo(v), actualSolver.distTo(v));
+            }
+        }
+        // Evicted tiles were loaded again, because the cache holds fewer tiles than the graph.
+        assertTrue(actual.loads() > expected.size() / 50);
+    }
+
+    @Test
+    void concurrentSearchesShareTheCache() throws Exception {
+        GraphStorage expected = streetGrid(GRID_SIZE);
+        Path path = directory.resolve("graph");
+        TiledGraphStorage.write(expected, path, 1, 50);
+        TiledGraphStorage actual = TiledGraphStorage.open(path, 1, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> searches = new ArrayList<>();
+            for (int trial = 0; trial < 8; trial += 1) {
+                int source = new Random(trial).nextInt(expected.size());
+                searches.add(executor.submit(() -> {
+                    DijkstraSolver<Integer> expectedSolver = new DijkstraSolver<>(new StorageGraph(expected), source);
+                    DijkstraSolver<Integer> actualSolver = new DijkstraSolver<>(new StorageGraph(actual), source);
+                    for (int v = 0; v < expected.size(); v += 1) {
+                        assertEquals(expectedSolver.distTo(v), actualSolver.distTo(v));
+                    }
+                }));
+            }
+            for (Future<?> search : searches) {
+                search.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void placesAreStoredAfterTheTiles() throws IOException {
+        PlaceTable expected = PlaceTable.of(new String[]{"Zoo", "Coffee", "Coffee"},
+                new double[]{47.6, 47.61, 47.62}, new double[]{-122.3, -122.31, -122.32});
+        Path path = directory.resolve("graph");
+        TiledGraphStorage.write(streetGrid(10), expected, path, 1, 16);
+        TiledGraphStorage actual = TiledGraphStorage.open(path, 1, 4);
+        assertEquals(3, actual.places().size());
+        for (int i = 0; i < expected.size(); i += 1) {
+            assertEquals(expected.name(i), actual.places().name(i));
+            assertEquals(expected.lat(i), actual.places().lat(i));
+        }
+        assertEquals(streetGrid(10).lat(99), actual.lat(99));
+        TiledGraphStorage.write(streetGrid(10), path, 1, 16);
+        assertEquals(0, TiledGraphStorage.open(path, 1, 4).places().size());
+    }
+
+    @Test
+    void unusableFilesAreIgnored() throws IOException {
+        Path path = directory.resolve("graph");
+        assertNull(TiledGraphStorage.open(path, 1, 4));
+        TiledGraphStorage.write(streetGrid(10), path, 1, 16);
+        assertNotNull(TiledGraphStorage.open(path, 1, 4));
+        assertNull(TiledGraphStorage.open(path, 2, 4));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertNull(TiledGraphStorage.open(path, 1, 4));
+        Files.write(path, new byte[]{1, 2, 3});
+        assertNull(TiledGraphStorage.open(path, 1, 4));
+        assertThrows(IllegalArgumentException.class, () -> TiledGraphStorage.open(path, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> TiledGraphStorage.write(streetGrid(10), path, 1, 0));
+    }
+
+    /**
+     * Returns the compact storage for a square grid of streets in row-major order with slightly jittered
+     * intersections. The last row has no edges, so the tiles covering it have no edges.
+     *
+     * @param size the number of rows and columns.
+     * @return the compact storage for the street grid.
+     */
+    private static GraphStorage streetGrid(int size) {
+        Random random = new Random(373);
+        int n = size * size;
+        double[] lats = new double[n], lons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lats[i] = 47.5 + 0.001 * (i / size + 0.3 * random.nextDouble());
+            lons[i] = -122.4 + 0.001 * (i % size + 0.3 * random.nextDouble());
+        }
+        int[] offsets = new int[n + 1];
+        List<Integer> targets = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (int v = 0; v < n; v += 1) {
+            int r = v / size, c = v % size;
+            if (r < size - 1) {
+                int[][] moves = {{r - 1, c}, {r + 1, c}, {r, c - 1}, {r, c + 1}};
+                for (int[] move : moves) {
+                    if (move[0] >= 0 && move[0] < size && move[1] >= 0 && move[1] < size) {
+                        int w = move[0] * size + move[1];
+                        targets.add(w);
+                        weights.add(Math.hypot(lats[v] - lats[w], lons[v] - lons[w]));
+                    }
+                }
+            }
+            offsets[v + 1] = targets.size();
+        }
+        return new CompactGraphStorage(lats, lons, offsets,
+                targets.stream().mapToInt(Integer::intValue).toArray(),
+                weights.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /**
+     * {@link Graph} view of a {@link GraphStorage} with vertex numbers as vertices.
+     */
+    private static class StorageGraph implements Graph<Integer> {
+        final GraphStorage storage;
+
+        StorageGraph(GraphStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public List<Edge<Integer>> neighbors(Integer vertex) {
+            int first = storage.firstEdge(vertex), last = storage.firstEdge(vertex + 1);
+            List<Edge<Integer>> result = new ArrayList<>(last - first);
+            for (int edge = first; edge < last; edge += 1) {
+                result.add(new Edge<>(vertex, storage.target(edge), storage.weight(edge)));
+            }
+            return result;
+        }
+    }
+}
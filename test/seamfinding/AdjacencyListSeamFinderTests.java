@@ -1,6 +1,8 @@
 package seamfinding;
 
 import graphs.shortestpaths.DijkstraSolver;
+import graphs.shortestpaths.IntDijkstraSolver;
+import graphs.shortestpaths.IntToposortDAGSolver;
 import graphs.shortestpaths.ToposortDAGSolver;
 import org.junit.jupiter.api.Nested;
 
@@ -32,4 +34,26 @@ public class AdjacencyListSeamFinderTests {
             return new AdjacencyListSeamFinder(ToposortDAGSolver::new);
         }
     }
+
+    /**
+     * Tests using the {@link IntDijkstraSolver} implementation.
+     */
+    @Nested
+    public class UsingIntDijkstraSolver extends SeamFinderTests {
+        @Override
+        public SeamFinder createSeamFinder() {
+            return AdjacencyListSeamFinder.withIntSolver(IntDijkstraSolver::new);
+        }
+    }
+
+    /**
+     * Tests using the {@link IntToposortDAGSolver} implementation.
+     */
+    @Nested
+    public class UsingIntToposortDAGSolver extends SeamFinderTests {
+        @Override
+        public SeamFinder createSeamFinder() {
+            return AdjacencyListSeamFinder.withIntSolver(IntToposortDAGSolver::new);
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.spatial4j.context.SpatialContext;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link DistanceKernel} implementations.
+ *
+ * @see HaversineKernel
+ * @see EquirectangularKernel
+ */
+public class DistanceKernelTests {
+    @Test
+    void haversineMatchesSpatialContext() {
+        SpatialContext context = SpatialContext.GEO;
+        DistanceKernel kernel = new HaversineKernel();
+        Random random = new Random(373);
+        for (int i = 0; i < 10000; i += 1) {
+            double lat1 = random.nextDouble() * 180 - 90, lon1 = random.nextDouble() * 360 - 180;
+            double lat2 = random.nextDouble() * 180 - 90, lon2 = random.nextDouble() * 360 - 180;
+            assertEquals(context.calcDistance(context.getShapeFactory().pointLatLon(lat1, lon1), lon2, lat2),
+                    kernel.distance(lat1, lon1, lat2, lon2));
+        }
+        assertEquals(0.0, kernel.distance(47.6, -122.3, 47.6, -122.3));
+    }
+
+    @Test
+    void equirectangularNeverOverestimates() {
+        DistanceKernel exact = new HaversineKernel();
+        DistanceKernel kernel = new EquirectangularKernel(47.5, 47.7, -122.45, -122.2);
+        Random random = new Random(373);
+        for (int i = 0; i < 100000; i += 1) {
+            double lat1 = 47.5 + random.nextDouble() * 0.2, lon1 = -122.45 + random.nextDouble() * 0.25;
+            double lat2 = 47.5 + random.nextDouble() * 0.2, lon2 = -122.45 + random.nextDouble() * 0.25;
+            if (i % 2 == 0) {
+                // Nearby points at the precision of OpenStreetMap coordinates.
+                lat2 = lat1 + random.nextInt(100) * 1e-7;
+                lon2 = lon1 + random.nextInt(100) * 1e-7;
+                if (lat2 > 47.7 || lon2 > -122.2) {
+                    continue;
+                }
+            }
+            double expected = exact.distance(lat1, lon1, lat2, lon2);
+            double actual = kernel.distance(lat1, lon1, lat2, lon2);
+            assertTrue(actual <= expected);
+            assertTrue(actual >= expected * 0.99);
+        }
+    }
+
+    @Test
+    void equirectangularFallsBackOutsideRegion() {
+        DistanceKernel exact = new HaversineKernel();
+        DistanceKernel kernel = new EquirectangularKernel(47.5, 47.7, -122.45, -122.2);
+        assertEquals(exact.distance(47.6, -122.3, 40.7, -74.0), kernel.distance(47.6, -122.3, 40.7, -74.0));
+        assertEquals(exact.distance(47.8, -122.3, 47.6, -122.3), kernel.distance(47.8, -122.3, 47.6, -122.3));
+    }
+
+    @Test
+    void invalidRegionsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new EquirectangularKernel(47.7, 47.5, -122.45, -122.2));
+        assertThrows(IllegalArgumentException.class, () -> new EquirectangularKernel(-95, 47.5, -122.45, -122.2));
+        assertThrows(IllegalArgumentException.class, () -> new EquirectangularKernel(47.5, 47.7, -180, 10));
+    }
+}
@@ -0,0 +1,145 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link GridIndex} class.
+ *
+ * @see GridIndex
+ */
+public class GridIndexTests {
+    /**
+     * Latitude and longitude of random points near Seattle.
+     */
+    private final double[] lats, lons;
+
+    public GridIndexTests() {
+        Random random = new Random(373);
+        lats = new double[2000];
+        lons = new double[lats.length];
+        for (int i = 0; i < lats.length; i += 1) {
+            lats[i] = 47.5 + random.nextDouble() * 0.2;
+            lons[i] = -122.4 + random.nextDouble() * 0.2;
+        }
+    }
+
+    @Test
+    void withinRadiusMatchesLinearScan() {
+        GridIndex index = new GridIndex(lats, lons);
+        Random random = new Random(373);
+        double cosLat = Math.cos(Math.toRadians(47.6));
+        for (int q = 0; q < 200; q += 1) {
+            double lat = 47.45 + random.nextDouble() * 0.3;
+            double lon = -122.45 + random.nextDouble() * 0.3;
+            double radius = random.nextDouble() * 0.02;
+            int[] found = index.withinRadius(lat, lon, radius);
+            int expected = 0;
+            for (int i = 0; i < lats.length; i += 1) {
+                if (Math.hypot((lons[i] - lon) * cosLat, lats[i] - lat) <= radius) {
+                    expected += 1;
+                }
+            }
+            assertEquals(expected, found.length);
+            double previous = 0;
+            for (int id : found) {
+                double dist = Math.hypot((lons[id] - lon) * cosLat, lats[id] - lat);
+                assertTrue(dist <= radius);
+                assertTrue(dist >= previous);
+                previous = dist;
+            }
+        }
+    }
+
+    @Test
+    void kNearestMatchesLinearScan() {
+        GridIndex index = new GridIndex(lats, lons);
+        Random random = new Random(373);
+        double cosLat = Math.cos(Math.toRadians(47.6));
+        for (int q = 0; q < 200; q += 1) {
+            // Include targets outside of the bounding box of the points.
+            double lat = 47.3 + random.nextDouble() * 0.6;
+            double lon = -122.6 + random.nextDouble() * 0.6;
+            int k = 1 + random.nextInt(20);
+            double[] expected = new double[lats.length];
+            for (int i = 0; i < lats.length; i += 1) {
+                expected[i] = Math.hypot((lons[i] - lon) * cosLat, lats[i] - lat);
+            }
+            Arrays.sort(expected);
+            int[] found = index.kNearest(lat, lon, k);
+            assertEquals(k, found.length);
+            for (int i = 0; i < k; i += 1) {
+                int id = found[i];
+                assertEquals(expected[i], Math.hypot((lons[id] - lon) * cosLat, lats[id] - lat), 1e-12);
+            }
+            assertEquals(found[0], index.nearest(lat, lon));
+        }
+    }
+
+    @Test
+    void kNearestWithinRadiusMatchesLinearScan() {
+        GridIndex index = new GridIndex(lats, lons);
+        Random random = new Random(373);
+        double cosLat = Math.cos(Math.toRadians(47.6));
+        for (int q = 0; q < 200; q += 1) {
+            double lat = 47.45 + random.nextDouble() * 0.3;
+            double lon = -122.45 + random.nextDouble() * 0.3;
+            double radius = random.nextDouble() * 0.02;
+            int k = 1 + random.nextInt(20);
+            int[] within = index.withinRadius(lat, lon, radius);
+            int[] found = index.kNearest(lat, lon, k, radius);
+            assertEquals(Math.min(k, within.length), found.length);
+            for (int i = 0; i < found.length; i += 1) {
+                assertEquals(Math.hypot((lons[within[i]] - lon) * cosLat, lats[within[i]] - lat),
+                        Math.hypot((lons[found[i]] - lon) * cosLat, lats[found[i]] - lat), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void lowerBoundNeverExceedsExactDistance() {
+        GridIndex index = new GridIndex(lats, lons);
+        DistanceKernel exact = new HaversineKernel();
+        Random random = new Random(373);
+        for (int q = 0; q < 200; q += 1) {
+            // Include targets far outside the points, where the flat projection is most distorted.
+            double spread = q % 2 == 0 ? 0.3 : 30;
+            double lat = 47.6 + (random.nextDouble() - 0.5) * spread;
+            double lon = -122.3 + (random.nextDouble() - 0.5) * spread;
+            int[] found = index.kNearest(lat, lon, 1 + random.nextInt(20));
+            int last = found[found.length - 1];
+            double bound = index.lowerBound(lat, lon, lats[last], lons[last]);
+            assertTrue(bound > 0);
+            boolean[] nearer = new boolean[lats.length];
+            for (int id : found) {
+                nearer[id] = true;
+            }
+            for (int i = 0; i < lats.length; i += 1) {
+                if (!nearer[i] || i == last) {
+                    assertTrue(exact.distance(lat, lon, lats[i], lons[i]) >= bound, "point " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyAndSinglePointIndexes() {
+        assertEquals(0, new GridIndex(new double[0], new double[0]).withinRadius(47.6, -122.3, 1).length);
+        assertEquals(-1, new GridIndex(new double[0], new double[0]).nearest(47.6, -122.3));
+        GridIndex index = new GridIndex(new double[]{47.6}, new double[]{-122.3});
+        assertArrayEquals(new int[]{0}, index.withinRadius(47.6, -122.3, 0.0));
+        assertEquals(0, index.withinRadius(47.7, -122.3, 0.01).length);
+        assertArrayEquals(new int[]{0}, index.kNearest(10, 10, 5));
+        assertArrayEquals(new double[]{-122.3, 47.6, -122.3, 47.6}, index.bounds());
+        assertEquals(0, new GridIndex(new double[0], new double[0]).bounds().length);
+    }
+
+    @Test
+    void mismatchedArraysThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new GridIndex(new double[1], new double[2]));
+    }
+}
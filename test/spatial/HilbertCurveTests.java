@@ -0,0 +1,60 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link HilbertCurve} class.
+ *
+ * @see HilbertCurve
+ */
+public class HilbertCurveTests {
+    @Test
+    void consecutiveIndicesAreAdjacentCells() {
+        // The first 4^8 cells along the curve fill the 256 by 256 square in the corner of the grid.
+        int size = 256;
+        int[] xs = new int[size * size];
+        int[] ys = new int[size * size];
+        Arrays.fill(xs, -1);
+        for (int x = 0; x < size; x += 1) {
+            for (int y = 0; y < size; y += 1) {
+                long d = HilbertCurve.index(x, y);
+                assertTrue(d < size * size);
+                assertEquals(-1, xs[(int) d]);
+                xs[(int) d] = x;
+                ys[(int) d] = y;
+            }
+        }
+        for (int d = 1; d < size * size; d += 1) {
+            assertEquals(1, Math.abs(xs[d] - xs[d - 1]) + Math.abs(ys[d] - ys[d - 1]));
+        }
+    }
+
+    @Test
+    void orderIsPermutationAlongCurve() {
+        Random random = new Random(373);
+        double[] lats = new double[1000];
+        double[] lons = new double[lats.length];
+        for (int i = 0; i < lats.length; i += 1) {
+            lats[i] = 47.5 + random.nextDouble() * 0.2;
+            lons[i] = -122.4 + random.nextDouble() * 0.2;
+        }
+        int[] order = HilbertCurve.order(lats, lons);
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i += 1) {
+            assertEquals(i, sorted[i]);
+        }
+        // Consecutive points along the curve are much closer than random pairs of points on average.
+        double consecutive = 0, shuffled = 0;
+        for (int i = 1; i < order.length; i += 1) {
+            consecutive += Math.hypot(lats[order[i]] - lats[order[i - 1]], lons[order[i]] - lons[order[i - 1]]);
+            shuffled += Math.hypot(lats[i] - lats[i - 1], lons[i] - lons[i - 1]);
+        }
+        assertTrue(consecutive * 4 < shuffled);
+    }
+}
@@ -0,0 +1,31 @@
+package spatial;
+
+/**
+ * Brute-force planar geometry shared by the tests of the spatial indexes, which project points in the same way as
+ * {@link GridIndex} by scaling longitudes by the cosine of a central latitude.
+ */
+final class Planar {
+    private Planar() {
+    }
+
+    /**
+     * Returns the projected distance from the target to the segment, by brute force.
+     *
+     * @param lat1   the latitude of the first endpoint of the segment.
+     * @param lon1   the longitude of the first endpoint of the segment.
+     * @param lat2   the latitude of the second endpoint of the segment.
+     * @param lon2   the longitude of the second endpoint of the segment.
+     * @param lat    the latitude of the target.
+     * @param lon    the longitude of the target.
+     * @param cosLat the cosine of the central latitude for scaling longitudes.
+     * @return the distance from the target to the nearest point on the segment in projected degrees.
+     */
+    static double distanceToSegment(double lat1, double lon1, double lat2, double lon2, double lat, double lon,
+                                    double cosLat) {
+        double ax = lon1 * cosLat, bx = lon2 * cosLat, x = lon * cosLat;
+        double dx = bx - ax, dy = lat2 - lat1;
+        double length2 = dx * dx + dy * dy;
+        double t = length2 == 0 ? 0 : Math.min(Math.max(((x - ax) * dx + (lat - lat1) * dy) / length2, 0), 1);
+        return Math.hypot(ax + t * dx - x, lat1 + t * dy - lat);
+    }
+}
@@ -0,0 +1,83 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PolylineSimplifier} class.
+ *
+ * @see PolylineSimplifier
+ */
+public class PolylineSimplifierTests {
+    @Test
+    void straightLineKeepsEndpoints() {
+        int n = 100;
+        double[] lats = new double[n], lons = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lats[i] = 47.6 + 0.0001 * i;
+            lons[i] = -122.3 + 0.0002 * i;
+        }
+        assertArrayEquals(new int[]{0, n - 1}, PolylineSimplifier.simplify(lats, lons, 1e-6));
+    }
+
+    @Test
+    void zeroToleranceKeepsCorners() {
+        double[] lats = {47.60, 47.60, 47.61, 47.61, 47.61};
+        double[] lons = {-122.30, -122.29, -122.29, -122.28, -122.27};
+        assertArrayEquals(new int[]{0, 1, 2, 4}, PolylineSimplifier.simplify(lats, lons, 0));
+    }
+
+    @Test
+    void removedPointsAreNearSimplifiedLine() {
+        Random random = new Random(373);
+        int n = 5000;
+        double[] lats = new double[n], lons = new double[n];
+        double heading = 0;
+        lats[0] = 47.6;
+        lons[0] = -122.3;
+        for (int i = 1; i < n; i += 1) {
+            heading += (random.nextDouble() - 0.5) * 0.5;
+            lats[i] = lats[i - 1] + 0.00005 * Math.sin(heading);
+            lons[i] = lons[i - 1] + 0.00005 * Math.cos(heading);
+        }
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        for (double lat : lats) {
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+        }
+        double cosLat = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        for (double tolerance : new double[]{1e-5, 1e-4, 1e-3}) {
+            int[] kept = PolylineSimplifier.simplify(lats, lons, tolerance);
+            assertEquals(0, kept[0]);
+            assertEquals(n - 1, kept[kept.length - 1]);
+            assertTrue(kept.length < n);
+            for (int k = 1; k < kept.length; k += 1) {
+                assertTrue(kept[k - 1] < kept[k]);
+                for (int i = kept[k - 1] + 1; i < kept[k]; i += 1) {
+                    double distance = Planar.distanceToSegment(lats[kept[k - 1]], lons[kept[k - 1]], lats[kept[k]],
+                            lons[kept[k]], lats[i], lons[i], cosLat);
+                    assertTrue(distance <= tolerance + 1e-12, "Point " + i + " is " + distance + " away");
+                }
+            }
+        }
+    }
+
+    @Test
+    void shortPolylinesAreUnchanged() {
+        assertArrayEquals(new int[0], PolylineSimplifier.simplify(new double[0], new double[0], 1));
+        assertArrayEquals(new int[]{0}, PolylineSimplifier.simplify(new double[]{47.6}, new double[]{-122.3}, 1));
+        assertArrayEquals(new int[]{0, 1},
+                PolylineSimplifier.simplify(new double[]{47.6, 47.6}, new double[]{-122.3, -122.3}, 1));
+    }
+
+    @Test
+    void invalidArgumentsThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PolylineSimplifier.simplify(new double[2], new double[3], 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> PolylineSimplifier.simplify(new double[2], new double[2], -1));
+    }
+}
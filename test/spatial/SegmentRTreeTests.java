@@ -0,0 +1,100 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SegmentRTree} class.
+ *
+ * @see SegmentRTree
+ */
+public class SegmentRTreeTests {
+    @Test
+    void nearestMatchesLinearScan() {
+        Random random = new Random(373);
+        int n = 5000;
+        double[] lats1 = new double[n], lons1 = new double[n], lats2 = new double[n], lons2 = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            lats1[i] = 47.5 + random.nextDouble() * 0.2;
+            lons1[i] = -122.4 + random.nextDouble() * 0.2;
+            lats2[i] = lats1[i] + (random.nextDouble() - 0.5) * 0.004;
+            lons2[i] = lons1[i] + (random.nextDouble() - 0.5) * 0.004;
+        }
+        SegmentRTree tree = new SegmentRTree(lats1, lons1, lats2, lons2);
+        assertEquals(n, tree.size());
+        double cosLat = Math.cos(Math.toRadians(47.6));
+        for (int q = 0; q < 500; q += 1) {
+            double lat = 47.45 + random.nextDouble() * 0.3;
+            double lon = -122.45 + random.nextDouble() * 0.3;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < n; i += 1) {
+                expected = Math.min(expected,
+                        Planar.distanceToSegment(lats1[i], lons1[i], lats2[i], lons2[i], lat, lon, cosLat));
+            }
+            int found = tree.nearest(lat, lon);
+            double t = tree.fraction(found, lat, lon);
+            assertTrue(t >= 0 && t <= 1);
+            double onLat = lats1[found] + t * (lats2[found] - lats1[found]);
+            double onLon = lons1[found] + t * (lons2[found] - lons1[found]);
+            assertEquals(expected, Math.hypot((onLon - lon) * cosLat, onLat - lat), 1e-6);
+            assertEquals(expected, Planar.distanceToSegment(lats1[found], lons1[found], lats2[found], lons2[found],
+                    lat, lon, cosLat), 1e-6);
+        }
+    }
+
+    @Test
+    void sharedEndpointsMatchCopiedEndpoints() {
+        // A path of points where each segment shares its endpoints with its neighbors, as streets do.
+        Random random = new Random(373);
+        int n = 1000;
+        double[] lats = new double[n + 1], lons = new double[n + 1];
+        int[] from = new int[n], to = new int[n];
+        for (int i = 0; i <= n; i += 1) {
+            lats[i] = 47.5 + random.nextDouble() * 0.2;
+            lons[i] = -122.4 + random.nextDouble() * 0.2;
+        }
+        for (int i = 0; i < n; i += 1) {
+            from[i] = i;
+            to[i] = i + 1;
+        }
+        SegmentRTree shared = new SegmentRTree(Points.of(lats, lons), from, to);
+        SegmentRTree copied = new SegmentRTree(Arrays.copyOf(lats, n), Arrays.copyOf(lons, n),
+                Arrays.copyOfRange(lats, 1, n + 1), Arrays.copyOfRange(lons, 1, n + 1));
+        assertEquals(n, shared.size());
+        for (int q = 0; q < 200; q += 1) {
+            double lat = 47.45 + random.nextDouble() * 0.3;
+            double lon = -122.45 + random.nextDouble() * 0.3;
+            int found = shared.nearest(lat, lon);
+            assertEquals(copied.nearest(lat, lon), found);
+            assertEquals(copied.fraction(found, lat, lon), shared.fraction(found, lat, lon));
+        }
+    }
+
+    @Test
+    void fractionClampsToEndpoints() {
+        SegmentRTree tree = new SegmentRTree(new double[]{47.6}, new double[]{-122.3},
+                new double[]{47.6}, new double[]{-122.2});
+        assertEquals(0, tree.nearest(47.7, -122.5));
+        assertEquals(0.0, tree.fraction(0, 47.7, -122.5));
+        assertEquals(1.0, tree.fraction(0, 47.7, -122.0));
+        assertEquals(0.5, tree.fraction(0, 47.7, -122.25), 1e-9);
+    }
+
+    @Test
+    void emptyTreeHasNoNearest() {
+        assertEquals(-1, new SegmentRTree(new double[0], new double[0], new double[0], new double[0])
+                .nearest(47.6, -122.3));
+    }
+
+    @Test
+    void mismatchedArraysThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SegmentRTree(new double[1], new double[1], new double[1], new double[2]));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SegmentRTree(Points.of(new double[2], new double[2]), new int[1], new int[2]));
+    }
+}